@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.python.pydev.core.IInfo;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.parser.jython.SimpleNode;
+
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
+
+/**
+ * Adding the definitions of the modules to the additional info (indexing) and getting the tokens for
+ * the code-completion/auto-import from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AdditionalInfoBenchmark {
+
+    /*default*/ static final int MODULES = 200;
+
+    private static final String[] QUALIFIERS = new String[] { "C", "Cla", "Class1", "func", "method", "da", "x" };
+
+    private final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+    private final List<ModulesKey> keys = new ArrayList<ModulesKey>();
+    private BenchmarkTokensInfo filledInfo;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < MODULES; i++) {
+            String modName = "pack.mod" + i;
+            File file = new File("pack/mod" + i + ".py");
+            char[] contents = SyntheticCorpus.createModule(i, 5, true).toCharArray();
+            nodes.add(FastDefinitionsParser.parse(contents, modName, contents.length, file));
+            keys.add(new ModulesKey(modName, file));
+        }
+        filledInfo = addAstInfo();
+    }
+
+    /*default*/ static BenchmarkTokensInfo createFilledInfo(int modules) {
+        BenchmarkTokensInfo info = new BenchmarkTokensInfo();
+        for (int i = 0; i < modules; i++) {
+            String modName = "pack.mod" + i;
+            File file = new File("pack/mod" + i + ".py");
+            char[] contents = SyntheticCorpus.createModule(i, 5, true).toCharArray();
+            info.addAstInfo(FastDefinitionsParser.parse(contents, modName, contents.length, file),
+                    new ModulesKey(modName, file), false);
+        }
+        return info;
+    }
+
+    @Benchmark
+    public BenchmarkTokensInfo addAstInfo() {
+        BenchmarkTokensInfo info = new BenchmarkTokensInfo();
+        for (int i = 0; i < MODULES; i++) {
+            info.addAstInfo(nodes.get(i), keys.get(i), false);
+        }
+        return info;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getTokensStartingWith(Blackhole blackhole) {
+        for (String qualifier : QUALIFIERS) {
+            Collection<IInfo> tokens = filledInfo.getTokensStartingWith(qualifier,
+                    AbstractAdditionalTokensInfo.TOP_LEVEL | AbstractAdditionalTokensInfo.INNER);
+            blackhole.consume(tokens);
+        }
+    }
+}
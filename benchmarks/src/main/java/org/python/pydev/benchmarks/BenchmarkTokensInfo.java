@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.python.pydev.core.IInfo;
+import org.python.pydev.core.IPythonNature;
+
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
+
+/**
+ * Info which isn't related to any nature (and gives access to its trees to the benchmarks). If saved, it's
+ * persisted in a temporary folder.
+ */
+public final class BenchmarkTokensInfo extends AbstractAdditionalTokensInfo {
+
+    private static File persistingFolder;
+
+    @Override
+    protected IPythonNature getNature() {
+        return null;
+    }
+
+    @Override
+    protected File getPersistingLocation() {
+        return new File(getPersistingFolder(), "benchmark_tokens_info.pydevinfo");
+    }
+
+    @Override
+    protected File getPersistingFolder() {
+        synchronized (BenchmarkTokensInfo.class) {
+            if (persistingFolder == null) {
+                try {
+                    persistingFolder = Files.createTempDirectory("pydev_benchmarks").toFile();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                persistingFolder.deleteOnExit();
+            }
+            return persistingFolder;
+        }
+    }
+
+    public SortedMap<String, Set<IInfo>> getTopLevelInitialsToInfo() {
+        return topLevelInitialsToInfo;
+    }
+
+    public SortedMap<String, Set<IInfo>> getInnerInitialsToInfo() {
+        return innerInitialsToInfo;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and compares the results with a baseline previously stored in the same machine (see the
+ * pom.xml for the options available).
+ */
+public final class BenchmarksMain {
+
+    private BenchmarksMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(new CommandLineOptions(args))
+                .jvmArgsAppend("-DPyDevInTestMode=true");
+        if (Boolean.getBoolean("benchmarks.quick")) {
+            builder.warmupIterations(1).measurementIterations(1);
+        }
+        Collection<RunResult> results = new Runner(builder.build()).run();
+
+        Map<String, Double> scores = new TreeMap<>();
+        Map<String, String> units = new TreeMap<>();
+        for (RunResult runResult : results) {
+            String key = createKey(runResult);
+            scores.put(key, runResult.getPrimaryResult().getScore());
+            units.put(key, runResult.getPrimaryResult().getScoreUnit());
+        }
+
+        String baselinePath = System.getProperty("benchmarks.baseline");
+        if (baselinePath == null || baselinePath.isEmpty()) {
+            System.out.println();
+            if (Boolean.getBoolean("benchmarks.updateBaseline")) {
+                System.out.println("Unable to store the baseline: -Dbenchmarks.baseline=<file> not specified.");
+                System.exit(1);
+            }
+            System.out.println("No baseline specified (-Dbenchmarks.baseline=<file>): no comparison done.");
+            return;
+        }
+        File baselineFile = new File(baselinePath);
+        Properties baseline = new Properties();
+        if (baselineFile.exists()) {
+            try (InputStream in = new FileInputStream(baselineFile)) {
+                baseline.load(in);
+            }
+        }
+
+        if (Boolean.getBoolean("benchmarks.updateBaseline")) {
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                baseline.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            store(baseline, baselineFile);
+            System.out.println("Baseline stored in: " + baselineFile.getAbsolutePath());
+            return;
+        }
+
+        double threshold = Double.parseDouble(System.getProperty("benchmarks.threshold", "0.10"));
+        List<String> regressions = new ArrayList<>();
+        System.out.println();
+        System.out.println("Comparison with baseline (" + baselineFile.getAbsolutePath() + "):");
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            String key = entry.getKey();
+            double score = entry.getValue();
+            String stored = baseline.getProperty(key);
+            if (stored == null) {
+                System.out.println(String.format("  %s: %.3f %s (no baseline)", key, score, units.get(key)));
+                continue;
+            }
+            double base = Double.parseDouble(stored);
+            // All the benchmarks are measured as time/op, so, a higher score is a regression.
+            double diff = base == 0 ? 0 : (score - base) / base;
+            String line = String.format("  %s: %.3f %s (baseline: %.3f, %+.1f%%)", key, score, units.get(key), base,
+                    diff * 100);
+            System.out.println(line);
+            if (diff > threshold) {
+                regressions.add(line);
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.println("WARNING: regressions above " + (threshold * 100) + "% found:");
+            for (String line : regressions) {
+                System.out.println(line);
+            }
+            if (Boolean.getBoolean("benchmarks.failOnRegression")) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static String createKey(RunResult runResult) {
+        String key = runResult.getParams().getBenchmark();
+        for (String param : runResult.getParams().getParamsKeys()) {
+            key += "." + param + "=" + runResult.getParams().getParam(param);
+        }
+        return key;
+    }
+
+    private static void store(Properties baseline, File baselineFile) throws IOException {
+        File parent = baselineFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(baselineFile)) {
+            baseline.store(out, "JMH baseline (lower is better)");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.pydev.shared_core.index.IndexApi;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import com.python.pydev.analysis.additionalinfo.IReferenceSearches;
+
+/**
+ * Indexing of the modules contents in the index used for the reference searches (each invocation
+ * creates the index from scratch).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IndexApiBenchmark {
+
+    private static final int MODULES = 200;
+
+    private final String[] contents = new String[MODULES];
+    private File indexDir;
+    private IndexApi indexApi;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < MODULES; i++) {
+            contents[i] = SyntheticCorpus.createModule(i, 5, true);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createIndex() throws IOException {
+        indexDir = Files.createTempDirectory("pydev_benchmark_index").toFile();
+        indexApi = new IndexApi(indexDir, true);
+    }
+
+    @TearDown(Level.Invocation)
+    public void disposeIndex() throws IOException {
+        indexApi.dispose();
+        FileUtils.deleteDirectoryTree(indexDir);
+    }
+
+    @Benchmark
+    public IndexApi index() throws IOException {
+        for (int i = 0; i < MODULES; i++) {
+            Map<String, String> fieldsToIndex = new HashMap<>();
+            fieldsToIndex.put(IReferenceSearches.FIELD_MODULES_KEY_IO, "pack.mod" + i + "|pack/mod" + i + ".py");
+            fieldsToIndex.put(IReferenceSearches.FIELD_MODULE_NAME, "pack.mod" + i);
+            fieldsToIndex.put(IReferenceSearches.FIELD_MODIFIED_TIME, String.valueOf(i));
+            indexApi.index(fieldsToIndex, new StringReader(contents[i]), IReferenceSearches.FIELD_CONTENTS);
+        }
+        indexApi.commit();
+        return indexApi;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+
+/**
+ * Full parse of a module (what's done by the editor and by the code-analysis) for each grammar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    @Param({ "2.7", "3.6", "3.8" })
+    public String grammar;
+
+    private Document doc;
+    private int grammarVersion;
+
+    @Setup
+    public void setup() {
+        switch (grammar) {
+            case "2.7":
+                grammarVersion = IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_2_7;
+                break;
+            case "3.6":
+                grammarVersion = IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_3_6;
+                break;
+            case "3.8":
+                grammarVersion = IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_3_8;
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected grammar: " + grammar);
+        }
+        doc = new Document(SyntheticCorpus.createModule(0, 20, !grammar.startsWith("2")));
+
+        ParseOutput output = parse();
+        if (output.error != null || output.ast == null) {
+            throw new RuntimeException("The synthetic module must be parsed without errors.", output.error);
+        }
+    }
+
+    @Benchmark
+    public ParseOutput parse() {
+        return PyParser.reparseDocument(new ParserInfo(doc, grammarVersion, null));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.Random;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Creates the python modules used in the benchmarks.
+ *
+ * The contents only depend on the parameters passed (a fixed seed is used), so, the results of different
+ * runs (and machines) are comparable.
+ */
+public final class SyntheticCorpus {
+
+    private static final long SEED = 20191018L;
+
+    private static final String[] WORDS = new String[] { "data", "value", "item", "node", "parent", "child",
+            "result", "config", "handler", "request", "response", "buffer", "index", "cache", "token", "module",
+            "visitor", "parser", "stream", "entry" };
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * @param moduleIndex the index of the module (different indexes create different modules).
+     * @param classes the number of classes in the module (each with a few methods).
+     * @param py3 whether python 3 only constructs may be used.
+     */
+    public static String createModule(int moduleIndex, int classes, boolean py3) {
+        Random random = new Random(SEED + moduleIndex);
+        FastStringBuffer buf = new FastStringBuffer(classes * 1024);
+        buf.append("'''\nModule ").append(moduleIndex).append(" of the synthetic corpus.\n'''\n");
+        buf.append("import os\nimport sys\nfrom collections import namedtuple, OrderedDict\n");
+        buf.append("from mod").append(random.nextInt(100)).append(" import ").append(word(random)).append('\n');
+        buf.append("\nCONSTANT_").append(moduleIndex).append(" = ").append(random.nextInt(1000)).append('\n');
+        buf.append("Point = namedtuple('Point', 'x y')\n\n");
+
+        for (int i = 0; i < classes; i++) {
+            String className = "Class" + moduleIndex + "_" + i + capitalize(word(random));
+            buf.append("\n@decorator").append(i % 3).append('\n');
+            buf.append("class ").append(className).append("(object):\n");
+            buf.append("    '''Docstring for ").append(className).append("'''\n\n");
+            buf.append("    class_attr = ").append(random.nextInt(100)).append("\n\n");
+            buf.append("    def __init__(self, ").append(word(random)).append("=None):\n");
+            for (int j = 0; j < 3; j++) {
+                buf.append("        self.").append(word(random)).append(j).append(" = ")
+                        .append(random.nextInt(100)).append('\n');
+            }
+            int methods = 3 + random.nextInt(4);
+            for (int j = 0; j < methods; j++) {
+                String w = word(random);
+                buf.append('\n');
+                if (py3) {
+                    buf.append("    def method_").append(w).append(j).append("(self, a: int, *args, b=")
+                            .append(j).append(", **kwargs) -> int:\n");
+                } else {
+                    buf.append("    def method_").append(w).append(j).append("(self, a, *args, **kwargs):\n");
+                }
+                buf.append("        # comment for ").append(w).append('\n');
+                buf.append("        result = [x * 2 for x in range(a) if x % ").append(j + 2).append(" == 0]\n");
+                buf.append("        d = dict((k, v) for k, v in kwargs.items())\n");
+                buf.append("        if not result:\n");
+                buf.append("            return a + ").append(j).append('\n');
+                buf.append("        try:\n");
+                buf.append("            value = self.").append(w).append("_helper(*args, **d)\n");
+                buf.append("        except (KeyError, ValueError) as e:\n");
+                buf.append("            raise RuntimeError('error in ").append(w).append("')\n");
+                buf.append("        finally:\n");
+                buf.append("            pass\n");
+                if (py3) {
+                    buf.append("        label = f'").append(w).append(" {value!r}'\n");
+                } else {
+                    buf.append("        label = '").append(w).append(" %r' % (value,)\n");
+                }
+                buf.append("        lambda_func = lambda x, y=1: x + y\n");
+                buf.append("        return sum(result) + lambda_func(value)\n");
+            }
+        }
+
+        for (int i = 0; i < classes; i++) {
+            String w = word(random);
+            buf.append("\n\ndef function_").append(w).append(i).append("(param, other=").append(i).append("):\n");
+            buf.append("    while param > 0:\n");
+            buf.append("        param -= 1\n");
+            buf.append("        other = {'").append(w).append("': param, 'key': [1, 2, 3][param % 3]}\n");
+            buf.append("    return other\n");
+        }
+
+        buf.append("\n\nif __name__ == '__main__':\n");
+        buf.append("    function_0 = None\n");
+        return buf.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
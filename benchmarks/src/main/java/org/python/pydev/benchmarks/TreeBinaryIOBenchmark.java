@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.core.IInfo;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+
+import com.python.pydev.analysis.additionalinfo.TreeBinaryIO;
+
+/**
+ * Saving/restoring the additional info (done when the interpreter/project info is persisted/loaded).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeBinaryIOBenchmark {
+
+    private BenchmarkTokensInfo info;
+    private byte[] saved;
+
+    @Setup
+    public void setup() throws IOException {
+        info = AdditionalInfoBenchmark.createFilledInfo(AdditionalInfoBenchmark.MODULES);
+        saved = save();
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        TreeBinaryIO.Writer writer = new TreeBinaryIO.Writer();
+        writer.writeTree(TreeBinaryIO.SECTION_TREE_1, info.getTopLevelInitialsToInfo());
+        writer.writeTree(TreeBinaryIO.SECTION_TREE_2, info.getInnerInitialsToInfo());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+        writer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public void restore(Blackhole blackhole) throws IOException {
+        TreeBinaryIO.Reader reader = new TreeBinaryIO.Reader(ByteBuffer.wrap(saved), new ObjectsPoolMap());
+        byte section;
+        while ((section = reader.nextSection()) != TreeBinaryIO.SECTION_END) {
+            if (section == TreeBinaryIO.SECTION_DISKCACHE) {
+                blackhole.consume(reader.readText());
+            } else {
+                PyPublicTreeMap<String, Set<IInfo>> tree = reader.readTree(null);
+                blackhole.consume(tree);
+            }
+        }
+    }
+}
@@ -11,6 +11,14 @@ package com.python.pydev.analysis;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -38,19 +46,56 @@ import com.python.pydev.analysis.visitors.OccurrencesVisitor;
  */
 public class OccurrencesAnalyzer {
 
+    /**
+     * Shared by all the analyses to run the pep8 checks (in parallel with the other checks).
+     */
+    private static ThreadPoolExecutor pep8Executor;
+
+    private static synchronized ThreadPoolExecutor getPep8Executor() {
+        if (pep8Executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            int nThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            pep8Executor = new ThreadPoolExecutor(nThreads, nThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r);
+                            thread.setName("PyDev: PEP 8 analysis " + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            pep8Executor.allowCoreThreadTimeOut(true);
+        }
+        return pep8Executor;
+    }
+
+    /**
+     * Stops the threads used for the pep8 checks (called when the plugin is stopped).
+     */
+    public static synchronized void disposePep8Executor() {
+        if (pep8Executor != null) {
+            pep8Executor.shutdownNow();
+            pep8Executor = null;
+        }
+    }
+
     public IMessage[] analyzeDocument(IPythonNature nature, final SourceModule module,
             final IAnalysisPreferences prefs,
             final IDocument document, final IProgressMonitor monitor, IIndentPrefs indentPrefs) {
 
         //Do pep8 in a thread.
-        final List<IMessage> pep8Messages = new ArrayList<>();
-        Thread t = new Thread() {
+        Future<List<IMessage>> pep8Messages = getPep8Executor().submit(new Callable<List<IMessage>>() {
+
             @Override
-            public void run() {
-                pep8Messages.addAll(new Pep8Visitor().getMessages(module, document, monitor, prefs));
+            public List<IMessage> call() throws Exception {
+                if (monitor.isCanceled()) {
+                    return new ArrayList<>(0);
+                }
+                return new Pep8Visitor().getMessages(module, document, monitor, prefs);
             }
-        };
-        t.start();
+        });
         OccurrencesVisitor visitor = new OccurrencesVisitor(nature, module.getName(), module, prefs, document, monitor);
         try {
             SimpleNode ast = module.getAst();
@@ -88,11 +133,14 @@ public class OccurrencesAnalyzer {
 
         if (!monitor.isCanceled()) {
             try {
-                t.join();
-                messages.addAll(pep8Messages);
+                messages.addAll(pep8Messages.get());
             } catch (InterruptedException e) {
                 //If interrupted keep on going as it is.
+            } catch (ExecutionException e) {
+                Log.log(e);
             }
+        } else {
+            pep8Messages.cancel(false);
         }
 
         return messages.toArray(new IMessage[messages.size()]);
@@ -14,7 +14,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,6 +27,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap;
 import org.python.pydev.ast.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.ast.codecompletion.revisited.modules.CompiledModule;
 import org.python.pydev.ast.codecompletion.revisited.modules.IAbstractJavaClassModule;
 import org.python.pydev.ast.interpreter_managers.InterpreterInfo;
 import org.python.pydev.core.FastBufferedReader;
@@ -157,6 +158,11 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     public final Object updateKeysLock = new Object(); // Calls to updateKeysIfNeededAndSave should be synchronized.
 
+    /**
+     * The number of builtin modules whose info is requested to the shell at once when indexing.
+     */
+    private static final int COMPILED_MODULES_PREFETCH_BATCH = 50;
+
     /**
      * If info == null we're dealing with project info (otherwise we're dealing with interpreter info).
      *
@@ -227,29 +233,53 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
         // Add last (a module could be removed/added).
         if (hasNew) {
-            FastStringBuffer buffer = new FastStringBuffer();
-            int currI = 0;
-            int total = newKeys.size();
+            // Source modules are read/parsed concurrently (builtins are created through a shell, so, they're
+            // still indexed one by one afterwards).
+            List<ModulesKey> sourceKeys = new ArrayList<ModulesKey>();
+            List<ModulesKey> builtinKeys = new ArrayList<ModulesKey>();
             for (ModulesKey newKey : newKeys) {
-                currI += 1;
-                if (monitor.isCanceled()) {
-                    return;
-                }
                 if (PythonPathHelper.canAddAstInfoForSourceModule(newKey)) {
-                    buffer.clear().append("Indexing ").append(currI).append(" of ").append(total)
-                            .append(" (source module): ").append(newKey.name).append("  (")
-                            .append(currI).append(" of ").append(total).append(")");
-                    try {
-                        // Don't generate deltas (we'll save it in the end).
-                        this.addAstInfo(newKey, false);
-                    } catch (Exception e) {
-                        Log.log(e);
-                    }
+                    sourceKeys.add(newKey);
                 } else {
-                    if (info != null) {
+                    builtinKeys.add(newKey);
+                }
+            }
+
+            if (sourceKeys.size() > 0) {
+                ParallelAstInfoIndexer indexer = new ParallelAstInfoIndexer(this, sourceKeys, monitor);
+                if (!indexer.index()) {
+                    return;
+                }
+                if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
+                    org.python.pydev.shared_core.log.ToLogFile.toLogFile(this,
+                            StringUtils.format("Indexed %s source modules: %s modules/s (%s threads)",
+                                    sourceKeys.size(), (int) indexer.getModulesPerSecond(),
+                                    indexer.getNumberOfThreads()));
+                }
+            }
+
+            if (info != null) {
+                FastStringBuffer buffer = new FastStringBuffer();
+                int currI = 0;
+                int total = builtinKeys.size();
+                try {
+                    for (ModulesKey newKey : builtinKeys) {
+                        currI += 1;
+                        if (monitor.isCanceled()) {
+                            return;
+                        }
                         if (isJython && ignoreFiles.contains(newKey.file)) {
                             continue;
                         }
+                        if (!isJython && (currI - 1) % COMPILED_MODULES_PREFETCH_BATCH == 0) {
+                            // Get the info on the next compiled modules from the shell in a single request.
+                            List<String> names = new ArrayList<String>(COMPILED_MODULES_PREFETCH_BATCH);
+                            for (ModulesKey k : builtinKeys.subList(currI - 1,
+                                    Math.min(total, currI - 1 + COMPILED_MODULES_PREFETCH_BATCH))) {
+                                names.add(k.name);
+                            }
+                            CompiledModule.prefetchFromServer(names, info.getModulesManager());
+                        }
                         buffer.clear().append("Indexing ").append(currI).append(" of ").append(total)
                                 .append(" (builtin module): ").append(newKey.name);
                         monitor.setTaskName(buffer.toString());
@@ -268,6 +298,8 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                             addAstForCompiledModule(builtinModule, info, newKey, removeFirst);
                         }
                     }
+                } finally {
+                    CompiledModule.discardPrefetched(info.getModulesManager());
                 }
             }
         }
@@ -323,25 +355,50 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     @Override
     public List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta) {
-        List<IInfo> addAstInfo = new ArrayList<IInfo>();
         if (node == null || key == null || key.name == null) {
-            return addAstInfo;
+            return new ArrayList<IInfo>();
         }
-        try {
-            synchronized (lock) {
-                addAstInfo = super.addAstInfo(node, key, generateDelta);
+        return super.addAstInfo(node, key, generateDelta);
+    }
 
-                CompleteIndexKey completeIndexKey = new CompleteIndexKey(key);
-                if (key.file != null) {
-                    completeIndexKey.lastModified = FileUtils.lastModified(key.file);
-                }
-                completeIndex.add(completeIndexKey);
+    @Override
+    protected void addModuleInfos(ModuleInfos moduleInfos) {
+        addModuleInfos(moduleInfos, createCompleteIndexKey(moduleInfos.key));
+    }
 
+    /**
+     * @return the key to be added to the completeIndex (may be called without holding the lock, as it has to
+     * get the last modified time of the module file).
+     */
+    /*default*/ static CompleteIndexKey createCompleteIndexKey(ModulesKey key) {
+        CompleteIndexKey completeIndexKey = new CompleteIndexKey(key);
+        if (key.file != null) {
+            completeIndexKey.lastModified = FileUtils.lastModified(key.file);
+        }
+        return completeIndexKey;
+    }
+
+    private void addModuleInfos(ModuleInfos moduleInfos, CompleteIndexKey completeIndexKey) {
+        synchronized (lock) {
+            super.addModuleInfos(moduleInfos);
+            completeIndex.add(completeIndexKey);
+        }
+    }
+
+    /**
+     * Adds the infos created concurrently (by ParallelAstInfoIndexer) holding the lock only once for the
+     * whole batch.
+     */
+    /*default*/ void addModuleInfos(List<Tuple<ModuleInfos, CompleteIndexKey>> batch) {
+        synchronized (lock) {
+            for (Tuple<ModuleInfos, CompleteIndexKey> tup : batch) {
+                try {
+                    addModuleInfos(tup.o1, tup.o2);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
             }
-        } catch (Exception e) {
-            Log.log(e);
         }
-        return addAstInfo;
     }
 
     @Override
@@ -356,13 +413,14 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
     }
 
     @Override
-    protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
+    protected void saveTo(TreeBinaryIO.Writer writer, File pathToSave) throws IOException {
         synchronized (lock) {
+            FastStringBuffer tempBuf = new FastStringBuffer();
             completeIndex.writeTo(tempBuf);
-            writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
-            tempBuf.clear();
+            writer.writeText(TreeBinaryIO.SECTION_DISKCACHE, tempBuf.toString());
+            tempBuf = null;
 
-            super.saveTo(writer, tempBuf, pathToSave);
+            super.saveTo(writer, pathToSave);
         }
     }
 
@@ -431,10 +489,13 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
     private Object loadContentsFromFile(File file, IPythonNature nature)
             throws FileNotFoundException, IOException, MisconfigurationException {
+        if (TreeBinaryIO.isBinaryFile(file)) {
+            return loadContentsFromBinaryFile(file, nature);
+        }
         FileInputStream fileInputStream = new FileInputStream(file);
         try {
             //            Timer timer = new Timer();
-            String expected = "-- VERSION_" + AbstractAdditionalTokensInfo.version; //X is the version
+            String expected = "-- VERSION_" + AbstractAdditionalTokensInfo.TEXT_FORMAT_VERSION; //X is the version
             InputStreamReader reader = new InputStreamReader(fileInputStream);
             FastBufferedReader bufferedReader = new FastBufferedReader(reader);
             FastStringBuffer string = bufferedReader.readLine();
@@ -475,9 +536,11 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                                         tupWithResults.o2 = DiskCache.loadFrom(bufferedReader, objectsPoolMap);
 
                                     } else if (line.startsWith("-- VERSION_")) {
-                                        if (!line.endsWith(String.valueOf(AbstractAdditionalTokensInfo.version))) {
+                                        if (!line.endsWith(
+                                                String.valueOf(AbstractAdditionalTokensInfo.TEXT_FORMAT_VERSION))) {
                                             throw new RuntimeException("Expected the version to be: "
-                                                    + AbstractAdditionalTokensInfo.version + " Found: " + line);
+                                                    + AbstractAdditionalTokensInfo.TEXT_FORMAT_VERSION + " Found: "
+                                                    + line);
                                         }
                                     } else if (line.startsWith("-- END TREE")) {
                                         //just skip it in this situation.
@@ -495,6 +558,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
                     restoreSavedInfo(tupWithResults);
                     //                    timer.printDiff("Time taken");
+                    save(); //Save in new format!
                     return tupWithResults;
                 } else {
                     throw new RuntimeException("Version does not match. Found: " + string + ". Expected: " + expected);
@@ -520,6 +584,43 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         }
     }
 
+    private Object loadContentsFromBinaryFile(File file, IPythonNature nature) throws IOException,
+            MisconfigurationException {
+        ObjectsPoolMap objectsPoolMap = new ObjectsInternPool.ObjectsPoolMap();
+        TreeBinaryIO.Reader reader = new TreeBinaryIO.Reader(TreeBinaryIO.Reader.readFile(file), objectsPoolMap);
+
+        Tuple<Tuple3<Object, Object, Object>, Object> tupWithResults = new Tuple<Tuple3<Object, Object, Object>, Object>(
+                new Tuple3<Object, Object, Object>(null, null, null), null);
+        Tuple3<Object, Object, Object> superTupWithResults = tupWithResults.o1;
+        //tupWithResults.o2 = DiskCache
+        byte section;
+        while ((section = reader.nextSection()) != TreeBinaryIO.SECTION_END) {
+            switch (section) {
+                case TreeBinaryIO.SECTION_TREE_1:
+                    superTupWithResults.o1 = reader.readTree(nature);
+                    break;
+
+                case TreeBinaryIO.SECTION_TREE_2:
+                    superTupWithResults.o2 = reader.readTree(nature);
+                    break;
+
+                case TreeBinaryIO.SECTION_DISKCACHE:
+                    FastBufferedReader bufferedReader = new FastBufferedReader(new StringReader(reader.readText()));
+                    FastStringBuffer line = bufferedReader.readLine();
+                    if (line == null || !line.startsWith("-- START DISKCACHE_" + DiskCache.VERSION)) {
+                        throw new RuntimeException("Disk cache version changed");
+                    }
+                    tupWithResults.o2 = DiskCache.loadFrom(bufferedReader, objectsPoolMap);
+                    break;
+
+                default:
+                    throw new RuntimeException("Unexpected section: " + section);
+            }
+        }
+        restoreSavedInfo(tupWithResults);
+        return tupWithResults;
+    }
+
     protected void addInfoToModuleOnRestoreInsertCommand(Tuple<ModulesKey, List<IInfo>> data) {
         CompleteIndexKey key = new CompleteIndexKey(data.o1);
         if (data.o1.file != null) {
@@ -10,16 +10,16 @@
 package com.python.pydev.analysis.additionalinfo;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -120,6 +120,13 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     protected SortedMap<String, Set<IInfo>> innerInitialsToInfo = new PyPublicTreeMap<String, Set<IInfo>>();
 
+    /**
+     * The indexes used for queries (the maps above are the ones persisted and changed with the lock held, whereas
+     * queries are done in an immutable trie built from them, which doesn't need the lock).
+     */
+    private final TokensIndex topLevelIndex = new TokensIndex();
+    private final TokensIndex innerIndex = new TokensIndex();
+
     /**
      * Should be used before re-creating the info, so that we have enough memory.
      */
@@ -131,13 +138,15 @@ public abstract class AbstractAdditionalTokensInfo {
             if (innerInitialsToInfo != null) {
                 innerInitialsToInfo.clear();
             }
+            topLevelIndex.clear();
+            innerIndex.clear();
         }
     }
 
     protected Object lock = new Object();
 
     /**
-     * The filter interface
+     * The filter interface (only used by getWithFilter: the queries in this class are done in the index).
      */
     public interface Filter {
         boolean doCompare(String lowerCaseQual, IInfo info);
@@ -145,45 +154,20 @@ public abstract class AbstractAdditionalTokensInfo {
         boolean doCompare(String lowerCaseQual, String infoName);
     }
 
-    /**
-     * A filter that checks if tokens are equal
-     */
-    private final Filter equalsFilter = new Filter() {
-        @Override
-        public boolean doCompare(String qualifier, IInfo info) {
-            return info.getName().equals(qualifier);
-        }
-
-        @Override
-        public boolean doCompare(String qualifier, String infoName) {
-            return infoName.equals(qualifier);
-        }
-    };
-
-    /**
-     * A filter that checks if the tokens starts with a qualifier
-     */
-    private final Filter startingWithFilter = new Filter() {
-
-        @Override
-        public boolean doCompare(String lowerCaseQual, IInfo info) {
-            return doCompare(lowerCaseQual, info.getName());
-        }
-
-        @Override
-        public boolean doCompare(String qualifier, String infoName) {
-            return infoName.toLowerCase().startsWith(qualifier);
-        }
-
-    };
-
     /**
      * 2: because we've removed some info (the hash is no longer saved)
      * 3: Changed from string-> list to string->set
      * 4: Keeping file, line and column for entries
      * 5: Fix when restoring information
+     * 6: Binary format (TreeBinaryIO)
      */
-    protected static final int version = 5;
+    protected static final int version = 6;
+
+    /**
+     * The last version saved in the text format (TreeIO): still read so that the info may be migrated
+     * without having to be rebuilt.
+     */
+    protected static final int TEXT_FORMAT_VERSION = 5;
 
     public AbstractAdditionalTokensInfo() {
     }
@@ -198,6 +182,7 @@ public abstract class AbstractAdditionalTokensInfo {
             String name = info.getName();
             String initials = getInitials(name);
             SortedMap<String, Set<IInfo>> initialsToInfo;
+            TokensIndex index;
 
             if (doOn == TOP_LEVEL) {
                 if (info.getPath() != null && info.getPath().length() > 0) {
@@ -205,6 +190,7 @@ public abstract class AbstractAdditionalTokensInfo {
                             "Error: the info being added is added as an 'top level' info, but has path. Info:" + info);
                 }
                 initialsToInfo = topLevelInitialsToInfo;
+                index = topLevelIndex;
 
             } else if (doOn == INNER) {
                 if (info.getPath() == null || info.getPath().length() == 0) {
@@ -213,12 +199,15 @@ public abstract class AbstractAdditionalTokensInfo {
                                     + info);
                 }
                 initialsToInfo = innerInitialsToInfo;
+                index = innerIndex;
 
             } else {
                 throw new RuntimeException("List to add is invalid: " + doOn);
             }
             Set<IInfo> listForInitials = getAndCreateListForInitials(initials, initialsToInfo);
-            listForInitials.add(info);
+            if (listForInitials.add(info)) {
+                index.add(info);
+            }
         }
     }
 
@@ -247,7 +236,10 @@ public abstract class AbstractAdditionalTokensInfo {
         return lInfo;
     }
 
-    private IInfo addAssignTargets(ASTEntry entry, String moduleName, int doOn, String path, boolean lastIsMethod,
+    /**
+     * @return the info for the assign (note: it's not added, the caller is responsible for that).
+     */
+    private IInfo createAssignTargetsInfo(ASTEntry entry, String moduleName, String path, boolean lastIsMethod,
             String file) {
         String rep = NodeUtils.getFullRepresentationString(entry.node);
         if (lastIsMethod) {
@@ -256,22 +248,18 @@ public abstract class AbstractAdditionalTokensInfo {
                 //at least 2 parts are required
                 if (parts.get(0).equals("self")) {
                     rep = parts.get(1);
-                    //no intern construct (locked in the loop that calls this method)
-                    AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(rep), moduleName,
-                            ObjectsInternPool.internUnsynched(path), false, getNature(), file,
+                    //no intern construct (already interned)
+                    return new AttrInfo(ObjectsInternPool.intern(rep), moduleName,
+                            ObjectsInternPool.intern(path), false, getNature(), file,
                             entry.node.beginLine, entry.node.beginColumn);
-                    add(info, doOn);
-                    return info;
                 }
             }
         } else {
-            //no intern construct (locked in the loop that calls this method)
-            AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(FullRepIterable.getFirstPart(rep)),
+            //no intern construct (already interned)
+            return new AttrInfo(ObjectsInternPool.intern(FullRepIterable.getFirstPart(rep)),
                     moduleName,
-                    ObjectsInternPool.internUnsynched(path), false, getNature(), file,
+                    ObjectsInternPool.intern(path), false, getNature(), file,
                     entry.node.beginLine, entry.node.beginColumn);
-            add(info, doOn);
-            return info;
         }
         return null;
     }
@@ -279,6 +267,23 @@ public abstract class AbstractAdditionalTokensInfo {
     protected abstract IPythonNature getNature();
 
     public List<IInfo> addAstInfo(ModulesKey key, boolean generateDelta) throws Exception {
+        SimpleNode node = parseDefinitions(key);
+        if (node == null) {
+            return null;
+        }
+
+        return addAstInfo(node, key, generateDelta);
+    }
+
+    /**
+     * Reads the contents of the given module and parses it with the FastDefinitionsParser.
+     *
+     * Note: doesn't access this info, so, it may be called concurrently (i.e.: while indexing the modules
+     * of the interpreter in multiple threads).
+     *
+     * @return the ast with the definitions of the module or null if it couldn't be parsed.
+     */
+    public static SimpleNode parseDefinitions(ModulesKey key) throws Exception {
         boolean isZipModule = key instanceof ModulesKeyForZip;
         ModulesKeyForZip modulesKeyForZip = null;
         if (isZipModule) {
@@ -320,12 +325,27 @@ public abstract class AbstractAdditionalTokensInfo {
             throw new RuntimeException("Don't know how to handle: " + doc + " -- " + doc.getClass());
         }
 
-        SimpleNode node = FastDefinitionsParser.parse(charArray, key.file.getName(), len, key.file);
-        if (node == null) {
-            return null;
-        }
+        return FastDefinitionsParser.parse(charArray, key.file.getName(), len, key.file);
+    }
 
-        return addAstInfo(node, key, generateDelta);
+    /**
+     * The infos created for a module which still have to be added to this info (see addModuleInfos).
+     */
+    protected static final class ModuleInfos {
+
+        public final ModulesKey key;
+
+        /**
+         * All the infos created (in the order they were found in the ast).
+         */
+        public final List<IInfo> createdInfos = new ArrayList<IInfo>();
+
+        private final List<IInfo> topLevelInfos = new ArrayList<IInfo>();
+        private final List<IInfo> innerInfos = new ArrayList<IInfo>();
+
+        public ModuleInfos(ModulesKey key) {
+            this.key = key;
+        }
     }
 
     /**
@@ -334,116 +354,140 @@ public abstract class AbstractAdditionalTokensInfo {
      * @param m the module we want to add to the info
      */
     public List<IInfo> addAstInfo(SimpleNode node, ModulesKey key, boolean generateDelta) {
-        List<IInfo> createdInfos = new ArrayList<IInfo>();
         if (node == null || key.name == null) {
-            return createdInfos;
+            return new ArrayList<IInfo>();
         }
         try {
-            Tuple<DefinitionsASTIteratorVisitor, Iterator<ASTEntry>> tup = getInnerEntriesForAST(node);
-            if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
-                org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "Adding ast info to: " + key.name);
-            }
-
-            try {
-                Iterator<ASTEntry> entries = tup.o2;
-
-                FastStack<SimpleNode> tempStack = new FastStack<SimpleNode>(10);
-
-                synchronized (this.lock) {
-                    synchronized (ObjectsInternPool.lock) {
-                        final String file = key.file != null ? ObjectsInternPool.internUnsynched(key.file.toString())
-                                : null;
-                        key.name = ObjectsInternPool.internUnsynched(key.name);
-
-                        while (entries.hasNext()) {
-                            ASTEntry entry = entries.next();
-                            IInfo infoCreated = null;
-
-                            if (entry.parent == null) { //we only want those that are in the global scope
-                                if (entry.node instanceof ClassDef) {
-                                    //no intern construct (locked in this loop)
-                                    NameTok name = (NameTok) ((ClassDef) entry.node).name;
-                                    ClassInfo info = new ClassInfo(
-                                            ObjectsInternPool.internUnsynched(name.id),
-                                            key.name, null, false, getNature(), file, name.beginLine,
-                                            name.beginColumn);
-                                    add(info, TOP_LEVEL);
-                                    infoCreated = info;
-
-                                } else if (entry.node instanceof FunctionDef) {
-                                    //no intern construct (locked in this loop)
-                                    NameTok name = (NameTok) ((FunctionDef) entry.node).name;
-                                    FuncInfo info2 = new FuncInfo(
-                                            ObjectsInternPool.internUnsynched(name.id),
-                                            key.name, null, false, getNature(), file, name.beginLine,
-                                            name.beginColumn);
-                                    add(info2, TOP_LEVEL);
-                                    infoCreated = info2;
-
-                                } else {
-                                    //it is an assign
-                                    infoCreated = this.addAssignTargets(entry, key.name, TOP_LEVEL, null, false, file);
-
-                                }
-                            } else {
-                                if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
-                                    //ok, it has a parent, so, let's check to see if the path we got only has class definitions
-                                    //as the parent (and get that path)
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        //if the root is not valid, it is not only classes in the path (could be a method inside
-                                        //a method, or something similar).
-
-                                        if (entry.node instanceof ClassDef) {
-                                            NameTok name = ((NameTok) ((ClassDef) entry.node).name);
-                                            ClassInfo info = new ClassInfo(
-                                                    ObjectsInternPool.internUnsynched(name.id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false,
-                                                    getNature(), file, name.beginLine, name.beginColumn);
-                                            add(info, INNER);
-                                            infoCreated = info;
-
-                                        } else {
-                                            //FunctionDef
-                                            NameTok name = ((NameTok) ((FunctionDef) entry.node).name);
-                                            FuncInfo info2 = new FuncInfo(
-                                                    ObjectsInternPool.internUnsynched(name.id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false,
-                                                    getNature(), file, name.beginLine, name.beginColumn);
-                                            add(info2, INNER);
-                                            infoCreated = info2;
-
-                                        }
-                                    }
-                                } else {
-                                    //it is an assign
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        infoCreated = this.addAssignTargets(entry, key.name, INNER, pathToRoot.o1,
-                                                pathToRoot.o2, file);
-                                    }
-                                }
-                            }
-
-                            if (infoCreated != null) {
-                                createdInfos.add(infoCreated);
-                            }
-
-                        } //end while
-
-                    } //end lock ObjectsPool.lock
-
-                } //end this.lock
-
-            } catch (Exception e) {
-                Log.log(e);
-            }
+            ModuleInfos moduleInfos = createModuleInfos(node, key);
+            addModuleInfos(moduleInfos);
+            return moduleInfos.createdInfos;
         } catch (Exception e) {
             Log.log(e);
         }
-        return createdInfos;
+        return new ArrayList<IInfo>();
+    }
+
+    /**
+     * Adds the given infos (which should've been created by createModuleInfos).
+     */
+    protected void addModuleInfos(ModuleInfos moduleInfos) {
+        synchronized (this.lock) {
+            for (IInfo info : moduleInfos.topLevelInfos) {
+                add(info, TOP_LEVEL);
+            }
+            for (IInfo info : moduleInfos.innerInfos) {
+                add(info, INNER);
+            }
+        }
+    }
+
+    /**
+     * Creates the infos for the given ast (the infos are created and their strings interned without getting
+     * our lock, so, this may be called concurrently and the lock is only held later on to add them).
+     */
+    protected ModuleInfos createModuleInfos(SimpleNode node, ModulesKey key) throws Exception {
+        ModuleInfos moduleInfos = new ModuleInfos(key);
+        Tuple<DefinitionsASTIteratorVisitor, Iterator<ASTEntry>> tup = getInnerEntriesForAST(node);
+        if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+            org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "Adding ast info to: " + key.name);
+        }
+
+        Iterator<ASTEntry> entries = tup.o2;
+
+        FastStack<SimpleNode> tempStack = new FastStack<SimpleNode>(10);
+
+        List<IInfo> createdInfos = moduleInfos.createdInfos;
+        List<IInfo> topLevelInfos = moduleInfos.topLevelInfos;
+        List<IInfo> innerInfos = moduleInfos.innerInfos;
+
+        final String file = key.file != null ? ObjectsInternPool.intern(key.file.toString()) : null;
+        key.name = ObjectsInternPool.intern(key.name);
+
+        while (entries.hasNext()) {
+            ASTEntry entry = entries.next();
+            IInfo infoCreated = null;
+
+            if (entry.parent == null) { //we only want those that are in the global scope
+                if (entry.node instanceof ClassDef) {
+                    //no intern construct (already interned)
+                    NameTok name = (NameTok) ((ClassDef) entry.node).name;
+                    ClassInfo info = new ClassInfo(
+                            ObjectsInternPool.intern(name.id),
+                            key.name, null, false, getNature(), file, name.beginLine,
+                            name.beginColumn);
+                    topLevelInfos.add(info);
+                    infoCreated = info;
+
+                } else if (entry.node instanceof FunctionDef) {
+                    //no intern construct (already interned)
+                    NameTok name = (NameTok) ((FunctionDef) entry.node).name;
+                    FuncInfo info2 = new FuncInfo(
+                            ObjectsInternPool.intern(name.id),
+                            key.name, null, false, getNature(), file, name.beginLine,
+                            name.beginColumn);
+                    topLevelInfos.add(info2);
+                    infoCreated = info2;
+
+                } else {
+                    //it is an assign
+                    infoCreated = this.createAssignTargetsInfo(entry, key.name, null, false, file);
+                    if (infoCreated != null) {
+                        topLevelInfos.add(infoCreated);
+                    }
+
+                }
+            } else {
+                if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
+                    //ok, it has a parent, so, let's check to see if the path we got only has class definitions
+                    //as the parent (and get that path)
+                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
+                            tempStack);
+                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                        //if the root is not valid, it is not only classes in the path (could be a method inside
+                        //a method, or something similar).
+
+                        if (entry.node instanceof ClassDef) {
+                            NameTok name = ((NameTok) ((ClassDef) entry.node).name);
+                            ClassInfo info = new ClassInfo(
+                                    ObjectsInternPool.intern(name.id),
+                                    key.name, ObjectsInternPool.intern(pathToRoot.o1), false,
+                                    getNature(), file, name.beginLine, name.beginColumn);
+                            innerInfos.add(info);
+                            infoCreated = info;
+
+                        } else {
+                            //FunctionDef
+                            NameTok name = ((NameTok) ((FunctionDef) entry.node).name);
+                            FuncInfo info2 = new FuncInfo(
+                                    ObjectsInternPool.intern(name.id),
+                                    key.name, ObjectsInternPool.intern(pathToRoot.o1), false,
+                                    getNature(), file, name.beginLine, name.beginColumn);
+                            innerInfos.add(info2);
+                            infoCreated = info2;
+
+                        }
+                    }
+                } else {
+                    //it is an assign
+                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
+                            tempStack);
+                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                        infoCreated = this.createAssignTargetsInfo(entry, key.name, pathToRoot.o1,
+                                pathToRoot.o2, file);
+                        if (infoCreated != null) {
+                            innerInfos.add(infoCreated);
+                        }
+                    }
+                }
+            }
+
+            if (infoCreated != null) {
+                createdInfos.add(infoCreated);
+            }
+
+        } //end while
+
+        return moduleInfos;
     }
 
     /**
@@ -462,22 +506,8 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     public Set<String> getAllModulesWithTokens() {
         HashSet<String> ret = new HashSet<String>();
-        synchronized (lock) {
-            Set<Entry<String, Set<IInfo>>> entrySet = this.topLevelInitialsToInfo.entrySet();
-            for (Entry<String, Set<IInfo>> entry : entrySet) {
-                Set<IInfo> value = entry.getValue();
-                for (IInfo info : value) {
-                    ret.add(info.getDeclaringModuleName());
-                }
-            }
-
-            entrySet = this.innerInitialsToInfo.entrySet();
-            for (Entry<String, Set<IInfo>> entry : entrySet) {
-                Set<IInfo> value = entry.getValue();
-                for (IInfo info : value) {
-                    ret.add(info.getDeclaringModuleName());
-                }
-            }
+        for (IInfo info : getAllTokens()) {
+            ret.add(info.getDeclaringModuleName());
         }
         return ret;
 
@@ -562,6 +592,8 @@ public abstract class AbstractAdditionalTokensInfo {
         synchronized (lock) {
             removeInfoFromMap(moduleName, topLevelInitialsToInfo);
             removeInfoFromMap(moduleName, innerInitialsToInfo);
+            topLevelIndex.removeModule(moduleName);
+            innerIndex.removeModule(moduleName);
         }
 
     }
@@ -590,33 +622,37 @@ public abstract class AbstractAdditionalTokensInfo {
     /**
      * This is the function for which we are most optimized!
      *
-     * @param qualifier the tokens returned have to start with the given qualifier
+     * @param qualifier the tokens returned have to start with the given qualifier (case-insensitive)
      * @return a list of info, all starting with the given qualifier
      */
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, null);
-        }
+        return getFromIndex(TokensTrie.STARTING_WITH, qualifier, getWhat, null);
     }
 
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
-        }
+        return getFromIndex(TokensTrie.STARTING_WITH, qualifier, getWhat, result);
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, null);
-        }
+        return getFromIndex(TokensTrie.EQUAL_TO, qualifier, getWhat, null);
     }
 
     public Collection<IInfo> getTokensEqualTo(String qualifier, int getWhat, Collection<IInfo> result) {
-        synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, equalsFilter, false, result);
-        }
+        return getFromIndex(TokensTrie.EQUAL_TO, qualifier, getWhat, result);
+    }
+
+    /**
+     * @return the tokens matching the qualifier with camel-case (i.e.: 'NPE' matches 'NullPointerException' and
+     * 'gTB' matches 'get_the_bar' -- see: TokensTrie.getCamelCaseMatches).
+     */
+    public Collection<IInfo> getTokensMatchingCamelCase(String qualifier, int getWhat, Collection<IInfo> result) {
+        return getFromIndex(TokensTrie.CAMEL_CASE, qualifier, getWhat, result);
     }
 
+    /**
+     * Gets the tokens with the initials of the qualifier accepted by the given filter (kept for subclasses: the
+     * queries in this class are done in the index, which is much faster).
+     */
     protected Collection<IInfo> getWithFilter(String qualifier, int getWhat, Filter filter, boolean useLowerCaseQual,
             Collection<IInfo> result) {
         synchronized (lock) {
@@ -638,7 +674,6 @@ public abstract class AbstractAdditionalTokensInfo {
      * @param qualifier
      * @param initialsToInfo this is where we are going to get the info from (currently: inner or top level list)
      * @param toks (out) the tokens will be added to this list
-     * @return
      */
     protected void getWithFilter(String qualifier, SortedMap<String, Set<IInfo>> initialsToInfo,
             Collection<IInfo> toks, Filter filter, boolean useLowerCaseQual) {
@@ -652,7 +687,6 @@ public abstract class AbstractAdditionalTokensInfo {
         SortedMap<String, Set<IInfo>> subMap = initialsToInfo.subMap(initials, initials + "\uffff\uffff\uffff\uffff");
 
         for (Set<IInfo> listForInitials : subMap.values()) {
-
             for (IInfo info : listForInitials) {
                 if (filter.doCompare(qualToCompare, info)) {
                     toks.add(info);
@@ -662,27 +696,46 @@ public abstract class AbstractAdditionalTokensInfo {
     }
 
     /**
-     * @return all the tokens that are in this info (top level or inner)
+     * @param mode see: TokensTrie.get
      */
-    public Collection<IInfo> getAllTokens() {
-        synchronized (lock) {
-            Collection<Set<IInfo>> lInfo = this.topLevelInitialsToInfo.values();
+    protected Collection<IInfo> getFromIndex(int mode, String qualifier, int getWhat, Collection<IInfo> result) {
+        if (result == null) {
+            result = new ArrayList<IInfo>();
+        }
 
-            ArrayList<IInfo> toks = new ArrayList<IInfo>();
-            for (Set<IInfo> list : lInfo) {
-                for (IInfo info : list) {
-                    toks.add(info);
-                }
-            }
+        if ((getWhat & TOP_LEVEL) != 0) {
+            getIndexSnapshot(TOP_LEVEL).get(mode, qualifier, result);
+        }
+        if ((getWhat & INNER) != 0) {
+            getIndexSnapshot(INNER).get(mode, qualifier, result);
+        }
+        return result;
+    }
 
-            lInfo = this.innerInitialsToInfo.values();
-            for (Set<IInfo> list : lInfo) {
-                for (IInfo info : list) {
-                    toks.add(info);
-                }
+    /**
+     * @return the snapshot of the top level or inner index to be queried (the lock is only needed if it has
+     * to be recreated because something changed since the last query).
+     */
+    private TokensIndex.Snapshot getIndexSnapshot(int doOn) {
+        TokensIndex index = doOn == TOP_LEVEL ? topLevelIndex : innerIndex;
+        TokensIndex.Snapshot snapshot = index.getSnapshot();
+        if (snapshot == null) {
+            synchronized (lock) {
+                snapshot = index.createSnapshot(
+                        (doOn == TOP_LEVEL ? topLevelInitialsToInfo : innerInitialsToInfo).values());
             }
-            return toks;
         }
+        return snapshot;
+    }
+
+    /**
+     * @return all the tokens that are in this info (top level or inner)
+     */
+    public Collection<IInfo> getAllTokens() {
+        ArrayList<IInfo> toks = new ArrayList<IInfo>();
+        getIndexSnapshot(TOP_LEVEL).getAll(toks);
+        getIndexSnapshot(INNER).getAll(toks);
+        return toks;
     }
 
     /**
@@ -707,23 +760,13 @@ public abstract class AbstractAdditionalTokensInfo {
 
     protected void save(File persistingLocation) {
         try {
-            FileOutputStream stream = new FileOutputStream(persistingLocation);
-            OutputStreamWriter writer = new OutputStreamWriter(stream);
-            try {
-                FastStringBuffer tempBuf = new FastStringBuffer();
-                tempBuf.append("-- VERSION_");
-                tempBuf.append(AbstractAdditionalTokensInfo.version);
-                tempBuf.append('\n');
-                writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
-                tempBuf.clear();
-
-                saveTo(writer, tempBuf, persistingLocation);
-            } finally {
-                try {
-                    writer.close();
-                } finally {
-                    stream.close();
-                }
+            TreeBinaryIO.Writer writer = new TreeBinaryIO.Writer();
+            saveTo(writer, persistingLocation);
+
+            //Note: only the contents are collected with the lock held (writing to the disk is done without it).
+            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(persistingLocation),
+                    64 * 1024)) {
+                writer.writeTo(stream);
             }
         } catch (Exception e) {
             Log.log(e);
@@ -742,31 +785,15 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     protected abstract File getPersistingFolder();
 
-    protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
+    protected void saveTo(TreeBinaryIO.Writer writer, File pathToSave) throws IOException {
         synchronized (lock) {
             if (DEBUG_ADDITIONAL_INFO) {
                 System.out.println("Saving info " + this.getClass().getName() + " to file (size = "
                         + getAllTokens().size() + ") " + pathToSave);
             }
 
-            Map<String, Integer> dictionary = new HashMap<String, Integer>();
-            tempBuf.append("-- START TREE 1\n");
-            TreeIO.dumpTreeToBuffer(this.topLevelInitialsToInfo, tempBuf, dictionary);
-
-            tempBuf.append("-- START TREE 2\n");
-            TreeIO.dumpTreeToBuffer(this.innerInitialsToInfo, tempBuf, dictionary);
-
-            FastStringBuffer buf2 = new FastStringBuffer(50 * (dictionary.size() + 4));
-            TreeIO.dumpDictToBuffer(dictionary, buf2);
-
-            //Write the dictionary before the actual trees.
-            writer.write(buf2.getInternalCharsArray(), 0, buf2.length());
-            buf2 = null;
-
-            //Note: tried LZFFileInputStream from https://github.com/ning/compress
-            //and Snappy from https://github.com/dain/snappy checking to see if by writing less we'd
-            //get a better time but it got a bit slower (gzip was slowest, then snappy and the faster was LZFFileInputStream)
-            writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
+            writer.writeTree(TreeBinaryIO.SECTION_TREE_1, this.topLevelInitialsToInfo);
+            writer.writeTree(TreeBinaryIO.SECTION_TREE_2, this.innerInitialsToInfo);
         }
     }
 
@@ -790,6 +817,8 @@ public abstract class AbstractAdditionalTokensInfo {
             }
             this.topLevelInitialsToInfo = o1;
             this.innerInitialsToInfo = o2;
+            topLevelIndex.clear();
+            innerIndex.clear();
             if (readFromFile.o3 != null) {
                 //may be null in new format (where that's checked during load time).
                 if (AbstractAdditionalTokensInfo.version != (Integer) readFromFile.o3) {
@@ -64,14 +64,12 @@ public abstract class AbstractInfo implements IInfo, Serializable {
                 col = 0;
             }
         }
-        synchronized (ObjectsInternPool.lock) {
-            this.name = ObjectsInternPool.internUnsynched(name);
-            this.moduleDeclared = ObjectsInternPool.internUnsynched(moduleDeclared);
-            this.path = ObjectsInternPool.internUnsynched(path);
-            this.file = ObjectsInternPool.internUnsynched(file);
-            this.line = line;
-            this.col = col;
-        }
+        this.name = ObjectsInternPool.intern(name);
+        this.moduleDeclared = ObjectsInternPool.intern(moduleDeclared);
+        this.path = ObjectsInternPool.intern(path);
+        this.file = ObjectsInternPool.intern(file);
+        this.line = line;
+        this.col = col;
         this.nature = nature;
     }
 
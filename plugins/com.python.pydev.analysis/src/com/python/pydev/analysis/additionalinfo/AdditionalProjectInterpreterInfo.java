@@ -295,6 +295,16 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
         return ret;
     }
 
+    public static List<IInfo> getTokensMatchingCamelCase(String qualifier, IPythonNature nature, int getWhat)
+            throws MisconfigurationException {
+        ArrayList<IInfo> ret = new ArrayList<IInfo>();
+        List<AbstractAdditionalTokensInfo> additionalInfo = getAdditionalInfo(nature);
+        for (AbstractAdditionalTokensInfo info : additionalInfo) {
+            info.getTokensMatchingCamelCase(qualifier, getWhat, ret);
+        }
+        return ret;
+    }
+
     /**
      * @param project the project we want to get info on
      * @return a list of the additional info for the project + referencing projects
@@ -1,6 +1,7 @@
 package com.python.pydev.analysis.additionalinfo;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.resources.IProject;
@@ -8,6 +9,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.shared_core.index.IFields;
+import org.python.pydev.shared_core.index.TermOffsets;
 import org.python.pydev.shared_core.structure.OrderedMap;
 
 public interface IReferenceSearches {
@@ -21,4 +23,15 @@ public interface IReferenceSearches {
     List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
             IProgressMonitor monitor) throws OperationCanceledException;
 
+    /**
+     * Same as search, but also provides the offsets of the tokens containing the FIELD_CONTENTS patterns in
+     * the modules found.
+     *
+     * A module is only added to moduleToOffsets if the offsets are available and its file wasn't changed since
+     * it was indexed (otherwise the contents of the module must be scanned by the client).
+     */
+    List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
+            Map<ModulesKey, TermOffsets> moduleToOffsets, IProgressMonitor monitor)
+            throws OperationCanceledException;
+
 }
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.cache.CompleteIndexKey;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.structure.Tuple;
+
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo.ModuleInfos;
+
+/**
+ * Indexes source modules (i.e.: the modules of an interpreter) using multiple threads.
+ *
+ * The workers read, parse (with the FastDefinitionsParser) and create the infos for the modules concurrently
+ * (each worker gets the next module not yet indexed) and the thread which started the indexing merges the
+ * created infos in the additional info in batches (so, the lock of the additional info is only held to
+ * add a whole batch and never while reading/parsing).
+ *
+ * The progress monitor is only accessed from the thread which started the indexing.
+ */
+public final class ParallelAstInfoIndexer {
+
+    /**
+     * The default maximum number of threads used to index.
+     */
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * A new thread is only created for each MIN_MODULES_PER_THREAD modules to index.
+     */
+    private static final int MIN_MODULES_PER_THREAD = 20;
+
+    /**
+     * The number of modules merged at once in the additional info.
+     */
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * Marks that all the workers finished (put in the queue of indexed modules).
+     */
+    private static final Tuple<ModuleInfos, CompleteIndexKey> FINISHED = new Tuple<ModuleInfos, CompleteIndexKey>(
+            null, null);
+
+    private final AbstractAdditionalDependencyInfo info;
+    private final List<ModulesKey> keys;
+    private final IProgressMonitor monitor;
+    private final int nThreads;
+
+    private final AtomicInteger nextKey = new AtomicInteger(0);
+    private final AtomicInteger indexedModules = new AtomicInteger(0);
+    private final AtomicInteger runningWorkers = new AtomicInteger(0);
+    private volatile boolean cancelled = false;
+
+    /**
+     * Bounded so that the workers don't get too far ahead of the merge.
+     */
+    private final BlockingQueue<Tuple<ModuleInfos, CompleteIndexKey>> indexedQueue;
+
+    private double modulesPerSecond;
+
+    /**
+     * @param keys the keys of source modules (PythonPathHelper.canAddAstInfoForSourceModule(key) must be true).
+     */
+    public ParallelAstInfoIndexer(AbstractAdditionalDependencyInfo info, List<ModulesKey> keys,
+            IProgressMonitor monitor) {
+        this(info, keys, monitor, MAX_THREADS);
+    }
+
+    /**
+     * @param maxThreads the maximum number of threads used to index.
+     */
+    public ParallelAstInfoIndexer(AbstractAdditionalDependencyInfo info, List<ModulesKey> keys,
+            IProgressMonitor monitor, int maxThreads) {
+        this.info = info;
+        this.keys = keys;
+        this.monitor = monitor;
+        this.nThreads = Math.max(1, Math.min(maxThreads, keys.size() / MIN_MODULES_PER_THREAD));
+        this.indexedQueue = new ArrayBlockingQueue<Tuple<ModuleInfos, CompleteIndexKey>>(BATCH_SIZE * 4);
+    }
+
+    /**
+     * Indexes all the modules and only returns when all the workers finished.
+     *
+     * @return false if the indexing was cancelled and true otherwise.
+     */
+    public boolean index() {
+        long initialTime = System.currentTimeMillis();
+        try {
+            if (nThreads == 1) {
+                indexInCurrentThread();
+            } else {
+                indexInWorkers();
+            }
+        } finally {
+            long elapsed = Math.max(1, System.currentTimeMillis() - initialTime);
+            modulesPerSecond = indexedModules.get() * 1000.0 / elapsed;
+        }
+        return !cancelled;
+    }
+
+    /**
+     * @return the throughput of the last call to index().
+     */
+    public double getModulesPerSecond() {
+        return modulesPerSecond;
+    }
+
+    public int getNumberOfThreads() {
+        return nThreads;
+    }
+
+    private void indexInCurrentThread() {
+        int total = keys.size();
+        List<Tuple<ModuleInfos, CompleteIndexKey>> batch = new ArrayList<Tuple<ModuleInfos, CompleteIndexKey>>(
+                BATCH_SIZE);
+        FastStringBuffer buffer = new FastStringBuffer();
+        long initialTime = System.currentTimeMillis();
+        long lastProgressTime = 0;
+
+        for (ModulesKey key : keys) {
+            if (monitor.isCanceled()) {
+                cancelled = true;
+                return;
+            }
+            Tuple<ModuleInfos, CompleteIndexKey> indexed = indexModule(key);
+            indexedModules.incrementAndGet();
+            if (indexed != null) {
+                batch.add(indexed);
+                if (batch.size() >= BATCH_SIZE) {
+                    info.addModuleInfos(batch);
+                    batch.clear();
+                }
+            }
+            long currentTimeMillis = System.currentTimeMillis();
+            if (currentTimeMillis - lastProgressTime > 300) {
+                communicateProgress(buffer, total, initialTime, currentTimeMillis);
+                lastProgressTime = currentTimeMillis;
+            }
+        }
+        if (batch.size() > 0) {
+            info.addModuleInfos(batch);
+        }
+    }
+
+    private void indexInWorkers() {
+        runningWorkers.set(nThreads);
+        List<Thread> workers = new ArrayList<Thread>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        indexModules();
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            putIndexed(FINISHED);
+                        }
+                    }
+                }
+            };
+            thread.setName("PyDev: Indexing worker " + (i + 1));
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+
+        try {
+            waitWorkersAndMerge();
+        } finally {
+            cancelled = cancelled || monitor.isCanceled();
+            for (Thread thread : workers) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs in the thread which started the indexing: reports the progress, checks for cancellation and
+     * merges the indexed modules in the additional info.
+     */
+    private void waitWorkersAndMerge() {
+        int total = keys.size();
+        List<Tuple<ModuleInfos, CompleteIndexKey>> batch = new ArrayList<Tuple<ModuleInfos, CompleteIndexKey>>(
+                BATCH_SIZE);
+        FastStringBuffer buffer = new FastStringBuffer();
+        long initialTime = System.currentTimeMillis();
+        long lastProgressTime = 0;
+
+        while (true) {
+            Tuple<ModuleInfos, CompleteIndexKey> indexed;
+            try {
+                indexed = indexedQueue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Log.log(e);
+                cancelled = true;
+                return;
+            }
+            if (monitor.isCanceled()) {
+                cancelled = true;
+                return;
+            }
+
+            if (indexed != null && indexed != FINISHED) {
+                batch.add(indexed);
+                // Get what's already available without waiting so that a whole batch is merged at once.
+                while (batch.size() < BATCH_SIZE && (indexed = indexedQueue.poll()) != null && indexed != FINISHED) {
+                    batch.add(indexed);
+                }
+            }
+            if (batch.size() >= BATCH_SIZE || (batch.size() > 0 && (indexed == null || indexed == FINISHED))) {
+                info.addModuleInfos(batch);
+                batch.clear();
+            }
+
+            if (indexed == FINISHED) {
+                return;
+            }
+
+            long currentTimeMillis = System.currentTimeMillis();
+            if (currentTimeMillis - lastProgressTime > 300) {
+                communicateProgress(buffer, total, initialTime, currentTimeMillis);
+                lastProgressTime = currentTimeMillis;
+            }
+        }
+    }
+
+    private void communicateProgress(FastStringBuffer buffer, int total, long initialTime, long currentTimeMillis) {
+        int current = indexedModules.get();
+        long elapsed = Math.max(1, currentTimeMillis - initialTime);
+        buffer.clear().append("Indexing ").append(current).append(" of ").append(total)
+                .append(" (source modules): ").append((int) (current * 1000.0 / elapsed)).append(" modules/s");
+        if (nThreads > 1) {
+            buffer.append(" (").append(nThreads).append(" threads)");
+        }
+        monitor.setTaskName(buffer.toString());
+    }
+
+    private void putIndexed(Tuple<ModuleInfos, CompleteIndexKey> indexed) {
+        while (true) {
+            try {
+                if (indexedQueue.offer(indexed, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if (cancelled) {
+                    return; //the indexing thread stops waiting for the workers when cancelled
+                }
+            } catch (InterruptedException e) {
+                Log.log(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs in a worker: gets the next module which wasn't indexed and indexes it.
+     */
+    private void indexModules() {
+        int total = keys.size();
+        int i;
+        while (!cancelled && (i = nextKey.getAndIncrement()) < total) {
+            try {
+                Tuple<ModuleInfos, CompleteIndexKey> indexed = indexModule(keys.get(i));
+                if (indexed != null) {
+                    putIndexed(indexed);
+                }
+            } finally {
+                indexedModules.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the infos created for the module and the key to add to the complete index (or null if it
+     * couldn't be indexed).
+     */
+    private Tuple<ModuleInfos, CompleteIndexKey> indexModule(ModulesKey key) {
+        try {
+            SimpleNode node = AbstractAdditionalTokensInfo.parseDefinitions(key);
+            if (node == null || key.name == null) {
+                return null;
+            }
+            ModuleInfos moduleInfos = info.createModuleInfos(node, key);
+            return new Tuple<ModuleInfos, CompleteIndexKey>(moduleInfos,
+                    AbstractAdditionalDependencyInfo.createCompleteIndexKey(key));
+        } catch (Exception e) {
+            Log.log(e);
+        }
+        return null;
+    }
+}
@@ -17,10 +17,10 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -34,6 +34,9 @@ import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.ModulesKeyForZip;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.cache.ZipFilesCache;
+import org.python.pydev.shared_core.cache.ZipFilesCache.ZipFileReference;
+import org.python.pydev.shared_core.index.TermOffsets;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.out_of_memory.OnExpectedOutOfMemory;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -195,6 +198,15 @@ public class ReferenceSearches implements IReferenceSearches {
         FileUtils.fillBufferWithStream(stream, null, new NullProgressMonitor(), bufFileContents);
     }
 
+    /**
+     * The offsets are never available (the modules are always scanned to search).
+     */
+    @Override
+    public List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
+            Map<ModulesKey, TermOffsets> moduleToOffsets, IProgressMonitor monitor) {
+        return search(project, fieldNameToValues, monitor);
+    }
+
     @Override
     public List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
             IProgressMonitor monitor) {
@@ -272,7 +284,8 @@ public class ReferenceSearches implements IReferenceSearches {
                 }
 
                 ModulesManager.buildKeysForZipContents(keys, zipContents);
-                try (ZipFile zipFile = new ZipFile(zipContents.zipFile)) {
+                final File zip = zipContents.zipFile;
+                try {
                     for (ModulesKey entry : keys.values()) {
                         if (AbstractAdditionalDependencyInfo.DEBUG) {
                             System.out.println("Loading: " + entry);
@@ -289,7 +302,10 @@ public class ReferenceSearches implements IReferenceSearches {
 
                             @Override
                             public void fillBuffer(FastStringBuffer bufFileContents) {
-                                try (InputStream stream = zipFile.getInputStream(zipFile.getEntry(z.zipModulePath))) {
+                                // Note: acquired when the command is executed (the zip is reused from the cache).
+                                try (ZipFileReference ref = ZipFilesCache.get().acquire(zip);
+                                        InputStream stream = ref.getZipFile().getInputStream(
+                                                ref.getZipFile().getEntry(z.zipModulePath))) {
                                     fill(bufFileContents, stream);
                                 } catch (Exception e) {
                                     Log.log(e);
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2015 by Brainwy Software Ltda. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.ModulesKeyForZip;
+import org.python.pydev.core.cache.CompleteIndexKey;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.cache.ZipFilesCache;
+import org.python.pydev.shared_core.cache.ZipFilesCache.ZipFileReference;
+import org.python.pydev.shared_core.index.IndexApi;
+import org.python.pydev.shared_core.progress.AsynchronousProgressMonitorWrapper;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Adds the contents of modules to the index used for the reference searches using multiple threads
+ * (the IndexWriter is thread-safe and the contents are read and tokenized in the thread which adds
+ * the document).
+ *
+ * Each file is a unit of work and each zip is a unit of work (so that it's opened only once).
+ *
+ * The monitor is only accessed from the thread which called index() (which reports the progress and
+ * commits the index in batches while the workers are running).
+ */
+final class ReferenceSearchesIndexer {
+
+    private static final boolean DEBUG = false;
+
+    /**
+     * Commit after this number of documents are added (so that a long indexing isn't lost if the
+     * process is killed in the middle).
+     */
+    private static final int COMMIT_BATCH = 10000;
+
+    private final IndexApi indexApi;
+    private final List<Object> work = new ArrayList<>();
+    private final int totalModules;
+
+    private final AtomicInteger nextWork = new AtomicInteger();
+    private final AtomicInteger indexedModules = new AtomicInteger();
+    private final List<CompleteIndexKey> indexed = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @param modulesToAdd the modules which are in the filesystem.
+     * @param zipModulesToAdd the zip file to the modules which are inside that zip.
+     */
+    ReferenceSearchesIndexer(IndexApi indexApi, Collection<CompleteIndexKey> modulesToAdd,
+            Map<File, Set<CompleteIndexKey>> zipModulesToAdd) {
+        this.indexApi = indexApi;
+        int total = modulesToAdd.size();
+        // Zips first as those are usually the bigger units of work.
+        for (Entry<File, Set<CompleteIndexKey>> entry : zipModulesToAdd.entrySet()) {
+            work.add(entry);
+            total += entry.getValue().size();
+        }
+        work.addAll(modulesToAdd);
+        this.totalModules = total;
+    }
+
+    /**
+     * @return the keys which were actually added to the index (even if cancelled).
+     */
+    List<CompleteIndexKey> index(IProgressMonitor monitor) {
+        int nThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), work.size()));
+        List<Thread> threads = new ArrayList<>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        indexWork();
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    }
+                }
+            };
+            thread.setName("PyDev: References index worker " + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        int lastCommit = 0;
+        FastStringBuffer buf = new FastStringBuffer();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join(AsynchronousProgressMonitorWrapper.UPDATE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    cancelled = true;
+                }
+                if (monitor.isCanceled()) {
+                    cancelled = true;
+                }
+                int current = indexedModules.get();
+                monitor.setTaskName(buf.clear().append("Indexing: ").append(current).append(" of ")
+                        .append(totalModules).toString());
+                if (current - lastCommit >= COMMIT_BATCH) {
+                    lastCommit = current;
+                    try {
+                        indexApi.commit();
+                    } catch (IOException e) {
+                        Log.log(e);
+                    }
+                }
+            }
+        }
+        synchronized (indexed) {
+            return new ArrayList<>(indexed);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void indexWork() {
+        FastStringBuffer tempBuf = new FastStringBuffer();
+        List<CompleteIndexKey> localIndexed = new ArrayList<>();
+        int size = work.size();
+        int i;
+        try {
+            while (!cancelled && (i = nextWork.getAndIncrement()) < size) {
+                Object w = work.get(i);
+                if (w instanceof CompleteIndexKey) {
+                    indexFile((CompleteIndexKey) w, tempBuf, localIndexed);
+                } else {
+                    indexZip((Entry<File, Set<CompleteIndexKey>>) w, tempBuf, localIndexed);
+                }
+            }
+        } finally {
+            synchronized (indexed) {
+                indexed.addAll(localIndexed);
+            }
+        }
+    }
+
+    private void indexFile(CompleteIndexKey key, FastStringBuffer tempBuf, List<CompleteIndexKey> localIndexed) {
+        File f = key.key.file;
+        if (f.exists()) {
+            if (DEBUG) {
+                System.out.println("Indexing: " + f);
+            }
+            try (BufferedReader reader = new BufferedReader(new FileReader(f));) {
+                indexApi.index(createFieldsToIndex(key, tempBuf), reader, IReferenceSearches.FIELD_CONTENTS);
+                localIndexed.add(key);
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+        indexedModules.incrementAndGet();
+    }
+
+    private void indexZip(Entry<File, Set<CompleteIndexKey>> entry, FastStringBuffer tempBuf,
+            List<CompleteIndexKey> localIndexed) {
+        File f = entry.getKey();
+        Set<CompleteIndexKey> value = entry.getValue();
+        if (f.exists()) {
+            try (ZipFileReference ref = ZipFilesCache.get().acquire(f);) {
+                ZipFile zipFile = ref.getZipFile();
+                for (CompleteIndexKey completeIndexKey : value) {
+                    if (cancelled) {
+                        break;
+                    }
+                    ModulesKeyForZip forZip = (ModulesKeyForZip) completeIndexKey.key;
+                    ZipEntry zipEntry = zipFile.getEntry(forZip.zipModulePath);
+                    if (zipEntry != null) {
+                        try (InputStream inputStream = zipFile.getInputStream(zipEntry);) {
+                            InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+                            if (DEBUG) {
+                                System.out.println("Indexing: " + completeIndexKey);
+                            }
+                            indexApi.index(createFieldsToIndex(completeIndexKey, tempBuf), reader,
+                                    IReferenceSearches.FIELD_CONTENTS);
+                            localIndexed.add(completeIndexKey);
+                        }
+                    }
+                    indexedModules.incrementAndGet();
+                }
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    private static Map<String, String> createFieldsToIndex(CompleteIndexKey key, FastStringBuffer buf) {
+        key.key.toIO(buf.clear());
+        Map<String, String> fieldsToIndex = new HashMap<>();
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODULES_KEY_IO, buf.toString());
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODULE_NAME, key.key.name);
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODIFIED_TIME, String.valueOf(key.lastModified));
+        return fieldsToIndex;
+    }
+}
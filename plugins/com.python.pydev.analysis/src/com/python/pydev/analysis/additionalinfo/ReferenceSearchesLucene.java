@@ -6,14 +6,9 @@
  */
 package com.python.pydev.analysis.additionalinfo;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.ref.WeakReference;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -23,7 +18,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -38,8 +32,11 @@ import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.index.IndexApi;
 import org.python.pydev.shared_core.index.IndexApi.DocumentInfo;
 import org.python.pydev.shared_core.index.IndexApi.IDocumentsVisitor;
+import org.python.pydev.shared_core.index.TermOffsets;
+import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.progress.AsynchronousProgressMonitorWrapper;
 import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.OrderedMap;
 import org.python.pydev.shared_core.utils.Timer;
 
@@ -47,8 +44,67 @@ import com.python.pydev.analysis.system_info_builder.InterpreterInfoBuilder;
 
 public class ReferenceSearchesLucene implements IReferenceSearches {
 
+    /**
+     * Keeps the IndexApi for an index dir opened along with a map of the modules key to the complete index
+     * key (which has the modified time) of the documents in the index, so, a search doesn't need to
+     * reopen the index nor visit all its documents (the map is updated as documents are added/removed).
+     *
+     * Synchronize on the instance to access it.
+     */
+    private static final class IndexInfo {
+
+        private final File indexDir;
+        private IndexApi indexApi;
+        private Map<ModulesKey, CompleteIndexKey> indexMap;
+
+        private IndexInfo(File indexDir) {
+            this.indexDir = indexDir;
+        }
+
+        /**
+         * Opens the index (if still not opened).
+         */
+        private IndexApi getIndexApi() throws IOException {
+            if (indexApi == null || indexApi.isDisposed()) {
+                // Note: we should be able to deal with entries already deleted!
+                boolean applyAllDeletes = false;
+                indexApi = new IndexApi(indexDir, applyAllDeletes);
+                indexApi.storeTermOffsets(FIELD_CONTENTS);
+                final Map<ModulesKey, CompleteIndexKey> map = new HashMap<>();
+
+                IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+                    @Override
+                    public void visit(DocumentInfo documentInfo) {
+                        ModulesKey keyFromIO = ModulesKey.fromIO(documentInfo.get(FIELD_MODULES_KEY_IO));
+                        String modifiedTime = documentInfo.get(FIELD_MODIFIED_TIME);
+                        map.put(keyFromIO, new CompleteIndexKey(keyFromIO, Long.parseLong(modifiedTime)));
+                    }
+                };
+                try {
+                    indexApi.visitAllDocs(visitor, FIELD_MODULES_KEY_IO, FIELD_MODIFIED_TIME);
+                } catch (IOException e) {
+                    Log.log(e);
+                }
+                indexMap = map;
+            }
+            return indexApi;
+        }
+
+        /**
+         * Closes the index (it's reopened in the next search).
+         */
+        private void dispose() {
+            if (indexApi != null) {
+                indexApi.dispose();
+                indexApi = null;
+            }
+            indexMap = null;
+        }
+    }
+
     private static final Object lock = new Object();
-    private static final Map<File, Object> indexDirToLock = new HashMap<File, Object>();
+    private static final Map<File, IndexInfo> indexDirToIndexInfo = new HashMap<File, IndexInfo>();
     private static final boolean DEBUG = false;
     private WeakReference<AbstractAdditionalDependencyInfo> abstractAdditionalDependencyInfo;
 
@@ -56,15 +112,21 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
         this.abstractAdditionalDependencyInfo = new WeakReference<>(abstractAdditionalDependencyInfo);
     }
 
+    @Override
+    public List<ModulesKey> search(IProject project, OrderedMap<String, Set<String>> fieldNameToValues,
+            IProgressMonitor monitor) throws OperationCanceledException {
+        return search(project, fieldNameToValues, null, monitor);
+    }
+
     @Override
     public synchronized List<ModulesKey> search(IProject project,
-            final OrderedMap<String, Set<String>> fieldNameToValues, IProgressMonitor monitor)
-            throws OperationCanceledException {
+            final OrderedMap<String, Set<String>> fieldNameToValues, Map<ModulesKey, TermOffsets> moduleToOffsets,
+            IProgressMonitor monitor) throws OperationCanceledException {
         try {
             if (!(monitor instanceof AsynchronousProgressMonitorWrapper)) {
                 monitor = new AsynchronousProgressMonitorWrapper(monitor);
             }
-            return internalSearch(project, fieldNameToValues, monitor);
+            return internalSearch(project, fieldNameToValues, moduleToOffsets, monitor);
         } finally {
             monitor.done();
         }
@@ -73,7 +135,8 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
     private final Map<IProject, Long> projectToLastMtime = new HashMap<>();
 
     private synchronized List<ModulesKey> internalSearch(IProject project,
-            final OrderedMap<String, Set<String>> fieldNameToValues, IProgressMonitor monitor)
+            final OrderedMap<String, Set<String>> fieldNameToValues,
+            final Map<ModulesKey, TermOffsets> moduleToOffsets, IProgressMonitor monitor)
             throws OperationCanceledException {
 
         final List<ModulesKey> ret = new ArrayList<ModulesKey>();
@@ -121,41 +184,29 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
         boolean applyAllDeletes = false;
 
         String folderToPersist = completeIndex.getFolderToPersist();
-        Object indexApiLock;
-        File indexDir = new File(folderToPersist, "lc");
+        IndexInfo indexInfo;
+        // lc2: the offsets of the tokens in the contents are also stored.
+        File indexDir = new File(folderToPersist, "lc2");
         synchronized (lock) {
-            indexApiLock = indexDirToLock.get(indexDir);
-            if (indexApiLock == null) {
+            indexInfo = indexDirToIndexInfo.get(indexDir);
+            if (indexInfo == null) {
                 try {
-                    indexApiLock = new Object();
-                    indexDirToLock.put(indexDir, indexApiLock);
-                } catch (Exception e) {
+                    // Remove the old index without the offsets (it's no longer used).
+                    IndexApi.deleteIndex(new File(folderToPersist, "lc"));
+                } catch (IOException e) {
                     Log.log(e);
-                    return ret;
                 }
+                indexInfo = new IndexInfo(indexDir);
+                indexDirToIndexInfo.put(indexDir, indexInfo);
             }
         }
 
-        IndexApi indexApi = null;
-        try {
-            synchronized (indexApiLock) {
-                indexApi = new IndexApi(indexDir, applyAllDeletes);
-                final Map<ModulesKey, CompleteIndexKey> indexMap = new HashMap<>(); // Key to CompleteIndexKey (has modified time).
-
-                IDocumentsVisitor visitor = new IDocumentsVisitor() {
-
-                    @Override
-                    public void visit(DocumentInfo documentInfo) {
-                        ModulesKey keyFromIO = ModulesKey.fromIO(documentInfo.get(FIELD_MODULES_KEY_IO));
-                        String modifiedTime = documentInfo.get(FIELD_MODIFIED_TIME);
-                        indexMap.put(keyFromIO, new CompleteIndexKey(keyFromIO, Long.parseLong(modifiedTime)));
-                    }
-                };
-                try {
-                    indexApi.visitAllDocs(visitor, FIELD_MODULES_KEY_IO, FIELD_MODIFIED_TIME);
-                } catch (IOException e) {
-                    Log.log(e);
-                }
+        synchronized (indexInfo) {
+            boolean disposeIndex = true;
+            try {
+                IndexApi indexApi = indexInfo.getIndexApi();
+                // Key to CompleteIndexKey (has modified time).
+                final Map<ModulesKey, CompleteIndexKey> indexMap = indexInfo.indexMap;
 
                 incrementAndCheckProgress("Visited current index", monitor);
 
@@ -245,52 +296,21 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                             System.out.println("Removing: " + fieldToValuesToRemove);
                         }
                         indexApi.removeDocs(fieldToValuesToRemove);
+                        for (CompleteIndexKey removed : docsToRemove) {
+                            indexMap.remove(removed.key);
+                        }
                     } catch (IOException e) {
                         Log.log(e);
                     }
                 }
 
                 incrementAndCheckProgress("Indexing new entries", monitor);
-                if (modulesToAdd.size() > 0) {
+                if (modulesToAdd.size() > 0 || zipModulesToAdd.size() > 0) {
                     mustCommitChange = true;
-                    for (CompleteIndexKey key : modulesToAdd) {
-                        File f = key.key.file;
-                        if (f.exists()) {
-                            if (DEBUG) {
-                                System.out.println("Indexing: " + f);
-                            }
-                            try (BufferedReader reader = new BufferedReader(new FileReader(f));) {
-                                indexApi.index(createFieldsToIndex(key, tempBuf), reader, FIELD_CONTENTS);
-                            } catch (Exception e) {
-                                Log.log(e);
-                            }
-                        }
-                    }
-                }
-
-                Set<Entry<File, Set<CompleteIndexKey>>> entrySet = zipModulesToAdd.entrySet();
-                for (Entry<File, Set<CompleteIndexKey>> entry : entrySet) {
-                    File f = entry.getKey();
-                    if (f.exists()) {
-                        try (ZipFile zipFile = new ZipFile(f, ZipFile.OPEN_READ);) {
-                            Set<CompleteIndexKey> value = entry.getValue();
-                            for (CompleteIndexKey completeIndexKey2 : value) {
-                                ModulesKeyForZip forZip = (ModulesKeyForZip) completeIndexKey2.key;
-                                try (InputStream inputStream = zipFile
-                                        .getInputStream(zipFile.getEntry(forZip.zipModulePath));) {
-                                    InputStreamReader reader = new InputStreamReader(inputStream,
-                                            StandardCharsets.UTF_8);
-                                    mustCommitChange = true;
-                                    if (DEBUG) {
-                                        System.out.println("Indexing: " + completeIndexKey2);
-                                    }
-                                    indexApi.index(createFieldsToIndex(completeIndexKey2, tempBuf), reader,
-                                            FIELD_CONTENTS);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.log(e);
-                        }
+                    List<CompleteIndexKey> indexed = new ReferenceSearchesIndexer(indexApi, modulesToAdd,
+                            zipModulesToAdd).index(monitor);
+                    for (CompleteIndexKey key : indexed) {
+                        indexMap.put(key.key, key);
                     }
                 }
 
@@ -313,7 +333,10 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                     if (DEBUG) {
                         System.out.println("Searching: " + fieldNameToValues);
                     }
-                    visitor = new IDocumentsVisitor() {
+                    final List<String> offsetsPatterns = moduleToOffsets != null
+                            ? getOffsetsPatterns(fieldNameToValues.get(FIELD_CONTENTS))
+                            : null;
+                    IDocumentsVisitor visitor = new IDocumentsVisitor() {
 
                         @Override
                         public void visit(DocumentInfo documentInfo) {
@@ -327,6 +350,15 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                                     if (existing != null && existing.lastModified == Long.parseLong(modTime)) {
                                         // Ok, we have a match!
                                         ret.add(existing.key);
+                                        if (offsetsPatterns != null && !(existing.key instanceof ModulesKeyForZip)
+                                                && existing.key.file != null
+                                                && FileUtils.lastModified(existing.key.file) == existing.lastModified) {
+                                            TermOffsets offsets = documentInfo.getTermOffsets(FIELD_CONTENTS,
+                                                    offsetsPatterns);
+                                            if (offsets != null) {
+                                                moduleToOffsets.put(existing.key, offsets);
+                                            }
+                                        }
                                     }
                                 }
                             } catch (Exception e) {
@@ -339,17 +371,61 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
                 } catch (Exception e) {
                     Log.log(e);
                 }
+                disposeIndex = false;
+            } catch (OperationCanceledException e) {
+                // The index is kept consistent with the indexMap even if cancelled.
+                disposeIndex = false;
+                throw e;
+            } catch (Exception e) {
+                Log.log(e);
+            } finally {
+                if (disposeIndex) {
+                    // Something bad happened: close it so that the index and the indexMap are recreated
+                    // in the next search.
+                    indexInfo.dispose();
+                }
             }
-        } catch (Exception e) {
-            Log.log(e);
-        } finally {
-            if (indexApi != null) {
-                indexApi.dispose();
+        }
+        return ret;
+    }
+
+    /**
+     * @return the patterns to get the offsets of the tokens containing any literal part of the given patterns.
+     *
+     * A match in the contents may not be inside a single token (i.e.: 'a*b' matches 'a.b' and the word
+     * boundaries of a whole word match aren't the same used when tokenizing), but the literal parts are always
+     * inside a token, so, the lines with those tokens have all the matches.
+     */
+    private static List<String> getOffsetsPatterns(Set<String> contentsPatterns) {
+        List<String> ret = new ArrayList<>();
+        if (contentsPatterns != null) {
+            for (String pattern : contentsPatterns) {
+                for (String part : StringUtils.split(pattern, '*', '?')) {
+                    if (part.length() > 0) {
+                        ret.add('*' + part + '*');
+                    }
+                }
             }
         }
         return ret;
     }
 
+    /**
+     * Closes all the indexes kept opened (should be called when the plugin is stopped).
+     */
+    public static void disposeAll() {
+        List<IndexInfo> infos;
+        synchronized (lock) {
+            infos = new ArrayList<>(indexDirToIndexInfo.values());
+            indexDirToIndexInfo.clear();
+        }
+        for (IndexInfo indexInfo : infos) {
+            synchronized (indexInfo) {
+                indexInfo.dispose();
+            }
+        }
+    }
+
     private void incrementAndCheckProgress(String msg, IProgressMonitor monitor) throws OperationCanceledException {
         // monitor.setTaskName(msg);
         monitor.worked(1);
@@ -358,15 +434,6 @@ public class ReferenceSearchesLucene implements IReferenceSearches {
         }
     }
 
-    private Map<String, String> createFieldsToIndex(CompleteIndexKey key, FastStringBuffer buf) {
-        key.key.toIO(buf.clear());
-        Map<String, String> fieldsToIndex = new HashMap<>();
-        fieldsToIndex.put(FIELD_MODULES_KEY_IO, buf.toString());
-        fieldsToIndex.put(FIELD_MODULE_NAME, key.key.name);
-        fieldsToIndex.put(FIELD_MODIFIED_TIME, String.valueOf(key.lastModified));
-        return fieldsToIndex;
-    }
-
     private void add(Set<CompleteIndexKey> modulesToAdd, Map<File, Set<CompleteIndexKey>> zipModulesToAdd,
             CompleteIndexKey currentModule) {
         if (currentModule.key instanceof ModulesKeyForZip) {
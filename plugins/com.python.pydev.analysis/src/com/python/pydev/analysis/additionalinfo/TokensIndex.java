@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.python.pydev.core.IInfo;
+
+/**
+ * Keeps the TokensTrie used to query the tokens of an AbstractAdditionalTokensInfo (top level or inner).
+ *
+ * Changes are done with the lock of the AbstractAdditionalTokensInfo held and queries are done in an immutable
+ * Snapshot (without any lock). To avoid recreating the whole trie on each change, the tokens added afterwards are
+ * kept apart from the main trie and the tokens from removed modules are filtered out of the results until the
+ * number of changes is big enough for the whole trie to be recreated.
+ *
+ * The tokens added are only indexed when a snapshot is requested: all the tokens added since the last snapshot
+ * become a new (small) segment trie and the last segments are merged when they have similar sizes, so, querying
+ * while the tokens are being added (i.e.: while indexing) doesn't recreate a big trie on each query.
+ */
+final class TokensIndex {
+
+    /**
+     * Number of changes for which it's always ok to keep the changes apart from the main trie.
+     */
+    private static final int MIN_CHANGES_TO_REBUILD = 1000;
+
+    /**
+     * A trie with tokens added after the main trie was created. Its number is used to know whether its tokens
+     * from a removed module must be ignored (the main trie is number 0).
+     */
+    private static final class Segment {
+
+        private final TokensTrie trie;
+        private final int number;
+
+        private Segment(TokensTrie trie, int number) {
+            this.trie = trie;
+            this.number = number;
+        }
+    }
+
+    static final class Snapshot {
+
+        private final TokensTrie base;
+        private final Segment[] segments;
+        private final Map<String, Integer> removedModules;
+
+        private Snapshot(TokensTrie base, Segment[] segments, Map<String, Integer> removedModules) {
+            this.base = base;
+            this.segments = segments;
+            this.removedModules = removedModules;
+        }
+
+        /**
+         * @param mode see: TokensTrie.get
+         */
+        void get(int mode, String qualifier, Collection<IInfo> result) {
+            get(base, 0, mode, qualifier, result);
+            for (Segment segment : segments) {
+                get(segment.trie, segment.number, mode, qualifier, result);
+            }
+        }
+
+        private void get(TokensTrie trie, int number, int mode, String qualifier, Collection<IInfo> result) {
+            if (removedModules.isEmpty()) {
+                trie.get(mode, qualifier, result);
+            } else {
+                List<IInfo> found = new ArrayList<IInfo>();
+                trie.get(mode, qualifier, found);
+                for (IInfo info : found) {
+                    if (!isRemoved(removedModules, info, number)) {
+                        result.add(info);
+                    }
+                }
+            }
+        }
+
+        void getAll(Collection<IInfo> result) {
+            get(TokensTrie.STARTING_WITH, "", result);
+        }
+    }
+
+    /**
+     * @param removedModules module name -> number of the last segment when the module was removed.
+     * @return whether the given info (from the trie with the given number) is from a module removed afterwards.
+     */
+    private static boolean isRemoved(Map<String, Integer> removedModules, IInfo info, int number) {
+        Integer removedAt = removedModules.get(info.getDeclaringModuleName());
+        return removedAt != null && removedAt >= number;
+    }
+
+    /**
+     * The current snapshot (null if it must be recreated).
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * The trie with all the tokens when it was created (null if it must be recreated).
+     */
+    private TokensTrie base;
+
+    /**
+     * Tries with the tokens added after the base was created (the older ones first).
+     */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /**
+     * Number of the last segment created.
+     */
+    private int lastSegmentNumber;
+
+    /**
+     * Tokens added after the last snapshot was created (they're not in any trie yet).
+     */
+    private final List<IInfo> pending = new ArrayList<IInfo>();
+
+    /**
+     * Modules removed after the base was created -> number of the last segment when the module was removed
+     * (the tokens of the module in that segment or in previous ones must be ignored).
+     */
+    private final Map<String, Integer> removedModules = new HashMap<String, Integer>();
+
+    /**
+     * Note: must be called with the lock held.
+     */
+    void add(IInfo info) {
+        if (base != null) {
+            pending.add(info);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Note: must be called with the lock held.
+     */
+    void removeModule(String moduleName) {
+        if (base != null) {
+            Iterator<IInfo> it = pending.iterator();
+            while (it.hasNext()) {
+                if (moduleName.equals(it.next().getDeclaringModuleName())) {
+                    it.remove();
+                }
+            }
+            removedModules.put(moduleName, lastSegmentNumber);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Note: must be called with the lock held.
+     */
+    void clear() {
+        base = null;
+        segments.clear();
+        lastSegmentNumber = 0;
+        pending.clear();
+        removedModules.clear();
+        snapshot = null;
+    }
+
+    /**
+     * @return the current snapshot or null if it must be created with createSnapshot.
+     */
+    Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Note: must be called with the lock held.
+     *
+     * @param allInfos all the tokens (used if the trie must be recreated).
+     */
+    Snapshot createSnapshot(Collection<? extends Collection<IInfo>> allInfos) {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        int changes = pending.size() + removedModules.size();
+        for (Segment segment : segments) {
+            changes += segment.trie.size();
+        }
+        if (base == null || changes > Math.max(MIN_CHANGES_TO_REBUILD, base.size() / 8)) {
+            clear();
+            base = TokensTrie.create(allInfos);
+
+        } else if (pending.size() > 0) {
+            lastSegmentNumber++;
+            segments.add(new Segment(TokensTrie.create(Collections.singletonList(pending)), lastSegmentNumber));
+            pending.clear();
+            mergeLastSegments();
+        }
+        s = new Snapshot(base, segments.toArray(new Segment[0]), new HashMap<String, Integer>(removedModules));
+        snapshot = s;
+        return s;
+    }
+
+    /**
+     * Merges the last 2 segments while the previous one isn't much bigger than the last one (so, each token is
+     * only merged again a logarithmic number of times).
+     */
+    private void mergeLastSegments() {
+        int size;
+        while ((size = segments.size()) > 1) {
+            Segment last = segments.get(size - 1);
+            Segment previous = segments.get(size - 2);
+            if (previous.trie.size() > 2 * last.trie.size()) {
+                return;
+            }
+            List<IInfo> infos = new ArrayList<IInfo>(previous.trie.size() + last.trie.size());
+            addNotRemoved(previous, infos);
+            addNotRemoved(last, infos);
+            segments.remove(size - 1);
+            // The tokens kept from the previous segment aren't from a module removed after it was created, so,
+            // they may get the number of the last one.
+            segments.set(size - 2, new Segment(TokensTrie.create(Collections.singletonList(infos)), last.number));
+        }
+    }
+
+    private void addNotRemoved(Segment segment, List<IInfo> infos) {
+        List<IInfo> all = new ArrayList<IInfo>(segment.trie.size());
+        segment.trie.getAll(all);
+        for (IInfo info : all) {
+            if (!isRemoved(removedModules, info, segment.number)) {
+                infos.add(info);
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+
+import org.python.pydev.core.IInfo;
+
+/**
+ * An immutable index of tokens by name (a compressed trie).
+ *
+ * The infos are kept sorted by name, so, the tokens below any node of the trie are a contiguous range of the
+ * infos array and the trie itself is kept in a few int arrays (each node has the depth at which its edge
+ * ends, the range of its infos and the index of its first child -- the children of a node are contiguous
+ * and the label of an edge is obtained from the name of the first info of the node).
+ *
+ * As it's immutable, it may be queried from any thread (updates are done by creating a new instance).
+ */
+public final class TokensTrie {
+
+    /**
+     * Match modes (see: get).
+     */
+    public static final int EQUAL_TO = 0;
+    public static final int STARTING_WITH = 1;
+    public static final int CAMEL_CASE = 2;
+    public static final int SUBSEQUENCE = 3;
+
+    private static final Comparator<IInfo> NAME_COMPARATOR = new Comparator<IInfo>() {
+
+        @Override
+        public int compare(IInfo o1, IInfo o2) {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    public static final TokensTrie EMPTY = new TokensTrie(new IInfo[0]);
+
+    private final IInfo[] infos;
+    private final String[] names;
+
+    /**
+     * The length of the key at each node.
+     */
+    private final int[] depth;
+
+    /**
+     * The range of the infos in each node is [start, end).
+     */
+    private final int[] start;
+    private final int[] end;
+
+    /**
+     * The children of node i are [firstChild[i], firstChild[i + 1]).
+     */
+    private final int[] firstChild;
+
+    /**
+     * @param infos the infos to be indexed (the array is sorted in-place and kept in the index).
+     */
+    private TokensTrie(IInfo[] infos) {
+        Arrays.parallelSort(infos, NAME_COMPARATOR);
+        int len = infos.length;
+        this.infos = infos;
+        this.names = new String[len];
+        for (int i = 0; i < len; i++) {
+            names[i] = infos[i].getName();
+        }
+
+        // A compressed trie has at most 2 * len nodes (+1 for the root).
+        int maxNodes = 2 * len + 1;
+        int[] depth = new int[maxNodes];
+        int[] start = new int[maxNodes];
+        int[] end = new int[maxNodes];
+        int[] firstChild = new int[maxNodes + 1];
+
+        // The root (no compression is done on it).
+        end[0] = len;
+        int nodesCount = 1;
+
+        // Nodes are created in breadth-first order, so, the children of each node are contiguous.
+        for (int node = 0; node < nodesCount; node++) {
+            firstChild[node] = nodesCount;
+            int d = depth[node];
+            int nodeEnd = end[node];
+            int pos = start[node];
+            while (pos < nodeEnd && names[pos].length() == d) {
+                pos++; // Names which end at this node.
+            }
+            while (pos < nodeEnd) {
+                char c = names[pos].charAt(d);
+                int groupEnd = pos + 1;
+                while (groupEnd < nodeEnd && names[groupEnd].charAt(d) == c) {
+                    groupEnd++;
+                }
+                // As the names are sorted, the common prefix of the group is the common prefix of the first
+                // and the last name.
+                String first = names[pos];
+                String last = names[groupEnd - 1];
+                int childDepth = d + 1;
+                int maxDepth = Math.min(first.length(), last.length());
+                while (childDepth < maxDepth && first.charAt(childDepth) == last.charAt(childDepth)) {
+                    childDepth++;
+                }
+                depth[nodesCount] = childDepth;
+                start[nodesCount] = pos;
+                end[nodesCount] = groupEnd;
+                nodesCount++;
+                pos = groupEnd;
+            }
+        }
+        firstChild[nodesCount] = nodesCount;
+
+        this.depth = Arrays.copyOf(depth, nodesCount);
+        this.start = Arrays.copyOf(start, nodesCount);
+        this.end = Arrays.copyOf(end, nodesCount);
+        this.firstChild = Arrays.copyOf(firstChild, nodesCount + 1);
+    }
+
+    /**
+     * @return an index with the given infos (infos without a name are ignored).
+     */
+    public static TokensTrie create(Collection<? extends Collection<IInfo>> infosCollections) {
+        int size = 0;
+        for (Collection<IInfo> infos : infosCollections) {
+            size += infos.size();
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        IInfo[] array = new IInfo[size];
+        int i = 0;
+        for (Collection<IInfo> infos : infosCollections) {
+            for (IInfo info : infos) {
+                if (info != null && info.getName() != null) {
+                    array[i] = info;
+                    i++;
+                }
+            }
+        }
+        if (i != size) {
+            array = Arrays.copyOf(array, i);
+        }
+        return new TokensTrie(array);
+    }
+
+    public int size() {
+        return infos.length;
+    }
+
+    /**
+     * Adds all the infos in the index to the given collection.
+     */
+    public void getAll(Collection<IInfo> result) {
+        for (IInfo info : infos) {
+            result.add(info);
+        }
+    }
+
+    /**
+     * Adds the infos matching the qualifier with the given mode to the result.
+     *
+     * @param mode one of EQUAL_TO, STARTING_WITH, CAMEL_CASE, SUBSEQUENCE
+     */
+    public void get(int mode, String qualifier, Collection<IInfo> result) {
+        switch (mode) {
+            case EQUAL_TO:
+                getEqualTo(qualifier, result);
+                break;
+            case STARTING_WITH:
+                getStartingWith(qualifier, result);
+                break;
+            case CAMEL_CASE:
+                getCamelCaseMatches(qualifier, result);
+                break;
+            case SUBSEQUENCE:
+                getSubsequenceMatches(qualifier, result);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid mode: " + mode);
+        }
+    }
+
+    /**
+     * Adds the infos whose name is equal to the qualifier (case-sensitive).
+     */
+    public void getEqualTo(String qualifier, Collection<IInfo> result) {
+        int qualifierLen = qualifier.length();
+        int node = 0;
+        int d = 0;
+        while (d < qualifierLen) {
+            int child = findChild(node, d, qualifier.charAt(d));
+            if (child == -1) {
+                return;
+            }
+            int childDepth = depth[child];
+            if (childDepth > qualifierLen) {
+                return;
+            }
+            if (!qualifier.regionMatches(d + 1, names[start[child]], d + 1, childDepth - d - 1)) {
+                return;
+            }
+            node = child;
+            d = childDepth;
+        }
+        addRange(start[node], getExactEnd(node), result);
+    }
+
+    /**
+     * Adds the infos whose name starts with the qualifier (case-insensitive).
+     */
+    public void getStartingWith(String qualifier, Collection<IInfo> result) {
+        BitSet matched = new BitSet(infos.length);
+        matchStartingWith(qualifier, 0, matched);
+        addMatched(matched, result);
+    }
+
+    /**
+     * Adds the infos whose name matches the qualifier with camel-case (i.e.: 'NPE' or 'NullPE' match
+     * 'NullPointerException' and 'gTB' matches 'get_the_bar').
+     *
+     * The first char of the qualifier must match the first char of the name, upper case chars in the qualifier
+     * match the start of a hump (an upper case char or a char after '_') and other chars must match the next
+     * char of the name (the match is case-insensitive and the qualifier only has to match the start of the name).
+     */
+    public void getCamelCaseMatches(String qualifier, Collection<IInfo> result) {
+        if (qualifier.length() == 0) {
+            getAll(result);
+            return;
+        }
+        if (infos.length == 0) {
+            return;
+        }
+        BitSet matched = new BitSet(infos.length);
+        matchCamelCase(qualifier, 0, 0, 0, matched);
+        addMatched(matched, result);
+    }
+
+    /**
+     * Adds the infos whose name contains the chars of the qualifier in the same order (i.e.: 'gtbar' matches
+     * 'get_the_bar'). The first char must match the first char of the name and the match is case-insensitive.
+     */
+    public void getSubsequenceMatches(String qualifier, Collection<IInfo> result) {
+        if (qualifier.length() == 0) {
+            getAll(result);
+            return;
+        }
+        if (infos.length == 0) {
+            return;
+        }
+        BitSet matched = new BitSet(infos.length);
+        matchSubsequence(qualifier, 0, 0, 0, matched);
+        addMatched(matched, result);
+    }
+
+    private void matchStartingWith(String qualifier, int node, BitSet matched) {
+        int d = depth[node];
+        if (d >= qualifier.length()) {
+            matched.set(start[node], end[node]);
+            return;
+        }
+        int limit = firstChild[node + 1];
+        for (int child = firstChild[node]; child < limit; child++) {
+            int len = Math.min(depth[child], qualifier.length()) - d;
+            if (qualifier.regionMatches(true, d, names[start[child]], d, len)) {
+                matchStartingWith(qualifier, child, matched);
+            }
+        }
+    }
+
+    /**
+     * @param k the position in the name of the node (from its parent depth up to its depth).
+     * @param qi the position in the qualifier.
+     */
+    private void matchCamelCase(String qualifier, int node, int k, int qi, BitSet matched) {
+        int qualifierLen = qualifier.length();
+        String name = names[start[node]];
+        int d = depth[node];
+        while (k < d) {
+            if (qi == qualifierLen) {
+                matched.set(start[node], end[node]);
+                return;
+            }
+            char c = name.charAt(k);
+            char qc = qualifier.charAt(qi);
+            if (k > 0 && Character.isUpperCase(qc)) {
+                // Must match the start of a hump (but humps may be skipped).
+                if (equalsIgnoreCase(c, qc) && isHumpStart(name, k)) {
+                    if (qi + 1 == qualifierLen || Character.isUpperCase(qualifier.charAt(qi + 1))) {
+                        // Matching the first hump found is enough (as the next humps may be skipped later on).
+                        k++;
+                        qi++;
+                        continue;
+                    }
+                    // Lower case chars must follow, so, it may also match in a later hump.
+                    matchCamelCase(qualifier, node, k + 1, qi + 1, matched);
+                }
+                k++;
+
+            } else if (equalsIgnoreCase(c, qc)) {
+                k++;
+                qi++;
+
+            } else {
+                return;
+            }
+        }
+        if (qi == qualifierLen) {
+            matched.set(start[node], end[node]);
+            return;
+        }
+        int limit = firstChild[node + 1];
+        for (int child = firstChild[node]; child < limit; child++) {
+            matchCamelCase(qualifier, child, k, qi, matched);
+        }
+    }
+
+    /**
+     * @param k the position in the name of the node (from its parent depth up to its depth).
+     * @param qi the position in the qualifier.
+     */
+    private void matchSubsequence(String qualifier, int node, int k, int qi, BitSet matched) {
+        int qualifierLen = qualifier.length();
+        String name = names[start[node]];
+        int d = depth[node];
+        for (; k < d; k++) {
+            if (qi == qualifierLen) {
+                break;
+            }
+            // Matching greedily is enough to know whether it's a subsequence.
+            if (equalsIgnoreCase(name.charAt(k), qualifier.charAt(qi))) {
+                qi++;
+            } else if (k == 0) {
+                return;
+            }
+        }
+        if (qi == qualifierLen) {
+            matched.set(start[node], end[node]);
+            return;
+        }
+        int limit = firstChild[node + 1];
+        for (int child = firstChild[node]; child < limit; child++) {
+            matchSubsequence(qualifier, child, k, qi, matched);
+        }
+    }
+
+    private static boolean isHumpStart(String name, int k) {
+        char c = name.charAt(k);
+        if (c == '_') {
+            return false;
+        }
+        return Character.isUpperCase(c) || name.charAt(k - 1) == '_';
+    }
+
+    private static boolean equalsIgnoreCase(char c1, char c2) {
+        return c1 == c2 || Character.toLowerCase(c1) == Character.toLowerCase(c2);
+    }
+
+    /**
+     * @return the child of the node whose edge starts with the given char (-1 if there's none).
+     */
+    private int findChild(int node, int d, char c) {
+        // Children are sorted by their first char.
+        int low = firstChild[node];
+        int high = firstChild[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = names[start[mid]].charAt(d);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the end of the infos whose name ends at the given node.
+     */
+    private int getExactEnd(int node) {
+        int child = firstChild[node];
+        if (child < firstChild[node + 1]) {
+            return start[child];
+        }
+        return end[node];
+    }
+
+    private void addRange(int from, int to, Collection<IInfo> result) {
+        for (int i = from; i < to; i++) {
+            result.add(infos[i]);
+        }
+    }
+
+    private void addMatched(BitSet matched, Collection<IInfo> result) {
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(infos[i]);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.core.IInfo;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.ObjectsInternPool;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+import org.python.pydev.core.log.Log;
+
+/**
+ * Binary format used to persist the additional info (replaces the text format in TreeIO, which is
+ * still read to migrate the info saved by older versions).
+ *
+ * The file is written as:
+ *
+ * magic (4 bytes: PYAI)
+ * format version (varint)
+ * string table: number of strings (varint) and for each string: length (varint) + utf-8 bytes
+ * sections: section id (1 byte) + section contents (a section id == SECTION_END ends the file)
+ *
+ * A tree section is: number of entries (varint) and for each entry: key (string index),
+ * number of infos (varint) and for each info: flags (type + whether path/file are available),
+ * name, declaring module, [path], [file] (string indexes), line and col (varints).
+ *
+ * A text section is: length (varint) + utf-8 bytes.
+ *
+ * All the strings are referenced by their index in the string table (which is decoded lazily,
+ * so, a given string is only decoded once -- and only if it's actually referenced).
+ */
+public final class TreeBinaryIO {
+
+    public static final int FORMAT_VERSION = AbstractAdditionalTokensInfo.version;
+
+    private static final byte[] MAGIC = new byte[] { 'P', 'Y', 'A', 'I' };
+
+    public static final byte SECTION_END = 0;
+    public static final byte SECTION_TREE_1 = 1;
+    public static final byte SECTION_TREE_2 = 2;
+    public static final byte SECTION_DISKCACHE = 3;
+
+    private static final int TYPE_MASK = 0x07;
+    private static final int HAS_PATH = 0x08;
+    private static final int HAS_FILE = 0x10;
+
+    private TreeBinaryIO() {
+    }
+
+    /**
+     * @return whether the given file starts with the header of the binary format.
+     */
+    public static boolean isBinaryFile(File file) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file)) {
+            byte[] header = new byte[MAGIC.length];
+            int read = 0;
+            while (read < header.length) {
+                int n = stream.read(header, read, header.length - read);
+                if (n < 0) {
+                    return false;
+                }
+                read += n;
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header[i] != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Collects the sections in memory (the string table is only known after all the sections
+     * are written) and writes them with writeTo().
+     *
+     * Note that it's not thread-safe!
+     */
+    public static final class Writer {
+
+        private final Map<String, Integer> strToInt = new HashMap<String, Integer>();
+        private final List<String> strings = new ArrayList<String>();
+        private final Bytes records = new Bytes(64 * 1024);
+
+        public void writeTree(byte sectionId, SortedMap<String, Set<IInfo>> tree) {
+            records.write(sectionId);
+            records.writeVarInt(tree.size());
+            for (Entry<String, Set<IInfo>> entry : tree.entrySet()) {
+                records.writeVarInt(stringIndex(entry.getKey()));
+                Set<IInfo> infos = entry.getValue();
+                records.writeVarInt(infos.size());
+                for (IInfo info : infos) {
+                    String path = info.getPath();
+                    String file = info.getFile();
+                    int flags = info.getType() & TYPE_MASK;
+                    if (path != null) {
+                        flags |= HAS_PATH;
+                    }
+                    if (file != null) {
+                        flags |= HAS_FILE;
+                    }
+                    records.writeVarInt(flags);
+                    records.writeVarInt(stringIndex(info.getName()));
+                    records.writeVarInt(stringIndex(info.getDeclaringModuleName()));
+                    if (path != null) {
+                        records.writeVarInt(stringIndex(path));
+                    }
+                    if (file != null) {
+                        records.writeVarInt(stringIndex(file));
+                    }
+                    records.writeVarInt(info.getLine());
+                    records.writeVarInt(info.getCol());
+                }
+            }
+        }
+
+        public void writeText(byte sectionId, String text) {
+            records.write(sectionId);
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            records.writeVarInt(bytes.length);
+            records.write(bytes, 0, bytes.length);
+        }
+
+        private int stringIndex(String s) {
+            Integer i = strToInt.get(s);
+            if (i == null) {
+                i = strings.size();
+                strToInt.put(s, i);
+                strings.add(s);
+            }
+            return i;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            Bytes header = new Bytes(Math.max(1024, strings.size() * 24));
+            header.write(MAGIC, 0, MAGIC.length);
+            header.writeVarInt(FORMAT_VERSION);
+            header.writeVarInt(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                header.writeVarInt(bytes.length);
+                header.write(bytes, 0, bytes.length);
+            }
+            header.writeTo(out);
+            records.writeTo(out);
+            out.write(SECTION_END);
+        }
+    }
+
+    /**
+     * Reads the contents written by a Writer from a buffer (which may be a heap buffer or a mapped buffer).
+     *
+     * Note that it's not thread-safe!
+     */
+    public static final class Reader {
+
+        private final ByteBuffer buf;
+        private final ObjectsPoolMap objectsPoolMap;
+        private final int[] stringOffsets;
+        private final int[] stringLengths;
+        private final String[] strings;
+
+        public Reader(ByteBuffer buf, ObjectsPoolMap objectsPoolMap) {
+            this.buf = buf;
+            this.objectsPoolMap = objectsPoolMap;
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buf.get() != MAGIC[i]) {
+                    throw new RuntimeException("Not in the additional info binary format.");
+                }
+            }
+            int version = readVarInt();
+            if (version != FORMAT_VERSION) {
+                throw new RuntimeException("Version does not match. Found: " + version + ". Expected: "
+                        + FORMAT_VERSION);
+            }
+            int size = readVarInt();
+            stringOffsets = new int[size];
+            stringLengths = new int[size];
+            strings = new String[size];
+            for (int i = 0; i < size; i++) {
+                int len = readVarInt();
+                stringOffsets[i] = buf.position();
+                stringLengths[i] = len;
+                buf.position(buf.position() + len);
+            }
+        }
+
+        /**
+         * Reads the full contents of the given file into a buffer.
+         */
+        public static ByteBuffer readFile(File file) throws IOException {
+            try (FileInputStream stream = new FileInputStream(file)) {
+                FileChannel channel = stream.getChannel();
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too big: " + file);
+                }
+                ByteBuffer buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf) < 0) {
+                        throw new IOException("Unexpected end of file: " + file);
+                    }
+                }
+                buf.flip();
+                return buf;
+            }
+        }
+
+        /**
+         * @return the id of the next section (SECTION_END if there are no more sections).
+         */
+        public byte nextSection() {
+            if (!buf.hasRemaining()) {
+                return SECTION_END;
+            }
+            return buf.get();
+        }
+
+        public String readText() {
+            int len = readVarInt();
+            String ret = decode(buf.position(), len);
+            buf.position(buf.position() + len);
+            return ret;
+        }
+
+        @SuppressWarnings("rawtypes")
+        public PyPublicTreeMap<String, Set<IInfo>> readTree(IPythonNature nature) throws IOException {
+            final int size = readVarInt();
+            final List<Entry<String, Set<IInfo>>> entries = new ArrayList<Entry<String, Set<IInfo>>>(size);
+            for (int iEntry = 0; iEntry < size; iEntry++) {
+                String key = getString(readVarInt());
+                int setSize = readVarInt();
+                HashSet<IInfo> set = new HashSet<IInfo>(setSize);
+                for (int iInfo = 0; iInfo < setSize; iInfo++) {
+                    int flags = readVarInt();
+                    String infoName = getString(readVarInt());
+                    String moduleDeclared = getString(readVarInt());
+                    String path = (flags & HAS_PATH) != 0 ? getString(readVarInt()) : null;
+                    String file = (flags & HAS_FILE) != 0 ? getString(readVarInt()) : null;
+                    int line = readVarInt();
+                    int col = readVarInt();
+
+                    int type = flags & TYPE_MASK;
+                    switch (type) {
+                        case IInfo.CLASS_WITH_IMPORT_TYPE:
+                            set.add(new ClassInfo(infoName, moduleDeclared, path, false, nature, file, line, col));
+                            break;
+                        case IInfo.METHOD_WITH_IMPORT_TYPE:
+                            set.add(new FuncInfo(infoName, moduleDeclared, path, false, nature, file, line, col));
+                            break;
+                        case IInfo.ATTRIBUTE_WITH_IMPORT_TYPE:
+                            set.add(new AttrInfo(infoName, moduleDeclared, path, false, nature, file, line, col));
+                            break;
+                        case IInfo.NAME_WITH_IMPORT_TYPE:
+                            set.add(new NameInfo(infoName, moduleDeclared, path, false, nature, file, line, col));
+                            break;
+                        case IInfo.MOD_IMPORT_TYPE:
+                            set.add(new ModInfo(infoName, false, nature, file, line, col));
+                            break;
+                        default:
+                            Log.log("Unexpected type: " + type);
+                    }
+                }
+                entries.add(new SimpleImmutableEntry<String, Set<IInfo>>(key, set));
+            }
+
+            PyPublicTreeMap<String, Set<IInfo>> tree = new PyPublicTreeMap<String, Set<IInfo>>();
+            try {
+                // Written from a SortedMap, so, it's already sorted.
+                tree.buildFromSorted(size, (java.util.Iterator) entries.iterator(), null, null);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+            return tree;
+        }
+
+        private String getString(int i) {
+            String s = strings[i];
+            if (s == null) {
+                s = ObjectsInternPool.internLocal(objectsPoolMap, decode(stringOffsets[i], stringLengths[i]));
+                strings[i] = s;
+            }
+            return s;
+        }
+
+        private String decode(int offset, int len) {
+            if (buf.hasArray()) {
+                return new String(buf.array(), buf.arrayOffset() + offset, len, StandardCharsets.UTF_8);
+            }
+            byte[] bytes = new byte[len];
+            for (int i = 0; i < len; i++) {
+                bytes[i] = buf.get(offset + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() {
+            int ret = 0;
+            int shift = 0;
+            while (true) {
+                byte b = buf.get();
+                ret |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return ret;
+                }
+                shift += 7;
+                if (shift > 28) {
+                    throw new RuntimeException("Malformed varint at: " + buf.position());
+                }
+            }
+        }
+    }
+
+    /**
+     * Byte array with varint support.
+     */
+    private static final class Bytes extends java.io.ByteArrayOutputStream {
+
+        private Bytes(int size) {
+            super(size);
+        }
+
+        private void writeVarInt(int v) {
+            while ((v & ~0x7F) != 0) {
+                write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+    }
+}
@@ -13,7 +13,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedMap;
 
 import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap;
 import org.python.pydev.core.FastBufferedReader;
@@ -26,6 +25,9 @@ import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 
 /**
+ * Reads the text format (version 5) which was used to persist the additional info before TreeBinaryIO
+ * (kept so that the info saved by older versions may still be migrated).
+ *
  * @author Fabio
  *
  */
@@ -38,101 +40,6 @@ public class TreeIO {
     private static final char LINE_CHAR_SEPARATOR = '#';
     private static final char COL_CHAR_SEPARATOR = '*';
 
-    /**
-     * Tree is written as:
-     * line 1= tree size
-     * cub|2|CubeColourDialog!13&999@CUBIC!263@cube!202&999@
-     */
-    public static void dumpTreeToBuffer(SortedMap<String, Set<IInfo>> tree, FastStringBuffer tempBuf,
-            Map<String, Integer> strToInt) {
-        Set<Entry<String, Set<IInfo>>> entrySet = tree.entrySet();
-        Iterator<Entry<String, Set<IInfo>>> it = entrySet.iterator();
-        tempBuf.append(entrySet.size());
-        tempBuf.append('\n');
-        while (it.hasNext()) {
-            Entry<String, Set<IInfo>> next = it.next();
-            tempBuf.append(next.getKey());
-            Set<IInfo> value = next.getValue();
-
-            tempBuf.append('|');
-            tempBuf.append(value.size());
-            tempBuf.append('|');
-
-            Iterator<IInfo> it2 = value.iterator();
-            Integer integer;
-            while (it2.hasNext()) {
-                IInfo info = it2.next();
-                tempBuf.append(info.getName());
-                tempBuf.append(NAME_CHAR_SEPARATOR);
-
-                String path = info.getPath();
-                if (path != null) {
-                    integer = strToInt.get(path);
-                    if (integer == null) {
-                        integer = strToInt.size() + 1;
-                        strToInt.put(path, integer);
-                    }
-                    tempBuf.append(integer);
-                    tempBuf.append(PATH_CHAR_SEPARATOR);
-                }
-
-                String file = info.getFile();
-                if (file != null) {
-                    integer = strToInt.get(file);
-                    if (integer == null) {
-                        integer = strToInt.size() + 1;
-                        strToInt.put(file, integer);
-                    }
-                    tempBuf.append(integer);
-                    tempBuf.append(FILE_CHAR_SEPARATOR);
-                }
-                tempBuf.append(info.getLine());
-                tempBuf.append(LINE_CHAR_SEPARATOR);
-
-                tempBuf.append(info.getCol());
-                tempBuf.append(COL_CHAR_SEPARATOR);
-
-                String modName = info.getDeclaringModuleName();
-
-                integer = strToInt.get(modName);
-                if (integer == null) {
-                    integer = strToInt.size() + 1;
-                    strToInt.put(modName, integer);
-                }
-
-                int v = integer << 3;
-                v |= info.getType();
-                tempBuf.append(v); //Write a single for name+type
-
-                tempBuf.append('@');
-            }
-            tempBuf.append('\n');
-        }
-        tempBuf.append("-- END TREE\n");
-    }
-
-    /**
-     * Dict format is the following:
-     * -- START DICTIONARY
-     * dictionary size
-     * name=integer
-     */
-    public static void dumpDictToBuffer(Map<String, Integer> strToInt, FastStringBuffer buf2) {
-        Iterator<Entry<String, Integer>> it = strToInt.entrySet().iterator();
-
-        buf2.append("-- START DICTIONARY\n");
-        buf2.append(strToInt.size());
-        buf2.append('\n');
-        while (it.hasNext()) {
-            Entry<String, Integer> next = it.next();
-            buf2.append(next.getValue());
-            buf2.append('=');
-            buf2.append(next.getKey());
-            buf2.append('\n');
-        }
-        buf2.append("-- END DICTIONARY\n");
-    }
-
     /**
      * @author Fabio
      *
@@ -163,6 +70,11 @@ public class TreeIO {
         }
     }
 
+    /**
+     * Tree is written as:
+     * line 1= tree size
+     * cub|2|CubeColourDialog!13&999@CUBIC!263@cube!202&999@
+     */
     public static PyPublicTreeMap<String, Set<IInfo>> loadTreeFrom(final FastBufferedReader reader,
             final Map<Integer, String> dictionary, FastStringBuffer buf, ObjectsPoolMap objectsPoolMap,
             IPythonNature nature)
@@ -327,6 +239,12 @@ public class TreeIO {
         return tree;
     }
 
+    /**
+     * Dict format is the following:
+     * -- START DICTIONARY
+     * dictionary size
+     * name=integer
+     */
     public static Map<Integer, String> loadDictFrom(FastBufferedReader reader, FastStringBuffer buf,
             ObjectsPoolMap objectsPoolMap) throws IOException {
         int size = StringUtils.parsePositiveInt(reader.readLine());
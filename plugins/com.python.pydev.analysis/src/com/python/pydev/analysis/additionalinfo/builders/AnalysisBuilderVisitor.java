@@ -260,4 +260,13 @@ public class AnalysisBuilderVisitor extends PyDevBuilderVisitor {
         }
     }
 
+    /**
+     * On a full build the analysis is run in the visiting thread, so, in a parallel build each worker
+     * analyzes its own resources.
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        return new AnalysisBuilderVisitor();
+    }
+
 }
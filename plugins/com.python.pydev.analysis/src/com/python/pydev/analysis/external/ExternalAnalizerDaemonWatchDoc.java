@@ -0,0 +1,59 @@
+package com.python.pydev.analysis.external;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+
+/**
+ * Runs the analysis in an ExternalAnalyzerDaemon (if that's not possible, the analysis is done in a new
+ * process created by createProcessWatchDoc).
+ */
+public final class ExternalAnalizerDaemonWatchDoc extends Thread {
+    private final IExternalCodeAnalysisStream out;
+    private final IProgressMonitor monitor;
+    private final String tool;
+    private final IPythonNature nature;
+    private final File workingDir;
+    private final String[] args;
+    private final IExternalAnalyzer externalAnalyzer;
+    private final ICallback0<Thread> createProcessWatchDoc;
+
+    public ExternalAnalizerDaemonWatchDoc(IExternalCodeAnalysisStream out, IProgressMonitor monitor, String tool,
+            IPythonNature nature, File workingDir, String[] args, IExternalAnalyzer externalAnalyzer,
+            ICallback0<Thread> createProcessWatchDoc) {
+        this.setDaemon(true);
+        this.out = out;
+        this.monitor = monitor;
+        this.tool = tool;
+        this.nature = nature;
+        this.workingDir = workingDir;
+        this.args = args;
+        this.externalAnalyzer = externalAnalyzer;
+        this.createProcessWatchDoc = createProcessWatchDoc;
+    }
+
+    @Override
+    public void run() {
+        ExternalAnalyzerDaemon.Result result = ExternalAnalyzerDaemons.run(tool, nature, workingDir, args, monitor,
+                out);
+        if (monitor.isCanceled()) {
+            return;
+        }
+        if (result != null) {
+            this.externalAnalyzer.afterRunProcess(result.output, result.errors, out);
+            return;
+        }
+
+        try {
+            Thread processWatchDoc = createProcessWatchDoc.call();
+            if (processWatchDoc != null) {
+                processWatchDoc.join();
+            }
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+}
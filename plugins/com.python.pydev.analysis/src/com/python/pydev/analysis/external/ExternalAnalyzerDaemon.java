@@ -0,0 +1,208 @@
+package com.python.pydev.analysis.external;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.ast.runners.SimpleRunner;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * A python process (pysrc/pydev_analysis_daemon.py) which runs PyLint or Mypy on the files it
+ * receives, so, the interpreter startup and the import of the analyzer are done only once and not
+ * for each file analyzed.
+ *
+ * The protocol is described in pydev_analysis_daemon.py. A daemon only runs one analysis at a time
+ * (see ExternalAnalyzerDaemons for the daemons available).
+ *
+ * Note: each request is for a single file (the analysis and its markers are done per file by the builder),
+ * so, files aren't batched in a single analyzer run: the gain comes from reusing the interpreter and the
+ * state of the analyzer (i.e.: the modules already inspected by pylint) among requests.
+ */
+public final class ExternalAnalyzerDaemon {
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_UNAVAILABLE = 1;
+    public static final int STATUS_ERROR = 2;
+
+    public static final class Result {
+
+        public final int status;
+        public final String output;
+        public final String errors;
+
+        public Result(int status, String output, String errors) {
+            this.status = status;
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * Added to the responses when the process finishes (or sends something unexpected).
+     */
+    private static final Result PROCESS_FINISHED = new Result(STATUS_ERROR, "", "");
+
+    /*default*/ final String key;
+    /*default*/ long lastUsed;
+
+    private final Process process;
+    private final OutputStream out;
+    private final InputStream in;
+    private final ThreadStreamReader err;
+    private final BlockingQueue<Result> responses = new LinkedBlockingQueue<>();
+    private volatile boolean disposed;
+
+    public ExternalAnalyzerDaemon(String key, String[] cmdarray, String[] envp, File workingDir)
+            throws IOException {
+        this.key = key;
+        this.process = SimpleRunner.createProcess(cmdarray, envp, workingDir);
+        this.out = new BufferedOutputStream(process.getOutputStream());
+        this.in = new BufferedInputStream(process.getInputStream());
+        this.err = new ThreadStreamReader(process.getErrorStream(), true);
+        this.err.start();
+
+        Thread reader = new Thread("ExternalAnalyzerDaemon reader") {
+            @Override
+            public void run() {
+                readResponses();
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public boolean isAlive() {
+        return !disposed && process.isAlive();
+    }
+
+    /**
+     * Runs the analyzer and waits for its output. If the monitor is canceled, the process is killed.
+     *
+     * @return null if the monitor was canceled or if the process died (in which case this daemon
+     * may not be used anymore).
+     */
+    public Result run(String tool, File workingDir, String[] args, IProgressMonitor monitor)
+            throws IOException {
+        err.clearContents();
+
+        FastStringBuffer buf = new FastStringBuffer(256);
+        buf.append(tool).append('\n');
+        buf.append(workingDir.getAbsolutePath()).append('\n');
+        buf.append(args.length).append('\n');
+        for (String arg : args) {
+            buf.append(StringUtils.replaceNewLines(arg, " ")).append('\n');
+        }
+        out.write(buf.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        while (true) {
+            Result result;
+            try {
+                // The response is read in the reader thread: here we just wait for it (checking for a cancellation).
+                result = responses.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dispose();
+                return null;
+            }
+            if (result == PROCESS_FINISHED) {
+                return null;
+            }
+            if (result != null) {
+                return result;
+            }
+            if (monitor.isCanceled()) {
+                // The analyzer can't be interrupted: kill the process (the reader thread finishes when
+                // its output is closed).
+                dispose();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads the responses sent by the process (blocking) until it finishes.
+     */
+    private void readResponses() {
+        try {
+            while (true) {
+                String[] header = readLine().split(" ");
+                if (header.length != 3) {
+                    throw new IOException(
+                            "Unexpected header from analysis daemon: " + StringUtils.join(" ", header));
+                }
+                int status = Integer.parseInt(header[0]);
+                String output = readString(Integer.parseInt(header[1]));
+                String errors = readString(Integer.parseInt(header[2]));
+                responses.add(new Result(status, output, errors));
+            }
+        } catch (EOFException e) {
+            // The process finished.
+        } catch (Exception e) {
+            if (!disposed) {
+                Log.log(e);
+            }
+        } finally {
+            responses.add(PROCESS_FINISHED);
+        }
+    }
+
+    /**
+     * @return the contents the process wrote to its stderr (out of an analysis).
+     */
+    public String getProcessErrors() {
+        return err.getContents();
+    }
+
+    private String readLine() throws IOException {
+        FastStringBuffer buf = new FastStringBuffer(20);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            buf.append((char) c);
+        }
+        return buf.toString().trim();
+    }
+
+    private String readString(int len) throws IOException {
+        if (len < 0) {
+            throw new IOException("Invalid length received from analysis daemon: " + len);
+        }
+        byte[] bytes = new byte[len];
+        int read = 0;
+        while (read < len) {
+            int n = in.read(bytes, read, len - read);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            read += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void dispose() {
+        disposed = true;
+        err.stopGettingOutput();
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Ignore (the process is killed anyways).
+        }
+        process.destroy();
+    }
+}
@@ -0,0 +1,308 @@
+package com.python.pydev.analysis.external;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.ast.runners.SimplePythonRunner;
+import org.python.pydev.ast.runners.SimpleRunner;
+import org.python.pydev.core.CorePlugin;
+import org.python.pydev.core.IInterpreterInfo;
+import org.python.pydev.core.IInterpreterManager;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.core.preferences.PydevPrefs;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps the ExternalAnalyzerDaemons alive so that they can be reused among analysis requests.
+ *
+ * The daemons are kept per tool/interpreter/environment (so, a change in the PYTHONPATH of a project
+ * will start a new daemon and the old one will be disposed when it's idle for some time) and up to
+ * MAX_DAEMONS_PER_KEY are created to run analysis requests concurrently.
+ *
+ * All the daemons are killed when the plugin is stopped (see disposeAll).
+ */
+public final class ExternalAnalyzerDaemons {
+
+    /**
+     * Preference defining whether the external analyzers should be run in a daemon (if false, a new process is
+     * created for each file analyzed).
+     */
+    public static final String USE_ANALYSIS_DAEMON = "USE_ANALYSIS_DAEMON";
+    public static final boolean DEFAULT_USE_ANALYSIS_DAEMON = true;
+
+    private static final int MAX_DAEMONS_PER_KEY = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final long MAX_IDLE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * After this number of daemons die unexpectedly, we stop trying to use a daemon for the related key.
+     */
+    private static final int MAX_FAILURES = 3;
+
+    private static final Object lock = new Object();
+    private static final Map<String, List<ExternalAnalyzerDaemon>> idle = new HashMap<>();
+    private static final Map<String, Integer> created = new HashMap<>();
+    private static final Map<String, Integer> failures = new HashMap<>();
+    private static final Set<String> unavailable = new HashSet<>();
+
+    /**
+     * All the daemons created (idle or running some analysis).
+     */
+    private static final Set<ExternalAnalyzerDaemon> all = new HashSet<>();
+
+    private ExternalAnalyzerDaemons() {
+    }
+
+    /**
+     * @return whether the external analyzers should be run in a daemon (as defined in the preferences).
+     */
+    public static boolean useDaemon() {
+        return PydevPrefs.getEclipsePreferences().getBoolean(USE_ANALYSIS_DAEMON, DEFAULT_USE_ANALYSIS_DAEMON);
+    }
+
+    /**
+     * @param toolLocation the location of the analyzer configured by the user.
+     * @return whether the analyzer may be run in a daemon with the interpreter of the given nature
+     * (the analyzer must be installed in the same environment of the interpreter).
+     */
+    public static boolean canRunInDaemon(IPythonNature nature, File toolLocation) {
+        if (nature == null || toolLocation == null || !useDaemon()) {
+            return false;
+        }
+        try {
+            if (nature.getInterpreterType() != IInterpreterManager.INTERPRETER_TYPE_PYTHON) {
+                return false;
+            }
+            File interpreter = new File(nature.getProjectInterpreter().getExecutableOrJar());
+            File envRoot = interpreter.getAbsoluteFile().getParentFile();
+            if (envRoot == null) {
+                return false;
+            }
+            String name = envRoot.getName();
+            if ((name.equals("bin") || name.equalsIgnoreCase("Scripts")) && envRoot.getParentFile() != null) {
+                envRoot = envRoot.getParentFile();
+            }
+            String root = FileUtils.getFileAbsolutePath(envRoot) + File.separator;
+            String location = FileUtils.getFileAbsolutePath(toolLocation);
+            return File.separatorChar == '\\' ? location.toLowerCase().startsWith(root.toLowerCase())
+                    : location.startsWith(root);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the given analyzer (pylint or mypy) in a daemon for the interpreter of the given nature.
+     *
+     * @return the result or null if the monitor was canceled or if it was not possible to run in a
+     * daemon (in which case the analyzer should be run in a new process).
+     */
+    public static ExternalAnalyzerDaemon.Result run(String tool, IPythonNature nature, File workingDir,
+            String[] args, IProgressMonitor monitor, IExternalCodeAnalysisStream out) {
+        String key;
+        String[] cmdarray;
+        String[] envp;
+        try {
+            IInterpreterInfo interpreter = nature.getProjectInterpreter();
+            envp = SimpleRunner.getEnvironment(nature, interpreter, nature.getRelatedInterpreterManager());
+            String script = FileUtils.getFileAbsolutePath(
+                    CorePlugin.getScriptWithinPySrc("pydev_analysis_daemon.py"));
+            cmdarray = SimplePythonRunner.preparePythonCallParameters(interpreter.getExecutableOrJar(), script,
+                    null);
+
+            FastStringBuffer buf = new FastStringBuffer(tool, 1024);
+            buf.append('\n').append(interpreter.getExecutableOrJar());
+            if (envp != null) {
+                for (String s : envp) {
+                    buf.append('\n').append(s);
+                }
+            }
+            key = buf.toString();
+        } catch (Exception e) {
+            Log.log(e);
+            return null;
+        }
+
+        ExternalAnalyzerDaemon daemon;
+        try {
+            daemon = acquire(key, cmdarray, envp, workingDir, monitor);
+        } catch (Exception e) {
+            Log.log(e);
+            return null;
+        }
+        if (daemon == null) {
+            return null;
+        }
+
+        ExternalAnalyzerDaemon.Result result = null;
+        try {
+            result = daemon.run(tool, workingDir, args, monitor);
+        } catch (Exception e) {
+            Log.log(e);
+        }
+
+        if (result == null) {
+            // Canceled or the process died: either way it's not in a state where it can be reused.
+            String processErrors = daemon.getProcessErrors();
+            // Note: if it was already removed, it was disposed by disposeAll (not a failure of the daemon).
+            if (dispose(daemon) && !monitor.isCanceled()) {
+                WriteToStreamHelper.write("Analysis daemon finished unexpectedly:\n", out, processErrors);
+                synchronized (lock) {
+                    Integer n = failures.get(key);
+                    n = n == null ? 1 : n + 1;
+                    failures.put(key, n);
+                    if (n >= MAX_FAILURES) {
+                        unavailable.add(key);
+                    }
+                }
+            }
+            return null;
+        }
+
+        if (result.status == ExternalAnalyzerDaemon.STATUS_UNAVAILABLE) {
+            WriteToStreamHelper.write("Unable to run " + tool
+                    + " in a daemon (a process will be created for each analysis):\n", out, result.errors);
+            synchronized (lock) {
+                unavailable.add(key);
+            }
+            dispose(daemon);
+            return null;
+        }
+        release(daemon);
+        return result;
+    }
+
+    private static ExternalAnalyzerDaemon acquire(String key, String[] cmdarray, String[] envp, File workingDir,
+            IProgressMonitor monitor) throws Exception {
+        synchronized (lock) {
+            disposeIdleDaemons();
+            while (true) {
+                if (unavailable.contains(key) || monitor.isCanceled()) {
+                    return null;
+                }
+                List<ExternalAnalyzerDaemon> lst = idle.get(key);
+                while (lst != null && !lst.isEmpty()) {
+                    ExternalAnalyzerDaemon daemon = lst.remove(lst.size() - 1);
+                    if (daemon.isAlive()) {
+                        return daemon;
+                    }
+                    daemon.dispose();
+                    all.remove(daemon);
+                    decrementCreated(daemon.key);
+                }
+                Integer n = created.get(key);
+                n = n == null ? 0 : n;
+                if (n < MAX_DAEMONS_PER_KEY) {
+                    created.put(key, n + 1);
+                    break;
+                }
+                // All the daemons are busy: wait for one to be released.
+                lock.wait(100);
+            }
+        }
+
+        ExternalAnalyzerDaemon daemon;
+        try {
+            daemon = new ExternalAnalyzerDaemon(key, cmdarray, envp, workingDir);
+        } catch (Exception e) {
+            synchronized (lock) {
+                decrementCreated(key);
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            all.add(daemon);
+        }
+        return daemon;
+    }
+
+    private static void release(ExternalAnalyzerDaemon daemon) {
+        synchronized (lock) {
+            if (!all.contains(daemon)) {
+                daemon.dispose(); // disposeAll was called while it was running.
+                return;
+            }
+            daemon.lastUsed = System.currentTimeMillis();
+            List<ExternalAnalyzerDaemon> lst = idle.get(daemon.key);
+            if (lst == null) {
+                lst = new ArrayList<>();
+                idle.put(daemon.key, lst);
+            }
+            lst.add(daemon);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return false if the daemon was already disposed by disposeAll.
+     */
+    private static boolean dispose(ExternalAnalyzerDaemon daemon) {
+        daemon.dispose();
+        synchronized (lock) {
+            if (!all.remove(daemon)) {
+                return false;
+            }
+            decrementCreated(daemon.key);
+            return true;
+        }
+    }
+
+    /**
+     * Kills all the daemons (the ones running some analysis return no result). Called when the plugin is stopped.
+     */
+    public static void disposeAll() {
+        synchronized (lock) {
+            for (ExternalAnalyzerDaemon daemon : all) {
+                daemon.dispose();
+            }
+            all.clear();
+            idle.clear();
+            created.clear();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Must be called synchronized.
+     */
+    private static void decrementCreated(String key) {
+        Integer n = created.get(key);
+        if (n != null && n > 1) {
+            created.put(key, n - 1);
+        } else {
+            created.remove(key);
+        }
+        lock.notifyAll();
+    }
+
+    /**
+     * Must be called synchronized.
+     */
+    private static void disposeIdleDaemons() {
+        long now = System.currentTimeMillis();
+        for (Iterator<List<ExternalAnalyzerDaemon>> it = idle.values().iterator(); it.hasNext();) {
+            List<ExternalAnalyzerDaemon> lst = it.next();
+            for (Iterator<ExternalAnalyzerDaemon> it2 = lst.iterator(); it2.hasNext();) {
+                ExternalAnalyzerDaemon daemon = it2.next();
+                if (now - daemon.lastUsed > MAX_IDLE_MILLIS) {
+                    it2.remove();
+                    daemon.dispose();
+                    all.remove(daemon);
+                    decrementCreated(daemon.key);
+                }
+            }
+            if (lst.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+}
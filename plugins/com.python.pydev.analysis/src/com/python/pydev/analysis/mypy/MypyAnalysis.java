@@ -34,7 +34,9 @@ import org.python.pydev.shared_core.process.ProcessUtils;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
+import com.python.pydev.analysis.external.ExternalAnalizerDaemonWatchDoc;
 import com.python.pydev.analysis.external.ExternalAnalizerProcessWatchDoc;
+import com.python.pydev.analysis.external.ExternalAnalyzerDaemons;
 import com.python.pydev.analysis.external.IExternalAnalyzer;
 import com.python.pydev.analysis.external.IExternalCodeAnalysisStream;
 import com.python.pydev.analysis.external.WriteToStreamHelper;
@@ -65,37 +67,57 @@ import com.python.pydev.analysis.external.WriteToStreamHelper;
     /**
      * Creates the mypy process and starts getting its output.
      */
-    void createMypyProcess(IExternalCodeAnalysisStream out)
+    void createMypyProcess(final IExternalCodeAnalysisStream out)
             throws CoreException,
             MisconfigurationException, PythonNatureWithoutProjectException {
-        String mypyExecutable = FileUtils.getFileAbsolutePath(mypyLocation);
+        final String mypyExecutable = FileUtils.getFileAbsolutePath(mypyLocation);
         String target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
 
-        ArrayList<String> cmdList = new ArrayList<String>();
-        cmdList.add(mypyExecutable);
         String userArgs = StringUtils.replaceNewLines(
                 MypyPreferences.getMypyArgs(resource), " ");
         List<String> userArgsAsList = new ArrayList<>(Arrays.asList(ProcessUtils.parseArguments(userArgs)));
         if (!userArgsAsList.contains("--show-column-numbers")) {
             userArgsAsList.add("--show-column-numbers");
         }
-        cmdList.addAll(userArgsAsList);
-        cmdList.add(target);
-        String[] args = cmdList.toArray(new String[0]);
+        userArgsAsList.add(target);
+        final String[] mypyArgs = userArgsAsList.toArray(new String[0]);
 
         // run mypy in project location
         IProject project = resource.getProject();
-        File workingDir = project.getLocation().toFile();
-        Process process;
+        final File workingDir = project.getLocation().toFile();
+        final PythonNature nature = PythonNature.getPythonNature(project);
+
+        if (ExternalAnalyzerDaemons.canRunInDaemon(nature, mypyLocation)) {
+            // mypy is installed in the project interpreter: analyze in a daemon to avoid paying the
+            // interpreter startup and the mypy import for each file.
+            WriteToStreamHelper.write("Mypy: Analyzing in daemon:", out, (Object) mypyArgs);
+            this.processWatchDoc = new ExternalAnalizerDaemonWatchDoc(out, monitor, "mypy", nature, workingDir,
+                    mypyArgs, this, () -> startMypyProcess(out, mypyExecutable, mypyArgs, workingDir, nature));
+            this.processWatchDoc.start();
+        } else {
+            this.processWatchDoc = startMypyProcess(out, mypyExecutable, mypyArgs, workingDir, nature);
+        }
+    }
+
+    /**
+     * Creates the mypy process to analyze the file and starts a thread to get its output.
+     *
+     * @return the started thread.
+     */
+    private Thread startMypyProcess(IExternalCodeAnalysisStream out, String mypyExecutable, String[] mypyArgs,
+            File workingDir, PythonNature nature) {
+        String[] args = new String[mypyArgs.length + 1];
+        args[0] = mypyExecutable;
+        System.arraycopy(mypyArgs, 0, args, 1, mypyArgs.length);
 
         // run executable command (mypy or mypy.bat or mypy.exe)
         WriteToStreamHelper.write("Mypy: Executing command line:", out, (Object) args);
         SimpleRunner simpleRunner = new SimpleRunner();
-        Tuple<Process, String> r = simpleRunner.run(args, workingDir, PythonNature.getPythonNature(project),
-                null);
-        process = r.o1;
-        this.processWatchDoc = new ExternalAnalizerProcessWatchDoc(out, monitor, process, this);
-        this.processWatchDoc.start();
+        Tuple<Process, String> r = simpleRunner.run(args, workingDir, nature, null);
+        Process process = r.o1;
+        Thread watchDoc = new ExternalAnalizerProcessWatchDoc(out, monitor, process, this);
+        watchDoc.start();
+        return watchDoc;
     }
 
     @Override
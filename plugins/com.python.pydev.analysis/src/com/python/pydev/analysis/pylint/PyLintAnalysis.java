@@ -28,7 +28,9 @@ import org.python.pydev.shared_core.markers.PyMarkerUtils;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
+import com.python.pydev.analysis.external.ExternalAnalizerDaemonWatchDoc;
 import com.python.pydev.analysis.external.ExternalAnalizerProcessWatchDoc;
+import com.python.pydev.analysis.external.ExternalAnalyzerDaemons;
 import com.python.pydev.analysis.external.IExternalAnalyzer;
 import com.python.pydev.analysis.external.IExternalCodeAnalysisStream;
 import com.python.pydev.analysis.external.WriteToStreamHelper;
@@ -59,20 +61,13 @@ import com.python.pydev.analysis.external.WriteToStreamHelper;
     /**
      * Creates the pylint process and starts getting its output.
      */
-    void createPyLintProcess(IExternalCodeAnalysisStream out)
+    void createPyLintProcess(final IExternalCodeAnalysisStream out)
             throws CoreException,
             MisconfigurationException, PythonNatureWithoutProjectException {
-        String script = FileUtils.getFileAbsolutePath(pyLintLocation);
+        final String script = FileUtils.getFileAbsolutePath(pyLintLocation);
         String target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
 
-        // check whether lint.py module or pylint executable has been specified
-        boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
-
         ArrayList<String> cmdList = new ArrayList<String>();
-        // pylint executable
-        if (!isPyScript) {
-            cmdList.add(script);
-        }
         //user args
         String userArgs = StringUtils.replaceNewLines(
                 PyLintPreferences.getPyLintArgs(), " ");
@@ -94,37 +89,71 @@ import com.python.pydev.analysis.external.WriteToStreamHelper;
         cmdList.add("--msg-template='{C}:{line:3d},{column:2d}: {msg} ({symbol})'");
         // target file to be linted
         cmdList.add(target);
-        String[] args = cmdList.toArray(new String[0]);
+        final String[] lintArgs = cmdList.toArray(new String[0]);
 
         // run pylint in project location
-        IProject project = resource.getProject();
-        File workingDir = project.getLocation().toFile();
+        final IProject project = resource.getProject();
+        final File workingDir = project.getLocation().toFile();
+        final PythonNature nature = PythonNature.getPythonNature(project);
+
+        if (ExternalAnalyzerDaemons.canRunInDaemon(nature, pyLintLocation)) {
+            // pylint is installed in the project interpreter: analyze in a daemon to avoid paying the
+            // interpreter startup and the pylint import for each file.
+            WriteToStreamHelper.write("PyLint: Analyzing in daemon:", out, (Object) lintArgs);
+            this.processWatchDoc = new ExternalAnalizerDaemonWatchDoc(out, monitor, "pylint", nature, workingDir,
+                    lintArgs, this, () -> {
+                        try {
+                            return startPyLintProcess(out, script, lintArgs, workingDir, nature);
+                        } catch (Exception e) {
+                            Log.log(e);
+                            return null;
+                        }
+                    });
+            this.processWatchDoc.start();
+        } else {
+            this.processWatchDoc = startPyLintProcess(out, script, lintArgs, workingDir, nature);
+        }
+    }
+
+    /**
+     * Creates the pylint process to analyze the file and starts a thread to get its output.
+     *
+     * @return the started thread (or null if it couldn't be started).
+     */
+    private Thread startPyLintProcess(IExternalCodeAnalysisStream out, String script, String[] lintArgs,
+            File workingDir, PythonNature nature)
+            throws MisconfigurationException, PythonNatureWithoutProjectException {
+        // check whether lint.py module or pylint executable has been specified
+        boolean isPyScript = script.endsWith(".py") || script.endsWith(".pyw");
+
         Process process;
         if (isPyScript) {
             // run Python script (lint.py) with the interpreter of current project
-            PythonNature nature = PythonNature.getPythonNature(project);
             if (nature == null) {
-                Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + project);
+                Throwable e = new RuntimeException("PyLint ERROR: Nature not configured for: " + resource.getProject());
                 Log.log(e);
-                return;
+                return null;
             }
             String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
-            WriteToStreamHelper.write("PyLint: Executing command line:", out, script, args);
+            WriteToStreamHelper.write("PyLint: Executing command line:", out, script, lintArgs);
             SimplePythonRunner runner = new SimplePythonRunner();
-            String[] parameters = SimplePythonRunner.preparePythonCallParameters(interpreter, script, args);
+            String[] parameters = SimplePythonRunner.preparePythonCallParameters(interpreter, script, lintArgs);
 
             Tuple<Process, String> r = runner.run(parameters, workingDir, nature, monitor);
             process = r.o1;
         } else {
             // run executable command (pylint or pylint.bat or pylint.exe)
+            String[] args = new String[lintArgs.length + 1];
+            args[0] = script;
+            System.arraycopy(lintArgs, 0, args, 1, lintArgs.length);
             WriteToStreamHelper.write("PyLint: Executing command line:", out, (Object) args);
             SimpleRunner simpleRunner = new SimpleRunner();
-            Tuple<Process, String> r = simpleRunner.run(args, workingDir, PythonNature.getPythonNature(project),
-                    null);
+            Tuple<Process, String> r = simpleRunner.run(args, workingDir, nature, null);
             process = r.o1;
         }
-        this.processWatchDoc = new ExternalAnalizerProcessWatchDoc(out, monitor, process, this);
-        this.processWatchDoc.start();
+        Thread watchDoc = new ExternalAnalizerProcessWatchDoc(out, monitor, process, this);
+        watchDoc.start();
+        return watchDoc;
     }
 
     @Override
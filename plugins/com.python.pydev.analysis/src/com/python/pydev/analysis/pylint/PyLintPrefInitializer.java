@@ -13,6 +13,8 @@ import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.osgi.service.prefs.Preferences;
 import org.python.pydev.shared_core.SharedCorePlugin;
 
+import com.python.pydev.analysis.external.ExternalAnalyzerDaemons;
+
 public class PyLintPrefInitializer {
 
     public static void initializeDefaultPreferences() {
@@ -30,6 +32,10 @@ public class PyLintPrefInitializer {
         node.putBoolean(PyLintPreferences.USE_CONSOLE, PyLintPreferences.DEFAULT_USE_CONSOLE);
         node.put(PyLintPreferences.PYLINT_ARGS, PyLintPreferences.DEFAULT_PYLINT_ARGS);
 
+        // Used for both, pylint and mypy.
+        node.putBoolean(ExternalAnalyzerDaemons.USE_ANALYSIS_DAEMON,
+                ExternalAnalyzerDaemons.DEFAULT_USE_ANALYSIS_DAEMON);
+
     }
 
 }
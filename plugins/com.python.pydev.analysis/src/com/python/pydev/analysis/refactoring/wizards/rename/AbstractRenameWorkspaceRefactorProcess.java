@@ -10,8 +10,10 @@
  */
 package com.python.pydev.analysis.refactoring.wizards.rename;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
@@ -24,6 +26,7 @@ import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
 import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.progress.NullProgressMonitorWrapper;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
@@ -33,12 +36,21 @@ import org.python.pydev.shared_core.structure.Tuple;
  * The user is only required to implement {@link #getEntryOccurrences(String, SourceModule)} to
  * return the available references in the given module.
  *
+ * Note that the modules found with possible references are checked in parallel, so, implementations of
+ * {@link #findReferencesOnOtherModule(RefactoringStatus, RefactoringRequest, String, SourceModule)} must not
+ * change shared state (the status passed is specific to the module being checked).
+ *
  * @author Fabio
  */
 public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRenameRefactorProcess {
 
     public static final boolean DEBUG_FILTERED_MODULES = false || DebugFlags.DEBUG_FIND_REFERENCES;
 
+    /**
+     * The maximum number of threads used to check the modules found with possible references.
+     */
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
     /**
      * May be used by subclasses
      */
@@ -157,6 +169,7 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
 
             List<Tuple<List<ModulesKey>, IPythonNature>> references;
 
+            long initialTime = System.currentTimeMillis();
             try {
                 request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 90));
                 references = findFilesWithPossibleReferences(request);
@@ -167,60 +180,15 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
                 request.popMonitor().done();
             }
 
-            int total = references.size();
+            long candidatesTime = System.currentTimeMillis() - initialTime;
+
             try {
                 request.pushMonitor(new SubProgressMonitor(request.getMonitor(), 10));
-                request.getMonitor().beginTask("Analyzing references found", total);
-                int i = 0;
-                for (Tuple<List<ModulesKey>, IPythonNature> file : references) {
-                    i++;
-                    request.communicateWork(StringUtils.format(
-                            "Analyzing %s (%s of %s)", file.o2.getProject(), i,
-                            total));
-                    PythonNature nature = (PythonNature) file.o2;
-                    if (nature != null) {
-                        if (!nature.startRequests()) {
-                            continue;
-                        }
-                        try {
-                            for (ModulesKey key : file.o1) {
-                                IProjectModulesManager modulesManager = (IProjectModulesManager) nature.getAstManager()
-                                        .getModulesManager();
-
-                                request.checkCancelled();
-                                String modName = key.name;
-
-                                if (modName != null) {
-                                    if (!request.moduleName.equals(modName)) {
-                                        //we've already checked the module from the request...
-
-                                        request.checkCancelled();
-                                        IModule module = modulesManager
-                                                .getModuleInDirectManager(modName, nature, false);
-
-                                        if (module instanceof SourceModule) {
-
-                                            SourceModule sourceModule = (SourceModule) module;
-                                            if (sourceModule.getAst() == null) {
-                                                status.addWarning("Unable to get AST for: " + modName);
-                                                continue;
-                                            }
-                                            request.checkCancelled();
-                                            List<ASTEntry> entryOccurrences = getOccurrencesInOtherModule(status,
-                                                    request, request.initialName, (SourceModule) module, nature);
-
-                                            if (entryOccurrences.size() > 0) {
-                                                addOccurrences(entryOccurrences, key.file, modName);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        } finally {
-                            nature.endRequests();
-                        }
-                    }
-                }
+                long verifyInitialTime = System.currentTimeMillis();
+                int verified = verifyCandidates(status, request, references);
+                status.addInfo(StringUtils.format(
+                        "Find references on workspace: candidates found in %s ms, %s modules verified in %s ms.",
+                        candidatesTime, verified, System.currentTimeMillis() - verifyInitialTime));
             } finally {
                 request.popMonitor().done();
             }
@@ -234,6 +202,100 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
 
     }
 
+    /**
+     * A module which may have references (its occurrences are filled by a worker thread).
+     */
+    private static final class Candidate {
+
+        private final ModulesKey key;
+        private final PythonNature nature;
+        private final RefactoringStatus status = new RefactoringStatus();
+        private List<ASTEntry> entryOccurrences;
+
+        private Candidate(ModulesKey key, PythonNature nature) {
+            this.key = key;
+            this.nature = nature;
+        }
+    }
+
+    /**
+     * Gets the occurrences in each of the modules found with possible references. The modules are checked in
+     * parallel, but the occurrences and status of each module are added in the order the modules were found
+     * (so, the results don't depend on the threads scheduling).
+     *
+     * @return the number of modules verified.
+     */
+    private int verifyCandidates(RefactoringStatus status, final RefactoringRequest request,
+            List<Tuple<List<ModulesKey>, IPythonNature>> references) {
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        List<PythonNature> natures = new ArrayList<PythonNature>();
+        try {
+            for (Tuple<List<ModulesKey>, IPythonNature> file : references) {
+                PythonNature nature = (PythonNature) file.o2;
+                if (nature == null || !nature.startRequests()) {
+                    continue;
+                }
+                natures.add(nature);
+                for (ModulesKey key : file.o1) {
+                    //we've already checked the module from the request...
+                    if (key.name != null && !request.moduleName.equals(key.name)) {
+                        candidates.add(new Candidate(key, nature));
+                    }
+                }
+            }
+
+            // The monitor of the request may be accessed by the workers (through the request), so, while they run
+            // it only forwards the cancellation (the progress is reported by this thread).
+            IProgressMonitor monitor = request.getMonitor();
+            request.pushMonitor(new NullProgressMonitorWrapper(monitor));
+            try {
+                new ParallelCandidatesVerifier(MAX_THREADS).verify(candidates, monitor,
+                        new ParallelCandidatesVerifier.IVerifier<Candidate, Candidate>() {
+
+                            @Override
+                            public Candidate verify(Candidate candidate, IProgressMonitor workerMonitor) {
+                                verifyCandidate(candidate, request, workerMonitor);
+                                return candidate;
+                            }
+                        });
+            } finally {
+                request.popMonitor();
+            }
+
+            for (Candidate candidate : candidates) {
+                status.merge(candidate.status);
+                if (candidate.entryOccurrences != null && candidate.entryOccurrences.size() > 0) {
+                    addOccurrences(candidate.entryOccurrences, candidate.key.file, candidate.key.name);
+                }
+            }
+            return candidates.size();
+        } finally {
+            for (PythonNature nature : natures) {
+                nature.endRequests();
+            }
+        }
+    }
+
+    private void verifyCandidate(Candidate candidate, RefactoringRequest request, IProgressMonitor monitor) {
+        String modName = candidate.key.name;
+        IProjectModulesManager modulesManager = (IProjectModulesManager) candidate.nature.getAstManager()
+                .getModulesManager();
+        IModule module = modulesManager.getModuleInDirectManager(modName, candidate.nature, false);
+
+        if (module instanceof SourceModule) {
+            SourceModule sourceModule = (SourceModule) module;
+            if (sourceModule.getAst() == null) {
+                candidate.status.addWarning("Unable to get AST for: " + modName);
+                return;
+            }
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            candidate.entryOccurrences = getOccurrencesInOtherModule(candidate.status, request, request.initialName,
+                    sourceModule, candidate.nature);
+        }
+    }
+
     /**
      * This method is called for each module that may have some reference to the definition
      * we're looking for.
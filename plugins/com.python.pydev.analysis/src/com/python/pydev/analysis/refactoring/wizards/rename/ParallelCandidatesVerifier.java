@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.refactoring.wizards.rename;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.python.pydev.shared_core.progress.AsynchronousProgressMonitorWrapper;
+import org.python.pydev.shared_core.progress.NullProgressMonitorWrapper;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Verifies the candidates found in a find references with a bounded number of threads.
+ *
+ * The results are returned in the order of the candidates (so, they don't depend on the threads scheduling) and
+ * the progress is only reported in the thread which called verify (each worker receives a monitor which only
+ * forwards the cancellation of the monitor passed).
+ */
+public final class ParallelCandidatesVerifier {
+
+    public interface IVerifier<T, R> {
+
+        /**
+         * Called in a worker thread.
+         *
+         * @param monitor a monitor specific to the worker (only used to check for cancellation).
+         * @return the result of the verification of the candidate.
+         */
+        R verify(T candidate, IProgressMonitor monitor) throws Exception;
+    }
+
+    private final int maxThreads;
+
+    /**
+     * @param maxThreads the maximum number of threads used to verify the candidates (if 1 the candidates are
+     * verified in the thread which calls verify).
+     */
+    public ParallelCandidatesVerifier(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param monitor the monitor used to report the progress and to check for cancellation (only accessed in the
+     * thread which called this method).
+     * @return the results of the verification of each candidate (in the same order of the candidates).
+     * @throws OperationCanceledException if the monitor was cancelled.
+     * @throws RuntimeException wrapping the error of the first candidate which failed (if any).
+     */
+    public <T, R> List<R> verify(final List<T> candidates, IProgressMonitor monitor,
+            final IVerifier<T, R> verifier) throws OperationCanceledException {
+        final int total = candidates.size();
+        final Object[] results = new Object[total];
+        final Throwable[] errors = new Throwable[total];
+        final AtomicInteger nextCandidate = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+
+        monitor.beginTask("Analyzing references found", total);
+        int nThreads = Math.min(maxThreads, total);
+        if (nThreads <= 1) {
+            createWorker(candidates, new NullProgressMonitorWrapper(monitor), verifier, results, errors,
+                    nextCandidate, finished).run();
+            monitor.worked(total);
+        } else {
+            List<Thread> threads = new ArrayList<Thread>(nThreads);
+            for (int i = 0; i < nThreads; i++) {
+                Thread thread = new Thread(createWorker(candidates, new NullProgressMonitorWrapper(monitor), verifier,
+                        results, errors, nextCandidate, finished));
+                thread.setName("PyDev: Find references worker " + (i + 1));
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+            int reported = 0;
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join(AsynchronousProgressMonitorWrapper.UPDATE_INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        //ignore
+                    }
+                    int current = finished.get();
+                    if (current > reported) {
+                        monitor.setTaskName(StringUtils.format("Analyzing references (%s of %s)", current, total));
+                        monitor.worked(current - reported);
+                        reported = current;
+                    }
+                }
+            }
+        }
+        if (monitor.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+
+        List<R> ret = new ArrayList<R>(total);
+        for (int i = 0; i < total; i++) {
+            if (errors[i] != null) {
+                throw new RuntimeException(errors[i]);
+            }
+            @SuppressWarnings("unchecked")
+            R result = (R) results[i];
+            ret.add(result);
+        }
+        return ret;
+    }
+
+    private static <T, R> Runnable createWorker(final List<T> candidates, final IProgressMonitor workerMonitor,
+            final IVerifier<T, R> verifier, final Object[] results, final Throwable[] errors,
+            final AtomicInteger nextCandidate, final AtomicInteger finished) {
+        final int total = candidates.size();
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                int i;
+                while ((i = nextCandidate.getAndIncrement()) < total) {
+                    try {
+                        if (workerMonitor.isCanceled()) {
+                            return;
+                        }
+                        results[i] = verifier.verify(candidates.get(i), workerMonitor);
+                    } catch (OperationCanceledException e) {
+                        // Also kept as an error in case the monitor wasn't really cancelled.
+                        errors[i] = e;
+                        return;
+                    } catch (Throwable e) {
+                        errors[i] = e;
+                    } finally {
+                        finished.incrementAndGet();
+                    }
+                }
+            }
+        };
+    }
+}
@@ -72,6 +72,10 @@ public class InterpreterInfoBuilder implements IInterpreterInfoBuilder {
         pythonPathHelper.setPythonPath(info.libs);
 
         ISystemModulesManager modulesManager = info.getModulesManager();
+        if (modulesManager instanceof SystemModulesManager) {
+            // Only list what changed in the PYTHONPATH since the last sync.
+            pythonPathHelper.setScanJournal(((SystemModulesManager) modulesManager).getPythonpathScanJournal());
+        }
         IInterpreterManager manager = modulesManager.getInterpreterManager();
         AbstractAdditionalDependencyInfo additionalInfo;
         try {
@@ -137,6 +137,10 @@ public class CtxParticipant
         } else {
             tokensStartingWith = additionalInfo.getTokensStartingWith(qual,
                     AbstractAdditionalTokensInfo.TOP_LEVEL);
+            if (PyCodeCompletionUtils.isCamelCaseQualifier(qual)) {
+                addCamelCaseMatches(qual, additionalInfo.getTokensMatchingCamelCase(qual,
+                        AbstractAdditionalTokensInfo.TOP_LEVEL, null), tokensStartingWith);
+            }
         }
 
         FastStringBuffer realImportRep = new FastStringBuffer();
@@ -212,6 +216,10 @@ public class CtxParticipant
             } else {
                 tokensStartingWith = AdditionalProjectInterpreterInfo.getTokensStartingWith(qual,
                         request.nature, AbstractAdditionalTokensInfo.TOP_LEVEL);
+                if (PyCodeCompletionUtils.isCamelCaseQualifier(qual)) {
+                    addCamelCaseMatches(qual, AdditionalProjectInterpreterInfo.getTokensMatchingCamelCase(qual,
+                            request.nature, AbstractAdditionalTokensInfo.TOP_LEVEL), tokensStartingWith);
+                }
             }
 
             FastStringBuffer realImportRep = new FastStringBuffer();
@@ -272,6 +280,20 @@ public class CtxParticipant
         return completions;
     }
 
+    /**
+     * Adds to the tokens starting with the qualifier the camel-case matches which don't start with it (the ones
+     * starting with it are already there).
+     */
+    private static void addCamelCaseMatches(String qual, Collection<IInfo> camelCaseMatches,
+            Collection<IInfo> tokensStartingWith) {
+        String lowerQual = qual.toLowerCase();
+        for (IInfo info : camelCaseMatches) {
+            if (!info.getName().toLowerCase().startsWith(lowerQual)) {
+                tokensStartingWith.add(info);
+            }
+        }
+    }
+
     /**
      * @return the names that are already imported in the current document
      */
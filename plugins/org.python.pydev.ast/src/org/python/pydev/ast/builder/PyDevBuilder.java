@@ -263,7 +263,9 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
     }
 
     /**
-     * Default implementation. Visits each resource once at a time. May be overridden if a better implementation is needed.
+     * Default implementation. Visits the resources in parallel if more than one thread is configured for
+     * the full build (see: PyDevBuilderPreferences.getFullBuildThreads()) or each resource once at a time
+     * otherwise. May be overridden if a better implementation is needed.
      *
      * @param resourcesToParse list of resources from project that are python files.
      * @param monitor
@@ -271,6 +273,19 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
      */
     public void buildResources(List<IFile> resourcesToParse, IProgressMonitor monitor,
             List<PyDevBuilderVisitor> visitors) {
+        int nThreads = Math.min(PyDevBuilderPreferences.getFullBuildThreads(), resourcesToParse.size());
+        if (nThreads > 1) {
+            new PyDevParallelFullBuild(resourcesToParse, monitor, visitors, nThreads).build();
+        } else {
+            buildResourcesSequentially(resourcesToParse, monitor, visitors);
+        }
+    }
+
+    /**
+     * Visits each resource once at a time.
+     */
+    private void buildResourcesSequentially(List<IFile> resourcesToParse, IProgressMonitor monitor,
+            List<PyDevBuilderVisitor> visitors) {
 
         // we have 100 units here
         double inc = (visitors.size() * 100) / (double) resourcesToParse.size();
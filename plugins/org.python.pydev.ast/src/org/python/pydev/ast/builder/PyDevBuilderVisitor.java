@@ -336,4 +336,18 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
     public void visitingEnded(IProgressMonitor monitor) {
 
     }
+
+    /**
+     * Creates the visitor to be used by a worker thread in a parallel full build (each worker needs its own
+     * instance because the memo is set in the visitor for each resource visited).
+     *
+     * Note that the returned visitor won't receive visitingWillStart/visitingEnded (those are only called
+     * in the original instance), so, any state initialized there must be copied to the new instance.
+     *
+     * @return a new visitor or null if this visitor can't be used concurrently (in which case the resources
+     * will be visited by this instance in the thread which started the build).
+     */
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        return null;
+    }
 }
@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.CorePlugin;
+import org.python.pydev.core.FileUtilsFileBuffer;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Visits the resources of a full build using multiple threads.
+ *
+ * The resources are partitioned among the workers on demand (each worker gets the next resource
+ * not yet visited) and each worker has its own visitors (created through
+ * PyDevBuilderVisitor.createParallelFullBuildVisitor()) and its own chain of VisitorMemo shared project state.
+ *
+ * Visitors which can't be used concurrently are still visited in the thread which started the build
+ * (in the same order of the resources, after the parallel visitors have visited a given resource and
+ * reusing its memo, so, the module parsed by a worker is still reused). The resources visited by the
+ * workers out of order are kept until the previous ones are visited (and the workers only get resources
+ * up to a given distance from the next one to be visited in the build thread).
+ *
+ * The progress monitor is only accessed from the thread which started the build.
+ *
+ * Note: the markers aren't batched here: each resource has its markers replaced in a single workspace
+ * operation which avoids updates (see: PyMarkerUtils.replaceMarkers) and the resource change events are
+ * only sent when the build operation finishes.
+ */
+public class PyDevParallelFullBuild {
+
+    /**
+     * A resource which was visited by a worker and still needs to be visited by the sequential visitors.
+     */
+    private static final class VisitedResource {
+
+        private final int index;
+        private final IFile file;
+        private final ICallback0<IDocument> doc;
+        private final VisitorMemo memo;
+
+        /**
+         * @param memo null if the resource shouldn't be visited by the sequential visitors (i.e.: it's not in
+         * the pythonpath).
+         */
+        private VisitedResource(int index, IFile file, ICallback0<IDocument> doc, VisitorMemo memo) {
+            this.index = index;
+            this.file = file;
+            this.doc = doc;
+            this.memo = memo;
+        }
+    }
+
+    /**
+     * Marks that all the workers finished (put in the queue of visited resources).
+     */
+    private static final VisitedResource FINISHED = new VisitedResource(-1, null, null, null);
+
+    private final List<IFile> resourcesToParse;
+    private final IProgressMonitor monitor;
+    private final List<PyDevBuilderVisitor> visitors;
+    private final int nThreads;
+
+    private final AtomicInteger nextResource = new AtomicInteger(0);
+    private final AtomicInteger visitedResources = new AtomicInteger(0);
+    private final AtomicInteger runningWorkers = new AtomicInteger(0);
+    private volatile boolean cancelled = false;
+    private volatile boolean loggedMisconfiguration = false;
+
+    /**
+     * The visitors which can't be used concurrently.
+     */
+    private final List<PyDevBuilderVisitor> sequentialVisitors = new ArrayList<PyDevBuilderVisitor>();
+
+    /**
+     * Only used if there are sequential visitors (the workers put all the resources they got, visited or not).
+     */
+    private final BlockingQueue<VisitedResource> visitedQueue = new LinkedBlockingQueue<VisitedResource>();
+
+    /**
+     * Only used if there are sequential visitors. A worker must acquire a permit before getting a resource and
+     * it's only released when the resource is visited in the build thread, so that the workers don't get too
+     * far ahead (as the memo may hold the parsed module).
+     */
+    private final Semaphore aheadPermits;
+
+    /**
+     * Monitor given to the visitors in the workers (the actual monitor is only used in the build thread).
+     */
+    private final IProgressMonitor workersMonitor = new NullProgressMonitor() {
+        @Override
+        public boolean isCanceled() {
+            return cancelled;
+        }
+    };
+
+    public PyDevParallelFullBuild(List<IFile> resourcesToParse, IProgressMonitor monitor,
+            List<PyDevBuilderVisitor> visitors, int nThreads) {
+        this.resourcesToParse = resourcesToParse;
+        this.monitor = monitor;
+        this.visitors = visitors;
+        this.nThreads = nThreads;
+        this.aheadPermits = new Semaphore(nThreads * 4);
+    }
+
+    /**
+     * Visits all the resources and only returns when all the workers finished.
+     */
+    public void build() {
+        List<List<PyDevBuilderVisitor>> workersVisitors = new ArrayList<List<PyDevBuilderVisitor>>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            workersVisitors.add(new ArrayList<PyDevBuilderVisitor>(visitors.size()));
+        }
+        for (PyDevBuilderVisitor visitor : visitors) {
+            List<PyDevBuilderVisitor> created = new ArrayList<PyDevBuilderVisitor>(nThreads);
+            for (int i = 0; i < nThreads; i++) {
+                PyDevBuilderVisitor workerVisitor = null;
+                try {
+                    workerVisitor = visitor.createParallelFullBuildVisitor();
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+                if (workerVisitor == null) {
+                    break;
+                }
+                created.add(workerVisitor);
+            }
+            if (created.size() == nThreads) {
+                for (int i = 0; i < nThreads; i++) {
+                    workersVisitors.get(i).add(created.get(i));
+                }
+            } else {
+                sequentialVisitors.add(visitor);
+            }
+        }
+
+        runningWorkers.set(nThreads);
+        List<Thread> workers = new ArrayList<Thread>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            final List<PyDevBuilderVisitor> workerVisitors = workersVisitors.get(i);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        visitResources(workerVisitors);
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            putVisited(FINISHED);
+                        }
+                    }
+                }
+            };
+            thread.setName("PyDev: Full build worker " + (i + 1));
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+
+        try {
+            waitWorkersAndVisitSequential();
+        } finally {
+            cancelled = cancelled || monitor.isCanceled();
+            for (Thread thread : workers) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs in the thread which started the build: reports the progress, checks for cancellation and
+     * visits the resources with the sequential visitors.
+     */
+    private void waitWorkersAndVisitSequential() {
+        int totalResources = resourcesToParse.size();
+        // we have 100 units for each visitor
+        double inc = (visitors.size() * 100) / (double) totalResources;
+        double total = 0;
+        int reported = 0;
+        long lastProgressTime = 0;
+        FastStringBuffer bufferToCreateString = new FastStringBuffer();
+
+        // The resources received out of order (the key is the index of the resource).
+        Map<Integer, VisitedResource> pending = new HashMap<Integer, VisitedResource>();
+        int nextToVisit = 0;
+
+        while (true) {
+            VisitedResource visited;
+            try {
+                visited = visitedQueue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Log.log(e);
+                cancelled = true;
+                return;
+            }
+            if (monitor.isCanceled()) {
+                cancelled = true;
+            }
+
+            int current = visitedResources.get();
+            if (current > reported) {
+                total += inc * (current - reported);
+                reported = current;
+                if (total > 1) {
+                    monitor.worked((int) total);
+                    total -= (int) total;
+                }
+            }
+
+            if (visited == FINISHED || (cancelled && runningWorkers.get() == 0)) {
+                return;
+            }
+
+            long currentTimeMillis = System.currentTimeMillis();
+            if (visited != null) {
+                pending.put(visited.index, visited);
+                while ((visited = pending.remove(nextToVisit)) != null) {
+                    nextToVisit++;
+                    if (visited.memo != null) {
+                        visitSequential(visited);
+                        if (currentTimeMillis - lastProgressTime > 300) {
+                            PyDevBuilder.communicateProgress(monitor, totalResources, current, visited.file,
+                                    sequentialVisitors.get(0), bufferToCreateString);
+                            lastProgressTime = currentTimeMillis;
+                        }
+                    }
+                    aheadPermits.release();
+                }
+
+            } else if (currentTimeMillis - lastProgressTime > 300) {
+                if (current > 0) {
+                    bufferToCreateString.clear();
+                    bufferToCreateString.append("PyDev: Analyzing ");
+                    bufferToCreateString.append(current);
+                    bufferToCreateString.append(" of ");
+                    bufferToCreateString.append(totalResources);
+                    bufferToCreateString.append(" (");
+                    bufferToCreateString.append(nThreads);
+                    bufferToCreateString.append(" threads)");
+                    monitor.subTask(bufferToCreateString.toString());
+                }
+                lastProgressTime = currentTimeMillis;
+            }
+        }
+    }
+
+    private void visitSequential(VisitedResource visited) {
+        IPythonNature nature = PythonNature.getPythonNature(visited.file);
+        if (nature == null || !nature.startRequests()) {
+            return;
+        }
+        try {
+            for (PyDevBuilderVisitor visitor : sequentialVisitors) {
+                if (cancelled) {
+                    return;
+                }
+                try {
+                    visitor.memo = visited.memo; //setting the memo must be the first thing.
+                    visitor.visitAddedResource(visited.file, visited.doc, monitor);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
+        } finally {
+            nature.endRequests();
+        }
+    }
+
+    private void putVisited(VisitedResource visited) {
+        visitedQueue.add(visited);
+    }
+
+    /**
+     * @return whether the worker may get the next resource (false if the build was cancelled).
+     */
+    private boolean acquireAheadPermit() {
+        while (!cancelled) {
+            try {
+                if (aheadPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Log.log(e);
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs in a worker: gets the next resource which wasn't visited and visits it with the visitors
+     * of the worker.
+     */
+    private void visitResources(List<PyDevBuilderVisitor> workerVisitors) {
+        int totalResources = resourcesToParse.size();
+        Object memoSharedProjectState = null;
+        boolean hasSequentialVisitors = sequentialVisitors.size() > 0;
+
+        while (!cancelled) {
+            if (hasSequentialVisitors && !acquireAheadPermit()) {
+                break;
+            }
+            int i = nextResource.getAndIncrement();
+            if (i >= totalResources) {
+                break;
+            }
+            IFile r = resourcesToParse.get(i);
+            VisitorMemo visitedMemo = null;
+            ICallback0<IDocument> visitedDoc = null;
+            try {
+                CorePlugin.markAsPyDevFileIfDetected(r);
+
+                IPythonNature nature = PythonNature.getPythonNature(r);
+                if (nature == null) {
+                    continue;
+                }
+                if (!nature.startRequests()) {
+                    continue;
+                }
+                try {
+                    String moduleName;
+                    try {
+                        //we visit external because we must index them
+                        moduleName = nature.resolveModuleOnlyInProjectSources(r, true);
+                        if (moduleName == null) {
+                            continue; // we only analyze resources that are in the pythonpath
+                        }
+                    } catch (Exception e1) {
+                        if (!loggedMisconfiguration) {
+                            loggedMisconfiguration = true; //No point in logging it over and over again.
+                            Log.log(e1);
+                        }
+                        continue;
+                    }
+
+                    //create new memo for each resource
+                    VisitorMemo memo = new VisitorMemo();
+                    memo.setSharedProjectState(memoSharedProjectState);
+                    memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true); //mark it as full build
+
+                    ICallback0<IDocument> doc = FileUtilsFileBuffer.getDocOnCallbackFromResource(r);
+                    memo.put(PyDevBuilderVisitor.DOCUMENT_TIME, System.currentTimeMillis());
+
+                    PyDevBuilderVisitor.setModuleNameInCache(memo, r, moduleName);
+
+                    for (PyDevBuilderVisitor visitor : workerVisitors) {
+                        if (cancelled) {
+                            break;
+                        }
+                        try {
+                            visitor.memo = memo; //setting the memo must be the first thing.
+
+                            //on a full build, all visits are as some add...
+                            visitor.visitAddedResource(r, doc, workersMonitor);
+                        } catch (Exception e) {
+                            Log.log(e);
+                        }
+                    }
+                    memoSharedProjectState = memo.getSharedProjectState();
+
+                    visitedMemo = memo;
+                    visitedDoc = doc;
+                } finally {
+                    nature.endRequests();
+                }
+            } finally {
+                visitedResources.incrementAndGet();
+                if (hasSequentialVisitors) {
+                    // Even if not visited, the build thread must know about it to keep the order.
+                    putVisited(new VisitedResource(i, r, visitedDoc, visitedMemo));
+                }
+            }
+        }
+    }
+}
@@ -93,6 +93,13 @@ public class PycHandlerBuilderVisitor extends PyDevBuilderVisitor {
         pycDeleteHandling = PyDevBuilderPreferences.getPycDeleteHandling();
     }
 
+    @Override
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        PycHandlerBuilderVisitor visitor = new PycHandlerBuilderVisitor();
+        visitor.pycDeleteHandling = this.pycDeleteHandling;
+        return visitor;
+    }
+
     @Override
     public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
         //Ignore: for pyc files we only care about their addition.
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.python.pydev.ast.codecompletion.PyCodeCompletionUtils.IFilter;
+import org.python.pydev.core.ICompletionState;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.IterTokenEntry;
+import org.python.pydev.core.TokensList;
+import org.python.pydev.core.TokensListMixedLookingFor;
+
+/**
+ * Keeps the tokens resolved for an activation token while the user keeps typing the qualifier in the same place
+ * (i.e.: while the completion popup is shown), so that a new request only has to filter the tokens previously
+ * found instead of resolving the activation token again.
+ *
+ * A session is only reused if the document wasn't changed (checked through its modification stamp) or if the
+ * only change in the document was in the qualifier being typed. Only the last session is kept and it expires
+ * if it's not used for some time (as changes in other modules are not tracked).
+ */
+public final class CompletionSession {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static final Object lock = new Object();
+
+    private static CompletionSession current;
+
+    private final WeakReference<IDocument> doc;
+    private final IPythonNature nature;
+    private final String activationToken;
+    private final String resolvedActivationToken;
+    private final String resolvedStateActivationToken;
+    private final int qualifierStart;
+    private final boolean isInCalltip;
+    private final boolean useSubstringMatch;
+    private final int prefixHash;
+    private final int suffixLength;
+    private final int suffixHash;
+    private final TokensList resolved;
+
+    // Guarded by this.
+    private long modificationStamp;
+    private long lastUsed;
+    private String narrowedQualifier;
+    private IterTokenEntry[] narrowed;
+
+    /**
+     * @param activationToken the activation token in the request before the completion was done.
+     * @param request the request after the completion was done (its activation token may have been changed).
+     * @param state the state after the completion was done.
+     * @param resolved the tokens found for the activation token (not filtered by the qualifier).
+     */
+    private CompletionSession(String activationToken, CompletionRequest request, ICompletionState state,
+            TokensList resolved) throws BadLocationException {
+        this.doc = new WeakReference<IDocument>(request.doc);
+        this.nature = request.nature;
+        this.activationToken = activationToken;
+        this.resolvedActivationToken = request.activationToken;
+        this.resolvedStateActivationToken = state.getActivationToken();
+        this.qualifierStart = getQualifierStart(request);
+        this.isInCalltip = request.isInCalltip;
+        this.useSubstringMatch = request.useSubstringMatchInCodeCompletion;
+        this.prefixHash = request.doc.get(0, qualifierStart).hashCode();
+        this.suffixLength = request.doc.getLength() - request.documentOffset;
+        this.suffixHash = request.doc.get(request.documentOffset, suffixLength).hashCode();
+        this.resolved = resolved;
+        this.modificationStamp = getModificationStamp(request.doc);
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the session which may be used for the given request or null if there's no such session.
+     */
+    public static CompletionSession get(CompletionRequest request) {
+        CompletionSession session;
+        synchronized (lock) {
+            session = current;
+        }
+        if (session == null || !session.accepts(request)) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Starts a new session with the tokens resolved for the given request (unless the request was cancelled, in
+     * which case the tokens may be incomplete).
+     *
+     * @param activationToken the activation token in the request before the completion was done.
+     */
+    public static void start(String activationToken, CompletionRequest request, ICompletionState state,
+            TokensList resolved) {
+        IProgressMonitor monitor = request.getCancelMonitor();
+        if (monitor != null && monitor.isCanceled()) {
+            clear();
+            return;
+        }
+        try {
+            CompletionSession session = new CompletionSession(activationToken, request, state, resolved);
+            synchronized (lock) {
+                current = session;
+            }
+        } catch (BadLocationException e) {
+            clear();
+        }
+    }
+
+    public static void clear() {
+        synchronized (lock) {
+            current = null;
+        }
+    }
+
+    private static int getQualifierStart(CompletionRequest request) {
+        return request.documentOffset - request.qualifier.length();
+    }
+
+    private static long getModificationStamp(IDocument doc) {
+        if (doc instanceof IDocumentExtension4) {
+            return ((IDocumentExtension4) doc).getModificationStamp();
+        }
+        return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+    }
+
+    private boolean accepts(CompletionRequest request) {
+        IDocument document = doc.get();
+        if (document == null || document != request.doc || nature != request.nature
+                || qualifierStart != getQualifierStart(request) || isInCalltip != request.isInCalltip
+                || useSubstringMatch != request.useSubstringMatchInCodeCompletion
+                || !activationToken.equals(request.activationToken)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long stamp = getModificationStamp(document);
+        synchronized (this) {
+            if (now - lastUsed > TIMEOUT_MILLIS) {
+                return false;
+            }
+            if (stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP && stamp == modificationStamp) {
+                lastUsed = now;
+                return true;
+            }
+        }
+        // The document changed: it's still valid if only the qualifier changed.
+        try {
+            if (document.getLength() - request.documentOffset != suffixLength
+                    || document.get(0, qualifierStart).hashCode() != prefixHash
+                    || document.get(request.documentOffset, suffixLength).hashCode() != suffixHash) {
+                return false;
+            }
+        } catch (BadLocationException e) {
+            return false;
+        }
+        synchronized (this) {
+            modificationStamp = stamp;
+            lastUsed = now;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the activation tokens in the request and state as they were after the completion was done.
+     */
+    public void restore(CompletionRequest request, ICompletionState state) {
+        request.setActivationToken(resolvedActivationToken);
+        state.setActivationToken(resolvedStateActivationToken);
+    }
+
+    /**
+     * @return the resolved tokens which match the given qualifier (if the qualifier just grew since the last
+     * call, only the tokens which matched the previous qualifier are checked).
+     */
+    public synchronized TokensListMixedLookingFor getTokens(String qualifier) {
+        Iterable<IterTokenEntry> candidates = resolved;
+        if (narrowed != null && qualifier.length() >= narrowedQualifier.length()
+                && qualifier.regionMatches(true, 0, narrowedQualifier, 0, narrowedQualifier.length())) {
+            if (qualifier.length() == narrowedQualifier.length()) {
+                return new TokensListMixedLookingFor(Arrays.asList(narrowed));
+            }
+            candidates = Arrays.asList(narrowed);
+        }
+        IFilter nameFilter = PyCodeCompletionUtils.getNameFilter(useSubstringMatch, qualifier);
+        List<IterTokenEntry> matches = new ArrayList<IterTokenEntry>();
+        for (IterTokenEntry entry : candidates) {
+            if (nameFilter.acceptName(entry.getToken().getRepresentation())) {
+                // Note: the entry may be reused by the iterator, so, a new one is created.
+                matches.add(new IterTokenEntry(entry.getToken(), entry.lookingFor));
+            }
+        }
+        narrowedQualifier = qualifier;
+        narrowed = matches.toArray(new IterTokenEntry[0]);
+        return new TokensListMixedLookingFor(matches);
+    }
+}
@@ -29,6 +29,7 @@ import org.python.pydev.ast.codecompletion.revisited.AbstractASTManager;
 import org.python.pydev.ast.codecompletion.revisited.AssignAnalysis;
 import org.python.pydev.ast.codecompletion.revisited.CompletionCache;
 import org.python.pydev.ast.codecompletion.revisited.CompletionState;
+import org.python.pydev.ast.codecompletion.revisited.ModulesManager;
 import org.python.pydev.ast.codecompletion.revisited.modules.SourceModule;
 import org.python.pydev.ast.codecompletion.revisited.modules.SourceToken;
 import org.python.pydev.ast.codecompletion.revisited.visitors.Definition;
@@ -176,9 +177,18 @@ public class PyCodeCompletion extends AbstractPyCodeCompletion {
                     fillTokensWithJediCompletions(request, request.getPySelection(), request.nature, astManager,
                             tokensList);
                 } else {
-                    TokensList tokenCompletions = new TokensList();
-                    doTokenCompletion(request, astManager, tokenCompletions, trimmed, state);
-                    tokensList.addAll(tokenCompletions);
+                    CompletionSession session = CompletionSession.get(request);
+                    if (session != null) {
+                        //still typing the qualifier: just filter what was already found
+                        session.restore(request, state);
+                        tokensList.addAll(session.getTokens(request.qualifier));
+                    } else {
+                        String activationToken = request.activationToken;
+                        TokensList tokenCompletions = new TokensList();
+                        doTokenCompletion(request, astManager, tokenCompletions, trimmed, state);
+                        CompletionSession.start(activationToken, request, state, tokenCompletions);
+                        tokensList.addAll(tokenCompletions);
+                    }
                 }
                 handleKeywordParam(request, line, alreadyChecked);
 
@@ -375,7 +385,8 @@ public class PyCodeCompletion extends AbstractPyCodeCompletion {
         if (DebugSettings.DEBUG_CODE_COMPLETION) {
             org.python.pydev.shared_core.log.ToLogFile.remLogLevel();
             org.python.pydev.shared_core.log.ToLogFile.toLogFile(this,
-                    "Finished completion. Returned:" + ret.size() + " completions.\r\n");
+                    "Finished completion. Returned:" + ret.size() + " completions. "
+                            + ModulesManager.getCacheStatistics() + "\r\n");
         }
 
         return new TokensOrProposalsList(ret);
@@ -550,7 +561,7 @@ public class PyCodeCompletion extends AbstractPyCodeCompletion {
             Log.log(e);
         }
 
-        AbstractShell shell = AbstractShell.getServerShell(nature, AbstractShell.getShellId());
+        AbstractShell shell = AbstractShell.getServerShellForCurrentThread(nature);
         String charset = "utf-8";
         //                    if (viewer instanceof PySourceViewer) {
         //                        PySourceViewer pySourceViewer = (PySourceViewer) viewer;
@@ -625,24 +636,34 @@ public class PyCodeCompletion extends AbstractPyCodeCompletion {
             TokensOrProposalsList tokensList, ICompletionState state) throws CompletionRecursionException,
             MisconfigurationException {
         state.setActivationToken(request.activationToken);
-        if (DebugSettings.DEBUG_CODE_COMPLETION) {
-            org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "astManager.getCompletionsForToken");
-            org.python.pydev.shared_core.log.ToLogFile.addLogLevel();
-        }
+        CompletionSession session = CompletionSession.get(request);
+        if (session != null) {
+            //still typing the qualifier: just filter what was already found
+            session.restore(request, state);
+            tokensList.addAll(session.getTokens(request.qualifier));
 
-        IModule module = request.getModule();
-        if (module == null) {
-            org.python.pydev.shared_core.log.ToLogFile.remLogLevel();
-            org.python.pydev.shared_core.log.ToLogFile.toLogFile(this,
-                    "END astManager.getCompletionsForToken: null module");
-            return;
-        }
-        TokensList comps = astManager.getCompletionsForModule(module, state, true, true);
-        if (DebugSettings.DEBUG_CODE_COMPLETION) {
-            org.python.pydev.shared_core.log.ToLogFile.remLogLevel();
-            org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "END astManager.getCompletionsForToken");
+        } else {
+            if (DebugSettings.DEBUG_CODE_COMPLETION) {
+                org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "astManager.getCompletionsForToken");
+                org.python.pydev.shared_core.log.ToLogFile.addLogLevel();
+            }
+
+            IModule module = request.getModule();
+            if (module == null) {
+                org.python.pydev.shared_core.log.ToLogFile.remLogLevel();
+                org.python.pydev.shared_core.log.ToLogFile.toLogFile(this,
+                        "END astManager.getCompletionsForToken: null module");
+                return;
+            }
+            TokensList comps = astManager.getCompletionsForModule(module, state, true, true);
+            if (DebugSettings.DEBUG_CODE_COMPLETION) {
+                org.python.pydev.shared_core.log.ToLogFile.remLogLevel();
+                org.python.pydev.shared_core.log.ToLogFile.toLogFile(this, "END astManager.getCompletionsForToken");
+            }
+            CompletionSession.start(request.activationToken, request, state, comps);
+            tokensList.addAll(comps);
         }
-        tokensList.addAll(comps);
+        //the participants are always asked (they filter based on the qualifier)
         tokensList.addAll(getGlobalsFromParticipants(request, state));
     }
 
@@ -52,6 +52,10 @@ public class PyCodeCompletionInitializer extends AbstractPreferenceInitializer {
         //others
         node.putInt(PyCodeCompletionPreferences.ATTEMPTS_CODECOMPLETION,
                 PyCodeCompletionPreferences.DEFAULT_ATTEMPTS_CODECOMPLETION);
+        node.putInt(PyCodeCompletionPreferences.SHELLS_IN_POOL,
+                PyCodeCompletionPreferences.DEFAULT_SHELLS_IN_POOL);
+        node.putInt(PyCodeCompletionPreferences.MODULES_CACHE_SIZE,
+                PyCodeCompletionPreferences.DEFAULT_MODULES_CACHE_SIZE);
         node.putInt(PyCodeCompletionPreferences.AUTOCOMPLETE_DELAY,
                 PyCodeCompletionPreferences.DEFAULT_AUTOCOMPLETE_DELAY);
         node.putInt(PyCodeCompletionPreferences.ARGUMENTS_DEEP_ANALYSIS_N_CHARS,
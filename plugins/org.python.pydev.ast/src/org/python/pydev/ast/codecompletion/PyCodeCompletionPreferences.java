@@ -55,6 +55,14 @@ public class PyCodeCompletionPreferences {
     public static final String PUT_LOCAL_IMPORTS_IN_TOP_OF_METHOD = "PUT_LOCAL_IMPORTS_IN_TOP_OF_METHOD";
     public static final boolean DEFAULT_PUT_LOCAL_IMPORTS_IN_TOP_OF_METHOD = true;
 
+    public static final String SHELLS_IN_POOL = "SHELLS_IN_POOL";
+    public static final int DEFAULT_SHELLS_IN_POOL = 2;
+    public static final int MAX_SHELLS_IN_POOL = 8;
+
+    public static final String MODULES_CACHE_SIZE = "MODULES_CACHE_SIZE";
+    public static final int DEFAULT_MODULES_CACHE_SIZE = 2000;
+    public static final int MIN_MODULES_CACHE_SIZE = 100;
+
     public static ICallback0<IEclipsePreferences> getPreferencesForTests;
 
     public static IEclipsePreferences getPreferences() {
@@ -91,6 +99,34 @@ public class PyCodeCompletionPreferences {
         return ret;
     }
 
+    /**
+     * @return the number of shells used for requests which aren't done in the main thread.
+     */
+    public static int getNumberOfShellsInPool() {
+        int ret = getPreferences().getInt(SHELLS_IN_POOL, DEFAULT_SHELLS_IN_POOL);
+        if (ret < 1) {
+            ret = 1;
+        }
+        if (ret > MAX_SHELLS_IN_POOL) {
+            ret = MAX_SHELLS_IN_POOL;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the maximum number of modules kept in memory (for all the interpreters and projects).
+     */
+    public static int getModulesCacheSize() {
+        if (SharedCorePlugin.inTestMode()) {
+            return DEFAULT_MODULES_CACHE_SIZE;
+        }
+        int ret = getPreferences().getInt(MODULES_CACHE_SIZE, DEFAULT_MODULES_CACHE_SIZE);
+        if (ret < MIN_MODULES_CACHE_SIZE) {
+            ret = MIN_MODULES_CACHE_SIZE;
+        }
+        return ret;
+    }
+
     public static int getMaximumNumberOfMillisToCompleteCodeCompletionRequest() {
         int val = getPreferences().getInt(MAX_MILLIS_FOR_COMPLETION, DEFAULT_MAX_MILLIS_FOR_COMPLETION);
         if (val <= 200) {
@@ -151,6 +151,7 @@ public class PyCodeCompletionUtils {
 
     public static IFilter getNameFilter(boolean useSubstringMatchInCodeCompletion, String qual) {
         final String lowerQual = qual.toLowerCase();
+        final boolean camelCase = isCamelCaseQualifier(qual);
         if (useSubstringMatchInCodeCompletion) {
             return new IFilter() {
 
@@ -171,7 +172,7 @@ public class PyCodeCompletionUtils {
                     }
                     //END: Get the contents only to the first parens or space for the comparisons.
 
-                    return name.toLowerCase().contains(lowerQual);
+                    return name.toLowerCase().contains(lowerQual) || (camelCase && matchesCamelCase(qual, name));
                 }
             };
 
@@ -180,12 +181,74 @@ public class PyCodeCompletionUtils {
 
                 @Override
                 public boolean acceptName(String name) {
-                    return name.toLowerCase().startsWith(lowerQual);
+                    return name.toLowerCase().startsWith(lowerQual) || (camelCase && matchesCamelCase(qual, name));
                 }
             };
         }
     }
 
+    /**
+     * @return whether the qualifier should also be matched with camel-case (i.e.: it has some upper case char
+     * after the first one, such as 'NPE' or 'getTB').
+     */
+    public static boolean isCamelCaseQualifier(String qual) {
+        for (int i = 1; i < qual.length(); i++) {
+            if (Character.isUpperCase(qual.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the name matches the qualifier with camel-case (i.e.: 'NPE' or 'NullPE' match
+     * 'NullPointerException' and 'gTB' matches 'get_the_bar').
+     *
+     * The first char of the qualifier must match the first char of the name, upper case chars in the qualifier
+     * match the start of a hump (an upper case char or a char after '_') and other chars must match the next
+     * char of the name (the match is case-insensitive and the qualifier only has to match the start of the name).
+     */
+    public static boolean matchesCamelCase(String qualifier, String name) {
+        return matchesCamelCase(qualifier, 0, name, 0);
+    }
+
+    private static boolean matchesCamelCase(String qualifier, int qi, String name, int k) {
+        int qualifierLen = qualifier.length();
+        int nameLen = name.length();
+        for (; qi < qualifierLen; qi++, k++) {
+            if (k == nameLen) {
+                return false;
+            }
+            char qc = qualifier.charAt(qi);
+            if (k > 0 && Character.isUpperCase(qc)) {
+                // Must match the start of a hump (but humps may be skipped).
+                for (; k < nameLen; k++) {
+                    if (equalsIgnoreCase(name.charAt(k), qc) && isHumpStart(name, k)
+                            && matchesCamelCase(qualifier, qi + 1, name, k + 1)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (!equalsIgnoreCase(name.charAt(k), qc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHumpStart(String name, int k) {
+        char c = name.charAt(k);
+        if (c == '_') {
+            return false;
+        }
+        return Character.isUpperCase(c) || name.charAt(k - 1) == '_';
+    }
+
+    private static boolean equalsIgnoreCase(char c1, char c2) {
+        return c1 == c2 || Character.toLowerCase(c1) == Character.toLowerCase(c2);
+    }
+
     // API optimized for a single match (to avoid creating temporary objects) -- prefer getNameFilter() for multiple matches on the same qualifier.
     public static boolean acceptName(boolean useSubstringMatchInCodeCompletion, String name,
             String qualifier) {
@@ -204,9 +267,11 @@ public class PyCodeCompletionUtils {
             }
             //END: Get the contents only to the first parens or space for the comparisons.
 
-            return name.toLowerCase().contains(qualifier.toLowerCase());
+            return name.toLowerCase().contains(qualifier.toLowerCase())
+                    || (isCamelCaseQualifier(qualifier) && matchesCamelCase(qualifier, name));
         } else {
-            return name.toLowerCase().startsWith(qualifier.toLowerCase());
+            return name.toLowerCase().startsWith(qualifier.toLowerCase())
+                    || (isCamelCaseQualifier(qualifier) && matchesCamelCase(qualifier, name));
         }
     }
 
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion.revisited;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.AstBinaryIO;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Keeps the asts of the source modules in the disk (in the format of AstBinaryIO), so that when a module
+ * has to be recreated (i.e.: after it's removed from the ModulesManagerCache) it's just read from the disk
+ * instead of being parsed again.
+ *
+ * Each module is saved in its own file (named by the md5 of the module path and the grammar version) along
+ * with the last modified time and size of the module file (an entry is only used if both still match).
+ *
+ * Modules with syntax errors and small modules (which are fast to parse) are not cached.
+ *
+ * The number of entries is bounded: from time to time the entries which weren't used for the longest time are
+ * removed if there are more than the maximum.
+ */
+public final class AstDiskCache {
+
+    private static final int CACHE_VERSION = 1;
+
+    /**
+     * Modules smaller than this (in bytes) are not cached.
+     */
+    private static final long MIN_FILE_SIZE = 8 * 1024;
+
+    public static final int DEFAULT_MAX_ENTRIES = 20000;
+
+    /**
+     * Number of entries added between checks of the number of entries in the folder.
+     */
+    private static final int PUTS_BETWEEN_PRUNES = 500;
+
+    /**
+     * The last modified time of the entries is only updated on a hit if it's older than this
+     * (it's what's used to know which entries weren't used for the longest time).
+     */
+    private static final long TOUCH_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final String EXTENSION = ".ast";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File folder;
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Starts so that the first put checks the entries left by a previous session.
+     */
+    private final AtomicInteger puts = new AtomicInteger(PUTS_BETWEEN_PRUNES - 1);
+
+    public AstDiskCache(File folder) {
+        this(folder, DEFAULT_MAX_ENTRIES);
+    }
+
+    public AstDiskCache(File folder, int maxEntries) {
+        this.folder = folder;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the ast for the given file or null if it's not in the cache (or if the cached version is
+     * no longer valid).
+     */
+    public SimpleNode get(File file, int grammarVersion) {
+        long length = file.length();
+        if (length < MIN_FILE_SIZE) {
+            return null;
+        }
+        File cacheFile = getCacheFile(file, grammarVersion);
+        if (!cacheFile.exists()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        String path = FileUtils.getFileAbsolutePath(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_VERSION || !path.equals(in.readUTF()) || in.readInt() != grammarVersion
+                    || in.readLong() != FileUtils.lastModified(file) || in.readLong() != length) {
+                misses.incrementAndGet();
+                return null;
+            }
+            int len = in.readInt();
+            if (len < 0 || len > cacheFile.length()) {
+                // Corrupted or truncated.
+                misses.incrementAndGet();
+                return null;
+            }
+            byte[] bytes = new byte[len];
+            in.readFully(bytes);
+            SimpleNode ast = AstBinaryIO.fromBytes(bytes);
+            hits.incrementAndGet();
+            touch(cacheFile);
+            return ast;
+        } catch (IOException | RuntimeException e) {
+            // Corrupted or written by a different version: it'll be overwritten.
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static void touch(File cacheFile) {
+        long now = System.currentTimeMillis();
+        if (now - cacheFile.lastModified() > TOUCH_INTERVAL_MILLIS) {
+            cacheFile.setLastModified(now);
+        }
+    }
+
+    /**
+     * Adds the ast of the given file to the cache.
+     *
+     * @param lastModified the last modified time of the file when its contents were read.
+     * @param length the size of the file when its contents were read.
+     */
+    public void put(File file, long lastModified, long length, int grammarVersion, SimpleNode ast) {
+        if (length < MIN_FILE_SIZE) {
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = AstBinaryIO.toBytes(ast, false);
+        } catch (IllegalArgumentException e) {
+            Log.log("Unable to cache ast of: " + file, e);
+            return;
+        }
+
+        File cacheFile = getCacheFile(file, grammarVersion);
+        File tempFile = new File(folder,
+                cacheFile.getName() + "." + Thread.currentThread().getId() + TEMP_EXTENSION);
+        try {
+            if (!folder.exists()) {
+                folder.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(FileUtils.getFileAbsolutePath(file));
+                out.writeInt(grammarVersion);
+                out.writeLong(lastModified);
+                out.writeLong(length);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Log.log(e);
+            tempFile.delete();
+        }
+        if (puts.incrementAndGet() % PUTS_BETWEEN_PRUNES == 0) {
+            prune();
+        }
+    }
+
+    /**
+     * Removes the entries which weren't used for the longest time if there are more than the maximum (and the
+     * temporary files which were left behind).
+     */
+    public void prune() {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int entries = 0;
+        for (int i = 0; i < files.length; i++) {
+            File f = files[i];
+            String name = f.getName();
+            if (name.endsWith(EXTENSION)) {
+                files[entries] = f;
+                entries++;
+            } else if (name.endsWith(TEMP_EXTENSION) && now - f.lastModified() > 60 * 60 * 1000L) {
+                f.delete();
+            }
+        }
+        if (entries <= maxEntries) {
+            return;
+        }
+        File[] cacheFiles = Arrays.copyOf(files, entries);
+        final long[] lastModified = new long[entries];
+        Integer[] indexes = new Integer[entries];
+        for (int i = 0; i < entries; i++) {
+            lastModified[i] = cacheFiles[i].lastModified();
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        // Remove some more so that it's not pruned again on each check.
+        int toRemove = entries - (maxEntries * 3 / 4);
+        for (int i = 0; i < toRemove; i++) {
+            cacheFiles[indexes[i]].delete();
+        }
+    }
+
+    /**
+     * Removes all the entries in the cache.
+     */
+    public void clear() {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isFile()) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private File getCacheFile(File file, int grammarVersion) {
+        FastStringBuffer buf = new FastStringBuffer(StringUtils.md5(FileUtils.getFileAbsolutePath(file)), 10);
+        buf.append('_').append(grammarVersion).append(EXTENSION);
+        return new File(folder, buf.toString());
+    }
+}
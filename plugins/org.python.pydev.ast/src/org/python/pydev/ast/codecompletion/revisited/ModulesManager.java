@@ -31,6 +31,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.text.IDocument;
+import org.python.pydev.ast.codecompletion.PyCodeCompletionPreferences;
 import org.python.pydev.ast.codecompletion.revisited.ModulesFoundStructure.ZipContents;
 import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap.Entry;
 import org.python.pydev.ast.codecompletion.revisited.modules.AbstractModule;
@@ -199,7 +200,8 @@ public abstract class ModulesManager implements IModulesManager {
     protected final PyPublicTreeMap<ModulesKey, ModulesKey> modulesKeys = new PyPublicTreeMap<ModulesKey, ModulesKey>();
     protected final Object modulesKeysLock = new Object();
 
-    protected static final ModulesManagerCache cache = new ModulesManagerCache();
+    protected static final ModulesManagerCache cache = new ModulesManagerCache(
+            PyCodeCompletionPreferences.getModulesCacheSize());
     private static final CachePyiModules cachePyiModules = new CachePyiModules();
 
     /**
@@ -799,6 +801,14 @@ public abstract class ModulesManager implements IModulesManager {
 
     public static ICallback2<AbstractModule, EmptyModuleForZip, IPythonNature> createModuleFromJar;
 
+    /**
+     * @return the cache used to get the ast of source modules without parsing them (null if the asts of
+     * the modules of this manager shouldn't be cached).
+     */
+    protected AstDiskCache getAstDiskCache() {
+        return null;
+    }
+
     /**
      * Returns the handle to be used to remove the module added later on!
      */
@@ -948,7 +958,8 @@ public abstract class ModulesManager implements IModulesManager {
                             try {
                                 //NOTE: The nature (and so the grammar to be used) must be defined by this modules
                                 //manager (and not by the initial caller)!!
-                                n = AbstractModule.createModule(name, e.f, this.getNature(), true);
+                                n = AbstractModule.createModule(name, e.f, this.getNature(), true,
+                                        getAstDiskCache());
                                 n = decorateModule(n, nature);
                             } catch (IOException exc) {
                                 keyForCacheAccess.name = name;
@@ -1134,6 +1145,23 @@ public abstract class ModulesManager implements IModulesManager {
         ModulesManager.cachePyiModules.clear();
     }
 
+    /**
+     * Changes the maximum number of modules kept in memory (for all the managers).
+     *
+     * Called when the related preference changes (see: PyCodeCompletionPreferences.getModulesCacheSize()).
+     */
+    public static void setMaxModulesInCache(int maxSize) {
+        ModulesManager.cache.setMaxSize(maxSize);
+    }
+
+    /**
+     * @return a description with the size, hits, misses and evictions of the modules cache (logged after
+     * each code-completion request when DebugSettings.DEBUG_CODE_COMPLETION is on).
+     */
+    public static String getCacheStatistics() {
+        return ModulesManager.cache.getStatistics();
+    }
+
     /**
      * @see org.python.pydev.core.IProjectModulesManager#isInPythonPath(org.eclipse.core.resources.IResource, org.eclipse.core.resources.IProject)
      */
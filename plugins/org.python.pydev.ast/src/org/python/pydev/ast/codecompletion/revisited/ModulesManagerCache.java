@@ -6,71 +6,216 @@
  */
 package org.python.pydev.ast.codecompletion.revisited;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.python.pydev.ast.codecompletion.revisited.modules.AbstractModule;
 import org.python.pydev.core.ModulesKey;
-import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.structure.Tuple;
 
 /**
  * This is a 'global' cache implementation, that can have at most n objects in
  * the memory at any time.
+ *
+ * The cache is split in segments (chosen by the hash of the key), each with its own lock and LRU
+ * order, so, threads accessing different modules don't contend for the same lock. Each segment holds
+ * at most maxSize / segments modules.
+ *
+ * The modulesKeysLock of the modules manager is only acquired when a module is not found in the cache
+ * (add/remove are always called with it already acquired by the modules manager).
  */
-final class ModulesManagerCache {
+public final class ModulesManagerCache {
+
     /**
-     * Defines the maximum amount of modules that can be in the memory at any time (for all the managers)
+     * The default number of segments (must be a power of 2).
      */
-    private static final int MAX_NUMBER_OF_MODULES = 400;
+    private static final int SEGMENTS = 16;
+
+    private static final class Segment extends LinkedHashMap<Tuple<ModulesKey, ModulesManager>, AbstractModule> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int maxSize;
+        private final AtomicLong evictions;
+
+        private Segment(int maxSize, AtomicLong evictions) {
+            super(16, 0.75f, true); //access order
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Tuple<ModulesKey, ModulesManager>, AbstractModule> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Must be called with the segment lock held.
+         */
+        private void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            Iterator<AbstractModule> it = this.values().iterator();
+            while (size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private final Segment[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int maxSize;
 
     /**
-     * The access to the cache is synchronized
+     * @param maxSize the maximum number of modules in the cache (for all the managers).
      */
-    private LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule> internalCache;
-    private final Object lock = new Object();
+    public ModulesManagerCache(int maxSize) {
+        this(maxSize, SEGMENTS);
+    }
 
-    ModulesManagerCache() {
-        internalCache = new LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule>(MAX_NUMBER_OF_MODULES);
+    /**
+     * @param maxSize the maximum number of modules in the cache (split among the segments).
+     * @param segments the number of segments (must be a power of 2).
+     */
+    public ModulesManagerCache(int maxSize, int segments) {
+        if (segments <= 0 || (segments & (segments - 1)) != 0) {
+            throw new IllegalArgumentException("The number of segments must be a power of 2. Found: " + segments);
+        }
+        this.segments = new Segment[segments];
+        this.maxSize = Math.max(maxSize, segments);
+        int segmentSize = this.maxSize / segments;
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment(segmentSize, evictions);
+        }
+    }
+
+    private Segment getSegment(Tuple<ModulesKey, ModulesManager> keyTuple) {
+        int h = keyTuple.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
     }
 
     /**
      * Overridden so that if we do not find the key, we have the chance to create it.
      */
     public AbstractModule getObj(ModulesKey key, ModulesManager modulesManager) {
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+
+        AbstractModule obj;
+        synchronized (segment) {
+            obj = segment.get(keyTuple);
+        }
+        if (obj != null) {
+            hits.incrementAndGet();
+            return obj;
+        }
+
         synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-
-            synchronized (lock) {
-                AbstractModule obj = internalCache.getObj(keyTuple);
-                if (obj == null && modulesManager.modulesKeys.containsKey(key)) {
-                    key = modulesManager.modulesKeys.get(key); //get the 'real' key
-                    obj = AbstractModule.createEmptyModule(key);
-                    internalCache.add(keyTuple, obj);
+            ModulesKey realKey = modulesManager.modulesKeys.get(key); //get the 'real' key
+            if (realKey == null) {
+                return null;
+            }
+            //Note: the key passed may be reused by the caller, so, always store with the 'real' key.
+            keyTuple = new Tuple<ModulesKey, ModulesManager>(realKey, modulesManager);
+            synchronized (segment) {
+                obj = segment.get(keyTuple);
+                if (obj == null) {
+                    misses.incrementAndGet();
+                    obj = AbstractModule.createEmptyModule(realKey);
+                    segment.put(keyTuple, obj);
+                } else {
+                    hits.incrementAndGet();
                 }
-                return obj;
             }
+            return obj;
         }
     }
 
     public void remove(ModulesKey key, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.remove(keyTuple);
-            }
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+        synchronized (segment) {
+            segment.remove(keyTuple);
         }
     }
 
     public void add(ModulesKey key, AbstractModule n, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.add(keyTuple, n);
-            }
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+        synchronized (segment) {
+            segment.put(keyTuple, n);
         }
     }
 
     public void clear() {
-        synchronized (lock) {
-            internalCache.clear();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Changes the maximum number of modules kept in the cache (evicting the least recently used modules
+     * if needed).
+     */
+    public void setMaxSize(int maxSize) {
+        maxSize = Math.max(maxSize, segments.length);
+        this.maxSize = maxSize;
+        int segmentSize = maxSize / segments.length;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.setMaxSize(segmentSize);
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public String getStatistics() {
+        FastStringBuffer buf = new FastStringBuffer(100);
+        buf.append("Modules cache: size: ").append(size());
+        buf.append(" max: ").append(maxSize);
+        buf.append(" hits: ").append(getHits());
+        buf.append(" misses: ").append(getMisses());
+        buf.append(" evictions: ").append(getEvictions());
+        return buf.toString();
+    }
+}
@@ -66,6 +66,14 @@ public class PyCodeCompletionVisitor extends PyDevBuilderVisitor {
         }
     }
 
+    /**
+     * Note: the deltas are disabled only in the original visitor (which is the one which gets visitingWillStart).
+     */
+    @Override
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        return new PyCodeCompletionVisitor();
+    }
+
     /**
      * The code completion visitor is responsible for checking the changed resources in order to
      * update the code completion cache for the project.
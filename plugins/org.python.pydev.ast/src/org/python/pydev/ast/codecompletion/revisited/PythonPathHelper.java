@@ -51,6 +51,8 @@ import org.python.pydev.core.preferences.FileTypesPreferences;
 import org.python.pydev.plugin.PyStructureConfigHelpers;
 import org.python.pydev.plugin.nature.IPythonPathHelper;
 import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.cache.ZipFilesCache;
+import org.python.pydev.shared_core.cache.ZipFilesCache.ZipFileReference;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.FullRepIterable;
@@ -79,6 +81,11 @@ public final class PythonPathHelper implements IPythonPathHelper {
     private transient IPythonModuleResolver[] pythonModuleResolvers;
     private final Object pythonModuleResolversLock = new Object();
 
+    /**
+     * If set, the default scanning of the PYTHONPATH is incremental (see {@link #getModulesFoundStructure}).
+     */
+    private volatile PythonpathScanJournal scanJournal;
+
     /**
      * Returns the default path given from the string.
      * @param str
@@ -157,8 +164,8 @@ public final class PythonPathHelper implements IPythonPathHelper {
             try {
                 String zipFileName = root.getName();
 
-                ZipFile zipFile = new ZipFile(root);
-                try {
+                try (ZipFileReference ref = ZipFilesCache.get().acquire(root)) {
+                    ZipFile zipFile = ref.getZipFile();
                     Enumeration<? extends ZipEntry> entries = zipFile.entries();
 
                     int i = 0;
@@ -193,8 +200,6 @@ public final class PythonPathHelper implements IPythonPathHelper {
                         }
                         i++;
                     }
-                } finally {
-                    zipFile.close();
                 }
 
                 //now, on to actually filling the structure if we have a zip file (just add the ones that are actually under
@@ -612,6 +617,21 @@ public final class PythonPathHelper implements IPythonPathHelper {
 
         List<String> pythonpathList = getPythonpath();
         FastStringBuffer tempBuf = new FastStringBuffer();
+        PythonpathScanJournal scanJournal = this.scanJournal;
+        if (scanJournal != null) {
+            // Only what changed since the last scan is actually listed.
+            for (PythonpathScanJournal.RootContents contents : scanJournal.scan(pythonpathList, monitor)) {
+                if (contents != null) {
+                    if (contents.pyFileInfos != null) {
+                        addRegularModules(ret, contents.pyFileInfos, tempBuf);
+                    } else if (contents.zipContents != null) {
+                        ret.zipContents.add(contents.zipContents);
+                    }
+                }
+            }
+            return ret;
+        }
+
         for (Iterator<String> iter = pythonpathList.iterator(); iter.hasNext();) {
             String element = iter.next();
 
@@ -623,26 +643,7 @@ public final class PythonPathHelper implements IPythonPathHelper {
             File root = new File(element);
             PyFileListing below = getModulesBelow(root, monitor, pythonpathList);
             if (below != null) {
-
-                Iterator<PyFileInfo> e1 = below.getFoundPyFileInfos().iterator();
-                while (e1.hasNext()) {
-                    PyFileInfo pyFileInfo = e1.next();
-                    File file = pyFileInfo.getFile();
-                    String modName = pyFileInfo.getModuleName(tempBuf);
-                    if (isValidModuleLastPart(FullRepIterable.getLastPart(modName))) {
-                        // Only override if the new name is < than the previous name
-                        // (a file may be found multiple times depending on the pythonpath).
-                        String existing = ret.regularModules.get(file);
-                        if (existing != null) {
-                            if (existing.length() < modName.length()) {
-                                ret.regularModules.put(file, modName);
-
-                            }
-                        } else {
-                            ret.regularModules.put(file, modName);
-                        }
-                    }
-                }
+                addRegularModules(ret, below.getFoundPyFileInfos(), tempBuf);
 
             } else { //ok, it was null, so, maybe this is not a folder, but zip file with java classes...
                 ModulesFoundStructure.ZipContents zipContents = getFromZip(root, monitor);
@@ -654,6 +655,37 @@ public final class PythonPathHelper implements IPythonPathHelper {
         return ret;
     }
 
+    private static void addRegularModules(ModulesFoundStructure ret, Collection<PyFileInfo> pyFileInfos,
+            FastStringBuffer tempBuf) {
+        Iterator<PyFileInfo> e1 = pyFileInfos.iterator();
+        while (e1.hasNext()) {
+            PyFileInfo pyFileInfo = e1.next();
+            File file = pyFileInfo.getFile();
+            String modName = pyFileInfo.getModuleName(tempBuf);
+            if (isValidModuleLastPart(FullRepIterable.getLastPart(modName))) {
+                // Only override if the new name is < than the previous name
+                // (a file may be found multiple times depending on the pythonpath).
+                String existing = ret.regularModules.get(file);
+                if (existing != null) {
+                    if (existing.length() < modName.length()) {
+                        ret.regularModules.put(file, modName);
+
+                    }
+                } else {
+                    ret.regularModules.put(file, modName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the journal used to make the default scanning of the PYTHONPATH incremental (may be null to
+     * list everything in each scan).
+     */
+    public void setScanJournal(PythonpathScanJournal scanJournal) {
+        this.scanJournal = scanJournal;
+    }
+
     /**
      * @param workspaceMetadataFile
      * @throws IOException
@@ -0,0 +1,612 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion.revisited;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.ast.codecompletion.revisited.ModulesFoundStructure.ZipContents;
+import org.python.pydev.ast.listing_utils.PyFileListing.PyFileInfo;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.core.preferences.FileTypesPreferences;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Makes the scanning of the PYTHONPATH incremental.
+ *
+ * The journal keeps, for each directory found in the PYTHONPATH, its last modified time along with the
+ * python files and the sub-directories it has (and for each zip/egg, its last modified time, size and
+ * contents). In a new scan, a directory whose modified time didn't change isn't listed again (only its
+ * sub-directories are checked) and a zip which didn't change isn't reopened.
+ *
+ * Note that the modified time of a directory only changes when entries are added/removed/renamed in it
+ * (which is all that's needed to find the modules), so, the contents of the files aren't considered.
+ *
+ * Changes reported by a watcher (i.e.: PathWatch) may be passed in {@link #invalidate(File)}, in which case
+ * the related entries are always checked again in the next scan (regardless of the modified time).
+ *
+ * The roots of the PYTHONPATH are scanned in parallel and the journal may be persisted to a file (so that
+ * the first scan after a restart is also incremental).
+ */
+public final class PythonpathScanJournal {
+
+    private static final int JOURNAL_VERSION = 1;
+
+    /**
+     * The default maximum number of threads used to scan the roots of the PYTHONPATH.
+     */
+    private static final int MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final String[] EMPTY = new String[0];
+
+    /**
+     * The information on a directory found in the PYTHONPATH.
+     */
+    private static final class DirEntry {
+
+        private final long lastModified;
+
+        /**
+         * Names of the python modules (source or dll) in the directory.
+         */
+        private final String[] files;
+
+        /**
+         * Names of the sub-directories which may be python packages.
+         */
+        private final String[] dirs;
+
+        /**
+         * Whether the sub-directory at the same position in dirs is a symbolic link.
+         */
+        private final boolean[] dirsAreLinks;
+
+        private DirEntry(long lastModified, String[] files, String[] dirs, boolean[] dirsAreLinks) {
+            this.lastModified = lastModified;
+            this.files = files;
+            this.dirs = dirs;
+            this.dirsAreLinks = dirsAreLinks;
+        }
+    }
+
+    /**
+     * The information on a zip file found in the PYTHONPATH.
+     */
+    private static final class ZipEntry {
+
+        private final long lastModified;
+        private final long length;
+        private final int zipContentsType;
+        private final String[] foundFileZipPaths;
+        private final String[] foundFolderZipPaths;
+
+        private ZipEntry(long lastModified, long length, int zipContentsType, String[] foundFileZipPaths,
+                String[] foundFolderZipPaths) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.zipContentsType = zipContentsType;
+            this.foundFileZipPaths = foundFileZipPaths;
+            this.foundFolderZipPaths = foundFolderZipPaths;
+        }
+
+        private ZipContents createZipContents(File zipFile) {
+            ZipContents zipContents = new ZipContents(zipFile);
+            zipContents.zipContentsType = zipContentsType;
+            Collections.addAll(zipContents.foundFileZipPaths, foundFileZipPaths);
+            Collections.addAll(zipContents.foundFolderZipPaths, foundFolderZipPaths);
+            //As if consolidatePythonpathInfo was called.
+            zipContents.pyFilesLowerToRegular = null;
+            zipContents.pyfoldersLower = null;
+            return zipContents;
+        }
+    }
+
+    /**
+     * What was found in a root of the PYTHONPATH: either the modules of a directory or the contents of a zip.
+     */
+    /*default*/ static final class RootContents {
+
+        /*default*/ final List<PyFileInfo> pyFileInfos;
+
+        /*default*/ final ZipContents zipContents;
+
+        private RootContents(List<PyFileInfo> pyFileInfos, ZipContents zipContents) {
+            this.pyFileInfos = pyFileInfos;
+            this.zipContents = zipContents;
+        }
+    }
+
+    /**
+     * Where the journal is persisted (may be null to keep it only in memory).
+     */
+    private final File journalFile;
+
+    /**
+     * The maximum number of threads used to scan the roots of the PYTHONPATH.
+     */
+    private final int maxThreads;
+
+    /**
+     * Only one scan is done at a time.
+     */
+    private final Object scanLock = new Object();
+
+    private volatile Map<String, DirEntry> dirs = new ConcurrentHashMap<String, DirEntry>();
+    private volatile Map<String, ZipEntry> zips = new ConcurrentHashMap<String, ZipEntry>();
+
+    /**
+     * Paths invalidated while a scan is running (they must also be removed from the entries of that scan).
+     */
+    private final Set<String> invalidatedDuringScan = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile boolean scanning = false;
+
+    private boolean loaded = false;
+    private volatile boolean changed = false;
+
+    private final AtomicInteger listedDirs = new AtomicInteger();
+    private final AtomicInteger unchangedDirs = new AtomicInteger();
+
+    /**
+     * @param journalFile the file where the journal is persisted (may be null to keep it only in memory).
+     */
+    public PythonpathScanJournal(File journalFile) {
+        this(journalFile, MAX_THREADS);
+    }
+
+    /**
+     * @param maxThreads the maximum number of threads used to scan the roots of the PYTHONPATH.
+     */
+    public PythonpathScanJournal(File journalFile, int maxThreads) {
+        this.journalFile = journalFile;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * To be called when a change is reported in the given file or directory: the entries related to it
+     * (and to its parent directory) are checked again in the next scan.
+     */
+    public void invalidate(File file) {
+        String path = FileUtils.getFileAbsolutePath(file);
+        invalidatePath(path);
+        File parent = file.getParentFile();
+        if (parent != null) {
+            invalidatePath(FileUtils.getFileAbsolutePath(parent));
+        }
+    }
+
+    private void invalidatePath(String path) {
+        if (scanning) {
+            invalidatedDuringScan.add(path);
+        }
+        if (dirs.remove(path) != null | zips.remove(path) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Removes all the entries (i.e.: the next scan will list everything again).
+     */
+    public void clear() {
+        synchronized (scanLock) {
+            loaded = true;
+            dirs = new ConcurrentHashMap<String, DirEntry>();
+            zips = new ConcurrentHashMap<String, ZipEntry>();
+            changed = true;
+            if (journalFile != null) {
+                journalFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the number of directories which had to be listed in the last scan.
+     */
+    public int getListedDirs() {
+        return listedDirs.get();
+    }
+
+    /**
+     * @return the number of directories which weren't listed in the last scan because they didn't change.
+     */
+    public int getUnchangedDirs() {
+        return unchangedDirs.get();
+    }
+
+    /**
+     * Scans the given roots of the PYTHONPATH.
+     *
+     * @return a list with the same size of the pythonpath where each entry has what was found in the
+     * related root (or null if nothing was found there). Entries may be null if the monitor is cancelled.
+     */
+    /*default*/ List<RootContents> scan(final List<String> pythonpath, final IProgressMonitor monitor) {
+        synchronized (scanLock) {
+            if (!loaded) {
+                loaded = true;
+                load();
+            }
+            listedDirs.set(0);
+            unchangedDirs.set(0);
+            invalidatedDuringScan.clear();
+            scanning = true;
+
+            final Map<String, DirEntry> previousDirs = dirs;
+            final Map<String, ZipEntry> previousZips = zips;
+            final Map<String, DirEntry> newDirs = new ConcurrentHashMap<String, DirEntry>();
+            final Map<String, ZipEntry> newZips = new ConcurrentHashMap<String, ZipEntry>();
+            final RootContents[] found = new RootContents[pythonpath.size()];
+            final AtomicInteger nextRoot = new AtomicInteger(0);
+
+            final Runnable scanRoots = new Runnable() {
+
+                @Override
+                public void run() {
+                    int i;
+                    while (!monitor.isCanceled() && (i = nextRoot.getAndIncrement()) < found.length) {
+                        try {
+                            found[i] = scanRoot(pythonpath.get(i), pythonpath, previousDirs, previousZips, newDirs,
+                                    newZips, monitor);
+                        } catch (Exception e) {
+                            Log.log(e);
+                        }
+                    }
+                }
+            };
+
+            try {
+                int nThreads = Math.min(maxThreads, pythonpath.size());
+                if (nThreads <= 1) {
+                    scanRoots.run();
+                } else {
+                    waitScan(scanRoots, nThreads, pythonpath.size(), nextRoot, monitor);
+                }
+
+                if (!monitor.isCanceled()) {
+                    // Only what was found in this scan is kept (minus what was invalidated while scanning).
+                    for (String path : invalidatedDuringScan) {
+                        newDirs.remove(path);
+                        newZips.remove(path);
+                    }
+                    if (changed || newDirs.size() != previousDirs.size() || newZips.size() != previousZips.size()) {
+                        changed = true;
+                    }
+                    dirs = newDirs;
+                    zips = newZips;
+                    if (changed) {
+                        save();
+                    }
+                }
+            } finally {
+                scanning = false;
+            }
+            return Arrays.asList(found);
+        }
+    }
+
+    /**
+     * Scans using multiple threads and reports the progress in the current thread.
+     */
+    private void waitScan(Runnable scanRoots, int nThreads, int total, AtomicInteger nextRoot,
+            IProgressMonitor monitor) {
+        List<Thread> threads = new ArrayList<Thread>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            Thread thread = new Thread(scanRoots);
+            thread.setName("PyDev: Scanning PYTHONPATH " + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        FastStringBuffer buf = new FastStringBuffer();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join(200);
+                } catch (InterruptedException e) {
+                    Log.log(e);
+                    return;
+                }
+                buf.clear().append("Scanning PYTHONPATH: ").append(Math.min(nextRoot.get(), total)).append(" of ")
+                        .append(total).append(" roots (").append(listedDirs.get()).append(" folders listed, ")
+                        .append(unchangedDirs.get()).append(" unchanged)");
+                monitor.setTaskName(buf.toString());
+            }
+        }
+    }
+
+    private RootContents scanRoot(String element, List<String> pythonpath, Map<String, DirEntry> previousDirs,
+            Map<String, ZipEntry> previousZips, Map<String, DirEntry> newDirs, Map<String, ZipEntry> newZips,
+            IProgressMonitor monitor) {
+        File root = new File(element);
+        Path rootPath = root.toPath();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(rootPath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null; // Does not exist.
+        }
+
+        if (attrs.isDirectory()) {
+            Set<File> otherRoots = new HashSet<>();
+            for (String p : pythonpath) {
+                otherRoots.add(new File(p));
+            }
+            otherRoots.remove(root);
+
+            Path realRoot;
+            try {
+                realRoot = rootPath.toRealPath();
+            } catch (IOException e) {
+                return null;
+            }
+            List<PyFileInfo> pyFileInfos = new ArrayList<PyFileInfo>();
+            scanDir(root, attrs.lastModifiedTime().toMillis(), realRoot, "", otherRoots, new HashSet<Path>(),
+                    pyFileInfos, previousDirs, newDirs, monitor);
+            return new RootContents(pyFileInfos, null);
+        }
+
+        if (attrs.isRegularFile() && FileTypesPreferences.isValidZipFile(root.getName())) {
+            String path = FileUtils.getFileAbsolutePath(root);
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            long length = attrs.size();
+            ZipEntry zipEntry = previousZips.get(path);
+            if (zipEntry == null || zipEntry.lastModified != lastModified || zipEntry.length != length) {
+                ZipContents zipContents = PythonPathHelper.getFromZip(root, new NullProgressMonitor());
+                if (zipContents == null) {
+                    return null;
+                }
+                zipEntry = new ZipEntry(lastModified, length, zipContents.zipContentsType,
+                        zipContents.foundFileZipPaths.toArray(EMPTY),
+                        zipContents.foundFolderZipPaths.toArray(EMPTY));
+                changed = true;
+            }
+            newZips.put(path, zipEntry);
+            return new RootContents(null, zipEntry.createZipContents(root));
+        }
+        return null;
+    }
+
+    /**
+     * Adds the modules found in the given directory (and in its sub-directories) to pyFileInfos.
+     *
+     * @param realDir the directory with symbolic links resolved (used to detect loops).
+     * @param moduleRep the name of the package represented by the directory.
+     */
+    private void scanDir(File dir, long lastModified, Path realDir, String moduleRep, Set<File> otherRoots,
+            Set<Path> visited, List<PyFileInfo> pyFileInfos, Map<String, DirEntry> previousDirs,
+            Map<String, DirEntry> newDirs, IProgressMonitor monitor) {
+        if (!visited.add(realDir) || monitor.isCanceled()) {
+            return;
+        }
+
+        String path = FileUtils.getFileAbsolutePath(dir);
+        DirEntry entry = previousDirs.get(path);
+        if (entry == null || entry.lastModified != lastModified) {
+            entry = listDir(dir, lastModified);
+            if (entry == null) {
+                return;
+            }
+            listedDirs.incrementAndGet();
+            changed = true;
+        } else {
+            unchangedDirs.incrementAndGet();
+        }
+        newDirs.put(path, entry);
+
+        for (String name : entry.files) {
+            pyFileInfos.add(new PyFileInfo(new File(dir, name), moduleRep));
+        }
+
+        FastStringBuffer buf = new FastStringBuffer(moduleRep, 32);
+        for (int i = 0; i < entry.dirs.length; i++) {
+            String name = entry.dirs[i];
+            File subDir = new File(dir, name);
+            if (otherRoots.contains(subDir)) {
+                // We should not go into other roots.
+                continue;
+            }
+            Path subPath = subDir.toPath();
+            BasicFileAttributes attrs;
+            Path realSubDir;
+            try {
+                attrs = Files.readAttributes(subPath, BasicFileAttributes.class);
+                if (!attrs.isDirectory()) {
+                    continue;
+                }
+                realSubDir = entry.dirsAreLinks[i] ? subPath.toRealPath() : realDir.resolve(name);
+            } catch (IOException e) {
+                continue; // Removed (or a broken link / too many levels of symbolic links).
+            }
+            buf.clear().append(moduleRep);
+            if (buf.length() != 0) {
+                buf.append('.');
+            }
+            scanDir(subDir, attrs.lastModifiedTime().toMillis(), realSubDir, buf.append(name).toString(),
+                    otherRoots, visited, pyFileInfos, previousDirs, newDirs, monitor);
+        }
+    }
+
+    /**
+     * Lists the given directory: only entries whose names may be modules or packages are actually checked
+     * in the filesystem.
+     *
+     * @return the entry with what was found or null if it couldn't be listed.
+     */
+    private DirEntry listDir(File dir, long lastModified) {
+        List<String> files = new ArrayList<String>();
+        List<String> dirs = new ArrayList<String>();
+        List<Boolean> dirsAreLinks = new ArrayList<Boolean>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath())) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                boolean mayBeFile = PythonPathHelper.isValidFileMod(name);
+                boolean mayBeDir = PythonPathHelper.isValidModuleLastPart(name);
+                if (!mayBeFile && !mayBeDir) {
+                    continue;
+                }
+                BasicFileAttributes attrs;
+                boolean isLink;
+                try {
+                    attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    isLink = attrs.isSymbolicLink();
+                    if (isLink) {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                    }
+                } catch (IOException e) {
+                    continue;
+                }
+                if (mayBeFile && attrs.isRegularFile()) {
+                    files.add(name);
+                } else if (mayBeDir && attrs.isDirectory()) {
+                    dirs.add(name);
+                    dirsAreLinks.add(isLink);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        boolean[] links = new boolean[dirsAreLinks.size()];
+        for (int i = 0; i < links.length; i++) {
+            links[i] = dirsAreLinks.get(i);
+        }
+        return new DirEntry(lastModified, files.toArray(EMPTY), dirs.toArray(EMPTY), links);
+    }
+
+    /**
+     * The journal is only valid while the file types considered as python modules don't change.
+     */
+    private static String getFileTypesSignature() {
+        return StringUtils.join(",", FileTypesPreferences.getDottedValidSourceFiles());
+    }
+
+    private void load() {
+        if (journalFile == null || !journalFile.exists()) {
+            return;
+        }
+        Map<String, DirEntry> loadedDirs = new HashMap<String, DirEntry>();
+        Map<String, ZipEntry> loadedZips = new HashMap<String, ZipEntry>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (in.readInt() != JOURNAL_VERSION || !getFileTypesSignature().equals(in.readUTF())) {
+                return;
+            }
+            int nDirs = in.readInt();
+            for (int i = 0; i < nDirs; i++) {
+                String path = in.readUTF();
+                long lastModified = in.readLong();
+                String[] files = readStrings(in);
+                String[] subDirs = readStrings(in);
+                boolean[] links = new boolean[subDirs.length];
+                for (int j = 0; j < links.length; j++) {
+                    links[j] = in.readBoolean();
+                }
+                loadedDirs.put(path, new DirEntry(lastModified, files, subDirs, links));
+            }
+            int nZips = in.readInt();
+            for (int i = 0; i < nZips; i++) {
+                String path = in.readUTF();
+                loadedZips.put(path, new ZipEntry(in.readLong(), in.readLong(), in.readInt(), readStrings(in),
+                        readStrings(in)));
+            }
+        } catch (IOException e) {
+            // Corrupted or written by a different version: just start from scratch.
+            return;
+        }
+        dirs = new ConcurrentHashMap<String, DirEntry>(loadedDirs);
+        zips = new ConcurrentHashMap<String, ZipEntry>(loadedZips);
+    }
+
+    private void save() {
+        changed = false;
+        if (journalFile == null) {
+            return;
+        }
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try {
+            File parent = journalFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(JOURNAL_VERSION);
+                out.writeUTF(getFileTypesSignature());
+                Map<String, DirEntry> currDirs = dirs;
+                out.writeInt(currDirs.size());
+                for (Map.Entry<String, DirEntry> entry : currDirs.entrySet()) {
+                    DirEntry dirEntry = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(dirEntry.lastModified);
+                    writeStrings(out, dirEntry.files);
+                    writeStrings(out, dirEntry.dirs);
+                    for (boolean b : dirEntry.dirsAreLinks) {
+                        out.writeBoolean(b);
+                    }
+                }
+                Map<String, ZipEntry> currZips = zips;
+                out.writeInt(currZips.size());
+                for (Map.Entry<String, ZipEntry> entry : currZips.entrySet()) {
+                    ZipEntry zipEntry = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(zipEntry.lastModified);
+                    out.writeLong(zipEntry.length);
+                    out.writeInt(zipEntry.zipContentsType);
+                    writeStrings(out, zipEntry.foundFileZipPaths);
+                    writeStrings(out, zipEntry.foundFolderZipPaths);
+                }
+            }
+            Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Log.log(e);
+            tempFile.delete();
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len == 0) {
+            return EMPTY;
+        }
+        String[] ret = new String[len];
+        for (int i = 0; i < len; i++) {
+            ret[i] = in.readUTF();
+        }
+        return ret;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            out.writeUTF(s);
+        }
+    }
+}
@@ -28,10 +28,12 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.osgi.service.prefs.BackingStoreException;
 import org.python.pydev.ast.codecompletion.revisited.SyncSystemModulesManager.CreateInterpreterInfoCallback;
+import org.python.pydev.ast.interpreter_managers.InterpreterInfo;
 import org.python.pydev.ast.interpreter_managers.InterpreterManagersAPI;
 import org.python.pydev.core.IInterpreterInfo;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.IInterpreterManagerListener;
+import org.python.pydev.core.ISystemModulesManager;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.core.preferences.InterpreterGeneralPreferences;
 import org.python.pydev.core.preferences.PydevPrefs;
@@ -398,6 +400,13 @@ public class SyncSystemModulesManagerScheduler implements IInterpreterManagerLis
             if (SyncSystemModulesManager.DEBUG) {
                 System.out.println("File changed :" + file + " starting track of: " + infoTracker.info.getNameForUI());
             }
+            if (infoTracker.info instanceof InterpreterInfo) {
+                // Make sure that the next sync lists the changed folder again.
+                ISystemModulesManager modulesManager = ((InterpreterInfo) infoTracker.info).getModulesManager();
+                if (modulesManager instanceof SystemModulesManager) {
+                    ((SystemModulesManager) modulesManager).getPythonpathScanJournal().invalidate(file);
+                }
+            }
             job.addToTrack(infoTracker.manager, infoTracker.info);
             if (file.exists() && file.isDirectory()) {
                 //If it's a directory, it may be a copy operation, so, check until the copy finishes (i.e.:
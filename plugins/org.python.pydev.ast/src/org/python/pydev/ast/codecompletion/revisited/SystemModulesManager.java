@@ -44,14 +44,15 @@ import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.TokensList;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.core.preferences.InterpreterGeneralPreferences;
 import org.python.pydev.parser.PyParser;
 import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.plugin.nature.SystemPythonNature;
 import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.shared_core.cache.MappedRecordStore;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
 import org.python.pydev.shared_core.string.FastStringBuffer;
-import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
 /**
@@ -59,8 +60,19 @@ import org.python.pydev.shared_core.structure.Tuple;
  */
 public final class SystemModulesManager extends ModulesManagerWithBuild implements ISystemModulesManager {
 
+    /**
+     * Old location of the compiled modules cache (one file per module): only used to remove those files.
+     */
     private static final String DIR_NAME_FOR_COMPILED_CACHE = "shell";
 
+    private static final String FILE_NAME_FOR_COMPILED_MODULES_STORE = "v1_compiled_modules";
+
+    private static final int COMPILED_MODULES_STORE_VERSION = 1;
+
+    private static final String DIR_NAME_FOR_AST_CACHE = "v1_astcache";
+
+    private static final String FILE_NAME_FOR_PYTHONPATH_SCAN_JOURNAL = "v1_pythonpath_scan";
+
     /**
      * The system modules manager may have a nature if we create a SystemASTManager
      */
@@ -71,6 +83,21 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
      */
     private InterpreterInfo info;
 
+    /**
+     * Lazily created (see getAstDiskCache()).
+     */
+    private transient volatile AstDiskCache astDiskCache;
+
+    /**
+     * Lazily created (see getPythonpathScanJournal()).
+     */
+    private transient volatile PythonpathScanJournal pythonpathScanJournal;
+
+    /**
+     * Lazily created (see getCompiledModulesStore()).
+     */
+    private transient volatile MappedRecordStore compiledModulesStore;
+
     public SystemModulesManager(InterpreterInfo info) {
         this.info = info;
     }
@@ -78,6 +105,13 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
     public void setInfo(InterpreterInfo info) {
         //Should only be used in tests (in general the info should be passed in the constructor and never changed again).
         this.info = info;
+        this.astDiskCache = null;
+        this.pythonpathScanJournal = null;
+        MappedRecordStore store = this.compiledModulesStore;
+        if (store != null) {
+            store.close();
+            this.compiledModulesStore = null;
+        }
     }
 
     public InterpreterInfo getInfo() {
@@ -421,6 +455,42 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
         return info.getIoDirectory();
     }
 
+    /**
+     * The asts of the modules of the interpreter are cached in the io directory (so that a module which is
+     * removed from the ModulesManagerCache doesn't have to be parsed again).
+     */
+    @Override
+    protected AstDiskCache getAstDiskCache() {
+        if (!InterpreterGeneralPreferences.getCacheInterpreterAsts()) {
+            return null;
+        }
+        return getOrCreateAstDiskCache();
+    }
+
+    private AstDiskCache getOrCreateAstDiskCache() {
+        if (astDiskCache == null) {
+            File ioDirectory = getIoDirectory();
+            if (ioDirectory == null) {
+                return null;
+            }
+            astDiskCache = new AstDiskCache(new File(ioDirectory, DIR_NAME_FOR_AST_CACHE));
+        }
+        return astDiskCache;
+    }
+
+    /**
+     * @return the journal used to scan the PYTHONPATH of the interpreter incrementally (persisted in the
+     * io directory).
+     */
+    public PythonpathScanJournal getPythonpathScanJournal() {
+        if (pythonpathScanJournal == null) {
+            File ioDirectory = getIoDirectory();
+            pythonpathScanJournal = new PythonpathScanJournal(
+                    ioDirectory != null ? new File(ioDirectory, FILE_NAME_FOR_PYTHONPATH_SCAN_JOURNAL) : null);
+        }
+        return pythonpathScanJournal;
+    }
+
     /**
      * @param keysFound
      */
@@ -435,63 +505,61 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
     @Override
     public void changePythonPath(String pythonpath, IProject project, IProgressMonitor monitor) {
         try {
-            //Clear the cached files related to compiled modules.
-            File ioDirectory = getIoDirectory();
-            if (ioDirectory != null) {
-                File d = new File(ioDirectory, DIR_NAME_FOR_COMPILED_CACHE);
-                if (d.exists()) {
-                    File[] files = d.listFiles();
-                    if (files != null) {
-
-                        for (int i = 0; i < files.length; ++i) {
-                            File f = files[i];
-
-                            if (f.isFile()) {
-                                try {
-                                    FileUtils.deleteFile(f);
-                                } catch (IOException e) {
-                                    Log.log(e);
-                                }
-                            }
-                        }
-                    }
-                }
+            //Clear the cached info related to compiled modules.
+            MappedRecordStore store = getCompiledModulesStore();
+            if (store != null) {
+                store.clear();
+            }
+            deleteOldCompiledModulesCache();
+
+            //The asts of modules which are no longer in the pythonpath would be kept forever.
+            AstDiskCache cache = getOrCreateAstDiskCache();
+            if (cache != null) {
+                cache.clear();
             }
         } catch (Exception e) {
             Log.log(e);
         }
+        pythonPathHelper.setScanJournal(getPythonpathScanJournal());
         super.changePythonPath(pythonpath, project, monitor);
     }
 
     /**
-     * Gets the directory where compiled modules should be saved.
+     * The info on the compiled modules is kept in a single store in the io directory.
      */
     @Override
-    public File getCompiledModuleCacheFile(String name) {
+    public MappedRecordStore getCompiledModulesStore() {
+        if (compiledModulesStore == null) {
+            File ioDirectory = getIoDirectory();
+            if (ioDirectory == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (compiledModulesStore == null) {
+                    compiledModulesStore = new MappedRecordStore(
+                            new File(ioDirectory, FILE_NAME_FOR_COMPILED_MODULES_STORE),
+                            COMPILED_MODULES_STORE_VERSION);
+                }
+            }
+        }
+        return compiledModulesStore;
+    }
+
+    /**
+     * Removes the files with the compiled modules info (one file per module) written by previous versions.
+     */
+    private void deleteOldCompiledModulesCache() {
         File ioDirectory = getIoDirectory();
         if (ioDirectory != null) {
             File d = new File(ioDirectory, DIR_NAME_FOR_COMPILED_CACHE);
-            if (!d.exists()) {
-                d.mkdirs();
-            }
-            int len = name.length();
-            String pre = "";
-            if (len >= 3) {
-                pre = name.substring(0, 3);
-
-            } else if (len >= 2) {
-                pre = name.substring(0, 2);
-
-            } else if (len >= 1) {
-                pre = name.substring(0, 1);
-
+            if (d.exists()) {
+                try {
+                    FileUtils.deleteDirectoryTree(d);
+                } catch (IOException e) {
+                    Log.log(e);
+                }
             }
-
-            //Already separate dotted from non dotted (i.e.: top level) modules.
-            String post = name.contains(".") ? ".top" : ".inn";
-            return new File(d, StringUtils.join("", pre, "_", StringUtils.md5(name), post));
         }
-        return null;
     }
 
 }
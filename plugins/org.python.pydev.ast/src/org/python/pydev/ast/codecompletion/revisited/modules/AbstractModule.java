@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.jface.text.IDocument;
+import org.python.pydev.ast.codecompletion.revisited.AstDiskCache;
 import org.python.pydev.ast.codecompletion.revisited.CompletionStateFactory;
 import org.python.pydev.ast.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.ast.codecompletion.revisited.visitors.Definition;
@@ -298,6 +299,32 @@ public abstract class AbstractModule implements IModule {
         return null;
     }
 
+    /**
+     * Same as createModule(name, f, nature, checkForPath), but gets the ast of source modules from the given
+     * cache if available (and adds it to the cache if it had to be parsed).
+     */
+    public static AbstractModule createModule(String name, File f, IPythonNature nature, boolean checkForPath,
+            AstDiskCache astDiskCache) throws IOException, MisconfigurationException {
+        if (astDiskCache == null || !PythonPathHelper.isValidSourceFile(f.getName())) {
+            return createModule(name, f, nature, checkForPath);
+        }
+        int grammarVersion = nature.getGrammarVersion();
+        SimpleNode ast = astDiskCache.get(f, grammarVersion);
+        if (ast != null) {
+            return new SourceModule(name, f, ast, null, nature);
+        }
+
+        // Get the time/size before reading so that a change while parsing doesn't go unnoticed.
+        long lastModified = FileUtils.lastModified(f);
+        long length = f.length();
+        SourceModule module = createModuleFromDoc(name, f, FileUtilsFileBuffer.getDocFromFile(f), nature,
+                checkForPath);
+        if (module != null && module.parseError == null && module.getAst() != null) {
+            astDiskCache.put(f, lastModified, length, grammarVersion, module.getAst());
+        }
+        return module;
+    }
+
     public static SourceModule createModuleFromDoc(String name, File f, IDocument doc, IPythonNature nature,
             boolean checkForPath) throws MisconfigurationException {
         return createModuleFromDoc(name, f, doc, nature, checkForPath, nature);
@@ -11,27 +11,22 @@
  */
 package org.python.pydev.ast.codecompletion.revisited.modules;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jface.text.Document;
 import org.python.pydev.ast.codecompletion.revisited.CompletionStateFactory;
@@ -52,11 +47,10 @@ import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.ObjectsInternPool;
 import org.python.pydev.core.PythonNatureWithoutProjectException;
 import org.python.pydev.core.TokensList;
-import org.python.pydev.core.concurrency.IRunnableWithMonitor;
-import org.python.pydev.core.concurrency.RunnableAsJobsPoolThread;
 import org.python.pydev.core.log.Log;
-import org.python.pydev.core.proposals.CompletionProposalFactory;
 import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.shared_core.cache.MappedRecordStore;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FullRepIterable;
 import org.python.pydev.shared_core.structure.Tuple;
@@ -176,7 +170,10 @@ public class CompiledModule extends AbstractModule {
             if (COMPILED_MODULES_ENABLED) {
 
                 try {
-                    info = createTokensFromServer(name, manager);
+                    info = removePrefetched(name, manager);
+                    if (info == null) {
+                        info = createTokensFromServer(name, manager);
+                    }
                     this.file = info.o1;
                     this.tokens = asMap(info.o2);
 
@@ -203,26 +200,45 @@ public class CompiledModule extends AbstractModule {
     }
 
     /**
-     * @return the file to be used to write/read the cache.
+     * @return the store to be used to write/read the cache.
      */
-    private static File getCacheFile(String name, IModulesManager manager) {
+    private static MappedRecordStore getCacheStore(IModulesManager manager) {
         if (manager instanceof ISystemModulesManager) {
             ISystemModulesManager systemModulesManager = (ISystemModulesManager) manager;
-            return systemModulesManager.getCompiledModuleCacheFile(name);
+            return systemModulesManager.getCompiledModulesStore();
         }
         return null;
     }
 
     /**
-     * Updates the file with the cache to have the given information.
+     * @return whether the given information may be kept in the cache: a failure in the shell (i.e.: a timeout or
+     * an exception in the server) results in no file and no tokens (or a single ERROR: token) and must not
+     * be cached (otherwise it'd only be requested again when the PYTHONPATH changes).
+     */
+    public static boolean isValidInfo(Tuple<File, IToken[]> info) {
+        if (info == null || info.o2 == null) {
+            return false;
+        }
+        IToken[] toks = info.o2;
+        if (toks.length == 0) {
+            return info.o1 != null;
+        }
+        if (toks.length == 1 && "ERROR:".equals(toks[0].getRepresentation())) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Updates the store with the cache to have the given information.
      */
     private static void updateCache(final String name, IModulesManager manager, final Tuple<File, IToken[]> info) {
         try {
-            if (info != null && info.o2 != null && info.o2.length > 10) { //Don't cache anything less than 10 tokens.
-                File f = getCacheFile(name, manager);
+            if (isValidInfo(info)) {
+                MappedRecordStore store = getCacheStore(manager);
 
                 //Only cache modules that are in the system modules manager.
-                if (f == null && !(manager instanceof ISystemModulesManager)) {
+                if (store == null && !(manager instanceof ISystemModulesManager)) {
                     ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
                     manager = null; //i.e.: just making sure it won't be used later on...
 
@@ -230,62 +246,42 @@ public class CompiledModule extends AbstractModule {
                     //a project we don't cache it for now).
                     for (String part : new FullRepIterable(name)) {
                         if (systemModulesManager.hasModule(new ModulesKey(part, null))) {
-                            f = getCacheFile(name, systemModulesManager);
+                            store = getCacheStore(systemModulesManager);
                             break;
                         }
                         if (!part.contains(".")) {
                             part += ".__init__";
                             if (systemModulesManager.hasModule(new ModulesKey(part, null))) {
-                                f = getCacheFile(name, systemModulesManager);
+                                store = getCacheStore(systemModulesManager);
                                 break;
                             }
                         }
                     }
                 }
 
-                if (f != null) {
-                    final File cacheFile = f;
-                    IRunnableWithMonitor runnable = new IRunnableWithMonitor() {
-
-                        @Override
-                        public void run() {
-                            try (OutputStream out = new FileOutputStream(cacheFile)) {
-                                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-                                    try (BufferedOutputStream buf = new BufferedOutputStream(gzip)) {
-                                        try (ObjectOutputStream stream = new ObjectOutputStream(buf)) {
-                                            stream.writeObject(name);
-                                            stream.writeObject(info.o1);
-
-                                            IToken[] toks = info.o2;
-                                            int size = toks.length;
-                                            stream.writeInt(size);
-
-                                            //Write in 2 batches (leave the docstring in a separate batch as it's usually
-                                            //the big part of the info -- that way we can partially read it without reading
-                                            //the docstrings later on).
-                                            for (int i = 0; i < size; i++) {
-                                                IToken tok = toks[i];
-                                                stream.writeObject(tok.getRepresentation());
-                                                stream.writeInt(tok.getType());
-                                                stream.writeObject(tok.getArgs());
-                                                stream.writeObject(tok.getParentPackage());
-                                            }
-                                            for (int i = 0; i < size; i++) {
-                                                stream.writeObject(toks[i].getDocStr());
-                                            }
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.log(e);
-                            }
+                if (store != null) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (DataOutputStream stream = new DataOutputStream(bytes)) {
+                        writeString(stream, info.o1 != null ? info.o1.getPath() : null);
+
+                        IToken[] toks = info.o2;
+                        int size = toks.length;
+                        stream.writeInt(size);
+
+                        //Write in 2 batches (leave the docstring in a separate batch as it's usually
+                        //the big part of the info).
+                        for (int i = 0; i < size; i++) {
+                            IToken tok = toks[i];
+                            writeString(stream, tok.getRepresentation());
+                            stream.writeInt(tok.getType());
+                            writeString(stream, tok.getArgs());
+                            writeString(stream, tok.getParentPackage());
                         }
-
-                        @Override
-                        public void setMonitor(IProgressMonitor monitor) {
+                        for (int i = 0; i < size; i++) {
+                            writeString(stream, toks[i].getDocStr());
                         }
-                    };
-                    RunnableAsJobsPoolThread.getSingleton().scheduleToRun(runnable, "Cache module: " + name);
+                    }
+                    store.put(name, bytes.toByteArray());
                 }
             }
         } catch (Exception e) {
@@ -298,50 +294,70 @@ public class CompiledModule extends AbstractModule {
      */
     private static Tuple<File, IToken[]> getCached(String name, IModulesManager manager) {
         ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
-        File f = getCacheFile(name, systemModulesManager);
-
-        if (f != null && f.exists()) {
+        MappedRecordStore store = getCacheStore(systemModulesManager);
+        if (store == null) {
+            return null;
+        }
+        byte[] bytes = store.get(name);
+        if (bytes != null) {
             try {
                 IToken[] toks = null;
                 File file = null;
-                try (FileInputStream fin = new FileInputStream(f)) {
-                    try (InputStream in = new BufferedInputStream(new GZIPInputStream(fin))) {
-                        try (ObjectInputStream stream = new ObjectInputStream(in)) {
-                            ObjectsInternPool.ObjectsPoolMap map = new ObjectsInternPool.ObjectsPoolMap();
-                            @SuppressWarnings("unused")
-                            Object _name = stream.readObject(); //we already have the name set (so, it's only there for completeness).
-                            file = (File) stream.readObject();
-                            int size = stream.readInt();
-
-                            toks = new IToken[size];
-                            IPythonNature nature = systemModulesManager.getNature();
-                            for (int i = 0; i < size; i++) {
-                                //Note intern (we probably have many empty strings -- or the same for parentPackage)
-                                String rep = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                int type = stream.readInt();
-                                String args = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                String parentPackage = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                toks[i] = new CompiledToken(rep, "", args, parentPackage, type, nature);
-                            }
-                            for (int i = 0; i < size; i++) {
-                                toks[i].setDocStr(ObjectsInternPool.internLocal(map, (String) stream.readObject()));
-                            }
-                        }
+                try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                    ObjectsInternPool.ObjectsPoolMap map = new ObjectsInternPool.ObjectsPoolMap();
+                    String path = readString(stream);
+                    if (path != null) {
+                        file = new File(path);
+                    }
+                    int size = stream.readInt();
+
+                    toks = new IToken[size];
+                    IPythonNature nature = systemModulesManager.getNature();
+                    for (int i = 0; i < size; i++) {
+                        //Note intern (we probably have many empty strings -- or the same for parentPackage)
+                        String rep = ObjectsInternPool.internLocal(map, readString(stream));
+                        int type = stream.readInt();
+                        String args = ObjectsInternPool.internLocal(map, readString(stream));
+                        String parentPackage = ObjectsInternPool.internLocal(map, readString(stream));
+                        toks[i] = new CompiledToken(rep, "", args, parentPackage, type, nature);
+                    }
+                    for (int i = 0; i < size; i++) {
+                        toks[i].setDocStr(ObjectsInternPool.internLocal(map, readString(stream)));
                     }
                 }
                 return new Tuple<File, IToken[]>(file, toks);
             } catch (Exception e) {
-                Log.log("Unable to read contents from: " + f, e); //Unable to read: just log it
+                Log.log("Unable to read contents of: " + name + " from: " + store.getFile(), e);
             }
         }
         return null;
     }
 
+    private static void writeString(DataOutputStream stream, String s) throws IOException {
+        if (s == null) {
+            stream.writeInt(-1);
+        } else {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            stream.writeInt(b.length);
+            stream.write(b);
+        }
+    }
+
+    private static String readString(DataInputStream stream) throws IOException {
+        int len = stream.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        stream.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
     private static IToken[] createInnerFromServer(ICodeCompletionASTManager manager, final IPythonNature nature,
             String act,
             String tokenToCompletion) throws Exception, MisconfigurationException, PythonNatureWithoutProjectException {
         IToken[] toks;
-        AbstractShell shell = AbstractShell.getServerShell(nature, CompletionProposalFactory.get().getShellId());
+        AbstractShell shell = AbstractShell.getServerShellForCurrentThread(nature);
         List<String[]> completions = shell.getImportCompletions(tokenToCompletion,
                 getCompletePythonpath(manager.getModulesManager(), nature)).o2;
 
@@ -372,10 +388,94 @@ public class CompiledModule extends AbstractModule {
             Log.log(IStatus.INFO, ("Compiled modules: getting info for:" + name), null);
         }
         final IPythonNature nature = manager.getNature();
-        AbstractShell shell = AbstractShell.getServerShell(nature, AbstractShell.getShellId());
+        AbstractShell shell = AbstractShell.getServerShellForCurrentThread(nature);
         Tuple<String, List<String[]>> completions = shell.getImportCompletions(name,
                 getCompletePythonpath(manager, nature)); //default
+        return createTokensFromCompletions(name, nature, completions);
+    }
+
+    /**
+     * Keeps the information which was already requested to the shell for modules which weren't created yet
+     * (system modules manager -> module name -> file and tokens).
+     */
+    private static final Map<IModulesManager, Map<String, Tuple<File, IToken[]>>> prefetched = new WeakHashMap<>();
+
+    /**
+     * Requests the information on the given modules to the shell in a single request (so that the creation of
+     * each of those modules afterwards doesn't need its own request to the shell).
+     *
+     * The information is kept until the related module is created or discardPrefetched() is called.
+     *
+     * Modules which are already in the disk cache are not requested.
+     */
+    public static void prefetchFromServer(List<String> names, IModulesManager manager) {
+        if (!COMPILED_MODULES_ENABLED) {
+            return;
+        }
+        ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
+        List<String> toRequest = new ArrayList<String>(names.size());
+        MappedRecordStore store = getCacheStore(systemModulesManager);
+        for (String name : names) {
+            if (store == null || !store.contains(name)) {
+                toRequest.add(name);
+            }
+        }
+        if (toRequest.size() == 0) {
+            return;
+        }
+        final Map<String, Tuple<File, IToken[]>> map;
+        synchronized (prefetched) {
+            Map<String, Tuple<File, IToken[]>> m = prefetched.get(systemModulesManager);
+            if (m == null) {
+                m = new HashMap<String, Tuple<File, IToken[]>>();
+                prefetched.put(systemModulesManager, m);
+            }
+            map = m;
+        }
+        try {
+            final IPythonNature nature = manager.getNature();
+            AbstractShell shell = AbstractShell.getServerShellForCurrentThread(nature);
+            shell.getImportCompletions(toRequest, getCompletePythonpath(manager, nature),
+                    new ICallback2<Object, String, Tuple<String, List<String[]>>>() {
+
+                        @Override
+                        public Object call(String name, Tuple<String, List<String[]>> completions) {
+                            Tuple<File, IToken[]> info = createTokensFromCompletions(name, nature, completions);
+                            synchronized (prefetched) {
+                                map.put(name, info);
+                            }
+                            return null;
+                        }
+                    });
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    /**
+     * Discards the information prefetched (and not used) for the given manager.
+     */
+    public static void discardPrefetched(IModulesManager manager) {
+        synchronized (prefetched) {
+            prefetched.remove(manager.getSystemModulesManager());
+        }
+    }
+
+    private static Tuple<File, IToken[]> removePrefetched(String name, IModulesManager manager) {
+        synchronized (prefetched) {
+            if (prefetched.isEmpty()) {
+                return null;
+            }
+            Map<String, Tuple<File, IToken[]>> map = prefetched.get(manager.getSystemModulesManager());
+            if (map == null) {
+                return null;
+            }
+            return map.remove(name);
+        }
+    }
 
+    private static Tuple<File, IToken[]> createTokensFromCompletions(String name, final IPythonNature nature,
+            Tuple<String, List<String[]>> completions) {
         if (TRACE_COMPILED_MODULES) {
             Log.log(IStatus.INFO, ("Compiled modules: " + name + " file: " + completions.o1 + " found: "
                     + completions.o2.size() + " completions."), null);
@@ -607,7 +707,7 @@ public class CompiledModule extends AbstractModule {
             return found;
         }
 
-        AbstractShell shell = AbstractShell.getServerShell(nature, AbstractShell.getShellId());
+        AbstractShell shell = AbstractShell.getServerShellForCurrentThread(nature);
         Tuple<String[], int[]> def = shell.getLineCol(this.name, token, nature.getAstManager().getModulesManager()
                 .getCompletePythonPath(nature.getProjectInterpreter(), nature.getRelatedInterpreterManager())); //default
         if (def == null) {
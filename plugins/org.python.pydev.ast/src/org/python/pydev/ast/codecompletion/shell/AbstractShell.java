@@ -39,6 +39,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.core.logging.DebugSettings;
 import org.python.pydev.core.proposals.CompletionProposalFactory;
 import org.python.pydev.shared_core.SharedCorePlugin;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.net.SocketUtil;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -63,14 +64,46 @@ public abstract class AbstractShell {
 
     public static final int OTHER_THREADS_SHELL = 2;
 
+    /**
+     * Requests which aren't done in the main thread use a pool of shells (so that i.e.: indexing doesn't block
+     * code-completion requests from other threads). The first shell of the pool is the OTHER_THREADS_SHELL
+     * and the others have ids starting at this one.
+     */
+    public static final int FIRST_EXTRA_POOLED_SHELL = 100;
+
     public static int[] getAllShellIds() {
-        return new int[] { MAIN_THREAD_SHELL, OTHER_THREADS_SHELL };
+        int[] ret = new int[1 + PyCodeCompletionPreferences.MAX_SHELLS_IN_POOL];
+        ret[0] = MAIN_THREAD_SHELL;
+        for (int i = 0; i < PyCodeCompletionPreferences.MAX_SHELLS_IN_POOL; i++) {
+            ret[i + 1] = getPooledShellId(i);
+        }
+        return ret;
+    }
+
+    /**
+     * @return the id of the shell at the given position of the pool.
+     */
+    public static int getPooledShellId(int i) {
+        return i == 0 ? OTHER_THREADS_SHELL : FIRST_EXTRA_POOLED_SHELL + i - 1;
     }
 
     public static int getShellId() {
         return CompletionProposalFactory.get().getShellId();
     }
 
+    /**
+     * @return the main thread shell if called from the main thread or a shell from the pool otherwise
+     * (preferably one which isn't being used).
+     */
+    public static AbstractShell getServerShellForCurrentThread(IPythonNature nature) throws IOException,
+            JDTNotAvailableException, CoreException, MisconfigurationException, PythonNatureWithoutProjectException {
+        int id = getShellId();
+        if (id == MAIN_THREAD_SHELL) {
+            return getServerShell(nature, id);
+        }
+        return ShellsContainer.getPooledServerShell(nature);
+    }
+
     protected static final int DEFAULT_SLEEP_BETWEEN_ATTEMPTS = 1000; //1sec, so we can make the number of attempts be shown as elapsed in secs
 
     protected static final int DEBUG_SHELL = -1;
@@ -685,6 +718,98 @@ public abstract class AbstractShell {
         };
     }
 
+    /**
+     * @return whether no one is using this shell at this moment.
+     */
+    /*default*/ boolean isIdle() {
+        return semaphore.permits() > 0;
+    }
+
+    /**
+     * Writes the given request and reads the messages received until the end of the batch is received.
+     *
+     * @return the number of messages received.
+     */
+    private int writeAndReadStreamed(ICallback2<Object, Integer, FastStringBuffer> onMessage, String... str)
+            throws CoreException {
+        try {
+            synchronized (ioLock) {
+                this.write(StringUtils.join("", str));
+                return this.readStreamed(onMessage);
+            }
+
+        } catch (Exception e) {
+            String message = "ERROR reading shell (streamed). Message sent: " + StringUtils.join("", str) + "\n";
+            if (process != null) {
+                message += "\n" + process.getProcessLog();
+            }
+            Log.log(IStatus.ERROR, message, e);
+
+            restartShell();
+            return 0;
+        } finally {
+            if (process != null) {
+                process.clearOutput();
+            }
+        }
+    }
+
+    /**
+     * Reads the messages of a batch (each message ends with END@@ and the batch ends with @@BATCH_END@@).
+     *
+     * @param onMessage called with the index of the message and its contents (without @@COMPLETIONS and END@@)
+     * as soon as each message is received.
+     * @return the number of messages received.
+     */
+    private int readStreamed(ICallback2<Object, Integer, FastStringBuffer> onMessage) throws IOException {
+        synchronized (ioLock) {
+            if (finishedForGood) {
+                throw new RuntimeException(
+                        "Shells are already finished for good, so, it is an invalid state to try to read from it.");
+            }
+            if (!isConnected || inStart) {
+                throw new RuntimeException(
+                        "The shell is still not connected, so, it is an invalid state to try to read from it.");
+            }
+            if (isInRead || isInWrite) {
+                throw new RuntimeException(
+                        "The shell is already in read/write mode, so, it is an invalid state to try to read from it.");
+            }
+
+            isInRead = true;
+            try {
+                FastStringBuffer strBuf = new FastStringBuffer(AbstractShell.BUFFER_SIZE);
+                byte[] b = new byte[AbstractShell.BUFFER_SIZE];
+                int received = 0;
+                int searchFrom = 0;
+                while (true) {
+                    int endIndex;
+                    while ((endIndex = strBuf.indexOf("END@@", searchFrom)) != -1) {
+                        if (strBuf.startsWith("@@IMPORTS_BATCH_")) {
+                            return received;
+                        }
+                        FastStringBuffer msg = new FastStringBuffer(strBuf.subSequence(0, endIndex).toString(), 0);
+                        strBuf.delete(0, endIndex + "END@@".length());
+                        searchFrom = 0;
+
+                        msg.replaceFirst("@@COMPLETIONS", "");
+                        onMessage.call(received, msg);
+                        received++;
+                    }
+
+                    int len = this.socket.getInputStream().read(b);
+                    if (len <= 0) {
+                        throw new IOException("Connection closed while reading streamed messages.");
+                    }
+                    searchFrom = Math.max(0, strBuf.length() - 5); //-5 because that's the len of END@@
+                    strBuf.append(new String(b, 0, len));
+                }
+            } finally {
+                isInRead = false;
+            }
+        }
+    }
+
     private FastStringBuffer writeAndGetResults(String... str) throws CoreException {
 
         try {
@@ -759,6 +884,41 @@ public abstract class AbstractShell {
         return ShellConvert.convertStringToCompletions(read);
     }
 
+    /**
+     * Gets the completions for many modules in a single request (the response is streamed, so, the callback
+     * is called for each module as soon as its completions are received -- while the shell is still in use).
+     *
+     * @param onCompletions called with the name of the module and its completions (in the same order of the
+     * names passed).
+     * @return the number of modules whose completions were received (if less than the number of names passed,
+     * the remaining ones weren't received and should be requested again).
+     */
+    public int getImportCompletions(final List<String> names, List<String> pythonpath,
+            final ICallback2<Object, String, Tuple<String, List<String[]>>> onCompletions) throws Exception {
+        if (names.size() == 0) {
+            return 0;
+        }
+        String str = URLEncoder.encode(StringUtils.join("|", names), ENCODING_UTF_8);
+
+        try (AutoCloseable permit = acquire(StringUtils.join("", "getImportCompletions (batch): ", names.size()))) {
+            internalChangePythonPath(pythonpath);
+            return this.writeAndReadStreamed(new ICallback2<Object, Integer, FastStringBuffer>() {
+
+                @Override
+                public Object call(Integer i, FastStringBuffer read) {
+                    if (i < names.size()) {
+                        try {
+                            onCompletions.call(names.get(i), ShellConvert.convertStringToCompletions(read));
+                        } catch (Exception e) {
+                            Log.log(e);
+                        }
+                    }
+                    return null;
+                }
+            }, "@@IMPORTS_BATCH:", str, "\nEND@@");
+        }
+    }
+
     /**
      * @param moduleName the name of the module where the token is defined
      * @param token the token we are looking for
@@ -4,9 +4,11 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.python.copiedfromeclipsesrc.JDTNotAvailableException;
+import org.python.pydev.ast.codecompletion.PyCodeCompletionPreferences;
 import org.python.pydev.ast.codecompletion.revisited.ModulesManager;
 import org.python.pydev.ast.interpreter_managers.InterpreterManagersAPI;
 import org.python.pydev.core.IInterpreterInfo;
@@ -167,6 +169,41 @@ public class ShellsContainer {
         return getServerShell(nature.getProjectInterpreter(), nature.getInterpreterType(), id);
     }
 
+    /**
+     * Used to choose the shell of the pool when all of them are busy.
+     */
+    private static final AtomicInteger nextPooledShell = new AtomicInteger(0);
+
+    /**
+     * @return a shell from the pool of shells used for requests not done in the main thread: a shell which
+     * isn't being used if available, otherwise a new one is created (if the pool isn't full) or the
+     * shells of the pool are used in turns.
+     */
+    public static AbstractShell getPooledServerShell(IPythonNature nature) throws IOException,
+            JDTNotAvailableException, CoreException, MisconfigurationException, PythonNatureWithoutProjectException {
+        int poolSize = PyCodeCompletionPreferences.getNumberOfShellsInPool();
+        if (poolSize <= 1) {
+            return getServerShell(nature, AbstractShell.OTHER_THREADS_SHELL);
+        }
+        IInterpreterInfo interpreter = nature.getProjectInterpreter();
+        int freeSlot = -1;
+        synchronized (shells) {
+            Map<Integer, AbstractShell> typeToShell = getTypeToShellFromId(interpreter);
+            for (int i = 0; i < poolSize; i++) {
+                AbstractShell shell = typeToShell.get(AbstractShell.getPooledShellId(i));
+                if (shell == null) {
+                    if (freeSlot == -1) {
+                        freeSlot = i;
+                    }
+                } else if (shell.isIdle()) {
+                    return shell;
+                }
+            }
+        }
+        int slot = freeSlot != -1 ? freeSlot : (nextPooledShell.getAndIncrement() & Integer.MAX_VALUE) % poolSize;
+        return getServerShell(interpreter, nature.getInterpreterType(), AbstractShell.getPooledShellId(slot));
+    }
+
     /**
      * @param interpreter the interpreter that should create the shell
      *
@@ -15,9 +15,10 @@ from _pydevd_bundle.pydevd_comm import (InternalGetThreadStack, internal_get_com
 from _pydevd_bundle.pydevd_comm_constants import (CMD_THREAD_SUSPEND, file_system_encoding,
     CMD_STEP_INTO_MY_CODE, CMD_STOP_ON_START)
 from _pydevd_bundle.pydevd_constants import (get_current_thread_id, set_protocol, get_protocol,
-    HTTP_JSON_PROTOCOL, JSON_PROTOCOL, IS_PY3K, DebugInfoHolder, dict_keys, dict_items, IS_WINDOWS)
+    HTTP_JSON_PROTOCOL, JSON_PROTOCOL, BINARY_PROTOCOL, IS_PY3K, DebugInfoHolder, dict_keys, dict_items, IS_WINDOWS)
 from _pydevd_bundle.pydevd_net_command_factory_json import NetCommandFactoryJson
 from _pydevd_bundle.pydevd_net_command_factory_xml import NetCommandFactory
+from _pydevd_bundle.pydevd_net_command_factory_binary import NetCommandFactoryBinary
 import pydevd_file_utils
 from _pydev_bundle import pydev_log
 from _pydevd_bundle.pydevd_breakpoints import LineBreakpoint
@@ -78,10 +79,14 @@ class PyDevdAPI(object):
         set_protocol(protocol.strip())
         if get_protocol() in (HTTP_JSON_PROTOCOL, JSON_PROTOCOL):
             cmd_factory_class = NetCommandFactoryJson
+        elif get_protocol() == BINARY_PROTOCOL:
+            cmd_factory_class = NetCommandFactoryBinary
         else:
             cmd_factory_class = NetCommandFactory
 
-        if not isinstance(py_db.cmd_factory, cmd_factory_class):
+        # Note: the binary factory is a subclass of the xml factory (so, it must also be replaced when going
+        # back from binary to xml).
+        if py_db.cmd_factory.__class__ is not cmd_factory_class:
             py_db.cmd_factory = cmd_factory_class()
 
         return py_db.cmd_factory.make_protocol_set_message(seq)
@@ -252,6 +257,14 @@ class PyDevdAPI(object):
         int_cmd = InternalGetVariable(seq, thread_id, frame_id, scope, attrs)
         py_db.post_internal_command(int_cmd, thread_id)
 
+    def request_get_variable_range(self, py_db, seq, offset, count, thread_id, frame_id, scope, attrs):
+        '''
+        :param offset: the index of the first item of the container to get.
+        :param count: the number of items of the container to get.
+        '''
+        int_cmd = InternalGetVariable(seq, thread_id, frame_id, scope, attrs, offset=int(offset), count=int(count))
+        py_db.post_internal_command(int_cmd, thread_id)
+
     def request_get_array(self, py_db, seq, roffset, coffset, rows, cols, fmt, thread_id, frame_id, scope, attrs):
         int_cmd = InternalGetArray(seq, roffset, coffset, rows, cols, fmt, thread_id, frame_id, scope, attrs)
         py_db.post_internal_command(int_cmd, thread_id)
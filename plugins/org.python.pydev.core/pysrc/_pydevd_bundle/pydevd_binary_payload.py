@@ -0,0 +1,212 @@
+'''
+Binary payloads used in the BINARY_PROTOCOL for the messages which are the bottleneck when stepping (the stack
+sent when a thread is suspended and the variables of a frame or container).
+
+All the numbers are big endian and strings are sent as the length of the utf-8 bytes (4 bytes) followed by the
+bytes (no quoting/escaping is done as in the xml).
+
+PAYLOAD_VARIABLES:
+    count (4 bytes)
+    for each variable: name, type, qualifier, value (strings) and flags (1 byte -- see VAR_FLAG_XXX).
+
+PAYLOAD_VARIABLES_RANGE:
+    total (4 bytes -- the number of items in the container)
+    followed by the same contents of PAYLOAD_VARIABLES.
+
+PAYLOAD_THREAD_SUSPEND:
+    thread id, stop reason, message, suspend type (strings)
+    count (4 bytes)
+    for each frame: frame id, method name, file (strings) and line (4 bytes).
+
+Note: the java counterpart is org.python.pydev.debug.model.BinaryProtocolUtils.
+'''
+import struct
+
+from _pydev_bundle import pydev_log
+from _pydevd_bundle import pydevd_xml
+from _pydevd_bundle.pydevd_constants import IS_PY3K, dict_iter_items, dict_keys, \
+    MAXIMUM_VARIABLE_REPRESENTATION_SIZE, RETURN_VALUES_DICT
+
+PAYLOAD_TEXT = 0
+PAYLOAD_VARIABLES = 1
+PAYLOAD_THREAD_SUSPEND = 2
+PAYLOAD_VARIABLES_RANGE = 3
+
+VAR_FLAG_CONTAINER = 1
+VAR_FLAG_RETURN_VALUE = 2
+VAR_FLAG_IPYTHON_HIDDEN = 4
+VAR_FLAG_ERROR_ON_EVAL = 8
+
+_int_struct = struct.Struct('>i')
+_frame_header_struct = struct.Struct('>iiib')
+
+if IS_PY3K:
+
+    def _to_bytes(s):
+        if s is None:
+            return b''
+        if s.__class__ != str:
+            s = str(s)
+        return s.encode('utf-8', 'replace')
+
+else:
+
+    def _to_bytes(s):
+        if s is None:
+            return ''
+        if s.__class__ == unicode:  # @UndefinedVariable
+            return s.encode('utf-8', 'replace')
+        if s.__class__ != str:
+            s = str(s)
+        return s
+
+
+class BinaryPayload(object):
+    '''
+    The payload of a NetCommand which is sent in binary (only valid in the BINARY_PROTOCOL).
+    '''
+
+    __slots__ = ['kind', 'data']
+
+    def __init__(self, kind, data):
+        self.kind = kind
+        self.data = data
+
+    def __str__(self):
+        return '<binary payload kind: %s len: %s>' % (self.kind, len(self.data))
+
+
+def make_binary_frame(cmd_id, seq, text):
+    '''
+    :param text: a BinaryPayload or the text of the message (sent as PAYLOAD_TEXT).
+    :return bytes: the message to be sent in the BINARY_PROTOCOL.
+    '''
+    if text.__class__ == BinaryPayload:
+        kind = text.kind
+        data = text.data
+    else:
+        kind = PAYLOAD_TEXT
+        data = _to_bytes(text)
+    # The length includes the cmd id, seq and kind (4 + 4 + 1).
+    return _frame_header_struct.pack(len(data) + 9, int(cmd_id), int(seq), kind) + data
+
+
+class _BinaryWriter(object):
+
+    def __init__(self):
+        self._chunks = []
+
+    def write_str(self, s):
+        b = _to_bytes(s)
+        self._chunks.append(_int_struct.pack(len(b)))
+        self._chunks.append(b)
+
+    def write_int(self, i):
+        self._chunks.append(_int_struct.pack(i))
+
+    def write_byte(self, b):
+        self._chunks.append(struct.pack('>b', b))
+
+    def get_bytes(self):
+        return b''.join(self._chunks)
+
+
+class VariablesWriter(object):
+    '''
+    Creates the payload with the variables (the binary counterpart of pydevd_xml.var_to_xml).
+    '''
+
+    def __init__(self):
+        self._writer = _BinaryWriter()
+        self._count = 0
+
+    def add(self, val, name, evaluate_full_value=True, flags=0):
+        type_name, type_qualifier, is_exception_on_eval, resolver, value = pydevd_xml.get_variable_details(
+            val, evaluate_full_value)
+
+        if value and len(value) > MAXIMUM_VARIABLE_REPRESENTATION_SIZE:
+            # cannot be too big... communication may not handle it.
+            value = value[0:MAXIMUM_VARIABLE_REPRESENTATION_SIZE] + '...'
+
+        if is_exception_on_eval:
+            flags |= VAR_FLAG_ERROR_ON_EVAL
+        elif resolver is not None:
+            flags |= VAR_FLAG_CONTAINER
+
+        writer = self._writer
+        writer.write_str(name)
+        writer.write_str(type_name)
+        writer.write_str(type_qualifier)
+        writer.write_str(value)
+        writer.write_byte(flags)
+        self._count += 1
+
+    def get_payload(self, total=None):
+        '''
+        :param total: if given, a PAYLOAD_VARIABLES_RANGE is created with the given number of items in the container.
+        '''
+        data = _int_struct.pack(self._count) + self._writer.get_bytes()
+        if total is None:
+            return BinaryPayload(PAYLOAD_VARIABLES, data)
+        return BinaryPayload(PAYLOAD_VARIABLES_RANGE, _int_struct.pack(total) + data)
+
+
+def frame_vars_to_binary(frame_f_locals, hidden_ns=None):
+    '''
+    The binary counterpart of pydevd_xml.frame_vars_to_xml.
+    '''
+    keys = sorted(dict_keys(frame_f_locals))
+
+    return_values = []
+    variables = []
+    for k in keys:
+        try:
+            v = frame_f_locals[k]
+
+            if k == RETURN_VALUES_DICT:
+                for name, val in dict_iter_items(v):
+                    return_values.append((val, name, True, VAR_FLAG_RETURN_VALUE))
+
+            else:
+                flags = 0
+                if hidden_ns is not None and k in hidden_ns:
+                    flags = VAR_FLAG_IPYTHON_HIDDEN
+                variables.append((v, str(k), pydevd_xml.should_evaluate_full_value(v), flags))
+        except Exception:
+            pydev_log.exception("Unexpected error, recovered safely.")
+
+    writer = VariablesWriter()
+    # Show return values as the first entry.
+    for val, name, evaluate_full_value, flags in return_values + variables:
+        try:
+            writer.add(val, name, evaluate_full_value, flags)
+        except Exception:
+            pydev_log.exception("Unexpected error, recovered safely.")
+    return writer.get_payload()
+
+
+def thread_suspend_to_binary(thread_id, stop_reason, message, suspend_type, frames_info):
+    '''
+    :param frames_info: an iterator with the frames (as returned by
+        NetCommandFactory._iter_visible_frames_info).
+    '''
+    writer = _BinaryWriter()
+    writer.write_str(thread_id)
+    writer.write_str(stop_reason)
+    writer.write_str(message)
+    writer.write_str(suspend_type)
+
+    frames_writer = _BinaryWriter()
+    count = 0
+    try:
+        for frame_id, _frame, method_name, _original_filename, filename_in_utf8, lineno in frames_info:
+            frames_writer.write_str(frame_id)
+            frames_writer.write_str(method_name)
+            frames_writer.write_str(filename_in_utf8)
+            frames_writer.write_int(lineno)
+            count += 1
+    except:
+        pydev_log.exception()
+
+    writer.write_int(count)
+    return BinaryPayload(PAYLOAD_THREAD_SUSPEND, writer.get_bytes() + frames_writer.get_bytes())
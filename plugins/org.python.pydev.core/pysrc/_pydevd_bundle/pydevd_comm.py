@@ -82,7 +82,7 @@ from _pydevd_bundle._debug_adapter.pydevd_schema import VariablesResponseBody, \
 from _pydevd_bundle._debug_adapter import pydevd_base_schema, pydevd_schema
 from _pydevd_bundle.pydevd_net_command import NetCommand
 from _pydevd_bundle.pydevd_xml import ExceptionOnEvaluate
-from _pydevd_bundle.pydevd_constants import ForkSafeLock
+from _pydevd_bundle.pydevd_constants import ForkSafeLock, get_protocol, BINARY_PROTOCOL
 try:
     from urllib import quote_plus, unquote_plus
 except:
@@ -92,6 +92,7 @@ import pydevconsole
 from _pydevd_bundle import pydevd_vars, pydevd_utils
 import pydevd_tracing
 from _pydevd_bundle import pydevd_xml
+from _pydevd_bundle import pydevd_binary_payload
 from _pydevd_bundle import pydevd_vm_type
 import sys
 import traceback
@@ -730,20 +731,29 @@ def internal_get_variable_json(py_db, request):
 class InternalGetVariable(InternalThreadCommand):
     ''' gets the value of a variable '''
 
-    def __init__(self, seq, thread_id, frame_id, scope, attrs):
+    def __init__(self, seq, thread_id, frame_id, scope, attrs, offset=None, count=None):
+        '''
+        :param offset: if given, only the items of the container in the range [offset, offset + count)
+            are sent (as a response to CMD_GET_VARIABLE_RANGE).
+        '''
         self.sequence = seq
         self.thread_id = thread_id
         self.frame_id = frame_id
         self.scope = scope
         self.attributes = attrs
+        self.offset = offset
+        self.count = count
 
     def do_it(self, dbg):
         ''' Converts request into python variable '''
         try:
-            xml = StringIO.StringIO()
-            xml.write("<xml>")
-            _typeName, val_dict = pydevd_vars.resolve_compound_variable_fields(
-                dbg, self.thread_id, self.frame_id, self.scope, self.attributes)
+            total = None
+            if self.offset is None:
+                _typeName, val_dict = pydevd_vars.resolve_compound_variable_fields(
+                    dbg, self.thread_id, self.frame_id, self.scope, self.attributes)
+            else:
+                _typeName, total, val_dict = pydevd_vars.resolve_compound_variable_fields_range(
+                    dbg, self.thread_id, self.frame_id, self.scope, self.attributes, self.offset, self.count)
             if val_dict is None:
                 val_dict = {}
 
@@ -753,14 +763,32 @@ class InternalGetVariable(InternalThreadCommand):
             if not (_typeName == "OrderedDict" or val_dict.__class__.__name__ == "OrderedDict" or IS_PY36_OR_GREATER):
                 keys.sort(key=compare_object_attrs_key)
 
-            for k in keys:
-                val = val_dict[k]
-                evaluate_full_value = pydevd_xml.should_evaluate_full_value(val)
-                xml.write(pydevd_xml.var_to_xml(val, k, evaluate_full_value=evaluate_full_value))
+            if get_protocol() == BINARY_PROTOCOL:
+                writer = pydevd_binary_payload.VariablesWriter()
+                for k in keys:
+                    val = val_dict[k]
+                    writer.add(val, k, evaluate_full_value=pydevd_xml.should_evaluate_full_value(val))
+                payload = writer.get_payload(total)
 
-            xml.write("</xml>")
-            cmd = dbg.cmd_factory.make_get_variable_message(self.sequence, xml.getvalue())
-            xml.close()
+            else:
+                xml = StringIO.StringIO()
+                if total is None:
+                    xml.write("<xml>")
+                else:
+                    xml.write('<xml total="%s">' % (total,))
+                for k in keys:
+                    val = val_dict[k]
+                    evaluate_full_value = pydevd_xml.should_evaluate_full_value(val)
+                    xml.write(pydevd_xml.var_to_xml(val, k, evaluate_full_value=evaluate_full_value))
+
+                xml.write("</xml>")
+                payload = xml.getvalue()
+                xml.close()
+
+            if total is None:
+                cmd = dbg.cmd_factory.make_get_variable_message(self.sequence, payload)
+            else:
+                cmd = dbg.cmd_factory.make_get_variable_range_message(self.sequence, payload)
             dbg.writer.add_command(cmd)
         except Exception:
             cmd = dbg.cmd_factory.make_error_message(
@@ -876,11 +904,14 @@ def internal_get_frame(dbg, seq, thread_id, frame_id):
         frame = dbg.find_frame(thread_id, frame_id)
         if frame is not None:
             hidden_ns = pydevconsole.get_ipython_hidden_vars()
-            xml = "<xml>"
-            xml += pydevd_xml.frame_vars_to_xml(frame.f_locals, hidden_ns)
+            if get_protocol() == BINARY_PROTOCOL:
+                payload = pydevd_binary_payload.frame_vars_to_binary(frame.f_locals, hidden_ns)
+            else:
+                payload = "<xml>"
+                payload += pydevd_xml.frame_vars_to_xml(frame.f_locals, hidden_ns)
+                payload += "</xml>"
             del frame
-            xml += "</xml>"
-            cmd = dbg.cmd_factory.make_get_frame_message(seq, xml)
+            cmd = dbg.cmd_factory.make_get_frame_message(seq, payload)
             dbg.writer.add_command(cmd)
         else:
             # pydevd_vars.dump_frames(thread_id)
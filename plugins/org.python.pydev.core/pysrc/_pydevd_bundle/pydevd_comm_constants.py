@@ -89,6 +89,10 @@ CMD_AUTHENTICATE = 205
 
 CMD_STEP_INTO_COROUTINE = 206
 
+# Same as CMD_GET_VARIABLE but only gets the items of the container in a given range
+# (the response has the total number of items in the container).
+CMD_GET_VARIABLE_RANGE = 207
+
 CMD_VERSION = 501
 CMD_RETURN = 502
 CMD_SET_PROTOCOL = 503
@@ -179,6 +183,8 @@ ID_TO_MEANING = {
 
     '206': 'CMD_STEP_INTO_COROUTINE',
 
+    '207': 'CMD_GET_VARIABLE_RANGE',
+
     '501': 'CMD_VERSION',
     '502': 'CMD_RETURN',
     '503': 'CMD_SET_PROTOCOL',
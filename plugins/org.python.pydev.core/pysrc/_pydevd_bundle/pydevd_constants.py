@@ -605,12 +605,20 @@ HTTP_JSON_PROTOCOL = 'http_json'
 ARGUMENT_HTTP_JSON_PROTOCOL = 'json-dap-http'
 
 
+# Each message is prefixed by its length (4 bytes, big endian) followed by the command id and the sequence
+# (4 bytes each) and the kind of the payload (1 byte).
+# payload is the same text of the http protocol (xml) or binary for the variables and suspended stacks
+# (see: pydevd_binary_payload).
+# Only set through CMD_SET_PROTOCOL (if the client doesn't support it, it must keep the http protocol).
+BINARY_PROTOCOL = 'binary'
+
+
 class _GlobalSettings:
     protocol = QUOTED_LINE_PROTOCOL
 
 
 def set_protocol(protocol):
-    expected = (HTTP_PROTOCOL, QUOTED_LINE_PROTOCOL, JSON_PROTOCOL, HTTP_JSON_PROTOCOL)
+    expected = (HTTP_PROTOCOL, QUOTED_LINE_PROTOCOL, JSON_PROTOCOL, HTTP_JSON_PROTOCOL, BINARY_PROTOCOL)
     assert protocol in expected, 'Protocol (%s) should be one of: %s' % (
         protocol, expected)
 
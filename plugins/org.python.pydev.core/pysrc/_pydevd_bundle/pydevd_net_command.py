@@ -2,8 +2,9 @@ from _pydevd_bundle.pydevd_constants import DebugInfoHolder, IS_PY2, \
     get_global_debugger, GetGlobalDebugger, set_global_debugger  # Keep for backward compatibility @UnusedImport
 from _pydevd_bundle.pydevd_utils import quote_smart as quote, to_string
 from _pydevd_bundle.pydevd_comm_constants import ID_TO_MEANING, CMD_EXIT
-from _pydevd_bundle.pydevd_constants import HTTP_PROTOCOL, HTTP_JSON_PROTOCOL, \
+from _pydevd_bundle.pydevd_constants import HTTP_PROTOCOL, HTTP_JSON_PROTOCOL, BINARY_PROTOCOL, \
     get_protocol, IS_JYTHON, ForkSafeLock
+from _pydevd_bundle.pydevd_binary_payload import make_binary_frame
 import json
 from _pydev_bundle import pydev_log
 
@@ -54,6 +55,9 @@ class NetCommand(_BaseNetCommand):
         to a command from the client).
         """
         protocol = get_protocol()
+        # The protocol may be changed while the command is waiting to be sent, so, keep the one used to
+        # create it.
+        self._protocol = protocol
         self.id = cmd_id
         if seq == 0:
             NetCommand.next_seq += 2
@@ -61,6 +65,13 @@ class NetCommand(_BaseNetCommand):
 
         self.seq = seq
 
+        if protocol == BINARY_PROTOCOL and not is_json:
+            # Note: text may be a BinaryPayload.
+            if DebugInfoHolder.DEBUG_TRACE_LEVEL >= 1:
+                self._show_debug_info(cmd_id, seq, str(text))
+            self._as_bytes = make_binary_frame(cmd_id, seq, text)
+            return
+
         if is_json:
             if hasattr(text, 'to_dict'):
                 as_dict = text.to_dict(update_ids_to_dap=True)
@@ -107,7 +118,7 @@ class NetCommand(_BaseNetCommand):
     def send(self, sock):
         as_bytes = self._as_bytes
         try:
-            if get_protocol() in (HTTP_PROTOCOL, HTTP_JSON_PROTOCOL):
+            if self._protocol in (HTTP_PROTOCOL, HTTP_JSON_PROTOCOL):
                 sock.sendall(('Content-Length: %s\r\n\r\n' % len(as_bytes)).encode('ascii'))
             sock.sendall(as_bytes)
         except:
@@ -0,0 +1,26 @@
+from _pydevd_bundle import pydevd_binary_payload
+from _pydevd_bundle.pydevd_comm_constants import CMD_THREAD_SUSPEND
+from _pydevd_bundle.pydevd_net_command import NetCommand
+from _pydevd_bundle.pydevd_net_command_factory_xml import NetCommandFactory
+from _pydevd_bundle.pydevd_frame_utils import FramesList
+from pydevd_tracing import get_exception_traceback_str
+
+
+#=======================================================================================================================
+# NetCommandFactoryBinary
+#=======================================================================================================================
+class NetCommandFactoryBinary(NetCommandFactory):
+    '''
+    Factory used in the BINARY_PROTOCOL: the stack of a suspended thread is sent as a binary payload (the
+    variables are also sent in binary -- see: internal_get_frame and InternalGetVariable) and all the other
+    messages are the same ones from the xml factory.
+    '''
+
+    def make_thread_suspend_message(self, py_db, thread_id, frames_list, stop_reason, message, suspend_type):
+        try:
+            assert frames_list.__class__ == FramesList
+            payload = pydevd_binary_payload.thread_suspend_to_binary(
+                thread_id, stop_reason, message, suspend_type, self._iter_visible_frames_info(py_db, frames_list))
+            return NetCommand(CMD_THREAD_SUSPEND, 0, payload)
+        except:
+            return self.make_error_message(0, get_exception_traceback_str())
@@ -187,6 +187,18 @@ class _PyDevCommandProcessor(object):
 
         self.api.request_get_variable(py_db, seq, thread_id, frame_id, scope, attrs)
 
+    def cmd_get_variable_range(self, py_db, cmd_id, seq, text):
+        # we received some command to get the items of a container in a given range
+        # the text is: offset\tcount\tthread_id\tframe_id\tFRAME|GLOBAL\tattributes*
+        offset, count, thread_id, frame_id, scopeattrs = text.split('\t', 4)
+
+        if scopeattrs.find('\t') != -1:  # there are attributes beyond scope
+            scope, attrs = scopeattrs.split('\t', 1)
+        else:
+            scope, attrs = (scopeattrs, None)
+
+        self.api.request_get_variable_range(py_db, seq, offset, count, thread_id, frame_id, scope, attrs)
+
     def cmd_get_array(self, py_db, cmd_id, seq, text):
         # Note: untested and unused in pydev
         # we received some command to get an array variable
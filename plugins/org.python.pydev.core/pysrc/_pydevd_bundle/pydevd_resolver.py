@@ -7,6 +7,7 @@ import traceback
 from os.path import basename
 
 from functools import partial
+from itertools import islice
 from _pydevd_bundle.pydevd_constants import dict_iter_items, dict_keys, xrange
 from _pydevd_bundle.pydevd_safe_repr import SafeRepr
 
@@ -322,6 +323,23 @@ class DictResolver:
         ret.update(additional_fields)
         return ret
 
+    def get_dictionary_range(self, dict, offset, count):
+        '''
+        :return tuple(int, dict): the number of items in the dict and the items in the range [offset, offset + count)
+            (the additional fields are only added to the first range).
+        '''
+        ret = self.init_dict()
+
+        for key, val in islice(dict_iter_items(dict), offset, offset + count):
+            # we need to add the id because otherwise we cannot find the real object to get its contents later on.
+            key = '%s (%s)' % (self.key_to_str(key), id(key))
+            ret[key] = val
+
+        if offset == 0:
+            ret['__len__'] = len(dict)
+            ret.update(defaultResolver.get_dictionary(dict))
+        return len(dict), ret
+
 
 def _apply_evaluate_name(parent_name, evaluate_name):
     return evaluate_name % (parent_name,)
@@ -396,6 +414,23 @@ class TupleResolver:  # to enumerate tuples and lists
         d.update(additional_fields)
         return d
 
+    def get_dictionary_range(self, var, offset, count):
+        '''
+        :return tuple(int, dict): the number of items in the sequence and the items in the range [offset, offset + count)
+            (the additional fields are only added to the first range).
+        '''
+        l = len(var)
+        d = {}
+
+        format_str = '%0' + str(int(len(str(l - 1)))) + 'd'
+        for i, item in islice(enumerate(var), offset, offset + count):
+            d[format_str % i] = item
+
+        if offset == 0:
+            d['__len__'] = l
+            d.update(defaultResolver.get_dictionary(var))
+        return l, d
+
 
 #=======================================================================================================================
 # SetResolver
@@ -452,6 +487,20 @@ class SetResolver:
         d.update(additional_fields)
         return d
 
+    def get_dictionary_range(self, var, offset, count):
+        '''
+        :return tuple(int, dict): the number of items in the set and the items in the range [offset, offset + count)
+            (the additional fields are only added to the first range).
+        '''
+        d = {}
+        for item in islice(var, offset, offset + count):
+            d[str(id(item))] = item
+
+        if offset == 0:
+            d['__len__'] = len(var)
+            d.update(defaultResolver.get_dictionary(var))
+        return len(var), d
+
     def change_var_from_name(self, container, name, new_value):
         # The name given in this case must be the id(item), so, we can actually
         # iterate in the set and see which item matches the given id.
@@ -573,6 +622,12 @@ class DequeResolver(TupleResolver):
         d['maxlen'] = getattr(var, 'maxlen', None)
         return d
 
+    def get_dictionary_range(self, var, offset, count):
+        l, d = TupleResolver.get_dictionary_range(self, var, offset, count)
+        if offset == 0:
+            d['maxlen'] = getattr(var, 'maxlen', None)
+        return l, d
+
 
 #=======================================================================================================================
 # OrderedDictResolver
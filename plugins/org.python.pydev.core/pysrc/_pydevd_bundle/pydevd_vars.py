@@ -143,6 +143,33 @@ def resolve_compound_variable_fields(dbg, thread_id, frame_id, scope, attrs):
             thread_id, frame_id, scope, attrs)
 
 
+def resolve_compound_variable_fields_range(dbg, thread_id, frame_id, scope, attrs, offset, count):
+    """
+    Same as resolve_compound_variable_fields but only gets the items of the container in the range
+    [offset, offset + count).
+
+    :return: the type name, the number of items in the container and a dictionary with the fields.
+        Note: if the resolver of the variable can't get its items in a range, all its fields are returned
+        in the first range and the number of items is 0.
+    """
+
+    var = getVariable(dbg, thread_id, frame_id, scope, attrs)
+
+    try:
+        _type, _typeName, resolver = get_type(var)
+        get_dictionary_range = getattr(resolver, 'get_dictionary_range', None)
+        if get_dictionary_range is not None:
+            total, val_dict = get_dictionary_range(var, offset, count)
+            return _typeName, total, val_dict
+
+        if offset == 0:
+            return _typeName, 0, resolver.get_dictionary(var)
+        return _typeName, 0, {}
+    except:
+        pydev_log.exception('Error evaluating: thread_id: %s\nframe_id: %s\nscope: %s\nattrs: %s.',
+            thread_id, frame_id, scope, attrs)
+
+
 def resolve_var_object(var, attrs):
     """
     Resolve variable's attribute
@@ -87,6 +87,8 @@ MSG_JYTHON_INVALID_REQUEST = '@@JYTHON_INVALID_REQUEST'
 MSG_CHANGE_DIR = '@@CHANGE_DIR:'
 MSG_OK = '@@MSG_OK_END@@'
 MSG_IMPORTS = '@@IMPORTS:'
+MSG_IMPORTS_BATCH = '@@IMPORTS_BATCH:'
+MSG_IMPORTS_BATCH_END = '@@IMPORTS_BATCH_END@@'
 MSG_PYTHONPATH = '@@PYTHONPATH_END@@'
 MSG_CHANGE_PYTHONPATH = '@@CHANGE_PYTHONPATH:'
 MSG_JEDI = '@@MSG_JEDI:'
@@ -281,7 +283,26 @@ class CompletionServer:
                         else:
                             data = data[:data.rfind(MSG_END)]
 
-                            if data.startswith(MSG_IMPORTS):
+                            if data.startswith(MSG_IMPORTS_BATCH):
+                                # Many modules in a single request: the completions of each module are sent as
+                                # soon as they're available (in the same order) and then the end of the batch.
+                                data = data[len(MSG_IMPORTS_BATCH):]
+                                data = unquote_plus(data)
+                                for name in data.split('|'):
+                                    try:
+                                        defFile, comps = _pydev_imports_tipper.generate_tip(name, log)
+                                        msg = self.get_completions_message(defFile, comps)
+                                    except Exit:
+                                        raise
+                                    except:
+                                        s = StringIO.StringIO()
+                                        traceback.print_exc(file=s)
+                                        msg = self.get_completions_message(None, [('ERROR:', '%s\nLog:%s' % (s.getvalue(), log.get_contents()), '')])
+                                    log.clear_log()
+                                    self.send(msg)
+                                self.send(MSG_IMPORTS_BATCH_END)
+
+                            elif data.startswith(MSG_IMPORTS):
                                 data = data[len(MSG_IMPORTS):]
                                 data = unquote_plus(data)
                                 defFile, comps = _pydev_imports_tipper.generate_tip(data, log)
@@ -0,0 +1,191 @@
+'''
+Long-lived helper used by PyDev to run PyLint and Mypy without paying the interpreter startup and
+the import of the analyzer for each analyzed file.
+
+The requests are read from stdin and the responses are written to stdout (the process exits when
+stdin is closed).
+
+Request (utf-8 lines):
+    tool (pylint or mypy)
+    working dir
+    number of arguments
+    one line for each argument
+
+Response:
+    "<status> <stdout length> <stderr length>\n" followed by the stdout and stderr (utf-8 bytes), where
+    the status is 0 if the analyzer was run, 1 if the analyzer could not be imported and 2 on any
+    other error.
+'''
+import os
+import sys
+import traceback
+
+STATUS_OK = 0
+STATUS_UNAVAILABLE = 1
+STATUS_ERROR = 2
+
+IS_PY2 = sys.version_info[0] == 2
+
+if IS_PY2:
+    from StringIO import StringIO
+    stdin = sys.stdin
+    stdout = sys.stdout
+else:
+    from io import StringIO
+    stdin = sys.stdin.buffer
+    stdout = sys.stdout.buffer
+
+
+def _read_line():
+    line = stdin.readline()
+    if not line:
+        raise EOFError()
+    return line.decode('utf-8').rstrip('\r\n')
+
+
+def _to_bytes(s):
+    if isinstance(s, bytes):
+        return s
+    return s.encode('utf-8', 'replace')
+
+
+def _write_response(status, out, err):
+    out = _to_bytes(out)
+    err = _to_bytes(err)
+    stdout.write(_to_bytes('%s %s %s\n' % (status, len(out), len(err))))
+    stdout.write(out)
+    stdout.write(err)
+    stdout.flush()
+
+
+def _capture_output(func, *args):
+    original_stdout, original_stderr = sys.stdout, sys.stderr
+    sys.stdout, sys.stderr = StringIO(), StringIO()
+    try:
+        try:
+            func(*args)
+        except SystemExit:
+            pass
+        return sys.stdout.getvalue(), sys.stderr.getvalue()
+    finally:
+        sys.stdout, sys.stderr = original_stdout, original_stderr
+
+
+def _get_stamp(filename):
+    try:
+        stat = os.stat(filename)
+    except OSError:
+        return None
+    return stat.st_mtime, stat.st_size
+
+
+def _normalize(filename):
+    return os.path.normcase(os.path.abspath(filename))
+
+
+class _PyLintRunner(object):
+
+    def __init__(self):
+        from pylint import lint
+        self._lint = lint
+        # The stamp (mtime and size) of each module in the astroid cache when it was last seen.
+        self._stamps = {}
+
+    def _get_manager(self):
+        try:
+            from astroid import MANAGER
+        except ImportError:
+            return None
+        return MANAGER
+
+    def _cached_modules(self, manager):
+        for modname, module in list(manager.astroid_cache.items()):
+            filename = getattr(module, 'file', None)
+            if filename:
+                yield modname, _normalize(filename)
+
+    def _record_stamps(self, manager):
+        self._stamps.clear()
+        for _modname, filename in self._cached_modules(manager):
+            self._stamps[filename] = _get_stamp(filename)
+
+    def _prepare_cache(self, manager, args):
+        # astroid keeps the modules it parsed: this is what makes the following analysis faster, but
+        # if any of those was changed in the meanwhile (or wasn't seen after a run), the cache must be
+        # cleared (the inference of the other modules may depend on it).
+        for _modname, filename in self._cached_modules(manager):
+            if filename not in self._stamps or self._stamps[filename] != _get_stamp(filename):
+                manager.clear_cache()
+                self._record_stamps(manager)
+                break
+
+        # The modules being analyzed are always parsed again (a change may not be noticed in the stamp
+        # if it's done in the same mtime resolution without changing the size).
+        analyzed = set(_normalize(arg) for arg in args if not arg.startswith('-') and os.path.isfile(arg))
+        if analyzed:
+            for modname, filename in list(self._cached_modules(manager)):
+                if filename in analyzed:
+                    manager.astroid_cache.pop(modname, None)
+                    self._stamps.pop(filename, None)
+
+    def __call__(self, args):
+        manager = self._get_manager()
+        if manager is not None:
+            self._prepare_cache(manager, args)
+        try:
+            return _capture_output(self._lint.Run, args, None, False)
+        finally:
+            if manager is not None:
+                # Recorded right after the run (so, a change done before the next run is noticed).
+                self._record_stamps(manager)
+
+
+class _MypyRunner(object):
+
+    def __init__(self):
+        from mypy import api
+        self._api = api
+
+    def __call__(self, args):
+        out, err, _status = self._api.run(args)
+        return out, err
+
+
+_RUNNER_CLASSES = {
+    'pylint': _PyLintRunner,
+    'mypy': _MypyRunner,
+}
+
+
+def main():
+    runners = {}
+    while True:
+        try:
+            tool = _read_line()
+            cwd = _read_line()
+            args = [_read_line() for _i in range(int(_read_line()))]
+        except EOFError:
+            return
+
+        runner = runners.get(tool)
+        if runner is None:
+            try:
+                runner = runners[tool] = _RUNNER_CLASSES[tool]()
+            except ImportError:
+                _write_response(STATUS_UNAVAILABLE, '', traceback.format_exc())
+                continue
+            except:
+                _write_response(STATUS_ERROR, '', traceback.format_exc())
+                continue
+
+        try:
+            os.chdir(cwd)
+            out, err = runner(args)
+        except:
+            _write_response(STATUS_ERROR, '', traceback.format_exc())
+        else:
+            _write_response(STATUS_OK, out, err)
+
+
+if __name__ == '__main__':
+    main()
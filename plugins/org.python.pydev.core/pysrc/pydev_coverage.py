@@ -1,6 +1,7 @@
 '''
 Entry point module to run code-coverage.
 '''
+import sys
 
 
 def is_valid_py_file(path):
@@ -21,13 +22,61 @@ def is_valid_py_file(path):
     return is_valid
 
 
+def _write_line(line):
+    if sys.version_info[0] >= 3:
+        sys.stdout.buffer.write(line.encode(sys.stdout.encoding or 'utf-8', 'replace'))
+    else:
+        sys.stdout.write(line)
+    sys.stdout.flush()
+
+
+def write_stream_result(filename, statements, missing):
+    '''
+    Writes the coverage of a file as: F|<statements>|<missed statements>|<missed lines>|<filename>
+    '''
+    _write_line('F|%s|%s|%s|%s\n' % (
+        len(statements), len(missing), ','.join(str(x) for x in sorted(missing)), filename))
+
+
+def write_stream_error(filename, msg):
+    '''
+    Writes an error for a file as: E|||<message>|<filename>
+    '''
+    msg = str(msg).replace('|', ' ').replace('\r', ' ').replace('\n', ' ')
+    _write_line('E|||%s|%s\n' % (msg, filename))
+
+
+def analyze_stream(coverage, files):
+    '''
+    Writes the coverage of each file as soon as it's computed (so that the client can show the results of the
+    first files without waiting for all the files to be analyzed).
+    '''
+    cov = coverage.Coverage()
+    cov.load()
+    for filename in files:
+        try:
+            _filename, statements, _excluded, missing, _formatted = cov.analysis2(filename)
+        except Exception as e:
+            write_stream_error(filename, e)
+        else:
+            write_stream_result(filename, statements, missing)
+
+
 def execute():
     import os
     import sys
 
     files = None
+    stream = False
     if 'combine' not in sys.argv:
 
+        if '--pydev-analyze-stream' in sys.argv:
+            # Same as --pydev-analyze, but the results are written to stdout (one line per file, in the
+            # order the files are received) instead of being written to coverage.xml at the end.
+            sys.argv.remove('--pydev-analyze-stream')
+            sys.argv.append('--pydev-analyze')
+            stream = True
+
         if '--pydev-analyze' in sys.argv:
 
             #Ok, what we want here is having the files passed through stdin (because
@@ -45,10 +94,14 @@ def execute():
             files = []
             invalid_files = []
             for v in s.split('|'):
+                if not v:
+                    continue
                 if is_valid_py_file(v):
                     files.append(v)
                 else:
                     invalid_files.append(v)
+                    if stream:
+                        write_stream_error(v, 'Not a valid python file.')
             if invalid_files:
                 sys.stderr.write('Invalid files not passed to coverage: %s\n'
                                  % ', '.join(invalid_files))
@@ -84,6 +137,10 @@ def execute():
         sys.stderr.write('Warning: Could not determine version of python module coverage.'
                          '\nEnsure coverage version is >= 4.3\n')
 
+    if stream:
+        analyze_stream(coverage, files)
+        return
+
     from coverage.cmdline import main #@UnresolvedImport
 
     if files is not None:
@@ -167,6 +167,37 @@ class TestCPython(unittest.TestCase):
             except:
                 pass
 
+    def test_imports_batch(self):
+        t, socket = self.create_connections()
+        self.socket = socket
+
+        try:
+            msg = quote_plus('math|%s.list|os.path' % BUILTIN_MOD)
+            send(socket, '@@IMPORTS_BATCH:%s\nEND@@' % msg)
+
+            received = ''
+            while '@@IMPORTS_BATCH_END@@' not in received:
+                m = self.socket.recv(1024 * 4)
+                if IS_PYTHON_3_ONWARDS:
+                    m = m.decode('utf-8')
+                received += m
+
+            messages = received[:received.index('@@IMPORTS_BATCH_END@@')].split('END@@')
+            self.assertEqual('', messages[-1])
+            messages = messages[:-1]
+            self.assertEqual(3, len(messages))
+            for m in messages:
+                self.assertTrue(m.startswith('@@COMPLETIONS('), m)
+            self.assertTrue('(sqrt,' in messages[0])
+            self.assertTrue('(sort,' in messages[1])
+            self.assertTrue('(join,' in messages[2])
+        finally:
+            try:
+                self.send_kill_msg(socket)
+                socket.close()
+            except:
+                pass
+
     def send_kill_msg(self, socket):
         socket.send(pycompletionserver.MSG_KILL_SERVER)
 
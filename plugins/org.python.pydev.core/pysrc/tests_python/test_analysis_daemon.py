@@ -0,0 +1,222 @@
+# coding: utf-8
+import io
+import os
+import subprocess
+import sys
+
+import pydev_analysis_daemon
+from pydev_analysis_daemon import STATUS_OK, STATUS_UNAVAILABLE, STATUS_ERROR
+
+
+def _make_request(tool, cwd, args):
+    lines = [tool, cwd, str(len(args))] + list(args)
+    return ''.join(line + '\n' for line in lines).encode('utf-8')
+
+
+def _read_responses(data):
+    stream = io.BytesIO(data)
+    ret = []
+    while True:
+        header = stream.readline()
+        if not header:
+            return ret
+        status, out_len, err_len = [int(x) for x in header.decode('utf-8').split()]
+        out = stream.read(out_len).decode('utf-8')
+        err = stream.read(err_len).decode('utf-8')
+        ret.append((status, out, err))
+
+
+def _run_daemon(monkeypatch, requests):
+    stdout = io.BytesIO()
+    monkeypatch.setattr(pydev_analysis_daemon, 'stdin', io.BytesIO(b''.join(requests)))
+    monkeypatch.setattr(pydev_analysis_daemon, 'stdout', stdout)
+    pydev_analysis_daemon.main()
+    return _read_responses(stdout.getvalue())
+
+
+def test_analysis_daemon_reuses_runner(monkeypatch, tmpdir):
+    created = []
+
+    class _FakeRunner(object):
+
+        def __init__(self):
+            created.append(self)
+            self.calls = 0
+
+        def __call__(self, args):
+            self.calls += 1
+            return u'call %s: %s (%s) á' % (self.calls, ' '.join(args), os.path.basename(os.getcwd())), u'err'
+
+    monkeypatch.setitem(pydev_analysis_daemon._RUNNER_CLASSES, 'fake', _FakeRunner)
+    cwd = str(tmpdir)
+    initial_cwd = os.getcwd()
+    try:
+        responses = _run_daemon(monkeypatch, [
+            _make_request('fake', cwd, ['a.py', '--opt=1']),
+            _make_request('fake', cwd, ['b.py']),
+        ])
+    finally:
+        os.chdir(initial_cwd)
+
+    name = os.path.basename(cwd)
+    assert responses == [
+        (STATUS_OK, u'call 1: a.py --opt=1 (%s) á' % (name,), u'err'),
+        (STATUS_OK, u'call 2: b.py (%s) á' % (name,), u'err'),
+    ]
+    assert len(created) == 1
+
+
+def test_analysis_daemon_errors(monkeypatch, tmpdir):
+
+    class _UnavailableRunner(object):
+
+        def __init__(self):
+            raise ImportError('analyzer not installed')
+
+    class _FailingRunner(object):
+
+        def __call__(self, args):
+            raise RuntimeError('analysis failed')
+
+    monkeypatch.setitem(pydev_analysis_daemon._RUNNER_CLASSES, 'unavailable', _UnavailableRunner)
+    monkeypatch.setitem(pydev_analysis_daemon._RUNNER_CLASSES, 'failing', _FailingRunner)
+    cwd = str(tmpdir)
+    initial_cwd = os.getcwd()
+    try:
+        responses = _run_daemon(monkeypatch, [
+            _make_request('unavailable', cwd, []),
+            _make_request('failing', cwd, ['a.py']),
+            _make_request('unknown', cwd, []),
+        ])
+    finally:
+        os.chdir(initial_cwd)
+
+    assert [r[0] for r in responses] == [STATUS_UNAVAILABLE, STATUS_ERROR, STATUS_ERROR]
+    assert 'analyzer not installed' in responses[0][2]
+    assert 'analysis failed' in responses[1][2]
+    assert 'KeyError' in responses[2][2]
+
+
+def test_analysis_daemon_process(tmpdir):
+    # The process keeps answering the requests until its stdin is closed.
+    process = subprocess.Popen(
+        [sys.executable, pydev_analysis_daemon.__file__.replace('.pyc', '.py')],
+        stdin=subprocess.PIPE, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+    out, _err = process.communicate(
+        _make_request('unknown', str(tmpdir), []) + _make_request('unknown2', str(tmpdir), ['a']))
+    assert process.returncode == 0
+    responses = _read_responses(out)
+    assert [r[0] for r in responses] == [STATUS_ERROR, STATUS_ERROR]
+    assert 'unknown2' in responses[1][2]
+
+
+def _install_fake_pylint(monkeypatch):
+    '''
+    Installs a fake pylint (which reports the lines of the analyzed files) using a fake astroid cache
+    (so, a file in the cache is not read again until the cache is cleared).
+    '''
+    import types
+
+    class _Module(object):
+
+        def __init__(self, filename, contents):
+            self.file = filename
+            self.contents = contents
+
+    class _Manager(object):
+
+        def __init__(self):
+            self.astroid_cache = {}
+            self.cleared = 0
+
+        def clear_cache(self):
+            self.astroid_cache.clear()
+            self.cleared += 1
+
+        def ast_from_file(self, filename):
+            modname = os.path.splitext(os.path.basename(filename))[0]
+            module = self.astroid_cache.get(modname)
+            if module is None:
+                with open(filename) as stream:
+                    module = self.astroid_cache[modname] = _Module(filename, stream.read())
+            return module
+
+    manager = _Manager()
+
+    def run(args, reporter, do_exit):
+        for arg in args:
+            if not arg.startswith('-'):
+                for line in manager.ast_from_file(arg).contents.splitlines():
+                    sys.stdout.write('%s: %s\n' % (os.path.basename(arg), line))
+        raise SystemExit(0)
+
+    astroid = types.ModuleType('astroid')
+    astroid.MANAGER = manager
+    lint = types.ModuleType('pylint.lint')
+    lint.Run = run
+    pylint = types.ModuleType('pylint')
+    pylint.lint = lint
+    monkeypatch.setitem(sys.modules, 'astroid', astroid)
+    monkeypatch.setitem(sys.modules, 'pylint', pylint)
+    monkeypatch.setitem(sys.modules, 'pylint.lint', lint)
+    return manager
+
+
+def test_analysis_daemon_pylint_cache(monkeypatch, tmpdir):
+    manager = _install_fake_pylint(monkeypatch)
+    runner = pydev_analysis_daemon._PyLintRunner()
+    mod1 = tmpdir.join('mod1.py')
+    mod2 = tmpdir.join('mod2.py')
+    mod1.write('msg1\n')
+    mod2.write('msg2\n')
+    os.utime(str(mod1), (1000, 1000))
+    initial_cwd = os.getcwd()
+    os.chdir(str(tmpdir))
+    try:
+        assert runner(['--opt=1', 'mod1.py'])[0] == 'mod1.py: msg1\n'
+        # The same mtime and size: the analyzed module is still parsed again.
+        mod1.write('msg3\n')
+        os.utime(str(mod1), (1000, 1000))
+        assert runner(['mod1.py'])[0] == 'mod1.py: msg3\n'
+        assert manager.cleared == 0
+
+        # A module which is not analyzed is kept in the cache while not changed.
+        assert runner(['mod2.py'])[0] == 'mod2.py: msg2\n'
+        assert runner(['mod1.py'])[0] == 'mod1.py: msg3\n'
+        assert 'mod2' in manager.astroid_cache
+        assert manager.cleared == 0
+
+        # A change in a module in the cache (done between the runs) clears the whole cache.
+        mod2.write('msg2\nmsg4\n')
+        assert runner(['mod1.py'])[0] == 'mod1.py: msg3\n'
+        assert manager.cleared == 1
+        assert 'mod2' not in manager.astroid_cache
+        assert runner(['mod2.py'])[0] == 'mod2.py: msg2\nmod2.py: msg4\n'
+
+        # Changes after a clear are still noticed.
+        mod2.write('msg5\n')
+        assert runner(['mod2.py'])[0] == 'mod2.py: msg5\n'
+    finally:
+        os.chdir(initial_cwd)
+
+
+def test_analysis_daemon_pylint(tmpdir):
+    import pytest
+    pytest.importorskip('pylint')
+    runner = pydev_analysis_daemon._PyLintRunner()
+    mod1 = tmpdir.join('mod1.py')
+    mod1.write('import os\n')
+    initial_cwd = os.getcwd()
+    os.chdir(str(tmpdir))
+    try:
+        args = ['--disable=all', '--enable=unused-import,undefined-variable', 'mod1.py']
+        out = runner(args)[0]
+        assert 'unused-import' in out or 'W0611' in out
+        assert 'undefined-variable' not in out and 'E0602' not in out
+
+        mod1.write('print(undefined_name)\n')
+        out = runner(args)[0]
+        assert 'unused-import' not in out and 'W0611' not in out
+        assert 'undefined-variable' in out or 'E0602' in out
+    finally:
+        os.chdir(initial_cwd)
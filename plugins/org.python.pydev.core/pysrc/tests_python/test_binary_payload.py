@@ -0,0 +1,119 @@
+# coding: utf-8
+import struct
+
+from _pydevd_bundle import pydevd_binary_payload
+from _pydevd_bundle.pydevd_binary_payload import (PAYLOAD_TEXT, PAYLOAD_VARIABLES, PAYLOAD_THREAD_SUSPEND,
+    PAYLOAD_VARIABLES_RANGE, VAR_FLAG_CONTAINER, VAR_FLAG_RETURN_VALUE, VAR_FLAG_IPYTHON_HIDDEN)
+from _pydevd_bundle.pydevd_constants import RETURN_VALUES_DICT
+
+
+class _Reader(object):
+
+    def __init__(self, data):
+        self.data = data
+        self.pos = 0
+
+    def read_int(self):
+        ret = struct.unpack('>i', self.data[self.pos:self.pos + 4])[0]
+        self.pos += 4
+        return ret
+
+    def read_byte(self):
+        ret = struct.unpack('>b', self.data[self.pos:self.pos + 1])[0]
+        self.pos += 1
+        return ret
+
+    def read_str(self):
+        size = self.read_int()
+        ret = self.data[self.pos:self.pos + size].decode('utf-8')
+        self.pos += size
+        return ret
+
+
+def _read_variables(payload):
+    assert payload.kind == PAYLOAD_VARIABLES
+    reader = _Reader(payload.data)
+    ret = []
+    for _i in range(reader.read_int()):
+        ret.append((reader.read_str(), reader.read_str(), reader.read_str(), reader.read_str(), reader.read_byte()))
+    assert reader.pos == len(payload.data)
+    return ret
+
+
+def test_frame_vars_to_binary():
+    payload = pydevd_binary_payload.frame_vars_to_binary({
+        'b': [1, 2],
+        'a': u'áé<>"',
+        RETURN_VALUES_DICT: {'ret': 10},
+        'hidden': 1,
+    }, hidden_ns={'hidden': 1})
+
+    variables = _read_variables(payload)
+    assert [v[0] for v in variables] == ['ret', 'a', 'b', 'hidden']
+
+    ret, a, b, hidden = variables
+    assert ret[1] == 'int'
+    assert ret[3] == 'int: 10'
+    assert ret[4] == VAR_FLAG_RETURN_VALUE
+
+    # No quoting/escaping is done.
+    assert a[3].endswith(u': áé<>"')
+    assert a[4] == 0
+
+    assert b[1] == 'list'
+    assert b[4] == VAR_FLAG_CONTAINER
+
+    assert hidden[4] == VAR_FLAG_IPYTHON_HIDDEN
+
+
+def test_variables_range_payload():
+    writer = pydevd_binary_payload.VariablesWriter()
+    writer.add(10, '000')
+    writer.add(20, '001')
+    payload = writer.get_payload(total=1000)
+    assert payload.kind == PAYLOAD_VARIABLES_RANGE
+
+    reader = _Reader(payload.data)
+    assert reader.read_int() == 1000
+    assert reader.read_int() == 2
+    assert (reader.read_str(), reader.read_str()) == ('000', 'int')
+
+
+def test_thread_suspend_to_binary():
+    frames_info = [
+        (10, None, 'method', '/orig/a.py', '/client/a.py', 22),
+        (11, None, '<module>', '/orig/b.py', u'/client/á.py', 1),
+    ]
+    payload = pydevd_binary_payload.thread_suspend_to_binary('pid_1_id_2', 111, None, 'trace', iter(frames_info))
+    assert payload.kind == PAYLOAD_THREAD_SUSPEND
+
+    reader = _Reader(payload.data)
+    assert reader.read_str() == 'pid_1_id_2'
+    assert reader.read_str() == '111'
+    assert reader.read_str() == ''
+    assert reader.read_str() == 'trace'
+    assert reader.read_int() == 2
+    assert (reader.read_str(), reader.read_str(), reader.read_str(), reader.read_int()) == (
+        '10', 'method', '/client/a.py', 22)
+    assert (reader.read_str(), reader.read_str(), reader.read_str(), reader.read_int()) == (
+        '11', '<module>', u'/client/á.py', 1)
+    assert reader.pos == len(payload.data)
+
+
+def test_make_binary_frame():
+    frame = pydevd_binary_payload.make_binary_frame(503, 4, 'text')
+    reader = _Reader(frame)
+    assert reader.read_int() == len(frame) - 4
+    assert reader.read_int() == 503
+    assert reader.read_int() == 4
+    assert reader.read_byte() == PAYLOAD_TEXT
+    assert frame[reader.pos:] == b'text'
+
+    payload = pydevd_binary_payload.frame_vars_to_binary({'a': 1})
+    frame = pydevd_binary_payload.make_binary_frame(114, 6, payload)
+    reader = _Reader(frame)
+    assert reader.read_int() == len(frame) - 4
+    assert reader.read_int() == 114
+    assert reader.read_int() == 6
+    assert reader.read_byte() == PAYLOAD_VARIABLES
+    assert frame[reader.pos:] == payload.data
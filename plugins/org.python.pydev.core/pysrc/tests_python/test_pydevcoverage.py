@@ -66,3 +66,24 @@ class Test(unittest.TestCase):
             invalid_files = self._do_analyze(ref_valid_files + ref_invalid_files)
 
             self.assertEqual(ref_invalid_files, invalid_files)
+
+    def test_pydev_analyze_stream(self):
+        valid_file = os.path.join(self._resources_path, "_debugger_case18.py")
+        invalid_file = os.path.join(self._resources_path, "_pydev_coverage_syntax_error.py")
+        cwd = tempfile.mkdtemp()
+
+        p = subprocess.Popen([sys.executable, self._coverage_file, "--pydev-analyze-stream"],
+                             stdout=subprocess.PIPE, stdin=subprocess.PIPE, stderr=subprocess.PIPE, cwd=cwd)
+        stdoutdata, __ = p.communicate("|".join([valid_file, invalid_file]).encode())
+
+        lines = stdoutdata.decode().splitlines()
+        self.assertEqual(2, len(lines), lines)
+        results = dict((line.split('|', 4)[4], line.split('|', 4)[:4]) for line in lines)
+        self.assertEqual('E', results[invalid_file][0])
+
+        kind, stmts, miss, missing = results[valid_file]
+        self.assertEqual('F', kind)
+        # No coverage data was collected: all the statements are missed.
+        self.assertTrue(int(stmts) > 0)
+        self.assertEqual(stmts, miss)
+        self.assertEqual(int(miss), len(missing.split(',')))
@@ -296,3 +296,36 @@ def test_tuple_resolver_mixed():
     check_len_entry(len_entry, ('__len__', 2))
     assert contents_debug_adapter_protocol == [
         ('some_value', 10, '.some_value'), ('0', 1, '[0]'), ('1', 2, '[1]'), ]
+
+
+def test_get_dictionary_range():
+    from _pydevd_bundle.pydevd_resolver import TupleResolver, DictResolver, SetResolver, DequeResolver
+    from collections import deque
+
+    lst = list(range(1000))
+    total, d = TupleResolver().get_dictionary_range(lst, 0, 3)
+    assert total == 1000
+    assert d == {'000': 0, '001': 1, '002': 2, '__len__': 1000}
+
+    # The additional fields are only in the first range.
+    total, d = TupleResolver().get_dictionary_range(lst, 998, 10)
+    assert total == 1000
+    assert d == {'998': 998, '999': 999}
+
+    total, d = DequeResolver().get_dictionary_range(deque(lst, maxlen=2000), 0, 1)
+    assert total == 1000
+    assert d == {'000': 0, '__len__': 1000, 'maxlen': 2000}
+
+    dct = dict((i, i * 2) for i in range(50))
+    dict_resolver = DictResolver()
+    total, d = dict_resolver.get_dictionary_range(dct, 10, 20)
+    assert total == 50
+    assert len(d) == 20
+    for key, val in d.items():
+        # The key must still be resolved in the dict.
+        assert dict_resolver.resolve(dct, key) == val
+
+    st = set(range(30))
+    total, d = SetResolver().get_dictionary_range(st, 25, 10)
+    assert total == 30
+    assert len(d) == 5
@@ -24,6 +24,8 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.cache.ZipFilesCache;
+import org.python.pydev.shared_core.cache.ZipFilesCache.ZipFileReference;
 import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.io.PyUnsupportedEncodingException;
@@ -77,7 +79,7 @@ public class FileUtilsFileBuffer {
     }
 
     /**
-     * @param f the zip file that should be opened
+     * @param f the zip file that should be opened (it's kept opened in the ZipFilesCache)
      * @param pathInZip the path within the zip file that should be gotten
      * @param returnType the class that specifies the return type of this method.
      * If null, it'll return in the fastest possible way available.
@@ -92,7 +94,8 @@ public class FileUtilsFileBuffer {
     public static Object getCustomReturnFromZip(File f, String pathInZip, Class<? extends Object> returnType)
             throws Exception {
 
-        try (ZipFile zipFile = new ZipFile(f, ZipFile.OPEN_READ);) {
+        try (ZipFileReference ref = ZipFilesCache.get().acquire(f);) {
+            ZipFile zipFile = ref.getZipFile();
             try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(pathInZip));) {
                 return FileUtils.getStreamContents(inputStream, null, null, returnType);
             }
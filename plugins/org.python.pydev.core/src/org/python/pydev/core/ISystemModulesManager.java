@@ -12,6 +12,8 @@ package org.python.pydev.core;
 import java.io.File;
 import java.io.IOException;
 
+import org.python.pydev.shared_core.cache.MappedRecordStore;
+
 public interface ISystemModulesManager extends IModulesManager {
 
     /**
@@ -44,5 +46,9 @@ public interface ISystemModulesManager extends IModulesManager {
 
     public abstract IInterpreterManager getInterpreterManager();
 
-    public abstract File getCompiledModuleCacheFile(String name);
+    /**
+     * @return the store with the info on the compiled modules of the interpreter (or null if the manager
+     * has no io directory).
+     */
+    public abstract MappedRecordStore getCompiledModulesStore();
 }
\ No newline at end of file
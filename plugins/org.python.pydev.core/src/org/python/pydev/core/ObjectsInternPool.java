@@ -10,9 +10,13 @@
 package org.python.pydev.core;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.python.pydev.shared_core.string.StringUtils;
 
 /**
  * This pool is to be regarded as a way to have less object instances for a given class,
@@ -21,6 +25,10 @@ import java.util.WeakHashMap;
  * so, it should be safe to assume that it will be available for garbage collecting once
  * no other place has a reference to the same string.
  * 
+ * The strings are spread among segments (each with its own lock), so, threads interning different
+ * strings usually don't contend (the garbage-collected entries of a segment are purged by the
+ * WeakHashMap whenever the segment is accessed).
+ * 
  * Still, use this with care...
  */
 public final class ObjectsInternPool {
@@ -28,8 +36,52 @@ public final class ObjectsInternPool {
     private ObjectsInternPool() {
     }
 
-    private static final Map<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
-    public static final Object lock = new Object();
+    /**
+     * Must be a power of 2.
+     */
+    private static final int SEGMENTS = 64;
+
+    private static final Segment[] segments = new Segment[SEGMENTS];
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private static final class Segment {
+
+        private final Map<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
+
+        /**
+         * Must be called synchronized on the segment.
+         */
+        private String intern(String o) {
+            WeakReference<String> w = weakHashMap.get(o);
+            if (w != null) {
+                final String ret = w.get();
+                if (ret != null) {
+                    hits.increment();
+                    return ret;
+                }
+                //garbage collected just in time hum?
+            }
+            misses.increment();
+            //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
+            //passed, it'll create a new array only with the parts we want.
+            o = new String(o);
+            weakHashMap.put(o, new WeakReference<String>(o));
+            return o;
+        }
+    }
+
+    private static int segmentIndex(String o) {
+        int h = o.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
 
     /**
      * This is a way to intern a String in the regular heap (instead of the String.intern which uses the perm-gen).
@@ -38,62 +90,120 @@ public final class ObjectsInternPool {
         if (o == null) {
             return null;
         }
-        synchronized (lock) {
-            WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-            if (w == null) {
-                //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
-                //passed, it'll create a new array only with the parts we want.
-                o = new String(o);
-                //garbage collected or still not there...
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
+        Segment segment = segments[segmentIndex(o)];
+        synchronized (segment) {
+            return segment.intern(o);
+        }
+    }
+
+    /**
+     * Interns all the strings in the passed array (the array is changed in-place and null entries are kept).
+     * 
+     * The strings are grouped by segment, so, each segment lock is acquired only once.
+     */
+    public static void intern(String[] strings) {
+        int len = strings.length;
+        if (len < 8) {
+            for (int i = 0; i < len; i++) {
+                strings[i] = intern(strings[i]);
+            }
+            return;
+        }
 
+        //counting sort of the indexes by segment
+        int[] segmentOf = new int[len];
+        int[] starts = new int[SEGMENTS + 1];
+        for (int i = 0; i < len; i++) {
+            String s = strings[i];
+            if (s != null) {
+                int segmentIndex = segmentIndex(s);
+                segmentOf[i] = segmentIndex;
+                starts[segmentIndex + 1]++;
             } else {
-                final String ret = w.get();
-                if (ret == null && o != null) {
-                    //garbage collected just in time hum?
-                    o = new String(o);
-                    weakHashMap.put(o, new WeakReference<String>(o));
-                    return o;
+                segmentOf[i] = -1;
+            }
+        }
+        for (int i = 0; i < SEGMENTS; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] order = new int[starts[SEGMENTS]];
+        int[] next = Arrays.copyOf(starts, SEGMENTS);
+        for (int i = 0; i < len; i++) {
+            if (segmentOf[i] != -1) {
+                order[next[segmentOf[i]]++] = i;
+            }
+        }
 
-                } else {
-                    return ret;
+        for (int segmentIndex = 0; segmentIndex < SEGMENTS; segmentIndex++) {
+            int start = starts[segmentIndex];
+            int end = starts[segmentIndex + 1];
+            if (start == end) {
+                continue;
+            }
+            Segment segment = segments[segmentIndex];
+            synchronized (segment) {
+                for (int j = start; j < end; j++) {
+                    int i = order[j];
+                    strings[i] = segment.intern(strings[i]);
                 }
             }
         }
     }
 
     /**
-     * Same thing as intern, but the client is responsible for synchronizing on the lock object of this class!
-     * 
-     * Note that this should be done on a fast process where many objects will be added (but only on fast processes
-     * that want to avoid synchronizing at each step).
+     * @return the number of times an intern found an existing string.
      */
-    public static String internUnsynched(String o) {
-        if (o == null) {
-            return null;
-        }
-        WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-        if (w == null) {
-            //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
-            //passed, it'll create a new array only with the parts we want.
-            o = new String(o);
-            //garbage collected or still not there...
-            weakHashMap.put(o, new WeakReference<String>(o));
-            return o;
+    public static long getHits() {
+        return hits.sum();
+    }
 
-        } else {
-            final String ret = w.get();
-            if (ret == null && o != null) {
-                //garbage collected just in time hum?
-                o = new String(o);
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
+    /**
+     * @return the number of times an intern had to add a new string.
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
 
-            } else {
-                return ret;
+    public static double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : ((double) h) / total;
+    }
+
+    /**
+     * @return the number of strings currently in the pool (note: goes through all the segments).
+     */
+    public static int computeSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.weakHashMap.size();
             }
         }
+        return size;
+    }
+
+    /**
+     * @return an estimate of the bytes retained by the strings in the pool (considering 2 bytes per char plus
+     * the overhead of the string and of the map entry) -- note: goes through all the strings in the pool.
+     */
+    public static long computeRetainedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (String s : segment.weakHashMap.keySet()) {
+                    if (s != null) {
+                        bytes += 2L * s.length() + 100;
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    public static String getStatistics() {
+        return StringUtils.format("ObjectsInternPool: size: %s hits: %s misses: %s hit rate: %s retained bytes: %s",
+                computeSize(), getHits(), getMisses(), getHitRate(), computeRetainedBytes());
     }
 
     /**
@@ -1,6 +1,7 @@
 package org.python.pydev.core.preferences;
 
 import org.python.pydev.core.IPythonNature;
+import org.python.pydev.shared_core.SharedCorePlugin;
 
 public class InterpreterGeneralPreferences {
 
@@ -24,11 +25,24 @@ public class InterpreterGeneralPreferences {
     public static final String UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES = "UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES";
     public final static boolean DEFAULT_UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES = true;
 
+    public static final String CACHE_INTERPRETER_ASTS = "CACHE_INTERPRETER_ASTS";
+    public final static boolean DEFAULT_CACHE_INTERPRETER_ASTS = true;
+
     public static boolean getCheckConsistentOnStartup() {
         return PydevPrefs.getEclipsePreferences().getBoolean(CHECK_CONSISTENT_ON_STARTUP,
                 DEFAULT_CHECK_CONSISTENT_ON_STARTUP);
     }
 
+    /**
+     * @return whether the asts of the modules of the interpreters should be cached in the disk.
+     */
+    public static boolean getCacheInterpreterAsts() {
+        if (SharedCorePlugin.inTestMode()) {
+            return DEFAULT_CACHE_INTERPRETER_ASTS;
+        }
+        return PydevPrefs.getEclipsePreferences().getBoolean(CACHE_INTERPRETER_ASTS, DEFAULT_CACHE_INTERPRETER_ASTS);
+    }
+
     public static boolean getReCheckOnFilesystemChanges() {
         return PydevPrefs.getEclipsePreferences().getBoolean(UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES,
                 DEFAULT_UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES);
@@ -87,6 +87,9 @@ public class PyDevCorePreferencesInitializer {
         node.putBoolean(InterpreterGeneralPreferences.UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES,
                 InterpreterGeneralPreferences.DEFAULT_UPDATE_INTERPRETER_INFO_ON_FILESYSTEM_CHANGES);
 
+        node.putBoolean(InterpreterGeneralPreferences.CACHE_INTERPRETER_ASTS,
+                InterpreterGeneralPreferences.DEFAULT_CACHE_INTERPRETER_ASTS);
+
     }
 
 }
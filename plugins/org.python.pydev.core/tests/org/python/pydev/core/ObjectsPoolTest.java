@@ -34,4 +34,31 @@ public class ObjectsPoolTest extends TestCase {
         //        }
         //        t.printDiff();
     }
+
+    public void testBulkIntern() throws Exception {
+        String[] strings = new String[100];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = i % 10 == 0 ? null : new String("bulk" + (i % 30));
+        }
+        ObjectsInternPool.intern(strings);
+        for (int i = 0; i < strings.length; i++) {
+            if (i % 10 == 0) {
+                assertNull(strings[i]);
+            } else {
+                assertEquals("bulk" + (i % 30), strings[i]);
+                assertSame(ObjectsInternPool.intern(new String("bulk" + (i % 30))), strings[i]);
+            }
+        }
+    }
+
+    public void testStatistics() throws Exception {
+        long hits = ObjectsInternPool.getHits();
+        long misses = ObjectsInternPool.getMisses();
+        String s = ObjectsInternPool.intern(new String("statistics_test"));
+        ObjectsInternPool.intern(new String("statistics_test"));
+        assertEquals(misses + 1, ObjectsInternPool.getMisses());
+        assertEquals(hits + 1, ObjectsInternPool.getHits());
+        assertTrue(ObjectsInternPool.computeSize() > 0);
+        assertTrue(ObjectsInternPool.computeRetainedBytes() >= 2 * s.length());
+    }
 }
@@ -38,6 +38,9 @@ import org.python.pydev.shared_ui.tooltips.presenter.StyleRangeWithCustomData;
  * 
  * the folder contains a structure that allows us to get folder nodes that are below it. 
  * 
+ * Files may be added from a background thread while the coverage info is being streamed (see PyCoverage), so,
+ * the methods which access the structure are synchronized.
+ * 
  * @author Fabio Zadrozny
  */
 public class CoverageCache {
@@ -50,7 +53,7 @@ public class CoverageCache {
      * 
      * @param node
      */
-    public void addFolder(File node) {
+    public synchronized void addFolder(File node) {
         FolderNode c = new FolderNode();
         c.node = node;
         folders.put(node, c);
@@ -61,7 +64,7 @@ public class CoverageCache {
      * @param node
      * @param parent
      */
-    public void addFolder(File node, File parent) {
+    public synchronized void addFolder(File node, File parent) {
         FolderNode parentNode = (FolderNode) getFolder(parent);
 
         FolderNode newNode = new FolderNode();
@@ -74,11 +77,11 @@ public class CoverageCache {
         folders.put(node, newNode);
     }
 
-    public FolderNode getFolder(File obj) {
+    public synchronized FolderNode getFolder(File obj) {
         return (FolderNode) getIt(obj, folders);
     }
 
-    public ICoverageNode getFile(File obj) {
+    public synchronized ICoverageNode getFile(File obj) {
         return getIt(obj, files);
     }
 
@@ -107,7 +110,7 @@ public class CoverageCache {
      * @param miss
      * @param notExecuted
      */
-    public void addFile(File node, File parent, int stmts, int miss, String notExecuted) {
+    public synchronized void addFile(File node, File parent, int stmts, int miss, String notExecuted) {
         FolderNode folderNode = (FolderNode) getFolder(parent);
 
         if (folderNode == null) {
@@ -132,7 +135,7 @@ public class CoverageCache {
      * @param miss
      * @param notExecuted
      */
-    public void addFile(File node, File parent, String desc) {
+    public synchronized void addFile(File node, File parent, String desc) {
         FolderNode folderNode = (FolderNode) getFolder(parent);
 
         if (folderNode == null) {
@@ -147,7 +150,7 @@ public class CoverageCache {
         files.put(node, fileNode);
     }
 
-    public List<ICoverageNode> getFiles(File node) throws NodeNotFoudException {
+    public synchronized List<ICoverageNode> getFiles(File node) throws NodeNotFoudException {
         FolderNode folderNode = (FolderNode) getFolder(node);
         if (folderNode == null) {
             ICoverageNode fileNode = getFile(node);
@@ -275,7 +278,7 @@ public class CoverageCache {
     /**
      * 
      */
-    public void clear() {
+    public synchronized void clear() {
         folders.clear();
         files.clear();
 
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.codecoverage;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.debug.codecoverage.CoverageXmlInfo.FillCacheFromXmlHandler;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Keeps the coverage results of each file (as written by pydev_coverage.py --pydev-analyze-stream) along with
+ * the modification time of the coverage data file and of the file itself when they were computed, so that a
+ * refresh only needs to ask for the results of the files which changed (or all the files if new coverage
+ * data was collected).
+ *
+ * @author Fabio Zadrozny
+ */
+public class CoverageFilesCache {
+
+    /**
+     * The coverage of a single file.
+     */
+    public static final class Entry {
+
+        public final File file;
+        public final int stmts;
+        public final int miss;
+        public final String notExecuted;
+
+        /**
+         * If not null, the coverage couldn't be computed for the file (and this is the reason).
+         */
+        public final String error;
+
+        private long dataModified;
+        private long fileModified;
+        private long fileLength;
+
+        private Entry(File file, int stmts, int miss, String notExecuted, String error) {
+            this.file = file;
+            this.stmts = stmts;
+            this.miss = miss;
+            this.notExecuted = notExecuted;
+            this.error = error;
+        }
+
+        public void addTo(CoverageCache cache) {
+            if (error != null) {
+                cache.addFile(file, file.getParentFile(), error);
+            } else {
+                cache.addFile(file, file.getParentFile(), stmts, miss, notExecuted);
+            }
+        }
+    }
+
+    private final Map<File, Entry> entries = new HashMap<File, Entry>();
+
+    /**
+     * @param dataModified the modification time of the coverage data file.
+     * @return the entry for the given file or null if there's no entry or if it's no longer valid.
+     */
+    public synchronized Entry get(File file, long dataModified) {
+        Entry entry = entries.get(file);
+        if (entry == null || entry.dataModified != dataModified || entry.fileModified != file.lastModified()
+                || entry.fileLength != file.length()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param dataModified the modification time of the coverage data file used to compute the entry.
+     */
+    public synchronized void put(Entry entry, long dataModified) {
+        entry.dataModified = dataModified;
+        entry.fileModified = entry.file.lastModified();
+        entry.fileLength = entry.file.length();
+        entries.put(entry.file, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @param line a line in the format: F|stmts|miss|missed lines|filename or E|||error|filename
+     * @return the entry or null if the line is not in the expected format.
+     */
+    public static Entry parseLine(String line) {
+        if (line.length() < 2 || line.charAt(1) != '|') {
+            return null;
+        }
+        char kind = line.charAt(0);
+        String[] parts = line.split("\\|", 5);
+        if (parts.length != 5 || parts[4].length() == 0) {
+            return null;
+        }
+        File file = new File(parts[4]);
+        try {
+            if (kind == 'F') {
+                TreeSet<Integer> missedLines = new TreeSet<>();
+                for (String s : StringUtils.split(parts[3], ',')) {
+                    missedLines.add(Integer.parseInt(s.trim()));
+                }
+                return new Entry(file, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                        FillCacheFromXmlHandler.calculateMissingBuf(missedLines), null);
+            }
+            if (kind == 'E') {
+                return new Entry(file, 0, 0, "", parts[3]);
+            }
+        } catch (NumberFormatException e) {
+            Log.log("Unexpected coverage line: " + line, e);
+        }
+        return null;
+    }
+}
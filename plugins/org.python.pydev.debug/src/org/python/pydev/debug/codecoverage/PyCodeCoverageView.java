@@ -8,9 +8,11 @@ package org.python.pydev.debug.codecoverage;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -68,6 +70,7 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeItem;
 import org.eclipse.ui.IActionBars;
+import org.eclipse.ui.IEditorReference;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IFileEditorInput;
@@ -249,7 +252,7 @@ public class PyCodeCoverageView extends ViewPartWithOrientation implements IView
             return;
         }
         try {
-            PyCoverage.getPyCoverage().refreshCoverageInfo(lastChosenDir, monitor);
+            PyCoverage.getPyCoverage().refreshCoverageInfo(lastChosenDir, getPriorityFiles(), monitor);
         } catch (CoverageException e) {
             ErrorDialog.openError(UIUtils.getActiveShell(), "Error refreshing coverage information.", e.getMessage(),
                     new Status(IStatus.ERROR,
@@ -278,6 +281,75 @@ public class PyCodeCoverageView extends ViewPartWithOrientation implements IView
         }
     }
 
+    /**
+     * @return the files whose coverage info should be gotten first: the ones below the selection in the tree and
+     * the ones opened in editors.
+     */
+    private Set<File> getPriorityFiles() {
+        Set<File> files = new HashSet<File>();
+        File selected = lastSelectedFile;
+        ISelection selection = viewer.getSelection();
+        if (selection instanceof IStructuredSelection) {
+            Object firstElement = ((IStructuredSelection) selection).getFirstElement();
+            if (firstElement != null) {
+                selected = new File(firstElement.toString());
+            }
+        }
+        if (selected != null) {
+            addFilesBelow(selected, files);
+        }
+
+        IWorkbenchPage page = getSite().getPage();
+        if (page != null) {
+            for (IEditorReference ref : page.getEditorReferences()) {
+                IEditorPart editor = ref.getEditor(false);
+                if (editor instanceof PyEdit) {
+                    File editorFile = ((PyEdit) editor).getEditorFile();
+                    if (editorFile != null) {
+                        files.add(editorFile);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void addFilesBelow(File f, Set<File> files) {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    addFilesBelow(child, files);
+                }
+            }
+        } else {
+            files.add(f);
+        }
+    }
+
+    /**
+     * Updates the statistics shown as the info of the files is added in the background.
+     */
+    private final ICallbackListener<PyCoverage> onStreamedInfoAddedListener = new ICallbackListener<PyCoverage>() {
+
+        @Override
+        public Object call(PyCoverage obj) {
+            RunInUiThread.async(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (viewer == null || text == null || text.isDisposed()) {
+                        return;
+                    }
+                    if (lastSelectedFile != null) {
+                        onSelectedFileInTree(lastSelectedFile);
+                    }
+                }
+            });
+            return null;
+        }
+    };
+
     private final ICallbackListener<Process> afterCreatedProcessListener = new ICallbackListener<Process>() {
 
         @Override
@@ -733,6 +805,7 @@ public class PyCodeCoverageView extends ViewPartWithOrientation implements IView
         });
 
         PythonRunnerCallbacks.afterCreatedProcess.registerListener(afterCreatedProcessListener);
+        PyCoverage.getPyCoverage().onStreamedInfoAdded.registerListener(onStreamedInfoAddedListener);
         layoutData = new GridData();
         layoutData.grabExcessHorizontalSpace = true;
         layoutData.horizontalAlignment = GridData.FILL;
@@ -956,6 +1029,7 @@ public class PyCodeCoverageView extends ViewPartWithOrientation implements IView
         try {
             PythonRunnerCallbacks.afterCreatedProcess.unregisterListener(afterCreatedProcessListener);
             PythonRunnerCallbacks.onCreatedCommandLine.unregisterListener(onCreatedCommandLineListener);
+            PyCoverage.getPyCoverage().onStreamedInfoAdded.unregisterListener(onStreamedInfoAddedListener);
             PyCoveragePreferences.setInternalAllRunsDoCoverage(false);
             PyCoveragePreferences.setLastChosenDir(null);
             if (text != null) {
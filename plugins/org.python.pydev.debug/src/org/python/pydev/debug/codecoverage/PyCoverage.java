@@ -11,13 +11,25 @@
  */
 package org.python.pydev.debug.codecoverage;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.python.pydev.ast.listing_utils.PyFileListing;
 import org.python.pydev.ast.listing_utils.PyFileListing.PyFileInfo;
 import org.python.pydev.ast.runners.UniversalRunner;
@@ -26,6 +38,8 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.ui.launching.PythonRunnerConfig;
 import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.CallbackWithListeners;
+import org.python.pydev.shared_core.callbacks.ICallbackWithListeners;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.io.ThreadStreamReader;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -41,12 +55,35 @@ import org.python.pydev.shared_core.structure.Tuple;
  * - Erasing the results obtained;
  * - Getting the results when requested (cached in this class).
  *
+ * When the incremental import is enabled (the default), the results are streamed per file by the coverage
+ * script: the refresh returns as soon as the results for the priority files (i.e.: the ones the user is looking
+ * at) are available and the remaining files are read in a background job (listeners of onStreamedInfoAdded are
+ * notified as they're added to the cache). The results of each file are also kept in filesCache, so, files which
+ * didn't change (nor had new coverage data collected) aren't requested again.
+ *
  * @author Fabio Zadrozny
  */
 public class PyCoverage {
 
+    /**
+     * The number of files read in the background before the listeners are notified.
+     */
+    private static final int NOTIFY_EVERY_N_FILES = 50;
+
     public CoverageCache cache = new CoverageCache();
 
+    public final CoverageFilesCache filesCache = new CoverageFilesCache();
+
+    /**
+     * Called (from a background thread) when the coverage info of files is added to the cache after
+     * refreshCoverageInfo returned.
+     */
+    public final ICallbackWithListeners<PyCoverage> onStreamedInfoAdded = new CallbackWithListeners<PyCoverage>();
+
+    private final Object streamJobLock = new Object();
+
+    private StreamJob streamJob;
+
     /**
      * This method contacts the python server so that we get the information on the files that are below the directory passed as a parameter
      * and stores the information needed on the cache.
@@ -55,10 +92,20 @@ public class PyCoverage {
      *            should be the root folder from where we want cache info.
      */
     public void refreshCoverageInfo(IContainer container, IProgressMonitor monitor) throws CoverageException {
+        refreshCoverageInfo(container, Collections.<File> emptyList(), monitor);
+    }
+
+    /**
+     * Same as refreshCoverageInfo(container, monitor), but in the incremental mode it returns as soon as the info
+     * for the given files is available (the info for the other files is added in a background job).
+     */
+    public void refreshCoverageInfo(IContainer container, Collection<File> priorityFiles, IProgressMonitor monitor)
+            throws CoverageException {
         int exitValue = 0;
         String stdOut = "";
         String stdErr = "";
 
+        cancelStreamJob();
         cache.clear();
         if (container == null) {
             return;
@@ -123,6 +170,11 @@ public class PyCoverage {
 
             //python coverage.py -r -m files....
 
+            if (PyCoveragePreferences.getIncrementalImport()) {
+                refreshIncrementally(runner, pyFilesBelow, priorityFiles, monitor);
+                return;
+            }
+
             monitor.setTaskName("Starting shell to get info...");
             File coverageDirLocation = getCoverageDirLocation();
             File coverageXmlLocation = new File(coverageDirLocation, "coverage.xml");
@@ -209,23 +261,230 @@ public class PyCoverage {
                 Log.log(e);
             }
 
+        } catch (CoverageException e1) {
+            throw e1;
         } catch (Exception e1) {
             Log.log(e1);
             throw new RuntimeException(e1);
         }
         if (exitValue != 0) {
-            FastStringBuffer buf = new FastStringBuffer("Error with coverage action (exit value: ",
-                    stdErr.length() + stdOut.length() + 40);
-            buf.append(exitValue).append(").");
-            if (stdOut.length() > 0) {
-                buf.append("\nStandard outputt:\n");
-                buf.append(stdOut);
+            throw createCoverageException(exitValue, stdOut, stdErr);
+        }
+    }
+
+    private static CoverageException createCoverageException(int exitValue, String stdOut, String stdErr) {
+        FastStringBuffer buf = new FastStringBuffer("Error with coverage action (exit value: ",
+                stdErr.length() + stdOut.length() + 40);
+        buf.append(exitValue).append(").");
+        if (stdOut.length() > 0) {
+            buf.append("\nStandard outputt:\n");
+            buf.append(stdOut);
+        }
+        if (stdErr.length() > 0) {
+            buf.append("\nError output:\n");
+            buf.append(stdErr);
+        }
+        return new CoverageException(buf.toString());
+    }
+
+    /**
+     * Gets the info through pydev_coverage.py --pydev-analyze-stream (which writes a line with the results of each
+     * file as it's analyzed) for the files which don't have a valid entry in the filesCache.
+     */
+    private void refreshIncrementally(AbstractRunner runner, PyFileListing pyFilesBelow,
+            Collection<File> priorityFiles, IProgressMonitor monitor) throws CoverageException, IOException {
+        File coverageDirLocation = getCoverageDirLocation();
+        long dataModified = new File(coverageDirLocation, ".coverage").lastModified();
+
+        List<File> first = new ArrayList<File>();
+        List<File> rest = new ArrayList<File>();
+        for (PyFileInfo info : pyFilesBelow.getFoundPyFileInfos()) {
+            File f = info.getFile();
+            CoverageFilesCache.Entry entry = filesCache.get(f, dataModified);
+            if (entry != null) {
+                entry.addTo(cache);
+            } else if (priorityFiles.contains(f)) {
+                first.add(f);
+            } else {
+                rest.add(f);
+            }
+        }
+        if (first.isEmpty() && rest.isEmpty()) {
+            monitor.setTaskName("Finished");
+            return;
+        }
+
+        monitor.setTaskName("Starting shell to get info...");
+        Tuple<Process, String> tup = runner.createProcess(PythonRunnerConfig.getCoverageScript(),
+                new String[] { "--pydev-analyze-stream" }, coverageDirLocation, monitor);
+        Process p = tup.o1;
+        ThreadStreamReader errorStream = new ThreadStreamReader(p.getErrorStream(), false);
+        errorStream.start();
+
+        FastStringBuffer files = new FastStringBuffer((first.size() + rest.size()) * 60);
+        for (File f : first) {
+            files.append(f.toString()).append('|');
+        }
+        for (File f : rest) {
+            files.append(f.toString()).append('|');
+        }
+        files.append('\r');
+        monitor.setTaskName("Writing to shell...");
+        OutputStream outputStream = p.getOutputStream();
+        outputStream.write(files.toString().getBytes());
+        outputStream.close();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+        monitor.setTaskName("Getting coverage info...");
+        Set<File> pending = new HashSet<File>(first);
+        try {
+            while (!pending.isEmpty()) {
+                if (monitor.isCanceled()) {
+                    p.destroy();
+                    return;
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                File f = addStreamedLine(line, dataModified);
+                if (f != null) {
+                    pending.remove(f);
+                }
+                monitor.worked(1);
+            }
+        } catch (IOException e) {
+            p.destroy();
+            throw e;
+        }
+        if (!pending.isEmpty()) {
+            // The output finished before all the priority files were analyzed.
+            int exitValue = waitFor(p);
+            String stdErr = errorStream.getAndClearContents().trim();
+            if (exitValue != 0) {
+                throw createCoverageException(exitValue, "", stdErr);
             }
             if (stdErr.length() > 0) {
-                buf.append("\nError output:\n");
-                buf.append(stdErr);
+                Log.log(stdErr);
+            }
+            monitor.setTaskName("Finished");
+            return;
+        }
+
+        StreamJob job = new StreamJob(p, reader, errorStream, dataModified);
+        synchronized (streamJobLock) {
+            streamJob = job;
+        }
+        job.schedule();
+        monitor.setTaskName("Finished");
+    }
+
+    /**
+     * @return the file whose info was added or null if the line didn't have the info of a file.
+     */
+    private File addStreamedLine(String line, long dataModified) {
+        CoverageFilesCache.Entry entry = CoverageFilesCache.parseLine(line);
+        if (entry == null) {
+            if (line.trim().length() > 0) {
+                Log.log(line);
+            }
+            return null;
+        }
+        try {
+            entry.addTo(cache);
+        } catch (RuntimeException e) {
+            Log.log(e);
+            return null;
+        }
+        filesCache.put(entry, dataModified);
+        return entry.file;
+    }
+
+    private static int waitFor(Process p) {
+        while (true) {
+            try {
+                return p.waitFor();
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        }
+    }
+
+    /**
+     * Stops reading the info of a previous refresh (if it's still being read).
+     */
+    private void cancelStreamJob() {
+        StreamJob job;
+        synchronized (streamJobLock) {
+            job = streamJob;
+            streamJob = null;
+        }
+        if (job != null) {
+            job.cancel();
+            try {
+                job.join();
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        }
+    }
+
+    /**
+     * Reads the info of the files which weren't requested with priority.
+     */
+    private final class StreamJob extends Job {
+
+        private final Process process;
+        private final BufferedReader reader;
+        private final ThreadStreamReader errorStream;
+        private final long dataModified;
+
+        private StreamJob(Process process, BufferedReader reader, ThreadStreamReader errorStream,
+                long dataModified) {
+            super("Getting coverage info");
+            this.process = process;
+            this.reader = reader;
+            this.errorStream = errorStream;
+            this.dataModified = dataModified;
+            setPriority(Job.LONG);
+        }
+
+        @Override
+        protected void canceling() {
+            process.destroy();
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            int added = 0;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null && !monitor.isCanceled()) {
+                    if (addStreamedLine(line, dataModified) != null) {
+                        added++;
+                        if (added % NOTIFY_EVERY_N_FILES == 0) {
+                            onStreamedInfoAdded.call(PyCoverage.this);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (!monitor.isCanceled()) {
+                    Log.log(e);
+                }
+            }
+            if (monitor.isCanceled()) {
+                process.destroy();
+                return Status.CANCEL_STATUS;
+            }
+            int exitValue = waitFor(process);
+            String stdErr = errorStream.getAndClearContents().trim();
+            if (exitValue != 0) {
+                Log.log(createCoverageException(exitValue, "", stdErr));
+            } else if (stdErr.length() > 0) {
+                Log.log(stdErr);
             }
-            throw new CoverageException(buf.toString());
+            onStreamedInfoAdded.call(PyCoverage.this);
+            return Status.OK_STATUS;
         }
     }
 
@@ -233,7 +492,9 @@ public class PyCoverage {
      *
      */
     public void clearInfo() {
+        cancelStreamJob();
         cache.clear();
+        filesCache.clear();
         File dir = getCoverageDirLocation();
         try {
             //Clear the files we created when running the coverages.
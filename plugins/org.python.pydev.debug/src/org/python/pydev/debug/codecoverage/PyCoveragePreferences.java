@@ -63,6 +63,23 @@ public class PyCoveragePreferences {
         preferenceStore.setValue("PY_COVERAGE_NAME_COLUMNS_TO_USE", columns);
     }
 
+    /**
+     * @return whether the coverage info should be streamed per file (and only requested for the files which
+     * changed) instead of being read from the coverage.xml written for all the files.
+     */
+    public static boolean getIncrementalImport() {
+        if (SharedCorePlugin.inTestMode()) {
+            return true;
+        }
+        IPreferenceStore preferenceStore = PydevDebugPlugin.getDefault().getPreferenceStore();
+        return !preferenceStore.getBoolean("PY_COVERAGE_DISABLE_INCREMENTAL_IMPORT");
+    }
+
+    public static void setIncrementalImport(boolean incremental) {
+        IPreferenceStore preferenceStore = PydevDebugPlugin.getDefault().getPreferenceStore();
+        preferenceStore.setValue("PY_COVERAGE_DISABLE_INCREMENTAL_IMPORT", !incremental);
+    }
+
     public static int getNameNumberOfColumns() {
         if (SharedCorePlugin.inTestMode()) {
             return DEFAULT_NUMBER_OF_COLUMNS_FOR_NAME;
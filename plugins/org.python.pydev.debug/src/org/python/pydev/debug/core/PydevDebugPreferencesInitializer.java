@@ -29,6 +29,13 @@ public class PydevDebugPreferencesInitializer extends AbstractPreferenceInitiali
     public static final String SKIP_CAUGHT_EXCEPTIONS_IN_SAME_FUNCTION = "SKIP_CAUGHT_EXCEPTIONS_IN_SAME_FUNCTION";
     public static final boolean DEFAULT_SKIP_CAUGHT_EXCEPTIONS_IN_SAME_FUNCTION = false;
 
+    /**
+     * Whether the binary protocol should be requested to pydevd (otherwise only the xml protocol is used).
+     * Note that this preference is currently nowhere for the user to edit.
+     */
+    public static final String USE_BINARY_PROTOCOL = "USE_BINARY_PROTOCOL";
+    public static final boolean DEFAULT_USE_BINARY_PROTOCOL = false;
+
     public static final String SHOW_CONSOLE_PROMPT_ON_DEBUG = "SHOW_CONSOLE_PROMPT_ON_DEBUG";
     public final static String RELATIVE_CONSOLE_HEIGHT = "RELATIVE_CONSOLE_HEIGHT";
     public final static String CONSOLE_PROMPT_OUTPUT_MODE = "CONSOLE_PROMPT_OUTPUT_MODE";
@@ -52,6 +59,7 @@ public class PydevDebugPreferencesInitializer extends AbstractPreferenceInitiali
         node.putBoolean(SKIP_CAUGHT_EXCEPTIONS_IN_LIBRARIES, DEFAULT_SKIP_CAUGHT_EXCEPTIONS_IN_LIBRARIES);
         node.putBoolean(IGNORE_EXCEPTIONS_THROWN_IN_LINES_WITH_IGNORE_EXCEPTION,
                 DEFAULT_IGNORE_EXCEPTIONS_THROWN_IN_LINES_WITH_IGNORE_EXCEPTION);
+        node.putBoolean(USE_BINARY_PROTOCOL, DEFAULT_USE_BINARY_PROTOCOL);
 
         //Prefs on console prompt on debug
         node.putBoolean(SHOW_CONSOLE_PROMPT_ON_DEBUG, true);
@@ -480,6 +480,38 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
         }
     }
 
+    /**
+     * Same as processCommand, but for commands received with a binary payload (only sent by pydevd when the
+     * binary protocol is used -- see BinaryProtocolUtils).
+     */
+    public void processBinaryCommand(int cmdCode, int seqCode, byte payloadKind, byte[] payload) {
+        if (DEBUG) {
+            System.out.println("process binary command:" + cmdCode +
+                    "\tseq:" + seqCode +
+                    "\tpayload kind:" + payloadKind + " len: " + payload.length +
+                    "\n\n");
+        }
+        try {
+            if (cmdCode == AbstractDebuggerCommand.CMD_THREAD_SUSPEND
+                    && payloadKind == BinaryProtocolUtils.PAYLOAD_THREAD_SUSPEND) {
+                StoppedStack threadNstack;
+                try {
+                    threadNstack = BinaryProtocolUtils.readStack(this, payload);
+                } catch (CoreException e) {
+                    PydevDebugPlugin.errorDialog("Error reading ThreadSuspended", e);
+                    return;
+                }
+                processThreadSuspended(threadNstack);
+
+            } else {
+                PydevDebugPlugin.log(IStatus.WARNING, "Unexpected debugger binary command:" + cmdCode +
+                        "\nseq:" + seqCode + "\npayload kind:" + payloadKind, null);
+            }
+        } catch (Exception e) {
+            PydevDebugPlugin.log(IStatus.ERROR, "Error processing binary command: " + cmdCode, e);
+        }
+    }
+
     public void fireEvent(DebugEvent event) {
         DebugPlugin manager = DebugPlugin.getDefault();
         if (manager != null) {
@@ -584,7 +616,10 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             PydevDebugPlugin.errorDialog("Error reading ThreadSuspended", e);
             return;
         }
+        processThreadSuspended(threadNstack);
+    }
 
+    private void processThreadSuspended(StoppedStack threadNstack) {
         PyThread t = threadNstack.thread;
         int reason = DebugEvent.UNSPECIFIED;
         String stopReason = threadNstack.stopReason;
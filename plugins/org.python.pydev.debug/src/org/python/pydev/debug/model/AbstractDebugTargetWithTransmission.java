@@ -11,6 +11,8 @@ import java.net.Socket;
 
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.ui.console.IOConsole;
+import org.python.pydev.debug.core.PydevDebugPlugin;
+import org.python.pydev.debug.core.PydevDebugPreferencesInitializer;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
 import org.python.pydev.debug.model.remote.DebuggerReader;
 import org.python.pydev.debug.model.remote.DebuggerWriter;
@@ -48,6 +50,20 @@ public class AbstractDebugTargetWithTransmission extends PlatformObject {
         this.waitingForInput = waitingForInput;
     }
 
+    /**
+     * Set when pydevd accepts the binary protocol (the versions of pydevd which accept it also accept
+     * CMD_GET_VARIABLE_RANGE, whereas older versions would fail on the unknown command).
+     */
+    private volatile boolean variableRangeSupported = false;
+
+    public boolean isVariableRangeSupported() {
+        return variableRangeSupported;
+    }
+
+    public void setVariableRangeSupported(boolean variableRangeSupported) {
+        this.variableRangeSupported = variableRangeSupported;
+    }
+
     protected void addProcessConsole(IOConsole c) {
         // What we'd like to do is not put in the input stream the contents we received
         // in the console UNLESS we're waiting for input (but unfortunately, it seems there's
@@ -81,6 +97,17 @@ public class AbstractDebugTargetWithTransmission extends PlatformObject {
         }
     }
 
+    /**
+     * @return whether the binary protocol should be requested to pydevd.
+     */
+    protected boolean useBinaryProtocol() {
+        PydevDebugPlugin plugin = PydevDebugPlugin.getDefault();
+        if (plugin == null) {
+            return PydevDebugPreferencesInitializer.DEFAULT_USE_BINARY_PROTOCOL;
+        }
+        return plugin.getPreferenceStore().getBoolean(PydevDebugPreferencesInitializer.USE_BINARY_PROTOCOL);
+    }
+
     public void startTransmission(Socket socket2) throws IOException {
         this.socket = socket2;
 
@@ -88,6 +115,11 @@ public class AbstractDebugTargetWithTransmission extends PlatformObject {
         this.writer = new DebuggerWriter(socket);
 
         this.writer.postCommand(new SetProtocolCommand((AbstractDebugTarget) this));
+        if (useBinaryProtocol()) {
+            // If it's not supported by pydevd, the http protocol (set above) is kept.
+            this.writer.postCommand(
+                    new SetProtocolCommand((AbstractDebugTarget) this, SetProtocolCommand.BINARY_PROTOCOL));
+        }
 
         Thread t = new Thread(reader, "pydevd.reader");
         t.start();
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.debug.core.model.IStackFrame;
+import org.python.pydev.debug.core.PydevDebugPlugin;
+import org.python.pydev.debug.model.XMLUtils.StoppedStack;
+import org.python.pydev.debug.model.XMLUtils.VariablesRange;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Translates the binary payloads sent by pydevd when the binary protocol is used into Py structures (the
+ * counterpart of XMLUtils, but the structures are created directly while reading the payload, without any
+ * xml parsing or url-decoding).
+ *
+ * See: pysrc/_pydevd_bundle/pydevd_binary_payload.py for the format.
+ */
+public final class BinaryProtocolUtils {
+
+    public static final byte PAYLOAD_TEXT = 0;
+    public static final byte PAYLOAD_VARIABLES = 1;
+    public static final byte PAYLOAD_THREAD_SUSPEND = 2;
+    public static final byte PAYLOAD_VARIABLES_RANGE = 3;
+
+    private static final int VAR_FLAG_CONTAINER = 1;
+    private static final int VAR_FLAG_RETURN_VALUE = 2;
+    private static final int VAR_FLAG_IPYTHON_HIDDEN = 4;
+    private static final int VAR_FLAG_ERROR_ON_EVAL = 8;
+
+    private BinaryProtocolUtils() {
+    }
+
+    /**
+     * Reads the numbers (big endian) and strings (length of the utf-8 bytes followed by the bytes) of a payload.
+     */
+    private static final class PayloadReader {
+
+        private final byte[] bytes;
+        private int pos;
+
+        private PayloadReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void checkAvailable(int len) throws CoreException {
+            if (len < 0 || len > bytes.length - pos) {
+                throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR,
+                        "Invalid binary payload received from pydevd (len: " + bytes.length + ")", null));
+            }
+        }
+
+        private int readInt() throws CoreException {
+            checkAvailable(4);
+            int ret = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8)
+                    | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+            return ret;
+        }
+
+        private byte readByte() throws CoreException {
+            checkAvailable(1);
+            return bytes[pos++];
+        }
+
+        private String readStr() throws CoreException {
+            int len = readInt();
+            checkAvailable(len);
+            String ret = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return ret;
+        }
+
+        /**
+         * @return the string read or null if it's empty.
+         */
+        private String readStrOrNull() throws CoreException {
+            String ret = readStr();
+            return ret.isEmpty() ? null : ret;
+        }
+    }
+
+    /**
+     * Creates the variables from a PAYLOAD_VARIABLES (response to CMD_GET_VARIABLE or CMD_GET_FRAME).
+     */
+    public static PyVariable[] readVariables(AbstractDebugTarget target, IVariableLocator locator, byte[] payload)
+            throws CoreException {
+        return readVariables(target, locator, new PayloadReader(payload));
+    }
+
+    /**
+     * Creates the variables from a PAYLOAD_VARIABLES_RANGE (response to CMD_GET_VARIABLE_RANGE).
+     */
+    public static VariablesRange readVariablesRange(AbstractDebugTarget target, IVariableLocator locator,
+            byte[] payload) throws CoreException {
+        PayloadReader reader = new PayloadReader(payload);
+        int total = reader.readInt();
+        return new VariablesRange(readVariables(target, locator, reader), total);
+    }
+
+    private static PyVariable[] readVariables(AbstractDebugTarget target, IVariableLocator locator,
+            PayloadReader reader) throws CoreException {
+        int count = reader.readInt();
+        // Each variable has at least 17 bytes (4 strings and the flags).
+        reader.checkAvailable(count * 17);
+
+        PyVariable[] vars = new PyVariable[count];
+        for (int i = 0; i < count; i++) {
+            String name = reader.readStr();
+            String type = reader.readStr();
+            String qualifier = reader.readStrOrNull();
+            String value = reader.readStrOrNull();
+            int flags = reader.readByte();
+            vars[i] = XMLUtils.createVariable(target, locator, name, type, qualifier, value,
+                    (flags & VAR_FLAG_CONTAINER) != 0, (flags & VAR_FLAG_RETURN_VALUE) != 0,
+                    (flags & VAR_FLAG_IPYTHON_HIDDEN) != 0, (flags & VAR_FLAG_ERROR_ON_EVAL) != 0);
+        }
+        return vars;
+    }
+
+    /**
+     * Converts a PAYLOAD_VARIABLES or PAYLOAD_VARIABLES_RANGE to the same xml pydevd sends in the http protocol
+     * (so that commands which only handle the xml response still work when the binary protocol is used).
+     */
+    public static String variablesToXml(byte payloadKind, byte[] payload) throws CoreException {
+        PayloadReader reader = new PayloadReader(payload);
+        FastStringBuffer buf = new FastStringBuffer(payload.length + 64);
+        buf.append("<xml");
+        if (payloadKind == PAYLOAD_VARIABLES_RANGE) {
+            buf.append(" total=\"").append(reader.readInt()).append('"');
+        } else if (payloadKind != PAYLOAD_VARIABLES) {
+            throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR,
+                    "Unable to convert binary payload kind: " + payloadKind + " to xml.", null));
+        }
+        buf.append('>');
+
+        int count = reader.readInt();
+        reader.checkAvailable(count * 17);
+        for (int i = 0; i < count; i++) {
+            String name = reader.readStr();
+            String type = reader.readStr();
+            String qualifier = reader.readStrOrNull();
+            String value = reader.readStrOrNull();
+            int flags = reader.readByte();
+            buf.append("<var name=\"").append(encode(name)).append('"');
+            buf.append(" type=\"").append(escapeXml(type)).append('"');
+            if (qualifier != null) {
+                buf.append(" qualifier=\"").append(encode(qualifier)).append('"');
+            }
+            if (value != null) {
+                buf.append(" value=\"").append(encode(value)).append('"');
+            }
+            if ((flags & VAR_FLAG_CONTAINER) != 0) {
+                buf.append(" isContainer=\"True\"");
+            }
+            if ((flags & VAR_FLAG_RETURN_VALUE) != 0) {
+                buf.append(" isRetVal=\"True\"");
+            }
+            if ((flags & VAR_FLAG_IPYTHON_HIDDEN) != 0) {
+                buf.append(" isIPythonHidden=\"True\"");
+            }
+            if ((flags & VAR_FLAG_ERROR_ON_EVAL) != 0) {
+                buf.append(" isErrorOnEval=\"True\"");
+            }
+            buf.append(" />");
+        }
+        buf.append("</xml>");
+        return buf.toString();
+    }
+
+    private static String escapeXml(String s) {
+        FastStringBuffer buf = new FastStringBuffer(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    buf.append("&amp;");
+                    break;
+                case '<':
+                    buf.append("&lt;");
+                    break;
+                case '>':
+                    buf.append("&gt;");
+                    break;
+                case '"':
+                    buf.append("&quot;");
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Url-encodes the string (as XMLUtils url-decodes it), which also makes it safe to be put in an xml attribute.
+     */
+    private static String encode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates the stack from a PAYLOAD_THREAD_SUSPEND (CMD_THREAD_SUSPEND).
+     */
+    public static StoppedStack readStack(AbstractDebugTarget target, byte[] payload) throws CoreException {
+        PayloadReader reader = new PayloadReader(payload);
+        String threadId = reader.readStr();
+        String stopReason = reader.readStrOrNull();
+        reader.readStr(); // message: not currently used
+        reader.readStr(); // suspend type: not currently used
+
+        PyThread thread = target.findThreadByID(threadId);
+        if (thread == null) {
+            // can happen when debugger has been destroyed
+            throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR,
+                    "Thread not found (" + threadId + ")", null));
+        }
+
+        int count = reader.readInt();
+        // Each frame has at least 16 bytes (3 strings and the line).
+        reader.checkAvailable(count * 16);
+
+        IStackFrame[] stack = new IStackFrame[count];
+        for (int i = 0; i < count; i++) {
+            String id = reader.readStr();
+            String name = reader.readStr();
+            String file = reader.readStr();
+            int line = reader.readInt();
+            stack[i] = XMLUtils.createStackFrame(target, thread, id, name, file, line);
+        }
+        return new StoppedStack(thread, stopReason, stack);
+    }
+}
@@ -55,8 +55,12 @@ public class ContainerOfVariables {
                     gettingInitialVariables = true;
                     try {
                         PyVariable[] vars = variablesLoader.fetchVariables();
-
-                        setVariables(vars);
+                        if (vars != null) {
+                            setVariables(vars);
+                        } else if (this.variables == null) {
+                            // The response didn't arrive yet (it'll be set asynchronously when it arrives).
+                            setVariables(new PyVariable[0]);
+                        }
                         // Important: only set to false after variables have been set.
                         onAskGetNewVars = false;
                     } finally {
@@ -17,11 +17,13 @@ import org.eclipse.debug.core.model.IVariable;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
 import org.python.pydev.debug.model.remote.GetVariableCommand;
+import org.python.pydev.debug.model.remote.GetVariableRangeCommand;
 
 /**
  * PyVariableCollection represents container variables.
  * 
- * It knows how to fetch its contents over the network.
+ * It knows how to fetch its contents over the network (for large containers only the first
+ * items are fetched and the remaining ones are shown in PyVariablesPage instances).
  * 
  */
 public class PyVariableCollection extends PyVariable
@@ -50,8 +52,7 @@ public class PyVariableCollection extends PyVariable
             IVariableLocator locator) {
         PyVariable[] tempVariables = new PyVariable[0];
         try {
-            String payload = ((GetVariableCommand) cmd).getResponse();
-            tempVariables = XMLUtils.XMLToVariables(target, locator, payload);
+            tempVariables = ((GetVariableCommand) cmd).getResponseVariables(locator);
         } catch (CoreException e) {
             tempVariables = new PyVariable[1];
             tempVariables[0] = new PyVariable(target, "Error", "pydev ERROR", "Could not resolve variable", locator);
@@ -71,6 +72,10 @@ public class PyVariableCollection extends PyVariable
 
     @Override
     public GetVariableCommand getVariableCommand(AbstractDebugTarget dbg) {
+        if (dbg.isVariableRangeSupported()) {
+            // Only the first items are requested (the others are shown in pages which are requested when expanded).
+            return new GetVariableRangeCommand(dbg, getPyDBLocation(), 0, PyVariablesPage.PAGE_SIZE);
+        }
         return new GetVariableCommand(dbg, getPyDBLocation());
     }
 
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IVariable;
+import org.python.pydev.debug.model.remote.GetVariableCommand;
+import org.python.pydev.debug.model.remote.GetVariableRangeCommand;
+
+/**
+ * Represents a range of the items of a (large) container, shown as [offset..last] in the variables view.
+ *
+ * Its items are only requested to pydevd when it's expanded (and if it has more than PAGE_SIZE items, it's
+ * further split into sub-ranges, so, no more than PAGE_SIZE children are shown at each level).
+ */
+public class PyVariablesPage extends PyVariable implements IVariablesContainerParent {
+
+    /**
+     * The number of items requested to pydevd at once.
+     */
+    public static final int PAGE_SIZE = 100;
+
+    private final int offset;
+    private final int length;
+    private final ContainerOfVariables variableContainer = new ContainerOfVariables(this, false);
+    private volatile PyVariable[] subPages;
+
+    /**
+     * @param locator the container (or the page which contains this page).
+     */
+    public PyVariablesPage(AbstractDebugTarget target, IVariableLocator locator, int offset, int length) {
+        super(target, "[" + offset + ".." + (offset + length - 1) + "]", "", "", locator);
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the pages with the items in the range [start, end) of the container at the given locator.
+     */
+    public static PyVariable[] createPages(AbstractDebugTarget target, IVariableLocator locator, int start, int end) {
+        int total = end - start;
+        if (total <= 0) {
+            return new PyVariable[0];
+        }
+        // The smallest power of PAGE_SIZE which creates up to PAGE_SIZE pages.
+        long pageSize = PAGE_SIZE;
+        while ((total + pageSize - 1) / pageSize > PAGE_SIZE) {
+            pageSize *= PAGE_SIZE;
+        }
+        int count = (int) ((total + pageSize - 1) / pageSize);
+        PyVariable[] pages = new PyVariable[count];
+        for (int i = 0; i < count; i++) {
+            int pageOffset = (int) (start + i * pageSize);
+            pages[i] = new PyVariablesPage(target, locator, pageOffset, (int) Math.min(pageSize, end - pageOffset));
+        }
+        return pages;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * The items are resolved in the container itself (so, this is the location of the container).
+     */
+    @Override
+    public String getPyDBLocation() {
+        return locator.getPyDBLocation();
+    }
+
+    @Override
+    public IVariable[] getVariables() throws DebugException {
+        if (length > PAGE_SIZE) {
+            PyVariable[] pages = subPages;
+            if (pages == null) {
+                pages = subPages = createPages(target, this, offset, offset + length);
+            }
+            return pages;
+        }
+        return this.variableContainer.getVariables();
+    }
+
+    @Override
+    public GetVariableCommand getVariableCommand(AbstractDebugTarget dbg) {
+        return new GetVariableRangeCommand(dbg, getPyDBLocation(), offset, length);
+    }
+
+    @Override
+    public void forceGetNewVariables() {
+        PyVariable[] pages = subPages;
+        if (pages != null) {
+            for (PyVariable page : pages) {
+                page.forceGetNewVariables();
+            }
+        } else {
+            this.variableContainer.forceGetNewVariables();
+        }
+    }
+
+    @Override
+    public boolean hasVariables() throws DebugException {
+        return true;
+    }
+
+    @Override
+    public boolean supportsValueModification() {
+        return false;
+    }
+
+    @Override
+    public AbstractDebugTarget getTarget() {
+        return target;
+    }
+
+    @Override
+    public IVariableLocator getGlobalLocator() {
+        return null;
+    }
+
+}
@@ -14,16 +14,23 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.debug.core.DebugException;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
 import org.python.pydev.debug.model.remote.GetVariableCommand;
+import org.python.pydev.debug.model.remote.GetVariableRangeCommand;
 import org.python.pydev.debug.model.remote.ICommandResponseListener;
 import org.python.pydev.shared_core.log.Log;
 
 public class VariablesLoader implements ICommandResponseListener {
 
+    /**
+     * The time to wait for the response before returning (afterwards the variables are set asynchronously).
+     */
+    private static final long MAX_WAIT_MILLIS = 1500;
+
     private volatile PyVariable[] currentVariables;
     private volatile PyVariable[] oldVariables;
     private final ContainerOfVariables parent;
     private IProgressMonitor monitor;
     private boolean addGlobalsVariable;
+    private final Object waitLock = new Object();
 
     public VariablesLoader(ContainerOfVariables parent, boolean addGlobalsVariable) {
         this.parent = parent;
@@ -38,6 +45,10 @@ public class VariablesLoader implements ICommandResponseListener {
         return this.parent.getLocator();
     }
 
+    /**
+     * @return the variables fetched or null if the response didn't arrive in time (in which case the variables
+     * are set in the parent when it arrives).
+     */
     public PyVariable[] fetchVariables() {
         oldVariables = currentVariables;
         currentVariables = null;
@@ -57,23 +68,27 @@ public class VariablesLoader implements ICommandResponseListener {
             // it causes unneeded scrolling, because view preserves selection instead
             // of visibility.
             // I try to minimize the occurrence here, by giving pydevd time to complete the
-            // task before we are forced to do asynchronous notification.
-            int i = 150; //up to 1.5 seconds
-            while (--i > 0 && currentVariables == null) {
-                if (this.monitor != null && this.monitor.isCanceled() == true) {
-                    //canceled request... let's return
-                    return new PyVariable[0];
+            // task before we are forced to do asynchronous notification (commandComplete
+            // notifies as soon as the variables are available).
+            long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+            synchronized (waitLock) {
+                while (currentVariables == null) {
+                    if (this.monitor != null && this.monitor.isCanceled() == true) {
+                        //canceled request... let's return
+                        return new PyVariable[0];
+                    }
+                    long timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0) {
+                        break;
+                    }
+                    waitLock.wait(timeout);
                 }
-                Thread.sleep(10); //10 millis
             }
         } catch (InterruptedException e) {
             Log.log(e);
         }
 
-        if (currentVariables != null) {
-            return currentVariables;
-        }
-        return new PyVariable[0];
+        return currentVariables;
     }
 
     @Override
@@ -85,6 +100,19 @@ public class VariablesLoader implements ICommandResponseListener {
         }
         PyVariable[] temp = PyVariableCollection.getCommandVariables(cmd, target, locator);
 
+        if (cmd instanceof GetVariableRangeCommand) {
+            // The remaining items of the container are shown in pages (which are only requested when expanded).
+            GetVariableRangeCommand rangeCommand = (GetVariableRangeCommand) cmd;
+            int end = rangeCommand.getOffset() + rangeCommand.getCount();
+            if (rangeCommand.getOffset() == 0 && rangeCommand.getTotal() > end) {
+                PyVariable[] pages = PyVariablesPage.createPages(target, locator, end, rangeCommand.getTotal());
+                PyVariable[] temp1 = new PyVariable[temp.length + pages.length];
+                System.arraycopy(temp, 0, temp1, 0, temp.length);
+                System.arraycopy(pages, 0, temp1, temp.length, pages.length);
+                temp = temp1;
+            }
+        }
+
         if (addGlobalsVariable) {
             PyVariable[] temp1 = new PyVariable[temp.length + 1];
             System.arraycopy(temp, 0, temp1, 1, temp.length);
@@ -95,7 +123,22 @@ public class VariablesLoader implements ICommandResponseListener {
 
         PyVariable[] newVars = this.verifyVariablesModified(temp, oldVariables);
 
-        currentVariables = parent.setVariables(newVars);
+        PyVariable[] variables = parent.setVariables(newVars);
+        synchronized (waitLock) {
+            currentVariables = variables;
+            waitLock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the key used to match an old variable with a new one.
+     */
+    private static String getVariableKey(PyVariable var) {
+        if (var instanceof PyVariablesPage) {
+            // All the pages have the location of the container.
+            return var.getPyDBLocation() + "\t" + var.name;
+        }
+        return var.getPyDBLocation();
     }
 
     /**
@@ -116,7 +159,7 @@ public class VariablesLoader implements ICommandResponseListener {
         try {
             Map<String, PyVariable> map = new HashMap<String, PyVariable>();
             for (PyVariable var : oldVariables) {
-                map.put(var.getPyDBLocation(), var);
+                map.put(getVariableKey(var), var);
             }
             Map<String, PyVariable> variablesAsMap = map;
 
@@ -124,7 +167,7 @@ public class VariablesLoader implements ICommandResponseListener {
             for (int i = 0; i < newFrameVariables.length; i++) {
                 newVariable = newFrameVariables[i];
 
-                PyVariable oldVariable = variablesAsMap.get(newVariable.getPyDBLocation());
+                PyVariable oldVariable = variablesAsMap.get(getVariableKey(newVariable));
 
                 if (oldVariable != null) {
                     boolean equals;
@@ -145,34 +145,68 @@ public class XMLUtils {
      * <var name="self" type="ObjectType" value="<DeepThread>"/>
      */
     static PyVariable createVariable(AbstractDebugTarget target, IVariableLocator locator, Attributes attributes) {
+        return createVariable(target, locator, decodeIgnoreError(attributes.getValue("name")),
+                attributes.getValue("type"), decodeIgnoreError(attributes.getValue("qualifier")),
+                decodeIgnoreError(attributes.getValue("value")), "True".equals(attributes.getValue("isContainer")),
+                "True".equals(attributes.getValue("isRetVal")), "True".equals(attributes.getValue("isIPythonHidden")),
+                "True".equals(attributes.getValue("isErrorOnEval")));
+    }
+
+    /**
+     * Creates a variable from its (already decoded) contents.
+     */
+    static PyVariable createVariable(AbstractDebugTarget target, IVariableLocator locator, String name, String type,
+            String qualifier, String value, boolean isContainer, boolean isRetVal, boolean isIPythonHidden,
+            boolean isErrorOnEval) {
         PyVariable var;
-        String name = decodeIgnoreError(attributes.getValue("name"));
-        String type = attributes.getValue("type");
-        String qualifier = decodeIgnoreError(attributes.getValue("qualifier"));
-        String value = decodeIgnoreError(attributes.getValue("value"));
-        String isContainer = attributes.getValue("isContainer");
-        if ("True".equals(isContainer)) {
+        if (isContainer) {
             var = new PyVariableCollection(target, name, type, value, locator);
         } else {
             var = new PyVariable(target, name, type, value, locator);
         }
         var.setQualifier(qualifier);
-        String isRetVal = attributes.getValue("isRetVal");
-        if ("True".equals(isRetVal)) {
+        if (isRetVal) {
             var.setIsReturnValue(true);
         }
-        String isIPythonHidden = attributes.getValue("isIPythonHidden");
-        if ("True".equals(isIPythonHidden)) {
+        if (isIPythonHidden) {
             var.setIsIPythonHidden(true);
         }
-        String isErrorOnEval = attributes.getValue("isErrorOnEval");
-        if ("True".equals(isErrorOnEval)) {
+        if (isErrorOnEval) {
             var.setIsErrorOnEval(true);
         }
 
         return var;
     }
 
+    /**
+     * Creates a stack frame (or reuses the existing one with the same id in the thread).
+     *
+     * @param file the (already decoded) path of the file of the frame.
+     */
+    static PyStackFrame createStackFrame(AbstractDebugTarget target, PyThread thread, String id, String name,
+            String file, int line) {
+        if (file != null) {
+            File tempFile = new File(file);
+            if (tempFile.exists()) {
+                file = FileUtils.getFileAbsolutePath(tempFile);
+            }
+        }
+        IPath filePath = new Path(file);
+        // Try to recycle old stack objects (this is needed so that in a step over we
+        // reuse the same frame and keep the expanded state of the frame).
+        PyStackFrame frame = thread.findStackFrameByID(id);
+        if (frame == null) {
+            frame = new PyStackFrame(thread, id, name, filePath, line, target);
+        } else {
+            frame.setName(name);
+            frame.setPath(filePath);
+            frame.setLine(line);
+            // If we found it, reuse it and make sure that new variables will be asked when requested.
+            frame.forceGetNewVariables();
+        }
+        return frame;
+    }
+
     /**
      * XMLToStack SAX traverse
      */
@@ -205,29 +239,13 @@ public class XMLUtils {
             try {
                 if (file != null) {
                     file = URLDecoder.decode(file, "UTF-8");
-                    File tempFile = new File(file);
-                    if (tempFile.exists()) {
-                        file = FileUtils.getFileAbsolutePath(tempFile);
-                    }
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
 
             String line = attributes.getValue("line");
-            IPath filePath = new Path(file);
-            // Try to recycle old stack objects (this is needed so that in a step over we
-            // reuse the same frame and keep the expanded state of the frame).
-            currentFrame = thread.findStackFrameByID(id);
-            if (currentFrame == null) {
-                currentFrame = new PyStackFrame(thread, id, name, filePath, Integer.parseInt(line), target);
-            } else {
-                currentFrame.setName(name);
-                currentFrame.setPath(filePath);
-                currentFrame.setLine(Integer.parseInt(line));
-                // If we found it, reuse it and make sure that new variables will be asked when requested.
-                currentFrame.forceGetNewVariables();
-            }
+            currentFrame = createStackFrame(target, thread, id, name, file, Integer.parseInt(line));
             stack.add(currentFrame);
         }
 
@@ -359,13 +377,14 @@ public class XMLUtils {
     }
 
     /**
-     * Processes CMD_GET_VARIABLE return
+     * Processes CMD_GET_VARIABLE and CMD_GET_VARIABLE_RANGE return
      *
      */
     static class XMLToVariableInfo extends DefaultHandler {
         private AbstractDebugTarget target;
         private IVariableLocator locator;
         public List<PyVariable> vars;
+        public int total = -1;
 
         public XMLToVariableInfo(AbstractDebugTarget target, IVariableLocator locator) {
             this.target = target;
@@ -380,12 +399,47 @@ public class XMLUtils {
             // create a local variable, and add it to locals
             if (qName.equals("var")) {
                 vars.add(createVariable(target, locator, attributes));
+
+            } else if (qName.equals("xml")) {
+                // <xml total="1000"> (only in CMD_GET_VARIABLE_RANGE)
+                String totalStr = attributes.getValue("total");
+                if (totalStr != null) {
+                    try {
+                        total = Integer.parseInt(totalStr);
+                    } catch (NumberFormatException e) {
+                        Log.log(e);
+                    }
+                }
             }
         }
     }
 
+    /**
+     * The variables received in a response to CMD_GET_VARIABLE_RANGE.
+     */
+    public static class VariablesRange {
+
+        public final PyVariable[] vars;
+
+        /**
+         * The number of items in the container (-1 if unknown).
+         */
+        public final int total;
+
+        public VariablesRange(PyVariable[] vars, int total) {
+            this.vars = vars;
+            this.total = total;
+        }
+
+    }
+
     public static PyVariable[] XMLToVariables(AbstractDebugTarget target, IVariableLocator locator, String payload)
             throws CoreException {
+        return XMLToVariablesRange(target, locator, payload).vars;
+    }
+
+    public static VariablesRange XMLToVariablesRange(AbstractDebugTarget target, IVariableLocator locator,
+            String payload) throws CoreException {
         try {
             SAXParser parser = getSAXParser();
             XMLToVariableInfo info = new XMLToVariableInfo(target, locator);
@@ -394,7 +448,7 @@ public class XMLUtils {
             for (int i = 0; i < info.vars.size(); i++) {
                 vars[i] = info.vars.get(i);
             }
-            return vars;
+            return new VariablesRange(vars, info.total);
         } catch (CoreException e) {
             throw e;
         } catch (SAXException e) {
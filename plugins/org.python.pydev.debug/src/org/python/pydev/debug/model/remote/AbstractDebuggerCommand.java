@@ -86,6 +86,7 @@ public abstract class AbstractDebuggerCommand {
     static public final int CMD_SHOW_RETURN_VALUES = 146;
     static public final int CMD_INPUT_REQUESTED = 147;
     static public final int CMD_PROCESS_CREATED = 149;
+    static public final int CMD_GET_VARIABLE_RANGE = 207;
 
     static public final int CMD_ERROR = 901;
     static public final int CMD_VERSION = 501;
@@ -153,6 +154,27 @@ public abstract class AbstractDebuggerCommand {
         }
     }
 
+    /**
+     * Called when command completes with a binary payload (only sent by pydevd when the binary
+     * protocol is used -- errors are always sent as text).
+     */
+    public final void processBinaryResponse(int cmdCode, byte payloadKind, byte[] payload) {
+        processOKBinaryResponse(cmdCode, payloadKind, payload);
+
+        if (responseListener != null) {
+            responseListener.commandComplete(this);
+        }
+    }
+
+    /**
+     * notification of the response to the command with a binary payload.
+     * Commands which may receive a binary payload must override it.
+     */
+    public void processOKBinaryResponse(int cmdCode, byte payloadKind, byte[] payload) {
+        PydevDebugPlugin.log(IStatus.ERROR, "Debugger command ignored binary response " + getClass().toString()
+                + " payload kind: " + payloadKind, null);
+    }
+
     /**
      * notification of the response to the command.
      * You'll get either processResponse or processErrorResponse
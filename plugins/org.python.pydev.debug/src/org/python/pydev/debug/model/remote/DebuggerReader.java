@@ -6,9 +6,10 @@
  */
 package org.python.pydev.debug.model.remote;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Dictionary;
@@ -19,6 +20,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.AbstractDebugTarget;
 import org.python.pydev.debug.model.AbstractDebugTargetWithTransmission;
+import org.python.pydev.debug.model.BinaryProtocolUtils;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_ui.utils.RunInUiThread;
@@ -51,7 +53,12 @@ public class DebuggerReader implements Runnable {
     /**
      * we read from this
      */
-    private InputStream in;
+    private BufferedInputStream in;
+
+    /**
+     * reads the binary messages from 'in'
+     */
+    private DataInputStream dataIn;
 
     /**
      * that's the debugger that made us... we have to finish it when we are done
@@ -69,7 +76,8 @@ public class DebuggerReader implements Runnable {
     public DebuggerReader(Socket s, AbstractDebugTargetWithTransmission r) throws IOException {
         remote = (AbstractDebugTarget) r;
         socket = s;
-        in = socket.getInputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+        dataIn = new DataInputStream(in);
     }
 
     /**
@@ -93,21 +101,24 @@ public class DebuggerReader implements Runnable {
      * Parses & dispatches the command
      */
     private void processCommand(String cmdLine) {
-        try {
-            String[] cmdParsed = cmdLine.split("\t", 3);
-            int cmdCode = Integer.parseInt(cmdParsed[0]);
-            int seqCode = Integer.parseInt(cmdParsed[1]);
-            String payload = cmdParsed[2];
+        String[] cmdParsed = cmdLine.split("\t", 3);
+        processCommand(Integer.parseInt(cmdParsed[0]), Integer.parseInt(cmdParsed[1]), cmdParsed[2]);
+    }
 
+    /**
+     * Dispatches the command
+     */
+    private void processCommand(int cmdCode, int seqCode, String payload) {
+        try {
             // is there a response waiting
             AbstractDebuggerCommand cmd;
             synchronized (responseQueue) {
-                cmd = responseQueue.remove(new Integer(seqCode));
+                cmd = responseQueue.remove(seqCode);
             }
 
             if (cmd == null) {
                 if (remote != null) {
-                    remote.processCommand(cmdParsed[0], cmdParsed[1], payload);
+                    remote.processCommand(String.valueOf(cmdCode), String.valueOf(seqCode), payload);
                 } else {
                     PydevDebugPlugin.log(IStatus.ERROR, "internal error, command received no target", null);
                 }
@@ -120,6 +131,32 @@ public class DebuggerReader implements Runnable {
         }
     }
 
+    /**
+     * Dispatches a command with a binary payload
+     */
+    private void processBinaryCommand(int cmdCode, int seqCode, byte payloadKind, byte[] payload) {
+        try {
+            // is there a response waiting
+            AbstractDebuggerCommand cmd;
+            synchronized (responseQueue) {
+                cmd = responseQueue.remove(seqCode);
+            }
+
+            if (cmd == null) {
+                if (remote != null) {
+                    remote.processBinaryCommand(cmdCode, seqCode, payloadKind, payload);
+                } else {
+                    PydevDebugPlugin.log(IStatus.ERROR, "internal error, command received no target", null);
+                }
+            } else {
+                cmd.processBinaryResponse(cmdCode, payloadKind, payload);
+            }
+        } catch (Exception e) {
+            Log.log(e);
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * keep reading until we finish (that should happen when an exception is thrown, or if it is set as
      * done from outside)
@@ -130,14 +167,9 @@ public class DebuggerReader implements Runnable {
     public void run() {
         try {
             while (!done) {
-                String contents;
                 try {
-                    if ((contents = readContents()) == null) {
+                    if (!readAndProcessMessage()) {
                         done = true;
-                    } else {
-                        if (contents.length() > 0) {
-                            processCommand(contents.toString());
-                        }
                     }
                 } catch (Exception e1) {
                     done = true;
@@ -167,6 +199,63 @@ public class DebuggerReader implements Runnable {
     private FastStringBuffer contents = new FastStringBuffer();
     private ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
 
+    /**
+     * Reads a message and processes it. Each message may be in the http protocol (which starts with the
+     * Content-Length header) or in the binary protocol (which starts with the length of the message in 4
+     * bytes), so, it's possible to receive both while the protocol is being changed.
+     *
+     * @return false if the connection was closed (or a message couldn't be read) and true otherwise.
+     */
+    private boolean readAndProcessMessage() throws IOException {
+        in.mark(1);
+        int first = in.read();
+        if (first == -1) {
+            return false;
+        }
+        in.reset();
+
+        if (first == 'C') {
+            // Content-Length header (messages in the binary protocol would need to have more than 1GB to start
+            // with this char).
+            String contents = readContents();
+            if (contents == null) {
+                return false;
+            }
+            if (contents.length() > 0) {
+                processCommand(contents);
+            }
+            return true;
+        }
+        return readAndProcessBinaryMessage();
+    }
+
+    /**
+     * Reads a message in the binary protocol: the length (which includes the cmd id, seq and payload kind),
+     * cmd id and seq (4 bytes each), kind of payload (1 byte) and the payload itself.
+     */
+    private boolean readAndProcessBinaryMessage() throws IOException {
+        int len = dataIn.readInt();
+        if (len < 9) {
+            throw new IOException("Invalid binary message received from pydevd (len: " + len + ").");
+        }
+        int cmdCode = dataIn.readInt();
+        int seqCode = dataIn.readInt();
+        byte payloadKind = dataIn.readByte();
+        byte[] payload = new byte[len - 9];
+        dataIn.readFully(payload);
+        if (DEBUG) {
+            System.err.println("receive binary cmd: " + cmdCode + " seq: " + seqCode + " kind: " + payloadKind
+                    + " len: " + len);
+        }
+
+        if (payloadKind == BinaryProtocolUtils.PAYLOAD_TEXT) {
+            processCommand(cmdCode, seqCode, new String(payload, StandardCharsets.UTF_8));
+        } else {
+            processBinaryCommand(cmdCode, seqCode, payloadKind, payload);
+        }
+        return true;
+    }
+
     private String readContents() throws IOException {
         int bytesToRead = -1;
 
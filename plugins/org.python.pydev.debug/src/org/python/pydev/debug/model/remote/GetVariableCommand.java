@@ -14,11 +14,15 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.AbstractDebugTarget;
+import org.python.pydev.debug.model.BinaryProtocolUtils;
+import org.python.pydev.debug.model.IVariableLocator;
+import org.python.pydev.debug.model.PyVariable;
+import org.python.pydev.debug.model.XMLUtils;
 
 /**
  * GetVariable network command.
  * 
- * GetVariable gets the value of the variable from network as XML.
+ * GetVariable gets the value of the variable from network as XML (or as a binary payload in the binary protocol).
  * The caller can busy-wait for the response.
  */
 public class GetVariableCommand extends AbstractDebuggerCommand {
@@ -27,6 +31,7 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
     boolean isError = false;
     int responseCode;
     String payload;
+    byte[] binaryPayload;
 
     public GetVariableCommand(AbstractDebugTarget debugger, String locator) {
         super(debugger);
@@ -43,6 +48,28 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
         return true;
     }
 
+    @Override
+    public void processOKBinaryResponse(int cmdCode, byte payloadKind, byte[] payload) {
+        responseCode = cmdCode;
+        if (cmdCode == getCommandId() && payloadKind == getBinaryPayloadKind()) {
+            String xml;
+            try {
+                xml = BinaryProtocolUtils.variablesToXml(payloadKind, payload);
+            } catch (CoreException e) {
+                isError = true;
+                PydevDebugPlugin.log(IStatus.ERROR, "Invalid binary response to " + this.getClass(), e);
+                return;
+            }
+            this.binaryPayload = payload;
+            // Subclasses which only know about the xml response still get it through processOKResponse
+            // (getResponseVariables still creates the variables directly from the binary payload).
+            processOKResponse(cmdCode, xml);
+        } else {
+            isError = true;
+            PydevDebugPlugin.log(IStatus.ERROR, "Unexpected binary response to " + this.getClass(), null);
+        }
+    }
+
     @Override
     public void processOKResponse(int cmdCode, String payload) {
         responseCode = cmdCode;
@@ -58,6 +85,10 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
         return CMD_GET_VARIABLE;
     }
 
+    protected byte getBinaryPayloadKind() {
+        return BinaryProtocolUtils.PAYLOAD_VARIABLES;
+    }
+
     @Override
     public void processErrorResponse(int cmdCode, String payload) {
         responseCode = cmdCode;
@@ -71,4 +102,14 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
         else
             return payload;
     }
+
+    /**
+     * @return the variables received (from the xml or from the binary payload, depending on the protocol used).
+     */
+    public PyVariable[] getResponseVariables(IVariableLocator locator) throws CoreException {
+        if (!isError && binaryPayload != null) {
+            return BinaryProtocolUtils.readVariables(target, locator, binaryPayload);
+        }
+        return XMLUtils.XMLToVariables(target, locator, getResponse());
+    }
 }
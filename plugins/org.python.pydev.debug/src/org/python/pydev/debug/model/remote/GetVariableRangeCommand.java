@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model.remote;
+
+import org.eclipse.core.runtime.CoreException;
+import org.python.pydev.debug.model.AbstractDebugTarget;
+import org.python.pydev.debug.model.BinaryProtocolUtils;
+import org.python.pydev.debug.model.IVariableLocator;
+import org.python.pydev.debug.model.PyVariable;
+import org.python.pydev.debug.model.XMLUtils;
+import org.python.pydev.debug.model.XMLUtils.VariablesRange;
+
+/**
+ * Gets only the items of a container in the range [offset, offset + count) (along with the total number of items
+ * in the container, so that the remaining items can be requested later on).
+ *
+ * Note: the additional fields of the container (i.e.: __len__, attributes) are only sent in the range starting
+ * at 0.
+ */
+public class GetVariableRangeCommand extends GetVariableCommand {
+
+    private final int offset;
+    private final int count;
+    private volatile int total = -1;
+
+    public GetVariableRangeCommand(AbstractDebugTarget debugger, String locator, int offset, int count) {
+        super(debugger, locator);
+        this.offset = offset;
+        this.count = count;
+    }
+
+    @Override
+    public String getOutgoing() {
+        return makeCommand(getCommandId(), sequence, offset + "\t" + count + "\t" + locator);
+    }
+
+    @Override
+    protected int getCommandId() {
+        return CMD_GET_VARIABLE_RANGE;
+    }
+
+    @Override
+    protected byte getBinaryPayloadKind() {
+        return BinaryProtocolUtils.PAYLOAD_VARIABLES_RANGE;
+    }
+
+    @Override
+    public PyVariable[] getResponseVariables(IVariableLocator locator) throws CoreException {
+        VariablesRange range;
+        if (!isError && binaryPayload != null) {
+            range = BinaryProtocolUtils.readVariablesRange(target, locator, binaryPayload);
+        } else {
+            range = XMLUtils.XMLToVariablesRange(target, locator, getResponse());
+        }
+        total = range.total;
+        return range.vars;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of items in the container (only available after getResponseVariables() is called;
+     * -1 if unknown).
+     */
+    public int getTotal() {
+        return total;
+    }
+}
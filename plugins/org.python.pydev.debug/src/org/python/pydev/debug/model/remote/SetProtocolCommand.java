@@ -10,18 +10,48 @@ import org.python.pydev.debug.model.AbstractDebugTarget;
 
 public class SetProtocolCommand extends AbstractDebuggerCommand {
 
+    public static final String HTTP_PROTOCOL = "http";
+
+    /**
+     * Same as the http protocol, but with length-prefixed messages and the stack/variables sent with a binary
+     * payload (see: BinaryProtocolUtils). Older versions of pydevd don't support it (in which case the
+     * protocol set is kept).
+     */
+    public static final String BINARY_PROTOCOL = "binary";
+
+    private final String protocol;
+
     public SetProtocolCommand(AbstractDebugTarget debugger) {
+        this(debugger, HTTP_PROTOCOL);
+    }
+
+    public SetProtocolCommand(AbstractDebugTarget debugger, String protocol) {
         super(debugger);
+        this.protocol = protocol;
     }
 
     @Override
     public String getOutgoing() {
-        return makeCommand(getCommandId(), sequence, "http");
+        return makeCommand(getCommandId(), sequence, protocol);
     }
 
     @Override
     public boolean needResponse() {
-        return false;
+        // Note: the response may be an error if the protocol is not supported by pydevd.
+        return !HTTP_PROTOCOL.equals(protocol);
+    }
+
+    @Override
+    public void processOKResponse(int cmdCode, String payload) {
+        // The protocol was changed.
+        if (BINARY_PROTOCOL.equals(protocol)) {
+            target.setVariableRangeSupported(true);
+        }
+    }
+
+    @Override
+    public void processErrorResponse(int cmdCode, String payload) {
+        // The protocol isn't supported by this version of pydevd: just keep on with the previous one.
     }
 
     protected int getCommandId() {
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.codecoverage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+public class CoverageFilesCacheTest extends TestCase {
+
+    public void testParseLine() throws Exception {
+        CoverageFilesCache.Entry entry = CoverageFilesCache.parseLine("F|10|4|2,3,4,8|/a/b|c.py");
+        assertEquals(new File("/a/b|c.py"), entry.file);
+        assertEquals(10, entry.stmts);
+        assertEquals(4, entry.miss);
+        assertEquals("2-4, 8", entry.notExecuted);
+        assertNull(entry.error);
+
+        entry = CoverageFilesCache.parseLine("F|3|0||/a/c.py");
+        assertEquals(0, entry.miss);
+        assertEquals("", entry.notExecuted);
+
+        entry = CoverageFilesCache.parseLine("E|||No source for code|/a/d.py");
+        assertEquals(new File("/a/d.py"), entry.file);
+        assertEquals("No source for code", entry.error);
+
+        assertNull(CoverageFilesCache.parseLine("Coverage.py warning: something"));
+        assertNull(CoverageFilesCache.parseLine("F|3|0|"));
+    }
+
+    public void testInvalidatedOnChanges() throws Exception {
+        File file = File.createTempFile("CoverageFilesCacheTest", ".py");
+        try {
+            CoverageFilesCache filesCache = new CoverageFilesCache();
+            filesCache.put(CoverageFilesCache.parseLine("F|3|0||" + file), 10);
+            assertNotNull(filesCache.get(file, 10));
+
+            // New coverage data.
+            assertNull(filesCache.get(file, 11));
+
+            // Changed file.
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write("a = 10\n".getBytes());
+            }
+            assertNull(filesCache.get(file, 10));
+
+            filesCache.put(CoverageFilesCache.parseLine("F|3|0||" + file), 10);
+            filesCache.clear();
+            assertNull(filesCache.get(file, 10));
+        } finally {
+            file.delete();
+        }
+    }
+}
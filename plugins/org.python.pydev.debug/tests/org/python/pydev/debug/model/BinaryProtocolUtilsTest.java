@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.model.IProcess;
+import org.python.pydev.debug.model.XMLUtils.StoppedStack;
+import org.python.pydev.debug.model.XMLUtils.VariablesRange;
+
+public class BinaryProtocolUtilsTest extends TestCase {
+
+    private final PyThread thread = new PyThread(null, "MainThread", "pid_1_id_2");
+
+    private final AbstractDebugTarget target = new AbstractDebugTarget() {
+
+        @Override
+        public void launchRemoved(ILaunch launch) {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public IProcess getProcess() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public boolean isTerminated() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public boolean canTerminate() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        protected PyThread findThreadByID(String thread_id) {
+            return thread.getId().equals(thread_id) ? thread : null;
+        }
+    };
+
+    private static void writeStr(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] createVariablesPayload(Integer total) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (total != null) {
+            out.writeInt(total);
+        }
+        out.writeInt(3);
+        writeStr(out, "ret");
+        writeStr(out, "int");
+        writeStr(out, "builtins");
+        writeStr(out, "int: 10");
+        out.writeByte(2);
+
+        writeStr(out, "a");
+        writeStr(out, "str");
+        writeStr(out, "");
+        writeStr(out, "str: á<>\"%20");
+        out.writeByte(4);
+
+        writeStr(out, "b");
+        writeStr(out, "list");
+        writeStr(out, "builtins");
+        writeStr(out, "");
+        out.writeByte(1 | 8);
+        return bytes.toByteArray();
+    }
+
+    public void testReadVariables() throws Exception {
+        PyVariable[] vars = BinaryProtocolUtils.readVariables(target, null, createVariablesPayload(null));
+        assertEquals(3, vars.length);
+
+        assertEquals("ret", vars[0].getName());
+        assertEquals("int: 10", vars[0].getValueString());
+        assertEquals("builtins", vars[0].getQualifier());
+        assertTrue(vars[0].isReturnValue());
+        assertFalse(vars[0] instanceof PyVariableCollection);
+
+        // No decoding is done on the binary protocol.
+        assertEquals("str: á<>\"%20", vars[1].getValueString());
+        assertNull(vars[1].getQualifier());
+        assertTrue(vars[1].isIPythonHidden());
+
+        assertTrue(vars[2] instanceof PyVariableCollection);
+        assertTrue(vars[2].isErrorOnEval());
+        assertEquals("", vars[2].getValueString());
+    }
+
+    public void testVariablesToXml() throws Exception {
+        byte[] payload = createVariablesPayload(null);
+        String xml = BinaryProtocolUtils.variablesToXml(BinaryProtocolUtils.PAYLOAD_VARIABLES, payload);
+        PyVariable[] expected = BinaryProtocolUtils.readVariables(target, null, payload);
+        PyVariable[] vars = XMLUtils.XMLToVariables(target, null, xml);
+        checkSameVariables(expected, vars);
+
+        payload = createVariablesPayload(1000);
+        xml = BinaryProtocolUtils.variablesToXml(BinaryProtocolUtils.PAYLOAD_VARIABLES_RANGE, payload);
+        VariablesRange range = XMLUtils.XMLToVariablesRange(target, null, xml);
+        assertEquals(1000, range.total);
+        checkSameVariables(BinaryProtocolUtils.readVariablesRange(target, null, payload).vars, range.vars);
+    }
+
+    private void checkSameVariables(PyVariable[] expected, PyVariable[] vars) throws Exception {
+        assertEquals(expected.length, vars.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getName(), vars[i].getName());
+            assertEquals(expected[i].getReferenceTypeName(), vars[i].getReferenceTypeName());
+            assertEquals(expected[i].getQualifier(), vars[i].getQualifier());
+            assertEquals(expected[i].getValueString(), vars[i].getValueString());
+            assertEquals(expected[i].getClass(), vars[i].getClass());
+            assertEquals(expected[i].isReturnValue(), vars[i].isReturnValue());
+            assertEquals(expected[i].isIPythonHidden(), vars[i].isIPythonHidden());
+            assertEquals(expected[i].isErrorOnEval(), vars[i].isErrorOnEval());
+        }
+    }
+
+    public void testReadStack() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeStr(out, "pid_1_id_2");
+        writeStr(out, "111");
+        writeStr(out, "");
+        writeStr(out, "trace");
+        out.writeInt(2);
+        writeStr(out, "10");
+        writeStr(out, "method");
+        writeStr(out, "/client/a.py");
+        out.writeInt(22);
+        writeStr(out, "11");
+        writeStr(out, "<module>");
+        writeStr(out, "/client/b.py");
+        out.writeInt(1);
+
+        StoppedStack stack = BinaryProtocolUtils.readStack(target, bytes.toByteArray());
+        assertSame(thread, stack.thread);
+        assertEquals("111", stack.stopReason);
+        assertEquals(2, stack.stack.length);
+        assertEquals("method [a.py:22]", stack.stack[0].getName());
+        assertEquals(22, stack.stack[0].getLineNumber());
+        assertEquals("<module> [b.py:1]", stack.stack[1].getName());
+        assertEquals(1, stack.stack[1].getLineNumber());
+    }
+
+    public void testInvalidPayload() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        writeStr(out, "a");
+        out.writeInt(Integer.MAX_VALUE);
+        try {
+            BinaryProtocolUtils.readVariables(target, null, bytes.toByteArray());
+            fail("Expected CoreException");
+        } catch (CoreException e) {
+            // expected
+        }
+    }
+}
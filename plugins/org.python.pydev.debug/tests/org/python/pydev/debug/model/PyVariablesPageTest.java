@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model;
+
+import junit.framework.TestCase;
+
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IVariable;
+import org.python.pydev.debug.model.XMLUtils.VariablesRange;
+
+public class PyVariablesPageTest extends TestCase {
+
+    private final AbstractDebugTarget target = new AbstractDebugTarget() {
+
+        @Override
+        public void launchRemoved(ILaunch launch) {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public IProcess getProcess() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public boolean isTerminated() {
+            throw new RuntimeException("not implemented");
+        }
+
+        @Override
+        public boolean canTerminate() {
+            throw new RuntimeException("not implemented");
+        }
+    };
+
+    private final IVariableLocator locator = new IVariableLocator() {
+
+        @Override
+        public String getThreadId() {
+            return "pid_1_id_2";
+        }
+
+        @Override
+        public String getPyDBLocation() {
+            return "pid_1_id_2\t10\tFRAME\tlst";
+        }
+    };
+
+    public void testCreatePages() throws Exception {
+        PyVariable[] pages = PyVariablesPage.createPages(target, locator, 100, 350);
+        assertEquals(3, pages.length);
+        assertEquals("[100..199]", pages[0].getName());
+        assertEquals("[200..299]", pages[1].getName());
+        assertEquals("[300..349]", pages[2].getName());
+        assertEquals("pid_1_id_2\t10\tFRAME\tlst", pages[0].getPyDBLocation());
+
+        assertEquals(0, PyVariablesPage.createPages(target, locator, 100, 100).length);
+    }
+
+    public void testCreatePagesNested() throws Exception {
+        PyVariable[] pages = PyVariablesPage.createPages(target, locator, 100, 1000000);
+        assertEquals(100, pages.length);
+        assertEquals("[100..10099]", pages[0].getName());
+        assertEquals("[990100..999999]", pages[99].getName());
+
+        // Pages with more than PAGE_SIZE items are split (without any request to pydevd).
+        IVariable[] subPages = pages[0].getVariables();
+        assertEquals(100, subPages.length);
+        assertEquals("[100..199]", subPages[0].getName());
+        assertEquals("[10000..10099]", subPages[99].getName());
+        assertSame(subPages, pages[0].getVariables());
+        assertEquals("pid_1_id_2\t10\tFRAME\tlst", ((PyVariable) subPages[0]).getPyDBLocation());
+    }
+
+    public void testXMLToVariablesRange() throws Exception {
+        VariablesRange range = XMLUtils.XMLToVariablesRange(target, locator,
+                "<xml total=\"1000\"><var name=\"000\" type=\"int\" qualifier=\"builtins\" value=\"int%253A 0\" />"
+                        + "</xml>");
+        assertEquals(1000, range.total);
+        assertEquals(1, range.vars.length);
+        assertEquals("000", range.vars[0].getName());
+
+        range = XMLUtils.XMLToVariablesRange(target, locator, "<xml></xml>");
+        assertEquals(-1, range.total);
+        assertEquals(0, range.vars.length);
+    }
+}
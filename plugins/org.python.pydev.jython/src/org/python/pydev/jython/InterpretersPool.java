@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.jython;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.jython.IPythonInterpreter;
+
+/**
+ * Keeps at most maxInterpreters interpreters (created with the given factory) so that they can be reused.
+ *
+ * An interpreter acquired must be either released (to be reused) or discarded (if it shouldn't be reused).
+ */
+public final class InterpretersPool {
+
+    private final int maxInterpreters;
+    private final ICallback0<IPythonInterpreter> factory;
+
+    // Guarded by this.
+    private final List<IPythonInterpreter> available = new ArrayList<>();
+    private int created;
+    private boolean disposed;
+
+    /**
+     * @param factory creates a new interpreter (returns null if it wasn't possible to create it).
+     */
+    public InterpretersPool(int maxInterpreters, ICallback0<IPythonInterpreter> factory) {
+        this.maxInterpreters = maxInterpreters;
+        this.factory = factory;
+    }
+
+    /**
+     * Waits until an interpreter is available (or until a new one may be created).
+     *
+     * @return an interpreter or null if it wasn't possible to create it, the pool was disposed or the thread was
+     * interrupted while waiting (in which case the interrupted flag is restored).
+     */
+    public IPythonInterpreter acquire() {
+        synchronized (this) {
+            try {
+                while (!disposed && available.isEmpty() && created >= maxInterpreters) {
+                    this.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (disposed) {
+                return null;
+            }
+            if (!available.isEmpty()) {
+                return available.remove(available.size() - 1);
+            }
+            created++;
+        }
+        IPythonInterpreter interpreter = null;
+        try {
+            interpreter = factory.call();
+        } finally {
+            if (interpreter == null) {
+                discard(null);
+            }
+        }
+        return interpreter;
+    }
+
+    /**
+     * Returns the interpreter to the pool (it's cleaned up if the pool was disposed).
+     */
+    public void release(IPythonInterpreter interpreter) {
+        synchronized (this) {
+            if (!disposed) {
+                available.add(interpreter);
+                this.notify();
+                return;
+            }
+            created--;
+        }
+        cleanup(interpreter);
+    }
+
+    /**
+     * Called instead of release if the interpreter shouldn't be reused.
+     *
+     * @param interpreter the interpreter to be cleaned up (may be null if it couldn't be created).
+     */
+    public void discard(IPythonInterpreter interpreter) {
+        synchronized (this) {
+            created--;
+            this.notify();
+        }
+        if (interpreter != null) {
+            cleanup(interpreter);
+        }
+    }
+
+    /**
+     * Cleans up the interpreters available (the ones in use are cleaned up when released) and makes acquire
+     * return null from now on.
+     */
+    public void dispose() {
+        List<IPythonInterpreter> toCleanup;
+        synchronized (this) {
+            disposed = true;
+            toCleanup = new ArrayList<>(available);
+            created -= available.size();
+            available.clear();
+            this.notifyAll();
+        }
+        for (IPythonInterpreter interpreter : toCleanup) {
+            cleanup(interpreter);
+        }
+    }
+
+    /**
+     * @return the number of interpreters created and not discarded (available or in use).
+     */
+    public synchronized int getCreated() {
+        return created;
+    }
+
+    private static void cleanup(IPythonInterpreter interpreter) {
+        try {
+            interpreter.cleanup();
+        } catch (Throwable e) {
+            Log.log(e);
+        }
+    }
+}
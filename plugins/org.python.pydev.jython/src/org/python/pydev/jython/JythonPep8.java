@@ -1,16 +1,53 @@
 package org.python.pydev.jython;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.python.core.Py;
 import org.python.core.PyObject;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.core.logging.DebugSettings;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.jython.IPythonInterpreter;
 import org.python.pydev.shared_core.jython.JythonPep8Core;
+import org.python.pydev.shared_core.log.ToLogFile;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 
 public class JythonPep8 {
 
+    /**
+     * Executed once in each interpreter (after pycodestyle is imported in it).
+     */
+    public static final String INIT_PEP8 = ""
+            + "class ReportError:\n"
+            + "\n"
+            + "    def __init__(self, checker, pep8style, visitor):\n"
+            + "        self.checker = checker\n"
+            + "        self.pep8style = pep8style\n"
+            + "        self.visitor = visitor\n"
+            + "        self.original = checker.report_error\n"
+            + "        checker.report_error = self\n"
+            + "        if not self.pep8style.excluded(self.checker.filename):\n"
+            + "            checker.check_all()\n"
+            + "        #Clear references\n"
+            + "        self.original = None\n"
+            + "        self.checker = None\n"
+            + "        self.pep8style = None\n"
+            + "        self.visitor = None\n"
+            + "        checker.report_error = None\n"
+            + "    \n"
+            + "    def __call__(self, line_number, offset, text, check):\n"
+            + "        code = text[:4]\n"
+            + "        if self.pep8style.options.ignore_code(code):\n"
+            + "            return\n"
+            + "        self.visitor.reportError(line_number, offset, text, check)\n"
+            + "        return self.original(line_number, offset, text, check)\n"
+            + "";
+
+    /**
+     * Executed for each file analyzed ('visitor' and 'lines' must be set in the interpreter).
+     */
     public static final String EXECUTE_PEP8 = "import sys\n"
             + "argv = ['pycodestyle.py', r'%s'%s]\n"
             + "sys.argv=argv\n"
@@ -21,71 +58,122 @@ public class JythonPep8 {
             + "\n"
             + "checker = pycodestyle.Checker(options=pep8style.options, filename='%s', lines=lines)\n"
             + "\n"
-            + "if ReportError is None: #Only redefine if it wasn't defined already\n"
-            + "    class ReportError:\n"
-            + "\n"
-            + "        def __init__(self, checker, pep8style, visitor):\n"
-            + "            self.checker = checker\n"
-            + "            self.pep8style = pep8style\n"
-            + "            self.visitor = visitor\n"
-            + "            self.original = checker.report_error\n"
-            + "            checker.report_error = self\n"
-            + "            if not self.pep8style.excluded(self.checker.filename):\n"
-            + "                checker.check_all()\n"
-            + "            #Clear references\n"
-            + "            self.original = None\n"
-            + "            self.checker = None\n"
-            + "            self.pep8style = None\n"
-            + "            self.visitor = None\n"
-            + "            checker.report_error = None\n"
-            + "        \n"
-            + "        def __call__(self, line_number, offset, text, check):\n"
-            + "            code = text[:4]\n"
-            + "            if self.pep8style.options.ignore_code(code):\n"
-            + "                return\n"
-            + "            self.visitor.reportError(line_number, offset, text, check)\n"
-            + "            return self.original(line_number, offset, text, check)\n"
-            + "\n"
             + "ReportError(checker, pep8style, visitor)\n"
             + "checker = None #Release checker\n"
             + "pep8style = None #Release pep8style\n"
             + "";
 
-    public static final Object lock = new Object();
+    /**
+     * The maximum number of interpreters kept for each output configuration (if more analyses are requested
+     * concurrently, they wait for an interpreter to be released).
+     */
+    private static final int MAX_INTERPRETERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final InterpretersPool poolWithConsole = new InterpretersPool(MAX_INTERPRETERS,
+            new Pep8InterpreterFactory(true));
+    private static final InterpretersPool poolWithoutConsole = new InterpretersPool(MAX_INTERPRETERS,
+            new Pep8InterpreterFactory(false));
+
+    /**
+     * Creates interpreters which already have pycodestyle imported and ReportError defined.
+     */
+    private static final class Pep8InterpreterFactory implements ICallback0<IPythonInterpreter> {
+
+        private final boolean useConsole;
+
+        private Pep8InterpreterFactory(boolean useConsole) {
+            this.useConsole = useConsole;
+        }
+
+        @Override
+        public IPythonInterpreter call() {
+            IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter(useConsole, false);
+            PyObject pep8Module = JythonModules.getPep8Module(interpreter);
+            if (pep8Module == null) {
+                Log.log("Unable to get pycodestyle module.");
+                interpreter.cleanup();
+                return null;
+            }
+            interpreter.set("pycodestyle", pep8Module);
+            interpreter.exec(INIT_PEP8);
+            return interpreter;
+        }
+    }
 
-    public volatile static PyObject reportError;
+    private static final AtomicLong checks = new AtomicLong();
+    private static final AtomicLong checksNanos = new AtomicLong();
+    private static volatile long lastCheckNanos;
+
+    /**
+     * @return the number of files analyzed with jython.
+     */
+    public static long getChecks() {
+        return checks.get();
+    }
+
+    /**
+     * @return the total time (in nanos) spent analyzing files with jython (including the time waiting for an
+     * interpreter).
+     */
+    public static long getChecksNanos() {
+        return checksNanos.get();
+    }
+
+    /**
+     * @return the time (in nanos) spent in the last file analyzed with jython.
+     */
+    public static long getLastCheckNanos() {
+        return lastCheckNanos;
+    }
+
+    /**
+     * Cleans up the pooled interpreters (called when the plugin is stopped).
+     */
+    public static void dispose() {
+        poolWithConsole.dispose();
+        poolWithoutConsole.dispose();
+    }
 
     public static void analyzePep8WithJython(JythonPep8Core pep8Params) {
+        long initialTime = System.nanoTime();
         FastStringBuffer args = new FastStringBuffer(pep8Params.pep8CommandLine.length * 20);
         for (String string : pep8Params.pep8CommandLine) {
             args.append(',').append("r'").append(string).append('\'');
         }
-
-        //It's important that the interpreter is created in the Thread and not outside the thread (otherwise
-        //it may be that the output ends up being shared, which is not what we want.)
-        IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter(pep8Params.useConsole, false);
         String file = StringUtils.replaceAllSlashes(pep8Params.absolutePath);
-        interpreter.set("visitor", pep8Params.visitor);
-
+        String formatted = StringUtils.format(EXECUTE_PEP8, file, args.toString(), file);
         List<String> splitInLines = StringUtils.splitInLines(pep8Params.document.get());
-        interpreter.set("lines", splitInLines);
-        PyObject tempReportError = reportError;
-        if (tempReportError != null) {
-            interpreter.set("ReportError", tempReportError);
-        } else {
-            interpreter.set("ReportError", Py.None);
+
+        InterpretersPool pool = pep8Params.useConsole ? poolWithConsole : poolWithoutConsole;
+        IPythonInterpreter interpreter = pool.acquire();
+        if (interpreter == null) {
+            return;
         }
-        PyObject pep8Module = JythonModules.getPep8Module(interpreter);
-        interpreter.set("pycodestyle", pep8Module);
-
-        String formatted = StringUtils.format(EXECUTE_PEP8, file,
-                args.toString(), file);
-        interpreter.exec(formatted);
-        if (reportError == null) {
-            synchronized (lock) {
-                if (reportError == null) {
-                    reportError = (PyObject) interpreter.get("ReportError");
-                }
+
+        boolean reuse = false;
+        try {
+            interpreter.set("visitor", pep8Params.visitor);
+            interpreter.set("lines", splitInLines);
+            interpreter.exec(formatted);
+            reuse = true;
+        } finally {
+            if (reuse) {
+                //Release the references to the document/visitor before returning it to the pool.
+                interpreter.set("visitor", Py.None);
+                interpreter.set("lines", Py.None);
+                pool.release(interpreter);
+            } else {
+                pool.discard(interpreter);
+            }
+            long nanos = System.nanoTime() - initialTime;
+            lastCheckNanos = nanos;
+            long total = checksNanos.addAndGet(nanos);
+            long count = checks.incrementAndGet();
+            if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                ToLogFile.toLogFile(
+                        StringUtils.format("PEP 8 check of: %s took: %sms (%s checks, average: %sms)", file,
+                                nanos / 1000000, count, total / count / 1000000),
+                        JythonPep8.class);
             }
         }
     }
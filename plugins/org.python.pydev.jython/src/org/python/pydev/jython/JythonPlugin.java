@@ -285,6 +285,7 @@ public class JythonPlugin extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        JythonPep8.dispose();
         super.stop(context);
         plugin = null;
     }
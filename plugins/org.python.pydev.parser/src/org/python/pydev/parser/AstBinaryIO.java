@@ -0,0 +1,630 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.python.pydev.parser.jython.ISpecialStr;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.SpecialStr;
+import org.python.pydev.parser.jython.ast.commentType;
+import org.python.pydev.shared_core.structure.FastStack;
+
+/**
+ * Binary format used to persist an ast (a SimpleNode tree, with the positions of the nodes).
+ *
+ * The tree is written depth-first and each node is written as:
+ *
+ * node type (class reference), beginLine, beginColumn, parent (0 if it has no parent or the distance to the
+ * ancestor node which is its parent), the public fields of the node class (sorted by name) and the specials
+ * before and after the node.
+ *
+ * Strings and node classes are written the first time they're found and referenced by their index afterwards.
+ *
+ * The fields of the node classes are accessed through reflection (so, a change in the generated ast classes
+ * doesn't need changes here, but FORMAT_VERSION must be raised if the fields change -- still, if the fields
+ * don't match, an IOException is raised when reading).
+ *
+ * Comments are always written (they're used in the code analysis). The other specials (i.e.: parenthesis, colons,
+ * which are only used to pretty-print/rewrite the ast) are only written if requested.
+ */
+public final class AstBinaryIO {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = new byte[] { 'P', 'Y', 'A', 'S' };
+
+    private static final String AST_PACKAGE = "org.python.pydev.parser.jython.ast.";
+
+    private static final byte KIND_INT = 0;
+    private static final byte KIND_BOOLEAN = 1;
+    private static final byte KIND_STRING = 2;
+    private static final byte KIND_NUMBER = 3;
+    private static final byte KIND_INT_ARRAY = 4;
+    private static final byte KIND_NODE = 5;
+    private static final byte KIND_NODE_ARRAY = 6;
+
+    private static final int NUMBER_NULL = 0;
+    private static final int NUMBER_INT = 1;
+    private static final int NUMBER_BIG_INTEGER = 2;
+    private static final int NUMBER_FLOAT = 3;
+    private static final int NUMBER_DOUBLE = 4;
+    private static final int NUMBER_LONG = 5;
+
+    private static final int SPECIAL_COMMENT = 0;
+    private static final int SPECIAL_STR = 1;
+
+    /**
+     * How to create and fill a given node class.
+     */
+    private static final class NodeType {
+
+        private final Class<?> nodeClass;
+        private final Constructor<?> constructor;
+        private final Object[] constructorArgs;
+        private final Field[] fields;
+        private final byte[] kinds;
+
+        private NodeType(Class<?> nodeClass) {
+            this.nodeClass = nodeClass;
+
+            Constructor<?> ctor = null;
+            for (Constructor<?> c : nodeClass.getConstructors()) {
+                if (ctor == null || c.getParameterTypes().length > ctor.getParameterTypes().length) {
+                    ctor = c;
+                }
+            }
+            if (ctor == null) {
+                throw new IllegalArgumentException("No public constructor for: " + nodeClass);
+            }
+            this.constructor = ctor;
+            Class<?>[] parameterTypes = ctor.getParameterTypes();
+            this.constructorArgs = new Object[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (parameterTypes[i] == int.class) {
+                    constructorArgs[i] = 0;
+                } else if (parameterTypes[i] == boolean.class) {
+                    constructorArgs[i] = false;
+                }
+            }
+
+            List<Field> lst = new ArrayList<Field>();
+            for (Field field : nodeClass.getFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || field.getDeclaringClass() == SimpleNode.class) {
+                    continue;
+                }
+                lst.add(field);
+            }
+            Field[] fieldsArray = lst.toArray(new Field[0]);
+            Arrays.sort(fieldsArray, new Comparator<Field>() {
+
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            this.fields = fieldsArray;
+            this.kinds = new byte[fieldsArray.length];
+            for (int i = 0; i < fieldsArray.length; i++) {
+                Class<?> type = fieldsArray[i].getType();
+                if (type == int.class) {
+                    kinds[i] = KIND_INT;
+                } else if (type == boolean.class) {
+                    kinds[i] = KIND_BOOLEAN;
+                } else if (type == String.class) {
+                    kinds[i] = KIND_STRING;
+                } else if (type == Object.class) {
+                    kinds[i] = KIND_NUMBER; // Num.n
+                } else if (type == int[].class) {
+                    kinds[i] = KIND_INT_ARRAY;
+                } else if (SimpleNode.class.isAssignableFrom(type)) {
+                    kinds[i] = KIND_NODE;
+                } else if (type.isArray() && SimpleNode.class.isAssignableFrom(type.getComponentType())) {
+                    kinds[i] = KIND_NODE_ARRAY;
+                } else {
+                    throw new IllegalArgumentException("Unable to handle field: " + fieldsArray[i]);
+                }
+            }
+        }
+
+        private SimpleNode newInstance() throws IOException {
+            try {
+                return (SimpleNode) constructor.newInstance(constructorArgs);
+            } catch (Exception e) {
+                throw new IOException("Unable to create: " + nodeClass, e);
+            }
+        }
+    }
+
+    private static final Map<Class<?>, NodeType> classToType = new ConcurrentHashMap<Class<?>, NodeType>();
+
+    private static NodeType getNodeType(Class<?> nodeClass) {
+        NodeType nodeType = classToType.get(nodeClass);
+        if (nodeType == null) {
+            nodeType = new NodeType(nodeClass);
+            classToType.put(nodeClass, nodeType);
+        }
+        return nodeType;
+    }
+
+    private AstBinaryIO() {
+    }
+
+    /**
+     * @param includeSpecialStrs whether the specials which aren't comments should be written.
+     * @return the bytes representing the given ast.
+     * @throws IllegalArgumentException if the ast has some node which can't be written.
+     */
+    public static byte[] toBytes(SimpleNode ast, boolean includeSpecialStrs) {
+        Writer writer = new Writer(includeSpecialStrs);
+        writer.out.write(MAGIC, 0, MAGIC.length);
+        writer.out.writeVarInt(FORMAT_VERSION);
+        writer.writeNode(ast);
+        return writer.out.toByteArray();
+    }
+
+    /**
+     * @return the ast represented by the given bytes (created by toBytes).
+     * @throws IOException if the bytes are not in the expected format.
+     */
+    public static SimpleNode fromBytes(byte[] bytes) throws IOException {
+        Reader reader = new Reader(bytes);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (reader.in.read() != MAGIC[i]) {
+                throw new IOException("Invalid header.");
+            }
+        }
+        int version = reader.in.readVarInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unexpected format version: " + version);
+        }
+        try {
+            return reader.readNode();
+        } catch (RuntimeException e) {
+            // i.e.: ArrayIndexOutOfBounds, ClassCast
+            throw new IOException("Invalid contents.", e);
+        }
+    }
+
+    private static final class Writer {
+
+        private final Bytes out = new Bytes(16 * 1024);
+        private final boolean includeSpecialStrs;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Map<Class<?>, Integer> classes = new IdentityHashMap<Class<?>, Integer>();
+        private final FastStack<SimpleNode> stack = new FastStack<SimpleNode>(50);
+
+        private Writer(boolean includeSpecialStrs) {
+            this.includeSpecialStrs = includeSpecialStrs;
+        }
+
+        private void writeNode(SimpleNode node) {
+            if (node == null) {
+                out.writeVarInt(0);
+                return;
+            }
+            Class<?> nodeClass = node.getClass();
+            NodeType nodeType = getNodeType(nodeClass);
+            Integer classIndex = classes.get(nodeClass);
+            if (classIndex == null) {
+                if (!nodeClass.getName().startsWith(AST_PACKAGE)) {
+                    throw new IllegalArgumentException("Unable to handle node: " + nodeClass);
+                }
+                classes.put(nodeClass, classes.size());
+                out.writeVarInt(1);
+                writeString(nodeClass.getName().substring(AST_PACKAGE.length()));
+            } else {
+                out.writeVarInt(classIndex + 2);
+            }
+
+            out.writeZigZag(node.beginLine);
+            out.writeZigZag(node.beginColumn);
+            int parentDistance = 0;
+            if (node.parent != null) {
+                for (int i = stack.size() - 1; i >= 0; i--) {
+                    if (stack.get(i) == node.parent) {
+                        parentDistance = stack.size() - i;
+                        break;
+                    }
+                }
+            }
+            out.writeVarInt(parentDistance);
+
+            stack.push(node);
+            try {
+                Field[] fields = nodeType.fields;
+                byte[] kinds = nodeType.kinds;
+                for (int i = 0; i < fields.length; i++) {
+                    Object value = fields[i].get(node);
+                    switch (kinds[i]) {
+                        case KIND_INT:
+                            out.writeZigZag((Integer) value);
+                            break;
+                        case KIND_BOOLEAN:
+                            out.write(((Boolean) value) ? 1 : 0);
+                            break;
+                        case KIND_STRING:
+                            writeString((String) value);
+                            break;
+                        case KIND_NUMBER:
+                            writeNumber(value);
+                            break;
+                        case KIND_INT_ARRAY:
+                            int[] ints = (int[]) value;
+                            if (ints == null) {
+                                out.writeVarInt(0);
+                            } else {
+                                out.writeVarInt(ints.length + 1);
+                                for (int j : ints) {
+                                    out.writeZigZag(j);
+                                }
+                            }
+                            break;
+                        case KIND_NODE:
+                            writeNode((SimpleNode) value);
+                            break;
+                        case KIND_NODE_ARRAY:
+                            SimpleNode[] nodes = (SimpleNode[]) value;
+                            if (nodes == null) {
+                                out.writeVarInt(0);
+                            } else {
+                                out.writeVarInt(nodes.length + 1);
+                                for (SimpleNode n : nodes) {
+                                    writeNode(n);
+                                }
+                            }
+                            break;
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                stack.pop();
+            }
+
+            writeSpecials(node.specialsBefore);
+            writeSpecials(node.specialsAfter);
+        }
+
+        private void writeSpecials(List<Object> specials) {
+            int count = 0;
+            if (specials != null) {
+                for (Object o : specials) {
+                    if (o instanceof commentType || (includeSpecialStrs && o instanceof ISpecialStr)) {
+                        count++;
+                    }
+                }
+            }
+            out.writeVarInt(count);
+            if (count == 0) {
+                return;
+            }
+            for (Object o : specials) {
+                if (o instanceof commentType) {
+                    out.write(SPECIAL_COMMENT);
+                    writeNode((commentType) o);
+
+                } else if (includeSpecialStrs && o instanceof ISpecialStr) {
+                    ISpecialStr specialStr = (ISpecialStr) o;
+                    out.write(SPECIAL_STR);
+                    writeString(specialStr.toString());
+                    out.writeZigZag(specialStr.getBeginLine());
+                    out.writeZigZag(specialStr.getBeginCol());
+                }
+            }
+        }
+
+        private void writeNumber(Object value) {
+            if (value == null) {
+                out.writeVarInt(NUMBER_NULL);
+            } else if (value instanceof Integer) {
+                out.writeVarInt(NUMBER_INT);
+                out.writeZigZag((Integer) value);
+            } else if (value instanceof BigInteger) {
+                out.writeVarInt(NUMBER_BIG_INTEGER);
+                writeString(value.toString());
+            } else if (value instanceof Float) {
+                out.writeVarInt(NUMBER_FLOAT);
+                out.writeInt(Float.floatToRawIntBits((Float) value));
+            } else if (value instanceof Double) {
+                out.writeVarInt(NUMBER_DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits((Double) value));
+            } else if (value instanceof Long) {
+                out.writeVarInt(NUMBER_LONG);
+                out.writeLong((Long) value);
+            } else {
+                throw new IllegalArgumentException("Unable to handle number: " + value.getClass());
+            }
+        }
+
+        /**
+         * 0 = null, 1 = new string (length + utf-8 bytes), n = reference to string n - 2.
+         */
+        private void writeString(String s) {
+            if (s == null) {
+                out.writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeVarInt(index + 2);
+                return;
+            }
+            strings.put(s, strings.size());
+            out.writeVarInt(1);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Reader {
+
+        private final Bytes in;
+        private final List<String> strings = new ArrayList<String>();
+        private final List<NodeType> types = new ArrayList<NodeType>();
+        private final FastStack<SimpleNode> stack = new FastStack<SimpleNode>(50);
+
+        private Reader(byte[] bytes) {
+            this.in = new Bytes(bytes);
+        }
+
+        private SimpleNode readNode() throws IOException {
+            int classRef = in.readVarInt();
+            if (classRef == 0) {
+                return null;
+            }
+            NodeType nodeType;
+            if (classRef == 1) {
+                String className = AST_PACKAGE + readString();
+                try {
+                    nodeType = getNodeType(Class.forName(className));
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Unable to find: " + className, e);
+                }
+                types.add(nodeType);
+            } else {
+                nodeType = types.get(classRef - 2);
+            }
+
+            SimpleNode node = nodeType.newInstance();
+            node.beginLine = in.readZigZag();
+            node.beginColumn = in.readZigZag();
+            int parentDistance = in.readVarInt();
+            if (parentDistance > 0) {
+                node.parent = stack.get(stack.size() - parentDistance);
+            }
+
+            stack.push(node);
+            try {
+                Field[] fields = nodeType.fields;
+                byte[] kinds = nodeType.kinds;
+                for (int i = 0; i < fields.length; i++) {
+                    Field field = fields[i];
+                    switch (kinds[i]) {
+                        case KIND_INT:
+                            field.setInt(node, in.readZigZag());
+                            break;
+                        case KIND_BOOLEAN:
+                            field.setBoolean(node, in.read() != 0);
+                            break;
+                        case KIND_STRING:
+                            field.set(node, readString());
+                            break;
+                        case KIND_NUMBER:
+                            field.set(node, readNumber());
+                            break;
+                        case KIND_INT_ARRAY:
+                            int len = in.readVarInt() - 1;
+                            if (len >= 0) {
+                                int[] ints = new int[len];
+                                for (int j = 0; j < len; j++) {
+                                    ints[j] = in.readZigZag();
+                                }
+                                field.set(node, ints);
+                            } else {
+                                field.set(node, null);
+                            }
+                            break;
+                        case KIND_NODE:
+                            field.set(node, readNode());
+                            break;
+                        case KIND_NODE_ARRAY:
+                            len = in.readVarInt() - 1;
+                            if (len >= 0) {
+                                Object[] nodes = (Object[]) java.lang.reflect.Array
+                                        .newInstance(field.getType().getComponentType(), len);
+                                for (int j = 0; j < len; j++) {
+                                    nodes[j] = readNode();
+                                }
+                                field.set(node, nodes);
+                            } else {
+                                field.set(node, null);
+                            }
+                            break;
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            } finally {
+                stack.pop();
+            }
+
+            int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                node.getSpecialsBefore().add(readSpecial());
+            }
+            count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                node.getSpecialsAfter().add(readSpecial());
+            }
+            return node;
+        }
+
+        private Object readSpecial() throws IOException {
+            int kind = in.read();
+            if (kind == SPECIAL_COMMENT) {
+                return readNode();
+            }
+            if (kind == SPECIAL_STR) {
+                String str = readString();
+                int beginLine = in.readZigZag();
+                int beginCol = in.readZigZag();
+                return new SpecialStr(str, beginLine, beginCol);
+            }
+            throw new IOException("Unexpected special kind: " + kind);
+        }
+
+        private Object readNumber() throws IOException {
+            int kind = in.readVarInt();
+            switch (kind) {
+                case NUMBER_NULL:
+                    return null;
+                case NUMBER_INT:
+                    return in.readZigZag();
+                case NUMBER_BIG_INTEGER:
+                    return new BigInteger(readString());
+                case NUMBER_FLOAT:
+                    return Float.intBitsToFloat(in.readInt());
+                case NUMBER_DOUBLE:
+                    return Double.longBitsToDouble(in.readLong());
+                case NUMBER_LONG:
+                    return in.readLong();
+            }
+            throw new IOException("Unexpected number kind: " + kind);
+        }
+
+        private String readString() throws IOException {
+            int ref = in.readVarInt();
+            if (ref == 0) {
+                return null;
+            }
+            if (ref == 1) {
+                int len = in.readVarInt();
+                String s = new String(in.bytes, in.pos, len, StandardCharsets.UTF_8);
+                in.pos += len;
+                strings.add(s);
+                return s;
+            }
+            return strings.get(ref - 2);
+        }
+    }
+
+    /**
+     * A growable byte array (when writing) or a position in a byte array (when reading).
+     */
+    private static final class Bytes {
+
+        private byte[] bytes;
+        private int pos;
+
+        private Bytes(int initialSize) {
+            this.bytes = new byte[initialSize];
+        }
+
+        private Bytes(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void ensureCapacity(int len) {
+            if (pos + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, pos + len));
+            }
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            bytes[pos++] = (byte) b;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, pos, len);
+            pos += len;
+        }
+
+        private void writeVarInt(int v) {
+            ensureCapacity(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[pos++] = (byte) v;
+        }
+
+        private void writeZigZag(int v) {
+            writeVarInt((v << 1) ^ (v >> 31));
+        }
+
+        private void writeInt(int v) {
+            ensureCapacity(4);
+            bytes[pos++] = (byte) (v >>> 24);
+            bytes[pos++] = (byte) (v >>> 16);
+            bytes[pos++] = (byte) (v >>> 8);
+            bytes[pos++] = (byte) v;
+        }
+
+        private void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, pos);
+        }
+
+        private int read() throws IOException {
+            if (pos >= bytes.length) {
+                throw new IOException("Unexpected end of contents.");
+            }
+            return bytes[pos++] & 0xFF;
+        }
+
+        private int readVarInt() throws IOException {
+            int v = 0;
+            int shift = 0;
+            while (true) {
+                int b = read();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+                shift += 7;
+                if (shift > 28) {
+                    throw new IOException("Invalid varint.");
+                }
+            }
+        }
+
+        private int readZigZag() throws IOException {
+            int v = readVarInt();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private int readInt() throws IOException {
+            return (read() << 24) | (read() << 16) | (read() << 8) | read();
+        }
+
+        private long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.python.pydev.parser.jython.Token;
 import org.python.pydev.parser.jython.TokenMgrError;
 import org.python.pydev.parser.jython.ast.Module;
 import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.parser.preferences.PyDevBuilderPreferences;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.model.ErrorDescription;
@@ -74,7 +75,7 @@ import org.python.pydev.shared_core.structure.Tuple3;
  * PyParser uses org.python.parser to parse the document (lexical analysis) It
  * is attached to PyEdit (a view), and it listens to document changes On every
  * document change, the syntax tree is regenerated The reparsing of the document
- * is done on a ParsingThread
+ * is done in the threads of the ParserSchedulerPool
  *
  * Clients that need to know when new parse tree has been generated should
  * register as parseListeners.
@@ -98,6 +99,17 @@ public class PyParser extends BaseParser implements IPyParser {
      */
     public static boolean ENABLE_TRACING = false;
 
+    /**
+     * Defines whether the editor should reparse only the top-level statements affected by the changes
+     * done since the last parse (when possible). Set by the PyParserManager from the preferences.
+     */
+    private volatile boolean useIncrementalParse = PyDevBuilderPreferences.DEFAULT_USE_INCREMENTAL_PARSE;
+
+    /**
+     * Tracks the changes in the document to reparse it incrementally.
+     */
+    final PyParserIncremental incremental = new PyParserIncremental();
+
     /**
      * This is the version of the grammar that should be used for this parser
      */
@@ -133,6 +145,10 @@ public class PyParser extends BaseParser implements IPyParser {
         }
     }
 
+    public void setUseIncrementalParse(boolean useIncrementalParse) {
+        this.useIncrementalParse = useIncrementalParse;
+    }
+
     public int getGrammarVersion() throws MisconfigurationException {
         return grammarVersionProvider.getGrammarVersion();
     }
@@ -177,6 +193,28 @@ public class PyParser extends BaseParser implements IPyParser {
         return editorView.getGrammarVersionProvider();
     }
 
+    @Override
+    public synchronized void setDocument(IDocument doc, boolean addToScheduler, Object input) {
+        if (this.document != null) {
+            this.document.removeDocumentListener(incremental);
+        }
+        incremental.reset(doc);
+        if (doc != null) {
+            doc.addDocumentListener(incremental);
+        }
+        super.setDocument(doc, addToScheduler, input);
+    }
+
+    @Override
+    public void dispose() {
+        IDocument doc = this.document;
+        if (doc != null) {
+            doc.removeDocumentListener(incremental);
+        }
+        incremental.reset(null);
+        super.dispose();
+    }
+
     @Override
     public void notifySaved() {
         //force parse on save
@@ -287,7 +325,18 @@ public class PyParser extends BaseParser implements IPyParser {
             version = IGrammarVersionProvider.LATEST_GRAMMAR_PY3_VERSION;
         }
         long documentTime = System.currentTimeMillis();
-        ParseOutput obj = reparseDocument(new ParserInfo(document, version, true, additionalGrammarsToCheck));
+        ParserInfo parserInfo = new ParserInfo(document, version, true, additionalGrammarsToCheck);
+        ParseOutput obj = null;
+        if (useIncrementalParse) {
+            obj = incremental.reparse(parserInfo);
+        }
+        if (obj == null) {
+            obj = reparseDocument(parserInfo);
+        }
+        IDocument doc = parserInfo.document;
+        long currentStamp = doc instanceof IDocumentExtension4 ? ((IDocumentExtension4) doc).getModificationStamp()
+                : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+        incremental.setLastParse(obj, parserInfo, currentStamp);
 
         IFile original = null;
         IAdaptable adaptable = null;
@@ -456,7 +505,7 @@ public class PyParser extends BaseParser implements IPyParser {
     /**
      * Create the char array to parse based on the initial document and our parser limitations.
      */
-    private static char[] createCharArrayToParse(String startDoc) {
+    static char[] createCharArrayToParse(String startDoc) {
         int length = startDoc.length();
         int skipAtStart = 0;
         if (startDoc.startsWith(FileUtils.BOM_UTF8)) {
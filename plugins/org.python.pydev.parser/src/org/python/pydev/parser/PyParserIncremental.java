@@ -0,0 +1,520 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.core.IGrammarVersionProvider.AdditionalGrammarVersionsToCheck;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.SpecialStr;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.decoratorsType;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.model.ISimpleNode;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.structure.Tuple3;
+
+/**
+ * Reparses only the top-level statements affected by the changes done in the document since the last
+ * successful parse, reusing the other top-level statements of the previous Module.
+ *
+ * The changed lines are tracked by listening to the document (each change is kept along with the
+ * modification stamp it generated, so that only the changes done after the stamp of the previous
+ * parse are considered).
+ *
+ * The region reparsed always starts and ends at the start of a line which begins a top-level
+ * statement. Whenever the boundaries can't be safely determined, the region doesn't parse without
+ * errors or the number of lines changed, null is returned and a full parse should be done. Note that
+ * if the number of lines changed, the region goes up to the end of the document, as the nodes of
+ * the previous Module may be shared with clients and can't have their lines changed.
+ */
+final class PyParserIncremental implements IDocumentListener {
+
+    /**
+     * After this number of changes without a parse, the changes are no longer tracked (and a full
+     * parse is done).
+     */
+    private static final int MAX_CHANGES = 500;
+
+    private static final class Change {
+
+        private final long modificationStamp;
+        private final int startLine;
+        private final int oldEndLine;
+        private final int newEndLine;
+
+        private Change(long modificationStamp, int startLine, int oldEndLine, int newEndLine) {
+            this.modificationStamp = modificationStamp;
+            this.startLine = startLine;
+            this.oldEndLine = oldEndLine;
+            this.newEndLine = newEndLine;
+        }
+    }
+
+    /**
+     * Changes applied in the document (access synchronized on the list).
+     */
+    private final List<Change> changes = new ArrayList<Change>();
+
+    /**
+     * Set when the changes could not be tracked: holds the modification stamp of the document at that
+     * point (so, only a parse of the document with a later stamp may be used as the base for an
+     * incremental parse). Access synchronized on changes.
+     */
+    private boolean invalidated;
+    private long invalidatedStamp;
+
+    /**
+     * Lines of the change being applied (set in documentAboutToBeChanged).
+     */
+    private int pendingStartLine = -1;
+    private int pendingOldEndLine = -1;
+
+    /**
+     * The document being tracked.
+     */
+    private volatile IDocument document;
+
+    /**
+     * A Module successfully parsed (without errors) and the related info.
+     */
+    private static final class LastParse {
+
+        private final Module module;
+        private final long modificationStamp;
+        private final int grammarVersion;
+
+        private LastParse(Module module, long modificationStamp, int grammarVersion) {
+            this.module = module;
+            this.modificationStamp = modificationStamp;
+            this.grammarVersion = grammarVersion;
+        }
+    }
+
+    /**
+     * The last parse to be used as the base for the next incremental parse (null if there's none). Parses may
+     * be requested from different threads, so, the module and its info are always replaced together.
+     */
+    private volatile LastParse lastParse;
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+        synchronized (changes) {
+            try {
+                IDocument doc = event.getDocument();
+                pendingStartLine = doc.getLineOfOffset(event.getOffset());
+                pendingOldEndLine = doc.getLineOfOffset(event.getOffset() + event.getLength());
+            } catch (BadLocationException e) {
+                pendingStartLine = -1;
+            }
+        }
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+        synchronized (changes) {
+            long stamp = event.getModificationStamp();
+            try {
+                if (pendingStartLine < 0 || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+                        || changes.size() >= MAX_CHANGES) {
+                    invalidate(event.getDocument(), stamp);
+                    return;
+                }
+                String text = event.getText();
+                int newEndLine = event.getDocument().getLineOfOffset(
+                        event.getOffset() + (text != null ? text.length() : 0));
+                changes.add(new Change(stamp, pendingStartLine, pendingOldEndLine, newEndLine));
+            } catch (BadLocationException e) {
+                invalidate(event.getDocument(), stamp);
+            } finally {
+                pendingStartLine = -1;
+            }
+        }
+    }
+
+    /**
+     * Must be called synchronized on changes.
+     */
+    private void invalidate(IDocument doc, long stamp) {
+        if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+            stamp = doc instanceof IDocumentExtension4 ? ((IDocumentExtension4) doc).getModificationStamp()
+                    : Long.MAX_VALUE;
+            if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+                stamp = Long.MAX_VALUE;
+            }
+        }
+        invalidated = true;
+        invalidatedStamp = stamp;
+        changes.clear();
+    }
+
+    /**
+     * Should be called when the document being parsed changes (this class should be registered as a
+     * listener in the new document).
+     */
+    void reset(IDocument document) {
+        this.document = document;
+        synchronized (changes) {
+            changes.clear();
+            invalidated = false;
+            pendingStartLine = -1;
+            lastParse = null;
+        }
+    }
+
+    /**
+     * Keeps the result of a parse to be used as the base for the next incremental parse.
+     *
+     * @param currentStamp the modification stamp of the document after the parse finished (if it's
+     * not the same stamp of the output, we can't know which contents were actually parsed).
+     */
+    void setLastParse(ParseOutput output, ParserInfo info, long currentStamp) {
+        LastParse newLastParse = null;
+        if (info.document == this.document && output.error == null && output.ast instanceof Module
+                && output.modificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+                && output.modificationStamp == currentStamp) {
+            newLastParse = new LastParse((Module) output.ast, output.modificationStamp, info.grammarVersion);
+        }
+        synchronized (changes) {
+            LastParse current = lastParse;
+            if (current != null && output.modificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+                    && output.modificationStamp < current.modificationStamp) {
+                return; //A parse of a newer version of the document finished before this one.
+            }
+            lastParse = newLastParse;
+            if (newLastParse != null) {
+                if (invalidated && invalidatedStamp <= newLastParse.modificationStamp) {
+                    invalidated = false;
+                }
+                //Remove the changes which are already reflected in the last parse.
+                while (changes.size() > 0 && changes.get(0).modificationStamp <= newLastParse.modificationStamp) {
+                    changes.remove(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the output of the parse or null if it's not possible to do an incremental parse.
+     */
+    ParseOutput reparse(ParserInfo info) {
+        LastParse last = lastParse;
+        if (last == null) {
+            return null;
+        }
+        Module module = last.module;
+        long lastModificationStamp = last.modificationStamp;
+        IDocument doc = info.document;
+        if (module.body == null || doc != this.document || !(doc instanceof IDocumentExtension4)
+                || info.grammarVersion != last.grammarVersion
+                || info.grammarVersion < IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_3_5
+                || info.grammarVersion == IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_CYTHON) {
+            //Note: the grammars for Python 2 depend on the __future__ imports (so, a statement can't be
+            //parsed without the previous ones).
+            return null;
+        }
+        if (hasSpecials(module)) {
+            return null;
+        }
+
+        long modificationStamp = ((IDocumentExtension4) doc).getModificationStamp();
+        if (modificationStamp == lastModificationStamp) {
+            return null; //Nothing changed (just reparse as requested).
+        }
+
+        //Lines in the current document (0-based) and the number of lines added/removed.
+        int dirtyStart = -1;
+        int dirtyEnd = -1;
+        int delta = 0;
+        synchronized (changes) {
+            if (invalidated || changes.size() == 0) {
+                return null;
+            }
+            if (changes.get(changes.size() - 1).modificationStamp != modificationStamp) {
+                return null; //The notification for the last change wasn't received yet.
+            }
+            for (Change change : changes) {
+                if (change.modificationStamp <= lastModificationStamp) {
+                    continue;
+                }
+                int d = change.newEndLine - change.oldEndLine;
+                if (dirtyStart == -1) {
+                    dirtyStart = change.startLine;
+                    dirtyEnd = change.newEndLine;
+                } else {
+                    int mappedEnd;
+                    if (dirtyEnd > change.oldEndLine) {
+                        mappedEnd = dirtyEnd + d;
+                    } else if (dirtyEnd >= change.startLine) {
+                        mappedEnd = change.newEndLine;
+                    } else {
+                        mappedEnd = dirtyEnd;
+                    }
+                    dirtyStart = Math.min(dirtyStart, change.startLine);
+                    dirtyEnd = Math.max(mappedEnd, change.newEndLine);
+                }
+                delta += d;
+            }
+        }
+        if (dirtyStart == -1) {
+            return null;
+        }
+
+        try {
+            return reparse(info, module, doc, modificationStamp, dirtyStart, dirtyEnd, delta);
+        } catch (BadLocationException e) {
+            return null; //Document changed while parsing.
+        }
+    }
+
+    private ParseOutput reparse(ParserInfo info, Module module, IDocument doc, long modificationStamp,
+            int dirtyStart, int dirtyEnd, int delta) throws BadLocationException {
+        stmtType[] body = module.body;
+        int n = body.length;
+        int[] starts = new int[n]; //1-based lines (as in the ast)
+        for (int i = 0; i < n; i++) {
+            starts[i] = getStartLine(body[i]);
+        }
+
+        //Lines in the ast are 1-based.
+        int dirtyStartLine = dirtyStart + 1;
+        int oldDirtyEndLine = dirtyEnd - delta + 1;
+
+        //The first statement affected.
+        int a = -1;
+        for (int i = 0; i < n; i++) {
+            if (starts[i] <= dirtyStartLine) {
+                a = i;
+            } else {
+                break;
+            }
+        }
+        if (a == -1) {
+            a = 0;
+        }
+        //The first statement not affected.
+        int b = n;
+        if (delta == 0) {
+            for (int i = a; i < n; i++) {
+                if (starts[i] > oldDirtyEndLine) {
+                    b = i;
+                    break;
+                }
+            }
+        }
+
+        //Statements separated by ';' start at the same line.
+        while (a > 0 && starts[a - 1] == starts[a]) {
+            a--;
+        }
+        //Comments may be attached to the previous or next statement (so, they must be in the region).
+        while (a > 0 && hasCommentOrContinuationBefore(doc, starts[a])) {
+            a--;
+            while (a > 0 && starts[a - 1] == starts[a]) {
+                a--;
+            }
+        }
+        while (b < n && hasCommentOrContinuationBefore(doc, starts[b])) {
+            b++;
+            while (b < n && starts[b - 1] == starts[b]) {
+                b++;
+            }
+        }
+
+        int regionStartLine = a == 0 ? 1 : starts[a];
+        int regionStartOffset = doc.getLineOffset(regionStartLine - 1);
+        int regionEndOffset = b == n ? doc.getLength() : doc.getLineOffset(starts[b] - 1);
+        if (!startsStatement(doc, regionStartLine) || (b < n && !startsStatement(doc, starts[b]))) {
+            return null;
+        }
+
+        String regionText = doc.get(regionStartOffset, regionEndOffset - regionStartOffset);
+        if (((IDocumentExtension4) doc).getModificationStamp() != modificationStamp) {
+            return null;
+        }
+
+        Module regionModule = parseRegion(info, regionText);
+        if (regionModule == null || regionModule.body == null || hasSpecials(regionModule)) {
+            return null;
+        }
+        if (regionStartLine > 1) {
+            LineShifter shifter = new LineShifter(regionStartLine - 1);
+            try {
+                for (stmtType stmt : regionModule.body) {
+                    shifter.traverse(stmt);
+                }
+            } catch (Exception e) {
+                Log.log(e);
+                return null;
+            }
+        }
+
+        stmtType[] newBody = new stmtType[a + regionModule.body.length + (n - b)];
+        System.arraycopy(body, 0, newBody, 0, a);
+        System.arraycopy(regionModule.body, 0, newBody, a, regionModule.body.length);
+        System.arraycopy(body, b, newBody, a + regionModule.body.length, n - b);
+
+        Module newModule = new Module(newBody);
+        newModule.beginLine = module.beginLine;
+        newModule.beginColumn = module.beginColumn;
+
+        if (PyParser.successfulParseListeners.size() > 0) {
+            Tuple3<ISimpleNode, Throwable, ParserInfo> param = new Tuple3<ISimpleNode, Throwable, ParserInfo>(
+                    newModule, null, info);
+            for (ICallback<Object, Tuple3<ISimpleNode, Throwable, ParserInfo>> callback : PyParser.successfulParseListeners) {
+                callback.call(param);
+            }
+        }
+        return new ParseOutput(newModule, null, modificationStamp);
+    }
+
+    /**
+     * @return the Module for the region or null if it couldn't be parsed without errors.
+     */
+    private Module parseRegion(ParserInfo info, String regionText) {
+        try {
+            char[] charArray = PyParser.createCharArrayToParse(regionText);
+            IGrammar grammar = PyParser.createGrammar(info.generateTree, info.grammarVersion, charArray);
+            SimpleNode root = grammar.file_input();
+            if (grammar.getErrorOnParsing() != null || !(root instanceof Module)) {
+                return null;
+            }
+            AdditionalGrammarVersionsToCheck additionalGrammarVersionsToCheck = info.additionalGrammarVersionsToCheck;
+            if (additionalGrammarVersionsToCheck != null) {
+                for (int grammarVersion : additionalGrammarVersionsToCheck.getGrammarVersions()) {
+                    if (grammarVersion == info.grammarVersion) {
+                        continue;
+                    }
+                    grammar = PyParser.createGrammar(false, grammarVersion, charArray);
+                    grammar.file_input();
+                    if (grammar.getErrorOnParsing() != null) {
+                        return null; //Do a full parse to report the error.
+                    }
+                }
+            }
+            return (Module) root;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the first line (1-based) of the given top-level statement (decorators included).
+     */
+    private static int getStartLine(stmtType stmt) {
+        int line = stmt.beginLine;
+        decoratorsType[] decs = null;
+        if (stmt instanceof FunctionDef) {
+            decs = ((FunctionDef) stmt).decs;
+        } else if (stmt instanceof ClassDef) {
+            decs = ((ClassDef) stmt).decs;
+        }
+        if (decs != null) {
+            for (decoratorsType dec : decs) {
+                if (dec != null && dec.func != null && dec.func.beginLine > 0) {
+                    line = Math.min(line, dec.func.beginLine);
+                }
+            }
+        }
+        return line;
+    }
+
+    /**
+     * @return whether the given line (1-based) starts with some code at the first column.
+     */
+    private static boolean startsStatement(IDocument doc, int line) throws BadLocationException {
+        if (line == 1) {
+            return true;
+        }
+        IRegion region = doc.getLineInformation(line - 1);
+        if (region.getLength() == 0) {
+            return false;
+        }
+        char c = doc.getChar(region.getOffset());
+        return !Character.isWhitespace(c) && c != '#';
+    }
+
+    /**
+     * @return whether the first non-blank line before the given line (1-based) is a comment or ends
+     * with a line continuation.
+     */
+    private static boolean hasCommentOrContinuationBefore(IDocument doc, int line) throws BadLocationException {
+        for (int i = line - 2; i >= 0; i--) {
+            IRegion region = doc.getLineInformation(i);
+            String lineContents = doc.get(region.getOffset(), region.getLength()).trim();
+            if (lineContents.length() == 0) {
+                continue;
+            }
+            return lineContents.startsWith("#") || lineContents.endsWith("\\");
+        }
+        return false;
+    }
+
+    private static boolean hasSpecials(SimpleNode node) {
+        return (node.specialsBefore != null && node.specialsBefore.size() > 0)
+                || (node.specialsAfter != null && node.specialsAfter.size() > 0);
+    }
+
+    /**
+     * Changes the lines of the nodes (and their special tokens) parsed in a region to be the lines
+     * in the document.
+     */
+    private static final class LineShifter extends VisitorBase {
+
+        private final int lines;
+
+        private LineShifter(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        protected Object unhandled_node(SimpleNode node) throws Exception {
+            return null;
+        }
+
+        @Override
+        public void traverse(SimpleNode node) throws Exception {
+            //Note: some nodes (i.e.: decoratorsType, argumentsType) call traverse directly (without
+            //passing through unhandled_node), so, the lines are fixed here.
+            node.beginLine += lines;
+            shiftSpecials(node.specialsBefore);
+            shiftSpecials(node.specialsAfter);
+            node.traverse(this);
+        }
+
+        private void shiftSpecials(List<Object> specials) {
+            if (specials == null) {
+                return;
+            }
+            int size = specials.size();
+            for (int i = 0; i < size; i++) {
+                Object o = specials.get(i);
+                if (o instanceof SpecialStr) {
+                    SpecialStr specialStr = (SpecialStr) o;
+                    specials.set(i, new SpecialStr(specialStr.str, specialStr.beginLine + lines,
+                            specialStr.beginCol));
+                } else if (o instanceof SimpleNode) {
+                    ((SimpleNode) o).beginLine += lines;
+                }
+            }
+        }
+    }
+}
@@ -37,9 +37,12 @@ public class PyParserManager extends BaseParserManager {
     // -------------------------------------------------------------------------------------------- preferences stuff...
     public static final String USE_PYDEV_ANALYSIS_ONLY_ON_DOC_SAVE = "USE_PYDEV_ONLY_ON_DOC_SAVE";
     public static final String PYDEV_ELAPSE_BEFORE_ANALYSIS = "PYDEV_ELAPSE_BEFORE_ANALYSIS";
+    public static final String USE_INCREMENTAL_PARSE = "USE_INCREMENTAL_PARSE";
 
     private IEclipsePreferences prefs;
 
+    private volatile boolean useIncrementalParse;
+
     // ---------------------------------------------------------------------------------------------- singleton stuff...
     private static PyParserManager pyParserManager;
 
@@ -71,6 +74,9 @@ public class PyParserManager extends BaseParserManager {
         this.useOnlyOnSave = prefs.getBoolean(USE_PYDEV_ANALYSIS_ONLY_ON_DOC_SAVE,
                 PyDevBuilderPreferences.DEFAULT_USE_PYDEV_ONLY_ON_DOC_SAVE);
 
+        this.useIncrementalParse = prefs.getBoolean(USE_INCREMENTAL_PARSE,
+                PyDevBuilderPreferences.DEFAULT_USE_INCREMENTAL_PARSE);
+
         //singleton: private constructor
         IEclipsePreferences.IPreferenceChangeListener prefListener = new IEclipsePreferences.IPreferenceChangeListener() {
 
@@ -94,6 +100,17 @@ public class PyParserManager extends BaseParserManager {
                             parser.resetTimeoutPreferences(useAnalysisOnlyOnDocSave);
                         }
                     }
+                } else if (property.equals(USE_INCREMENTAL_PARSE)) {
+                    useIncrementalParse = PyParserManager.this.prefs.getBoolean(USE_INCREMENTAL_PARSE,
+                            PyDevBuilderPreferences.DEFAULT_USE_INCREMENTAL_PARSE);
+
+                    synchronized (lock) {
+                        for (IParser parser : parsers.keySet()) {
+                            if (parser instanceof PyParser) {
+                                ((PyParser) parser).setUseIncrementalParse(useIncrementalParse);
+                            }
+                        }
+                    }
                 }
             }
         };
@@ -102,6 +119,8 @@ public class PyParserManager extends BaseParserManager {
 
     @Override
     protected IParser createParser(IBaseEditor edit) {
-        return new PyParser((IPyEdit) edit);
+        PyParser parser = new PyParser((IPyEdit) edit);
+        parser.setUseIncrementalParse(useIncrementalParse);
+        return parser;
     }
 }
@@ -14,6 +14,13 @@ public class PyDevBuilderPreferences {
     public static final String PYDEV_ELAPSE_BEFORE_ANALYSIS = PyParserManager.PYDEV_ELAPSE_BEFORE_ANALYSIS;
     public static final int DEFAULT_PYDEV_ELAPSE_BEFORE_ANALYSIS = 3000;
 
+    /**
+     * Whether the editor should reparse only the top-level statements affected by the changes done since the
+     * last parse (when possible).
+     */
+    public static final String USE_INCREMENTAL_PARSE = PyParserManager.USE_INCREMENTAL_PARSE;
+    public static final boolean DEFAULT_USE_INCREMENTAL_PARSE = false;
+
     public static final String ANALYZE_ONLY_ACTIVE_EDITOR = "ANALYZE_ONLY_ACTIVE_EDITOR_2"; //Changed to _2 because we changed this behavior and the default is now true!
     public static final boolean DEFAULT_ANALYZE_ONLY_ACTIVE_EDITOR = true;
 
@@ -26,6 +33,13 @@ public class PyDevBuilderPreferences {
     public static final int PYC_NEVER_DELETE = 2;
     public static final int DEFAULT_PYC_DELETE_HANDLING = PYC_ALWAYS_DELETE;
 
+    /**
+     * Number of threads used to visit the resources in a full build (0 means the number of available processors
+     * and 1 means that the resources are visited sequentially -- the default).
+     */
+    public static final String FULL_BUILD_THREADS = "FULL_BUILD_THREADS";
+    public static final int DEFAULT_FULL_BUILD_THREADS = 1;
+
     public static boolean usePydevBuilders() {
         return PydevPrefs.getEclipsePreferences().getBoolean(USE_PYDEV_BUILDERS, DEFAULT_USE_PYDEV_BUILDERS);
     }
@@ -56,4 +70,12 @@ public class PyDevBuilderPreferences {
         return PydevPrefs.getEclipsePreferences().getInt(PYC_DELETE_HANDLING, DEFAULT_PYC_DELETE_HANDLING);
     }
 
+    public static int getFullBuildThreads() {
+        int threads = PydevPrefs.getEclipsePreferences().getInt(FULL_BUILD_THREADS, DEFAULT_FULL_BUILD_THREADS);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        return threads;
+    }
+
 }
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.SpecialStr;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.commentType;
+
+public class AstBinaryIOTest extends PyParserTestBase {
+
+    public static void main(String[] args) {
+        try {
+            AstBinaryIOTest test = new AstBinaryIOTest();
+            test.setUp();
+            test.testRoundTrip();
+            test.tearDown();
+            System.out.println("Finished");
+            junit.textui.TestRunner.run(AstBinaryIOTest.class);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final String CODE = "" +
+            "'''module doc'''\n" +
+            "import os, sys as system\n" +
+            "from a.b import (c, d as e)\n" +
+            "CONSTANT = 10000000000000000000000 + 0x10 + 1.5 + 2j + 7\n" +
+            "\n" +
+            "@decorator(1, key='value')\n" +
+            "class A(object, metaclass=Meta):  # comment on class\n" +
+            "    attr: int = 1\n" +
+            "\n" +
+            "    class B:\n" +
+            "        def method(self, a, *args, b=1, **kwargs) -> int:\n" +
+            "            # comment inside method\n" +
+            "            x = [i for i in range(10) if i % 2]\n" +
+            "            y = {k: v for k, v in kwargs.items()}\n" +
+            "            z = lambda q, w=2: (q, w)\n" +
+            "            try:\n" +
+            "                return x[1:2, ...]\n" +
+            "            except (KeyError, ValueError) as err:\n" +
+            "                raise RuntimeError(f'error {err!r}') from err\n" +
+            "            finally:\n" +
+            "                del y\n" +
+            "\n" +
+            "async def coro():\n" +
+            "    async with a as b, c:\n" +
+            "        await b\n" +
+            "    global g\n" +
+            "    while not g: yield g\n" +
+            "";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setDefaultVersion(IPythonNature.GRAMMAR_PYTHON_VERSION_3_6);
+    }
+
+    public void testRoundTrip() throws Exception {
+        SimpleNode ast = parseLegalDocStr(CODE);
+        SimpleNode read = AstBinaryIO.fromBytes(AstBinaryIO.toBytes(ast, true));
+        checkEqual(ast, read, true);
+    }
+
+    public void testRoundTripWithoutSpecialStrs() throws Exception {
+        SimpleNode ast = parseLegalDocStr(CODE);
+        SimpleNode read = AstBinaryIO.fromBytes(AstBinaryIO.toBytes(ast, false));
+        checkEqual(ast, read, false);
+
+        // Comments are always kept.
+        int comments = countComments(ast, false);
+        assertTrue(comments > 0);
+        assertEquals(comments, countComments(read, true));
+    }
+
+    private int countComments(SimpleNode ast, boolean checkNoSpecialStr) throws Exception {
+        int comments = 0;
+        for (SimpleNode node : flatten(ast)) {
+            for (List<Object> specials : new List[] { node.specialsBefore, node.specialsAfter }) {
+                if (specials != null) {
+                    for (Object o : specials) {
+                        if (checkNoSpecialStr) {
+                            assertFalse(o instanceof SpecialStr);
+                        }
+                        if (o instanceof commentType) {
+                            comments++;
+                        }
+                    }
+                }
+            }
+        }
+        return comments;
+    }
+
+    public void testParentOfInnerDefinitions() throws Exception {
+        SimpleNode ast = parseLegalDocStr(CODE);
+        Module read = (Module) AstBinaryIO.fromBytes(AstBinaryIO.toBytes(ast, false));
+        ClassDef classA = (ClassDef) read.body[4];
+        ClassDef classB = (ClassDef) classA.body[1];
+        assertSame(classA, classB.parent);
+        FunctionDef method = (FunctionDef) classB.body[0];
+        assertSame(classB, method.parent);
+    }
+
+    public void testInvalidBytes() throws Exception {
+        byte[] bytes = AstBinaryIO.toBytes(parseLegalDocStr(CODE), false);
+        try {
+            AstBinaryIO.fromBytes(new byte[] { 1, 2, 3, 4 });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        try {
+            AstBinaryIO.fromBytes(truncated);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private void checkEqual(SimpleNode ast, SimpleNode read, boolean checkSpecials) throws Exception {
+        assertEquals(ast.toString(), read.toString());
+        List<SimpleNode> original = flatten(ast);
+        List<SimpleNode> nodes = flatten(read);
+        assertEquals(original.size(), nodes.size());
+        for (int i = 0; i < original.size(); i++) {
+            SimpleNode n1 = original.get(i);
+            SimpleNode n2 = nodes.get(i);
+            assertEquals(n1.getClass(), n2.getClass());
+            assertEquals(n1.toString(), n1.beginLine, n2.beginLine);
+            assertEquals(n1.toString(), n1.beginColumn, n2.beginColumn);
+            assertEquals(n1.parent == null, n2.parent == null);
+            if (checkSpecials) {
+                assertEquals(specialsToStr(n1.specialsBefore), specialsToStr(n2.specialsBefore));
+                assertEquals(specialsToStr(n1.specialsAfter), specialsToStr(n2.specialsAfter));
+            }
+        }
+    }
+
+    private String specialsToStr(List<Object> specials) {
+        StringBuilder buf = new StringBuilder();
+        if (specials != null) {
+            for (Object o : specials) {
+                buf.append(o);
+                if (o instanceof SpecialStr) {
+                    buf.append(((SpecialStr) o).beginLine).append(':').append(((SpecialStr) o).beginCol);
+                } else if (o instanceof SimpleNode) {
+                    buf.append(((SimpleNode) o).beginLine).append(':').append(((SimpleNode) o).beginColumn);
+                }
+                buf.append(' ');
+            }
+        }
+        return buf.toString();
+    }
+
+    private List<SimpleNode> flatten(SimpleNode ast) throws Exception {
+        final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+        ast.accept(new VisitorBase() {
+
+            @Override
+            protected Object unhandled_node(SimpleNode node) throws Exception {
+                nodes.add(node);
+                return null;
+            }
+
+            @Override
+            public void traverse(SimpleNode node) throws Exception {
+                node.traverse(this);
+            }
+
+            @Override
+            public Object visitModule(Module node) throws Exception {
+                nodes.add(node);
+                node.traverse(this);
+                return null;
+            }
+
+            @Override
+            public Object visitClassDef(ClassDef node) throws Exception {
+                nodes.add(node);
+                node.traverse(this);
+                return null;
+            }
+
+            @Override
+            public Object visitFunctionDef(FunctionDef node) throws Exception {
+                nodes.add(node);
+                node.traverse(this);
+                return null;
+            }
+        });
+        return nodes;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+public class PyParserIncrementalTest extends PyParserTestBase {
+
+    private Document doc;
+
+    /**
+     * The Module of the last parse (statements not affected by a change are reused in an incremental parse).
+     */
+    private Module lastModule;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setDefaultVersion(IPythonNature.LATEST_GRAMMAR_PY3_VERSION);
+        doc = new Document(""
+                + "import os\n"
+                + "\n"
+                + "def method(a, b):\n"
+                + "    return a + b\n"
+                + "\n"
+                + "@decorator\n"
+                + "class Foo(object):\n"
+                + "\n"
+                + "    def m1(self):\n"
+                + "        pass\n"
+                + "\n"
+                + "x = 10; y = 20\n"
+                + "\n"
+                + "def last():\n"
+                + "    print('last')\n");
+        parser.setUseIncrementalParse(true);
+        parser.setDocument(doc, false, null);
+        ParseOutput output = parser.reparseDocument();
+        assertNotNull(output.ast);
+        lastModule = (Module) output.ast;
+        assertEquals(6, lastModule.body.length);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        parser.dispose();
+        super.tearDown();
+    }
+
+    public void testChangeInLine() throws Exception {
+        //Statements: 0: import os, 1: def method, 2: class Foo, 3: x = 10, 4: y = 20, 5: def last
+        doc.replace(doc.getLineOffset(3) + 15, 1, "c");
+        checkIncremental(0, 2, 3, 4, 5);
+
+        doc.replace(doc.getLineOffset(9) + 8, 4, "return 1");
+        checkIncremental(0, 1, 3, 4, 5);
+
+        doc.replace(doc.getLineOffset(11), 1, "zz");
+        checkIncremental(0, 1, 2, 5);
+    }
+
+    public void testLinesAdded() throws Exception {
+        //When the number of lines changes, everything from the first statement changed is reparsed.
+        doc.replace(doc.getLineOffset(10), 0, "    def m2(self):\n        pass\n\n");
+        checkIncremental(0, 1);
+
+        doc.replace(doc.getLength(), 0, "import sys\n");
+        checkIncremental(0, 1, 2, 3, 4);
+    }
+
+    public void testErrorFallsBackToFullParse() throws Exception {
+        Module initial = lastModule;
+        doc.replace(doc.getLineOffset(3) + 15, 1, "(");
+        ParseOutput output = parser.reparseDocument();
+        assertNotNull(output.error);
+
+        doc.replace(doc.getLineOffset(3) + 15, 1, "b");
+        output = parser.reparseDocument();
+        assertEquals(dump(fullParse()), dump(output));
+        //Nothing reused from the parse before the error.
+        Module module = (Module) output.ast;
+        for (int i = 0; i < module.body.length; i++) {
+            assertNotSame(initial.body[i], module.body[i]);
+        }
+    }
+
+    public void testDisabled() throws Exception {
+        parser.setUseIncrementalParse(false);
+        doc.replace(doc.getLineOffset(3) + 15, 1, "c");
+        ParseOutput output = parser.reparseDocument();
+        assertEquals(dump(fullParse()), dump(output));
+        assertNotSame(lastModule.body[0], ((Module) output.ast).body[0]);
+    }
+
+    public void testCommentBeforeStatement() throws Exception {
+        doc.replace(doc.getLineOffset(12), 0, "# comment\n");
+        assertEquals(dump(fullParse()), dump(parser.reparseDocument()));
+
+        doc.replace(doc.getLineOffset(3) + 15, 1, "c");
+        assertEquals(dump(fullParse()), dump(parser.reparseDocument()));
+    }
+
+    /**
+     * Reparses the document and checks that the result is the same as a full parse (and that the statements with
+     * the given indexes were reused from the previous parse, i.e.: the parse was actually incremental).
+     */
+    private void checkIncremental(int... reusedStatements) throws Exception {
+        ParseOutput output = parser.reparseDocument();
+        assertNull(output.error);
+        assertEquals(dump(fullParse()), dump(output));
+
+        Module module = (Module) output.ast;
+        assertNotSame(lastModule, module);
+        for (int i : reusedStatements) {
+            assertSame(lastModule.body[i], module.body[i]);
+        }
+        lastModule = module;
+    }
+
+    private ParseOutput fullParse() {
+        return PyParser.reparseDocument(new ParserInfo(doc, getDefaultVersion(), null));
+    }
+
+    private String dump(ParseOutput output) throws Exception {
+        assertNotNull(output.ast);
+        final FastStringBuffer buf = new FastStringBuffer();
+        VisitorBase visitor = new VisitorBase() {
+
+            @Override
+            protected Object unhandled_node(SimpleNode node) throws Exception {
+                return null;
+            }
+
+            @Override
+            public void traverse(SimpleNode node) throws Exception {
+                buf.append(node.getClass().getSimpleName()).append(' ').append(node.beginLine).append(':')
+                        .append(node.beginColumn).append(' ').append(String.valueOf(node.specialsBefore))
+                        .append(' ').append(String.valueOf(node.specialsAfter)).append('\n');
+                node.traverse(this);
+            }
+        };
+        visitor.traverse((SimpleNode) output.ast);
+        return buf.toString();
+    }
+}
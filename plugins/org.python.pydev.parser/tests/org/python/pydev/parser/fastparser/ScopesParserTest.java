@@ -6,6 +6,12 @@
  */
 package org.python.pydev.parser.fastparser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import junit.framework.TestCase;
 
 import org.eclipse.jface.text.Document;
@@ -121,5 +127,89 @@ public class ScopesParserTest extends TestCase {
 
         assertEquals(new Region(0, 8), scopes.getScopeForSelection(0, 2));
         assertEquals(new Region(19, 6), scopes.getScopeForSelection(20, 0));
+
+        //Expanding the selection goes to the enclosing scopes.
+        assertEquals(new Region(9, 97), scopes.getScopeForSelection(19, 6));
+        assertEquals(new Region(0, doc.getLength()), scopes.getScopeForSelection(9, 97));
+        assertNull(scopes.getScopeForSelection(0, doc.getLength()));
+    }
+
+    /**
+     * Compares getScopeForSelection with a linear search (going backwards from the offset and checking the scopes
+     * starting at each offset from the last created to the first).
+     */
+    public void testScopesRandomizedAgainstLinearSearch() throws Exception {
+        Random random = new Random(1);
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            int docLen = 1 + random.nextInt(80);
+            List<int[]> intervals = new ArrayList<int[]>();
+            createNestedIntervals(random, 0, docLen, intervals, 0);
+            Collections.shuffle(intervals, random);
+
+            Scopes scopes = new Scopes();
+            List<int[]> created = new ArrayList<int[]>(); // {id, start, end}
+            for (int[] interval : intervals) {
+                int id = scopes.startScope(interval[0], Scopes.TYPE_SUITE);
+                created.add(new int[] { id, interval[0], interval[1] });
+            }
+            List<int[]> toClose = new ArrayList<int[]>(created);
+            Collections.shuffle(toClose, random);
+            for (int[] scope : toClose) {
+                // The offset passed when closing is the one after the last char.
+                scopes.endScope(scope[0], scope[2] + 1, Scopes.TYPE_SUITE);
+            }
+
+            for (int offset = 0; offset <= docLen + 1; offset++) {
+                for (int len = 0; len <= docLen + 1 - offset; len++) {
+                    assertEquals("offset: " + offset + " len: " + len + " scopes: " + toString(created),
+                            getScopeForSelectionLinear(created, offset, len),
+                            scopes.getScopeForSelection(offset, len));
+                }
+            }
+        }
+    }
+
+    private static void createNestedIntervals(Random random, int start, int end, List<int[]> intervals, int depth) {
+        if (depth > 6 || end - start < 1) {
+            return;
+        }
+        int n = random.nextInt(4);
+        for (int i = 0; i < n; i++) {
+            int intervalStart = start + random.nextInt(end - start + 1);
+            int intervalEnd = intervalStart + random.nextInt(end - intervalStart + 1);
+            intervals.add(new int[] { intervalStart, intervalEnd });
+            createNestedIntervals(random, intervalStart, intervalEnd, intervals, depth + 1);
+        }
+    }
+
+    /**
+     * @param created {id, start, end} in the order the scopes were created.
+     */
+    private static Region getScopeForSelectionLinear(List<int[]> created, int offset, int len) {
+        int endOffset = offset + len - 1;
+        for (int i = offset; i >= 0; i--) {
+            for (int j = created.size() - 1; j >= 0; j--) {
+                int[] scope = created.get(j);
+                if (scope[1] != i) {
+                    continue;
+                }
+                if (i == offset && endOffset == scope[2]) {
+                    continue;
+                }
+                if (endOffset > scope[2]) {
+                    continue;
+                }
+                return new Region(scope[1], scope[2] - scope[1] + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String toString(List<int[]> created) {
+        StringBuilder buf = new StringBuilder();
+        for (int[] scope : created) {
+            buf.append(Arrays.toString(scope));
+        }
+        return buf.toString();
     }
 }
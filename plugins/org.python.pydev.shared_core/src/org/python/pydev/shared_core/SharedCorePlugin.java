@@ -15,10 +15,12 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
 import org.osgi.framework.BundleContext;
+import org.python.pydev.shared_core.cache.ZipFilesCache;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.image.IImageCache;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.parsing.ParserSchedulerPool;
 
 /**
  * The main plugin class to be used in the desktop.
@@ -65,6 +67,8 @@ public class SharedCorePlugin extends Plugin {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        ZipFilesCache.get().clear();
+        ParserSchedulerPool.disposeShared();
         super.stop(context);
     }
 
@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.python.pydev.shared_core.log.Log;
+
+/**
+ * A key -> bytes store kept in a single append-only file.
+ *
+ * Each record has a header with its kind, the size of the key and data and a crc32 of its contents. When the
+ * store is opened only the headers are read to create the index (key -> offset of the latest record for the
+ * key), the file is memory-mapped and the data is only read (and checked against the crc) when requested.
+ *
+ * Records are never changed in-place: putting a key again appends a new record and clear() appends a record
+ * which discards everything before it. The superseded records are only removed (compacted) when the store is
+ * opened and they take more space than the live records. A truncated record at the end of the file (i.e.: the
+ * process was killed while writing) is discarded when the store is opened.
+ *
+ * All the methods are synchronized.
+ */
+public final class MappedRecordStore {
+
+    private static final int MAGIC = 0x50594453; // PYDS
+
+    private static final byte KIND_PUT = 1;
+    private static final byte KIND_CLEAR = 2;
+
+    /**
+     * magic, version
+     */
+    private static final int FILE_HEADER_SIZE = 8;
+
+    /**
+     * kind, key size, data size, crc
+     */
+    private static final int RECORD_HEADER_SIZE = 13;
+
+    /**
+     * Files smaller than this are never compacted.
+     */
+    private static final long MIN_SIZE_TO_COMPACT = 1024 * 1024;
+
+    private static final class Entry {
+
+        private final long offset;
+        private final int keySize;
+        private final int dataSize;
+        private final int crc;
+
+        private Entry(long offset, int keySize, int dataSize, int crc) {
+            this.offset = offset;
+            this.keySize = keySize;
+            this.dataSize = dataSize;
+            this.crc = crc;
+        }
+
+        private long recordSize() {
+            return RECORD_HEADER_SIZE + keySize + dataSize;
+        }
+    }
+
+    private final File file;
+    private final int version;
+
+    private final Map<String, Entry> index = new HashMap<String, Entry>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long end;
+    private boolean opened;
+
+    /**
+     * @param version the version of the data stored (if the file was written with a different version, its
+     * contents are discarded).
+     */
+    public MappedRecordStore(File file, int version) {
+        this.file = file;
+        this.version = version;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the data for the given key or null if it's not available (or if the record is corrupted).
+     */
+    public synchronized byte[] get(String key) {
+        if (!open()) {
+            return null;
+        }
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            byte[] record = new byte[entry.keySize + entry.dataSize];
+            long offset = entry.offset + RECORD_HEADER_SIZE;
+            if (mapped != null && offset + record.length <= mapped.capacity()) {
+                ByteBuffer buf = mapped.duplicate();
+                buf.position((int) offset);
+                buf.get(record);
+            } else {
+                // Appended after the file was mapped.
+                ByteBuffer buf = ByteBuffer.wrap(record);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, offset + buf.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+            }
+            if (computeCrc(KIND_PUT, record) != entry.crc
+                    || !key.equals(new String(record, 0, entry.keySize, StandardCharsets.UTF_8))) {
+                Log.log("Corrupted record for: " + key + " in: " + file);
+                index.remove(key);
+                return null;
+            }
+            byte[] data = new byte[entry.dataSize];
+            System.arraycopy(record, entry.keySize, data, 0, data.length);
+            return data;
+        } catch (IOException e) {
+            Log.log("Unable to read: " + key + " from: " + file, e);
+            index.remove(key);
+            return null;
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return open() && index.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return open() ? index.size() : 0;
+    }
+
+    /**
+     * Appends the data for the given key (replacing the data previously stored for it).
+     */
+    public synchronized void put(String key, byte[] data) {
+        if (!open()) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[keyBytes.length + data.length];
+        System.arraycopy(keyBytes, 0, record, 0, keyBytes.length);
+        System.arraycopy(data, 0, record, keyBytes.length, data.length);
+        int crc = computeCrc(KIND_PUT, record);
+        try {
+            long offset = append(KIND_PUT, keyBytes.length, data.length, crc, record);
+            index.put(key, new Entry(offset, keyBytes.length, data.length, crc));
+        } catch (IOException e) {
+            Log.log("Unable to write: " + key + " to: " + file, e);
+        }
+    }
+
+    /**
+     * Discards all the records in the store.
+     */
+    public synchronized void clear() {
+        if (!open()) {
+            return;
+        }
+        index.clear();
+        byte[] record = new byte[0];
+        try {
+            append(KIND_CLEAR, 0, 0, computeCrc(KIND_CLEAR, record), record);
+        } catch (IOException e) {
+            Log.log("Unable to clear: " + file, e);
+        }
+    }
+
+    /**
+     * Closes the file (it's reopened if the store is used again).
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.log(e);
+            }
+        }
+        channel = null;
+        mapped = null;
+        index.clear();
+        opened = false;
+    }
+
+    private long append(byte kind, int keySize, int dataSize, int crc, byte[] record) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+        buf.put(kind).putInt(keySize).putInt(dataSize).putInt(crc).put(record);
+        buf.flip();
+        long offset = end;
+        while (buf.hasRemaining()) {
+            channel.write(buf, offset + buf.position());
+        }
+        end = offset + buf.limit();
+        return offset;
+    }
+
+    private static int computeCrc(byte kind, byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(kind);
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return whether the store is usable.
+     */
+    private boolean open() {
+        if (opened) {
+            return channel != null;
+        }
+        opened = true;
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            long live = readIndex();
+            if (end - live > live && end > MIN_SIZE_TO_COMPACT) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    // Just keep the superseded records.
+                    Log.log("Unable to compact: " + file, e);
+                }
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() != end) {
+                // Discard what's after the last valid record (or everything if it's from a different version).
+                channel.truncate(end);
+            }
+            if (end == 0) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(MAGIC).putInt(version).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                end = FILE_HEADER_SIZE;
+            }
+            if (end > FILE_HEADER_SIZE && end <= Integer.MAX_VALUE) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.log("Unable to open: " + file, e);
+            close();
+            opened = true; // Don't retry.
+            return false;
+        }
+    }
+
+    /**
+     * Fills the index from the record headers in the file.
+     *
+     * @return the number of bytes used by the live records.
+     */
+    private long readIndex() throws IOException {
+        index.clear();
+        end = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+        long size = file.length();
+        long live = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (size < FILE_HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != version) {
+                return 0;
+            }
+            long pos = FILE_HEADER_SIZE;
+            while (pos + RECORD_HEADER_SIZE <= size) {
+                byte kind = in.readByte();
+                int keySize = in.readInt();
+                int dataSize = in.readInt();
+                int crc = in.readInt();
+                long recordSize = (long) RECORD_HEADER_SIZE + keySize + dataSize;
+                if ((kind != KIND_PUT && kind != KIND_CLEAR) || keySize < 0 || dataSize < 0
+                        || pos + recordSize > size) {
+                    break;
+                }
+                if (kind == KIND_CLEAR) {
+                    index.clear();
+                    live = 0;
+                } else {
+                    byte[] keyBytes = new byte[keySize];
+                    in.readFully(keyBytes);
+                    skipFully(in, dataSize);
+                    Entry entry = new Entry(pos, keySize, dataSize, crc);
+                    Entry old = index.put(new String(keyBytes, StandardCharsets.UTF_8), entry);
+                    if (old != null) {
+                        live -= old.recordSize();
+                    }
+                    live += recordSize;
+                }
+                pos += recordSize;
+            }
+            end = pos;
+        } catch (EOFException e) {
+            // Changed while being read: discard it.
+            Log.log("Unexpected end of file in: " + file, e);
+            index.clear();
+            end = 0;
+            return 0;
+        }
+        return live;
+    }
+
+    private static void skipFully(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records (must be called before the file is mapped).
+     */
+    private void compact() throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        Map<String, Entry> newIndex = new HashMap<String, Entry>(index.size());
+        long pos = FILE_HEADER_SIZE;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(version).flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                long recordSize = entry.recordSize();
+                long transferred = 0;
+                while (transferred < recordSize) {
+                    long n = in.transferTo(entry.offset + transferred, recordSize - transferred, out);
+                    if (n <= 0) {
+                        throw new EOFException();
+                    }
+                    transferred += n;
+                }
+                newIndex.put(e.getKey(), new Entry(pos, entry.keySize, entry.dataSize, entry.crc));
+                pos += recordSize;
+            }
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        index.clear();
+        index.putAll(newIndex);
+        end = pos;
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.python.pydev.shared_core.log.Log;
+
+/**
+ * Keeps zip files (.zip, .egg, .whl, .jar) opened so that reading many entries from the same archive doesn't
+ * need to reopen it (and read its central directory again) for each entry.
+ *
+ * An archive is acquired and the returned reference must be closed when done. Archives are kept opened while
+ * referenced. At most maxOpened archives which aren't referenced are kept (the least recently used are closed
+ * first) and those are also closed after being idle for some time (so that the files aren't kept locked).
+ *
+ * An archive is reopened if its modification time or size changed.
+ */
+public final class ZipFilesCache {
+
+    private static final ZipFilesCache cache = new ZipFilesCache(30, 20000);
+
+    /**
+     * @return the cache shared by all the clients.
+     */
+    public static ZipFilesCache get() {
+        return cache;
+    }
+
+    /**
+     * A reference to an opened zip file (the zip file itself must not be closed, only the reference).
+     */
+    public static final class ZipFileReference implements AutoCloseable {
+
+        private final ZipFilesCache owner;
+        private final Entry entry;
+        private boolean closed;
+
+        private ZipFileReference(ZipFilesCache owner, Entry entry) {
+            this.owner = owner;
+            this.entry = entry;
+        }
+
+        public ZipFile getZipFile() {
+            return entry.zipFile;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            owner.release(entry);
+        }
+    }
+
+    private static final class Entry {
+
+        private final File file;
+        private final ZipFile zipFile;
+        private final long lastModified;
+        private final long length;
+
+        // Guarded by the cache lock.
+        private int references;
+        private long lastUsed;
+        private boolean removed;
+
+        private Entry(File file, ZipFile zipFile, long lastModified, long length) {
+            this.file = file;
+            this.zipFile = zipFile;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final int maxOpened;
+    private final long idleTimeoutMillis;
+
+    /**
+     * The entries in access order (the least recently used first).
+     */
+    private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<File, Entry>(16, 0.75f, true);
+
+    private ScheduledThreadPoolExecutor timer;
+    private boolean idleCheckScheduled;
+
+    /**
+     * @param maxOpened the maximum number of archives kept opened without being referenced.
+     * @param idleTimeoutMillis the time after which an archive which isn't referenced is closed (if <= 0 it's only
+     * closed when it's the least recently used and the limit is reached).
+     */
+    public ZipFilesCache(int maxOpened, long idleTimeoutMillis) {
+        this.maxOpened = maxOpened;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return a reference to the opened archive (which must be closed when it's no longer needed).
+     * @throws IOException if the archive couldn't be opened.
+     */
+    public ZipFileReference acquire(File file) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (lock) {
+            Entry entry = getValidEntry(file, lastModified, length);
+            if (entry != null) {
+                entry.references++;
+                return new ZipFileReference(this, entry);
+            }
+        }
+
+        // Open it without holding the lock (reading the central directory may take a while).
+        ZipFile zipFile = new ZipFile(file, ZipFile.OPEN_READ);
+        synchronized (lock) {
+            Entry entry = getValidEntry(file, lastModified, length);
+            if (entry != null) {
+                // Opened concurrently in some other thread.
+                close(zipFile);
+            } else {
+                entry = new Entry(file, zipFile, lastModified, length);
+                entries.put(file, entry);
+            }
+            entry.references++;
+            return new ZipFileReference(this, entry);
+        }
+    }
+
+    /**
+     * Closes the given archive as soon as it's no longer referenced (the next acquire will reopen it).
+     */
+    public void invalidate(File file) {
+        synchronized (lock) {
+            Entry entry = entries.get(file);
+            if (entry != null) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Closes all the archives as soon as they're no longer referenced.
+     */
+    public void clear() {
+        synchronized (lock) {
+            for (Entry entry : new ArrayList<Entry>(entries.values())) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * @return the number of archives currently opened (referenced or not).
+     */
+    public int getOpenedCount() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @return the entry for the file if it's still valid for the file with the given modification time and size.
+     */
+    private Entry getValidEntry(File file, long lastModified, long length) {
+        Entry entry = entries.get(file);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.lastModified != lastModified || entry.length != length) {
+            remove(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void release(Entry entry) {
+        synchronized (lock) {
+            entry.references--;
+            entry.lastUsed = System.currentTimeMillis();
+            if (entry.references > 0) {
+                return;
+            }
+            if (entry.removed) {
+                close(entry.zipFile);
+                return;
+            }
+            entries.get(entry.file); // Mark as the most recently used.
+
+            // Close the least recently used archives not referenced above the limit.
+            int unreferenced = 0;
+            for (Entry e : entries.values()) {
+                if (e.references == 0) {
+                    unreferenced++;
+                }
+            }
+            for (Iterator<Entry> it = entries.values().iterator(); unreferenced > maxOpened && it.hasNext();) {
+                Entry e = it.next();
+                if (e.references == 0) {
+                    it.remove();
+                    e.removed = true;
+                    close(e.zipFile);
+                    unreferenced--;
+                }
+            }
+            if (unreferenced > 0) {
+                scheduleIdleCheck();
+            }
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void remove(Entry entry) {
+        entries.remove(entry.file);
+        entry.removed = true;
+        if (entry.references == 0) {
+            close(entry.zipFile);
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void scheduleIdleCheck() {
+        if (idleTimeoutMillis <= 0 || idleCheckScheduled) {
+            return;
+        }
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ZipFilesCache idle check");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        idleCheckScheduled = true;
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                closeIdle();
+            }
+        }, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeIdle() {
+        synchronized (lock) {
+            idleCheckScheduled = false;
+            long now = System.currentTimeMillis();
+            boolean hasUnreferenced = false;
+            List<Entry> idle = new ArrayList<Entry>();
+            for (Entry entry : entries.values()) {
+                if (entry.references == 0) {
+                    if (now - entry.lastUsed >= idleTimeoutMillis) {
+                        idle.add(entry);
+                    } else {
+                        hasUnreferenced = true;
+                    }
+                }
+            }
+            for (Entry entry : idle) {
+                remove(entry);
+            }
+            if (hasUnreferenced) {
+                scheduleIdleCheck();
+            }
+        }
+    }
+
+    private static void close(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            Log.log(e);
+        }
+    }
+}
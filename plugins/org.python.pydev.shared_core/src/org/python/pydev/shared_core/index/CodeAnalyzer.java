@@ -11,8 +11,8 @@
 ******************************************************************************/
 package org.python.pydev.shared_core.index;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenFilter;
@@ -21,30 +21,48 @@ import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.core.StopFilter;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.analysis.util.CharTokenizer;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 
 /**
  * The tokenizers are registered externally for this analyzer.
+ *
+ * Note: the analyzer caches the components for each field and thread, so, new components must
+ * be created in createComponents for it to be used by multiple threads (i.e.: when documents
+ * are added to the IndexWriter concurrently).
  */
 public class CodeAnalyzer extends Analyzer {
 
     public CodeAnalyzer() {
-        super();
-        fieldNameToStreamComponents.put("__default__", createDefaultComponents());
+        super(PER_FIELD_REUSE_STRATEGY);
     }
 
     @Override
     protected TokenStreamComponents createComponents(String fieldName) {
-        TokenStreamComponents streamComponents = fieldNameToStreamComponents.get(fieldName);
+        ICallback0<TokenStreamComponents> streamComponents = fieldNameToStreamComponents.get(fieldName);
         if (streamComponents != null) {
-            return streamComponents;
+            return streamComponents.call();
         }
-        return fieldNameToStreamComponents.get("__default__");
+        return createDefaultComponents();
     }
 
-    Map<String, TokenStreamComponents> fieldNameToStreamComponents = new HashMap<>();
+    Map<String, ICallback0<TokenStreamComponents>> fieldNameToStreamComponents = new ConcurrentHashMap<>();
 
-    public void registerTokenizer(String fieldName, TokenStreamComponents tokenStream) {
-        fieldNameToStreamComponents.put(fieldName, tokenStream);
+    /**
+     * Note: the same components are used for all the threads (so, if documents are indexed from
+     * multiple threads, the method which receives a factory must be used).
+     */
+    public void registerTokenizer(String fieldName, final TokenStreamComponents tokenStream) {
+        fieldNameToStreamComponents.put(fieldName, new ICallback0<TokenStreamComponents>() {
+
+            @Override
+            public TokenStreamComponents call() {
+                return tokenStream;
+            }
+        });
+    }
+
+    public void registerTokenizer(String fieldName, ICallback0<TokenStreamComponents> tokenStreamFactory) {
+        fieldNameToStreamComponents.put(fieldName, tokenStreamFactory);
     }
 
     // Code in general
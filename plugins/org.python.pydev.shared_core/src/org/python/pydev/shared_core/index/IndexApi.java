@@ -22,14 +22,18 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
@@ -37,7 +41,10 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
@@ -53,9 +60,12 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.log.Log;
 import org.python.pydev.shared_core.partitioner.IContentsScanner;
@@ -78,7 +88,21 @@ public class IndexApi {
     private SearcherFactory searcherFactory;
     private int maxMatches = Integer.MAX_VALUE;
     private CodeAnalyzer analyzer;
+    private boolean applyAllDeletes;
     private final Object lock = new Object();
+    private final Set<String> fieldsWithOffsets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * A text field which also stores the offsets of its tokens (in the term vectors of the document).
+     */
+    private static final FieldType TEXT_WITH_OFFSETS_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        TEXT_WITH_OFFSETS_TYPE.setStoreTermVectors(true);
+        TEXT_WITH_OFFSETS_TYPE.setStoreTermVectorPositions(true);
+        TEXT_WITH_OFFSETS_TYPE.setStoreTermVectorOffsets(true);
+        TEXT_WITH_OFFSETS_TYPE.freeze();
+    }
 
     protected IndexApi(Object /*Directory*/ indexDirObj, boolean applyAllDeletes) throws IOException {
         // Note; indexDirOjb must actually be a org.apache.lucene.store.Directory (but we don't export it
@@ -112,6 +136,18 @@ public class IndexApi {
         this(FSDirectory.open(indexDir.toPath()), applyAllDeletes);
     }
 
+    /**
+     * Removes the index which would be opened for the given dir (must not be opened).
+     */
+    public static void deleteIndex(File indexDir) throws IOException {
+        File[] dirs = new File[] { indexDir, new File(indexDir.getAbsolutePath() + lucene6dot1Suffix) };
+        for (File dir : dirs) {
+            if (dir.exists()) {
+                FileUtils.deleteDirectoryTree(dir);
+            }
+        }
+    }
+
     public void init(boolean applyAllDeletes) throws IOException {
         this.analyzer = new CodeAnalyzer();
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
@@ -126,12 +162,40 @@ public class IndexApi {
 
         searcherFactory = new SearcherFactory();
         searchManager = new SearcherManager(writer, applyAllDeletes, false, searcherFactory);
+        this.applyAllDeletes = applyAllDeletes;
     }
 
     public void registerTokenizer(String fieldName, TokenStreamComponents tokenStream) {
         this.analyzer.registerTokenizer(fieldName, tokenStream);
     }
 
+    public void registerTokenizer(String fieldName, ICallback0<TokenStreamComponents> tokenStreamFactory) {
+        this.analyzer.registerTokenizer(fieldName, tokenStreamFactory);
+    }
+
+    /**
+     * Makes the given text field also store the offsets of its tokens in the documents indexed from now on
+     * (so that they can be gotten with DocumentInfo.getTermOffsets without reading the contents again).
+     */
+    public void storeTermOffsets(String fieldName) {
+        this.fieldsWithOffsets.add(fieldName);
+    }
+
+    //Note: TextField should be analyzed/normalized in Analyzer.createComponents(String)
+    private Field createTextField(String fieldName, Reader reader) {
+        if (fieldsWithOffsets.contains(fieldName)) {
+            return new Field(fieldName, reader, TEXT_WITH_OFFSETS_TYPE);
+        }
+        return new TextField(fieldName, reader);
+    }
+
+    private Field createTextField(String fieldName, String contents) {
+        if (fieldsWithOffsets.contains(fieldName)) {
+            return new Field(fieldName, contents, TEXT_WITH_OFFSETS_TYPE);
+        }
+        return new TextField(fieldName, contents, Field.Store.NO);
+    }
+
     public void commit() throws IOException {
         if (this.writer != null) {
             this.writer.commit();
@@ -163,6 +227,10 @@ public class IndexApi {
         }
     }
 
+    public boolean isDisposed() {
+        return this.writer == null;
+    }
+
     private Document createDocument(Map<String, String> fieldsToIndex) {
         Document doc = new Document();
 
@@ -216,9 +284,7 @@ public class IndexApi {
             return;
         }
         Document doc = createDocument(filepath, modifiedTime, additionalStringFields);
-
-        //Note: TextField should be analyzed/normalized in Analyzer.createComponents(String)
-        doc.add(new TextField(fieldName, general, Field.Store.NO));
+        doc.add(createTextField(fieldName, general));
 
         this.writer.addDocument(doc);
     }
@@ -228,9 +294,7 @@ public class IndexApi {
             return;
         }
         Document doc = createDocument(fieldsToIndex);
-
-        //Note: TextField should be analyzed/normalized in Analyzer.createComponents(String)
-        doc.add(new TextField(fieldName, reader));
+        doc.add(createTextField(fieldName, reader));
 
         this.writer.addDocument(doc);
     }
@@ -240,9 +304,7 @@ public class IndexApi {
             return;
         }
         Document doc = createDocument(filepath, modifiedTime, null);
-
-        //Note: TextField should be analyzed/normalized in Analyzer.createComponents(String)
-        doc.add(new TextField(fieldName, reader));
+        doc.add(createTextField(fieldName, reader));
 
         this.writer.addDocument(doc);
     }
@@ -386,12 +448,18 @@ public class IndexApi {
 
         private Document document;
         private int documentId;
+        private IndexReader reader;
 
         public DocumentInfo(Document document, int doc) {
             this.document = document;
             this.documentId = doc;
         }
 
+        private DocumentInfo(Document document, int doc, IndexReader reader) {
+            this(document, doc);
+            this.reader = reader;
+        }
+
         public String get(String field) {
             return this.document.get(field);
         }
@@ -400,6 +468,59 @@ public class IndexApi {
             return this.documentId;
         }
 
+        /**
+         * Note: only available while the document is being visited.
+         *
+         * @param patterns the patterns (which may have * and ? wildcards) to match the terms (which are indexed
+         * in lowercase).
+         * @return the offsets of the tokens of the given field which match any of the patterns or null if the
+         * offsets weren't stored for the document (see: IndexApi.storeTermOffsets).
+         */
+        public TermOffsets getTermOffsets(String fieldName, Collection<String> patterns) throws IOException {
+            if (reader == null) {
+                return null;
+            }
+            Terms terms = reader.getTermVector(documentId, fieldName);
+            if (terms == null || !terms.hasOffsets()) {
+                return null;
+            }
+            TermOffsets termOffsets = new TermOffsets();
+            Set<String> found = new HashSet<>();
+            for (String pattern : patterns) {
+                if (pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1) {
+                    Term term = new Term(fieldName, pattern);
+                    TermsEnum termsEnum = new CompiledAutomaton(WildcardQuery.toAutomaton(term)).getTermsEnum(terms);
+                    for (BytesRef bytes = termsEnum.next(); bytes != null; bytes = termsEnum.next()) {
+                        addTermOffsets(termsEnum, bytes, found, termOffsets);
+                    }
+                } else {
+                    TermsEnum termsEnum = terms.iterator();
+                    if (termsEnum.seekExact(new BytesRef(pattern))) {
+                        addTermOffsets(termsEnum, termsEnum.term(), found, termOffsets);
+                    }
+                }
+            }
+            termOffsets.sort();
+            return termOffsets;
+        }
+
+        private static void addTermOffsets(TermsEnum termsEnum, BytesRef bytes, Set<String> found,
+                TermOffsets termOffsets) throws IOException {
+            String term = bytes.utf8ToString();
+            if (!found.add(term)) {
+                return;
+            }
+            // A term vector has a single document.
+            PostingsEnum postings = termsEnum.postings(null, PostingsEnum.OFFSETS);
+            if (postings.nextDoc() == PostingsEnum.NO_MORE_DOCS) {
+                return;
+            }
+            for (int i = postings.freq(); i > 0; i--) {
+                postings.nextPosition();
+                termOffsets.add(term, postings.startOffset(), postings.endOffset());
+            }
+        }
+
     }
 
     public static interface IDocumentsVisitor {
@@ -412,26 +533,35 @@ public class IndexApi {
      * @param fields the fields to be loaded.
      */
     public void visitAllDocs(IDocumentsVisitor visitor, String... fields) throws IOException {
+        if (this.applyAllDeletes) {
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                visit(searcher, new MatchAllDocsQuery(), Integer.MAX_VALUE, visitor, fields);
+            } finally {
+                searchManager.release(searcher);
+            }
+            return;
+        }
         boolean applyAllDeletes = true;
         try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes, false);) {
-
             IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
-            Query query = new MatchAllDocsQuery();
-            TopDocs docs = searcher.search(query, Integer.MAX_VALUE);
-            ScoreDoc[] scoreDocs = docs.scoreDocs;
-            int length = scoreDocs.length;
-            for (int i = 0; i < length; i++) {
-                ScoreDoc scoreDoc = scoreDocs[i];
-                DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
-                reader.document(scoreDoc.doc, fieldVisitor);
-                Document document = fieldVisitor.getDocument();
-                visitor.visit(new DocumentInfo(document, scoreDoc.doc));
-            }
+            visit(searcher, new MatchAllDocsQuery(), Integer.MAX_VALUE, visitor, fields);
         }
     }
 
     public SearchResult search(Query query, boolean applyAllDeletes, IDocumentsVisitor visitor, String... fields)
             throws IOException {
+        if (this.applyAllDeletes || !applyAllDeletes) {
+            // The near-real-time searcher from the SearcherManager already sees the changes done
+            // in the writer (it's only reopened if something changed), so, no need to commit.
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                return visit(searcher, query, maxMatches, visitor, fields);
+            } finally {
+                searchManager.release(searcher);
+            }
+        }
+
         try {
             this.writer.commit();
         } catch (Exception e) {
@@ -439,23 +569,36 @@ public class IndexApi {
         }
         try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes, false);) {
             IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
+            return visit(searcher, query, maxMatches, visitor, fields);
+        }
+    }
 
-            TopDocs search = searcher.search(query, maxMatches);
-            ScoreDoc[] scoreDocs = search.scoreDocs;
-
-            if (visitor != null) {
-                int length = scoreDocs.length;
-                for (int i = 0; i < length; i++) {
-                    ScoreDoc scoreDoc = scoreDocs[i];
-                    DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
-                    reader.document(scoreDoc.doc, fieldVisitor);
-                    Document document = fieldVisitor.getDocument();
-                    visitor.visit(new DocumentInfo(document, scoreDoc.doc));
-                }
-            }
+    /**
+     * Note: the returned searcher must be released with searchManager.release().
+     */
+    private IndexSearcher acquireSearcher() throws IOException {
+        searchManager.maybeRefreshBlocking();
+        return searchManager.acquire();
+    }
 
-            return new SearchResult(scoreDocs);
+    private SearchResult visit(IndexSearcher searcher, Query query, int maxMatches, IDocumentsVisitor visitor,
+            String... fields) throws IOException {
+        TopDocs search = searcher.search(query, maxMatches);
+        ScoreDoc[] scoreDocs = search.scoreDocs;
+
+        if (visitor != null) {
+            IndexReader reader = searcher.getIndexReader();
+            int length = scoreDocs.length;
+            for (int i = 0; i < length; i++) {
+                ScoreDoc scoreDoc = scoreDocs[i];
+                DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
+                reader.document(scoreDoc.doc, fieldVisitor);
+                Document document = fieldVisitor.getDocument();
+                visitor.visit(new DocumentInfo(document, scoreDoc.doc, reader));
+            }
         }
+
+        return new SearchResult(scoreDocs);
     }
 
     public void removeDocs(Map<String, Collection<String>> fieldToValuesToRemove) throws IOException {
@@ -0,0 +1,98 @@
+/******************************************************************************
+* Copyright (C) 2015  Fabio Zadrozny and others
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com>    - initial API and implementation
+******************************************************************************/
+package org.python.pydev.shared_core.index;
+
+import java.util.Arrays;
+
+/**
+ * The offsets (in the contents which were indexed) of the tokens of a document which matched some pattern,
+ * sorted by their start offset.
+ */
+public final class TermOffsets {
+
+    private String[] terms = new String[8];
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int size;
+
+    /*default*/ void add(String term, int start, int end) {
+        if (size == starts.length) {
+            int newLength = size * 2;
+            terms = Arrays.copyOf(terms, newLength);
+            starts = Arrays.copyOf(starts, newLength);
+            ends = Arrays.copyOf(ends, newLength);
+        }
+        terms[size] = term;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /*default*/ void sort() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> starts[a] != starts[b] ? Integer.compare(starts[a], starts[b])
+                : Integer.compare(a, b));
+
+        String[] newTerms = new String[size];
+        int[] newStarts = new int[size];
+        int[] newEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = order[i];
+            newTerms[i] = terms[j];
+            newStarts[i] = starts[j];
+            newEnds[i] = ends[j];
+        }
+        terms = newTerms;
+        starts = newStarts;
+        ends = newEnds;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the term (as indexed, i.e.: in lowercase) at the given index.
+     */
+    public String getTerm(int i) {
+        return terms[i];
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    /**
+     * @return whether all the tokens are still found at their offsets in the given text (if false, the text
+     * is not the one which was indexed and the offsets can't be used).
+     */
+    public boolean matches(String text) {
+        int length = text.length();
+        for (int i = 0; i < size; i++) {
+            String term = terms[i];
+            int start = starts[i];
+            int end = ends[i];
+            if (start < 0 || end > length || end - start != term.length()
+                    || !text.regionMatches(true, start, term, 0, term.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
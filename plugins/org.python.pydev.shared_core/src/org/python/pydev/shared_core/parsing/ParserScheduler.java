@@ -6,17 +6,25 @@
  */
 /*
  * Created on Sep 14, 2005
- * 
+ *
  * @author Fabio Zadrozny
  */
 package org.python.pydev.shared_core.parsing;
 
+import java.util.concurrent.ScheduledFuture;
+
+import org.python.pydev.shared_core.log.Log;
+
+/**
+ * Keeps the parse requests for a parser: the requests wait for the elapse time (restarted on each new
+ * request) and are then added to the queue of the shared ParserSchedulerPool, whose workers do the
+ * actual parse.
+ *
+ * Note: all the state changes are synchronized on this object.
+ */
 public class ParserScheduler {
 
-    /**
-     * used to do parsings in a thread - is null when not doing parsings
-     */
-    public volatile ParsingThread parsingThread;
+    private static final Object[] EMPTY_ARGS = new Object[0];
 
     /**
      * indicates that currently nothing is happening
@@ -29,12 +37,12 @@ public class ParserScheduler {
     public static final int STATE_PARSE_LATER = 1;
 
     /**
-     * indicates if a thread is currently waiting for an elapse cycle to end
+     * indicates if we're currently waiting for an elapse cycle to end
      */
     public static final int STATE_WAITING_FOR_ELAPSE = 2;
 
     /**
-     * indicates if a thread is currently doing a parse action
+     * indicates if a parse action is being done
      */
     public static final int STATE_DOING_PARSE = 3;
 
@@ -57,10 +65,41 @@ public class ParserScheduler {
 
     private BaseParserManager parserManager;
 
+    private final ParserSchedulerPool pool;
+
+    /**
+     * The elapse time being waited (null if not waiting).
+     */
+    private ScheduledFuture<?> elapseFuture;
+
+    /**
+     * Whether we're in the pool queue.
+     */
+    private boolean queued;
+
+    /**
+     * The time when we were added to the pool queue.
+     */
+    private long queuedTime;
+
+    /**
+     * A parse was requested while a parse was being done.
+     */
+    private boolean parseAfterCurrent;
+
+    private Object[] argsToReparse = EMPTY_ARGS;
+
+    private boolean disposed;
+
     public ParserScheduler(IParser parser, BaseParserManager parserManager) {
+        this(parser, parserManager, ParserSchedulerPool.get());
+    }
+
+    /*default*/ ParserScheduler(IParser parser, BaseParserManager parserManager, ParserSchedulerPool pool) {
         super();
         this.parser = parser;
         this.parserManager = parserManager;
+        this.pool = pool;
     }
 
     public void parseNow() {
@@ -69,91 +108,149 @@ public class ParserScheduler {
 
     /**
      * The arguments passed in argsToReparse will be passed to the reparseDocument, and then on to fireParserChanged / fireParserError
-     * 
+     *
      * @return false if we asked a forced reparse and it will not be scheduled because a reparse is already in action.
      */
-    public boolean parseNow(boolean force, Object... argsToReparse) {
+    public synchronized boolean parseNow(boolean force, Object... argsToReparse) {
+        if (disposed) {
+            return true; //reparse didn't happen, but no matter what happens, it won't happen anyways
+        }
         if (!force) {
-            if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_DOING_PARSE) {
-                //waiting or parse later
-                state = STATE_WAITING_FOR_ELAPSE; // the parser will reset it later
-                timeLastParse = System.currentTimeMillis();
-                checkCreateAndStartParsingThread();
-            } else {
+            if (state == STATE_DOING_PARSE) {
+                parseAfterCurrent = true;
+
+            } else if (!queued) {
                 //another request... we keep waiting until the user stops adding requests
-                boolean created = checkCreateAndStartParsingThread();
-                if (!created) {
-                    parsingThread.okToGo = false;
-                }
+                state = STATE_WAITING_FOR_ELAPSE;
+                timeLastParse = System.currentTimeMillis();
+                scheduleElapse();
             }
         } else {
-            ParsingThread parserThreadLocal = parsingThread; //if it dies suddenly, we don't want to get it as null...
-            if (state == ParserScheduler.STATE_DOING_PARSE) {
+            if (state == STATE_DOING_PARSE) {
                 //a parse is already in action
                 return false;
-            } else {
-                if (parserThreadLocal == null) {
-                    parserThreadLocal = new ParsingThread(parserManager, this, argsToReparse);
-                    parsingThread = parserThreadLocal;
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
-                    parserThreadLocal.start();
-                } else {
-                    //force it to run
-                    if (argsToReparse.length > 0) {
-                        parserThreadLocal.updateArgsToReparse(argsToReparse);
-                    }
-                    parserThreadLocal.force = true;
-                    parserThreadLocal.interrupt();
-                }
             }
+            if (argsToReparse.length > 0 || !queued) {
+                this.argsToReparse = argsToReparse;
+            }
+            //force it to run
+            cancelElapse();
+            state = STATE_WAITING_FOR_ELAPSE;
+            enqueue();
         }
         return true;
     }
 
-    /**
-     * @return whether we really created the thread (returns false if the thread already exists)
-     */
-    private boolean checkCreateAndStartParsingThread() {
-        ParsingThread p = parsingThread;
-        if (p == null) {
-            p = new ParsingThread(parserManager, this);
-            p.setPriority(Thread.MIN_PRIORITY); //parsing is low priority
-            p.start();
-            parsingThread = p;
-            return true;
+    public synchronized void parseLater() {
+        if (disposed) {
+            return;
         }
-        return false;
-    }
+        if (state == STATE_DOING_PARSE) {
+            parseAfterCurrent = true;
 
-    public void parseLater() {
-        if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_PARSE_LATER) {
+        } else if (state != STATE_WAITING_FOR_ELAPSE && state != STATE_PARSE_LATER) {
             state = STATE_PARSE_LATER;
             //ok, the time for this request is:
             timeParseLaterRequested = System.currentTimeMillis();
-            Thread thread = new Thread() {
-                @Override
-                public void run() {
-                    try {
-                        sleep(parserManager.getElapseMillisBeforeAnalysis());
-                    } catch (Exception e) {
-                        //that's ok
-                    }
-                    //ok, no parse happened while we were sleeping
-                    if (state == STATE_PARSE_LATER && timeLastParse < timeParseLaterRequested) {
-                        parseNow();
-                    }
+            scheduleElapse();
+        }
+    }
+
+    /**
+     * Must be called synchronized.
+     */
+    private void scheduleElapse() {
+        cancelElapse();
+        elapseFuture = pool.schedule(this, parserManager.getElapseMillisBeforeAnalysis());
+    }
+
+    /**
+     * Must be called synchronized.
+     */
+    private void cancelElapse() {
+        if (elapseFuture != null) {
+            elapseFuture.cancel(false);
+            elapseFuture = null;
+        }
+    }
+
+    /**
+     * Must be called synchronized.
+     */
+    private void enqueue() {
+        if (!queued) {
+            queued = true;
+            queuedTime = System.currentTimeMillis();
+            pool.enqueue(this);
+        }
+    }
+
+    /**
+     * Called by the pool when the elapse time passed.
+     */
+    synchronized void onElapsed() {
+        elapseFuture = null;
+        if (disposed) {
+            return;
+        }
+        if (state == STATE_PARSE_LATER) {
+            //ok, no parse happened while we were waiting
+            if (timeLastParse < timeParseLaterRequested) {
+                state = STATE_WAITING_FOR_ELAPSE;
+                timeLastParse = System.currentTimeMillis();
+                scheduleElapse();
+            }
+        } else if (state == STATE_WAITING_FOR_ELAPSE) {
+            enqueue();
+        }
+    }
+
+    /**
+     * Called by a worker of the pool to do the parse.
+     */
+    void doParse() {
+        Object[] args;
+        long latency;
+        synchronized (this) {
+            queued = false;
+            if (disposed) {
+                return;
+            }
+            state = STATE_DOING_PARSE;
+            args = this.argsToReparse;
+            this.argsToReparse = EMPTY_ARGS;
+            latency = System.currentTimeMillis() - queuedTime;
+        }
+
+        long initialTime = System.currentTimeMillis();
+        try {
+            reparseDocument(args);
+        } catch (Throwable e) {
+            Log.log(e);
+        } finally {
+            pool.onParseFinished(latency, System.currentTimeMillis() - initialTime);
+            synchronized (this) {
+                //reset the state
+                state = STATE_WAITING;
+                if (parseAfterCurrent) {
+                    parseAfterCurrent = false;
+                    parseNow(false);
                 }
-            };
-            thread.setName("ParserScheduler");
-            thread.start();
+            }
         }
+    }
 
+    /**
+     * Should be called when the editor related to this scheduler becomes active (so that its parses
+     * have priority over the others).
+     */
+    public void setActive() {
+        pool.setActive(this);
     }
 
     /**
      * this should call back to the parser itself for doing a parse
-     * 
+     *
      * The argsToReparse will be passed to the IParserObserver2
      */
     public void reparseDocument(Object... argsToReparse) {
@@ -164,10 +261,12 @@ public class ParserScheduler {
     }
 
     public void dispose() {
-        ParsingThread p = this.parsingThread;
-        if (p != null) {
-            p.dispose();
+        synchronized (this) {
+            disposed = true;
+            cancelElapse();
+            queued = false;
         }
+        pool.remove(this);
         this.parser = null;
     }
 
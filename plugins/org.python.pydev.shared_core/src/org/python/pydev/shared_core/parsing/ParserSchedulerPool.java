@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.parsing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Threads shared by all the ParserSchedulers: a single timer thread is used to wait for the elapse
+ * time before a parse and a few worker threads do the actual parsing.
+ *
+ * A scheduler is only in the queue once (so, requests done while it's waiting in the queue are
+ * coalesced) and the scheduler of the active editor is always the first one to be parsed.
+ */
+public final class ParserSchedulerPool {
+
+    private static final class PoolThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private PoolThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName(name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1); //parsing is lower than normal priority
+            return thread;
+        }
+    }
+
+    private static ParserSchedulerPool pool;
+
+    public static synchronized ParserSchedulerPool get() {
+        if (pool == null) {
+            pool = new ParserSchedulerPool(
+                    Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+        }
+        return pool;
+    }
+
+    /**
+     * Stops the threads of the shared pool (called when the plugin is stopped).
+     */
+    public static synchronized void disposeShared() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final List<Thread> workers = new ArrayList<Thread>();
+
+    /**
+     * Schedulers ready to be parsed (access synchronized on the queue).
+     */
+    private final ArrayDeque<ParserScheduler> queue = new ArrayDeque<ParserScheduler>();
+
+    private volatile ParserScheduler active;
+
+    /**
+     * Set when the pool is shut down (access synchronized on the queue).
+     */
+    private boolean shutdown;
+
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+    private final AtomicLong totalParseMillis = new AtomicLong();
+
+    /**
+     * @param nThreads the number of threads which do the parsing.
+     */
+    /*default*/ ParserSchedulerPool(int nThreads) {
+        timer = new ScheduledThreadPoolExecutor(1, new PoolThreadFactory("ParserScheduler timer"));
+        timer.setRemoveOnCancelPolicy(true);
+
+        PoolThreadFactory factory = new PoolThreadFactory("ParserScheduler");
+        for (int i = 0; i < nThreads; i++) {
+            Thread worker = factory.newThread(new Runnable() {
+
+                @Override
+                public void run() {
+                    while (true) {
+                        ParserScheduler scheduler;
+                        try {
+                            scheduler = take();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        try {
+                            scheduler.doParse();
+                        } catch (Throwable e) {
+                            Log.log(e);
+                        }
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the timer and the workers (a parse being done is finished, but the schedulers in the queue aren't
+     * parsed anymore and new requests are ignored).
+     */
+    /*default*/ void shutdown() {
+        synchronized (queue) {
+            shutdown = true;
+            queue.clear();
+            queue.notifyAll();
+        }
+        active = null;
+        timer.shutdownNow();
+    }
+
+    /**
+     * @return whether all the threads of the pool finished after a shutdown.
+     */
+    /*default*/ boolean isTerminated() {
+        if (!timer.isTerminated()) {
+            return false;
+        }
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calls scheduler.onElapsed() after the given delay.
+     *
+     * @return the future to cancel the call or null if the pool was shut down.
+     */
+    ScheduledFuture<?> schedule(final ParserScheduler scheduler, long delayMillis) {
+        try {
+            return timer.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        scheduler.onElapsed();
+                    } catch (Throwable e) {
+                        Log.log(e);
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null; //shut down
+        }
+    }
+
+    /**
+     * Adds the scheduler to the queue of schedulers to be parsed (the caller must make sure it's not
+     * already there).
+     */
+    void enqueue(ParserScheduler scheduler) {
+        synchronized (queue) {
+            if (shutdown) {
+                return;
+            }
+            queue.add(scheduler);
+            queue.notify();
+        }
+    }
+
+    void remove(ParserScheduler scheduler) {
+        synchronized (queue) {
+            queue.remove(scheduler);
+        }
+        if (active == scheduler) {
+            active = null;
+        }
+    }
+
+    private ParserScheduler take() throws InterruptedException {
+        synchronized (queue) {
+            while (queue.isEmpty()) {
+                if (shutdown) {
+                    throw new InterruptedException();
+                }
+                queue.wait();
+            }
+            ParserScheduler a = active;
+            if (a != null) {
+                for (Iterator<ParserScheduler> it = queue.iterator(); it.hasNext();) {
+                    if (it.next() == a) {
+                        it.remove();
+                        return a;
+                    }
+                }
+            }
+            return queue.removeFirst();
+        }
+    }
+
+    /**
+     * Marks the scheduler of the editor which is currently active (its parses are done first).
+     */
+    void setActive(ParserScheduler scheduler) {
+        this.active = scheduler;
+    }
+
+    void onParseFinished(long latencyMillis, long parseMillis) {
+        parses.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        totalParseMillis.addAndGet(parseMillis);
+        long max;
+        while (latencyMillis > (max = maxLatencyMillis.get())) {
+            if (maxLatencyMillis.compareAndSet(max, latencyMillis)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of schedulers waiting for a worker to do the parse.
+     */
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public long getParses() {
+        return parses.get();
+    }
+
+    /**
+     * @return the average time (in millis) a parse waited in the queue for a worker.
+     */
+    public long getAverageLatencyMillis() {
+        long n = parses.get();
+        return n == 0 ? 0 : totalLatencyMillis.get() / n;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+
+    public long getAverageParseMillis() {
+        long n = parses.get();
+        return n == 0 ? 0 : totalParseMillis.get() / n;
+    }
+
+    public String getStatistics() {
+        FastStringBuffer buf = new FastStringBuffer(120);
+        buf.append("Parser scheduler: queue: ").append(getQueueDepth());
+        buf.append(" parses: ").append(getParses());
+        buf.append(" avg latency (ms): ").append(getAverageLatencyMillis());
+        buf.append(" max latency (ms): ").append(getMaxLatencyMillis());
+        buf.append(" avg parse (ms): ").append(getAverageParseMillis());
+        return buf.toString();
+    }
+}
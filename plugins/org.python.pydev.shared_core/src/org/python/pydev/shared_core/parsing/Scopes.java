@@ -1,27 +1,26 @@
-/******************************************************************************
-* Copyright (C) 2013  Fabio Zadrozny
-*
-* All rights reserved. This program and the accompanying materials
-* are made available under the terms of the Eclipse Public License v1.0
-* which accompanies this distribution, and is available at
-* http://www.eclipse.org/legal/epl-v10.html
-*
-* Contributors:
-*     Fabio Zadrozny <fabiofz@gmail.com> - initial API and implementation
-******************************************************************************/
+/******************************************************************************
+* Copyright (C) 2013  Fabio Zadrozny
+*
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+*     Fabio Zadrozny <fabiofz@gmail.com> - initial API and implementation
+******************************************************************************/
 package org.python.pydev.shared_core.parsing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Region;
 import org.python.pydev.shared_core.string.BaseParsingUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
-import org.python.pydev.shared_core.structure.Tuple;
 
 public class Scopes {
 
@@ -31,90 +30,203 @@ public class Scopes {
     public static final int TYPE_MODULE = 4;
     public static final int TYPE_SUITE = 5;
 
+    private static final int NOT_CLOSED = Integer.MIN_VALUE;
+
+    /**
+     * Indexed by the scope id (ids start at 1).
+     *
+     * Note that the end is the offset of the last char in the scope.
+     */
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private int[] types = new int[32];
+
     /**
-     * Structure mapping the offset to the scope entries at that offset.
-     * 
-     * At a given position, opening entries should appear before the position and closing entries after the position.
+     * The order in which the scopes were closed (the ids), needed to print scopes which end at the same offset in
+     * the order they were closed.
      */
-    private Map<Integer, List<ScopeEntry>> offsetToEntries = new HashMap<Integer, List<ScopeEntry>>();
+    private int[] closeOrder = new int[32];
+    private int closed = 0;
+
     private int scopeId = 0;
-    private Map<Integer, Tuple<ScopeEntry, ScopeEntry>> idToStartEnd = new HashMap<Integer, Tuple<ScopeEntry, ScopeEntry>>();
 
-    private List<ScopeEntry> getAtOffset(int offset) {
-        List<ScopeEntry> list = offsetToEntries.get(offset);
-        if (list == null) {
-            list = new ArrayList<ScopeEntry>();
-            offsetToEntries.put(offset, list);
-        }
-        return list;
-    }
+    /**
+     * The ids of the scopes sorted by start offset (scopes which start at the same offset are sorted by id).
+     *
+     * Created lazily when a query is done (and discarded when a scope is added/closed).
+     */
+    private int[] sortedIds;
 
+    /**
+     * Binary tree (with the leaves at sortedIds.length...) with the maximum end of the scopes below each node
+     * (in the order of sortedIds).
+     */
+    private int[] maxEnd;
+
+    /**
+     * Gets the scope which should be selected when expanding the given selection: the innermost scope (the one
+     * with the greatest start) which starts at or before the offset and ends at or after the end of the selection
+     * (if the scope is the selection itself, an outer scope is returned).
+     *
+     * O(log n) -- the sorted index is created on the first query after the scopes are changed.
+     */
     public IRegion getScopeForSelection(final int offset, final int len) {
         final int endOffset = offset + len - 1;
-        for (int i = offset; i >= 0; i--) {
+        if (offset < 0) {
+            return null;
+        }
+        createIndex();
+
+        // The last scope (in the sorted order) starting at or before the offset.
+        int low = 0;
+        int high = sortedIds.length - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[sortedIds[mid]] <= offset) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        while (last >= 0) {
             //We have to get a scope that starts before the current offset and ends after offset+len
-            //If it's the same, we must expand to an outer scope!
-            List<ScopeEntry> list = offsetToEntries.get(i);
-            if (list != null) {
-                ListIterator<ScopeEntry> listIterator = list.listIterator(list.size());
-                while (listIterator.hasPrevious()) {
-                    ScopeEntry scopeEntry = listIterator.previous();
-                    if (scopeEntry.open) {
-                        //Only interested in the opening ones at this point
-                        Tuple<ScopeEntry, ScopeEntry> tup = idToStartEnd.get(scopeEntry.id);
-                        if (i == offset && endOffset == tup.o2.offset) {
-                            continue;
-                        }
-                        if (endOffset > tup.o2.offset) {
-                            continue;
-                        }
-
-                        return new Region(tup.o1.offset, tup.o2.offset - tup.o1.offset + 1);
-                    }
-                }
+            int i = findLastWithEndAtLeast(last, endOffset);
+            if (i < 0) {
+                return null;
+            }
+            int id = sortedIds[i];
+            if (starts[id] == offset && ends[id] == endOffset) {
+                //If it's the same, we must expand to an outer scope!
+                last = i - 1;
+                continue;
             }
+            return new Region(starts[id], ends[id] - starts[id] + 1);
         }
         return null;
     }
 
+    /**
+     * @return the last index (in sortedIds) at or before the given index whose scope end is >= the given end or -1.
+     */
+    private int findLastWithEndAtLeast(int last, int end) {
+        int leaves = maxEnd.length / 2;
+        int node = last + leaves;
+        if (maxEnd[node] >= end) {
+            return last;
+        }
+        // Go up until there's a left sibling which may have it.
+        while (node > 1) {
+            if ((node & 1) == 1 && maxEnd[node - 1] >= end) {
+                node = node - 1;
+                // Go down getting the rightmost child which has it.
+                while (node < leaves) {
+                    node = maxEnd[2 * node + 1] >= end ? 2 * node + 1 : 2 * node;
+                }
+                return node - leaves;
+            }
+            node >>>= 1;
+        }
+        return -1;
+    }
+
+    private void createIndex() {
+        if (sortedIds != null) {
+            return;
+        }
+        int size = scopeId;
+        long[] startAndId = new long[size];
+        for (int id = 1; id <= size; id++) {
+            startAndId[id - 1] = ((long) starts[id] << 32) | id;
+        }
+        Arrays.sort(startAndId);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = (int) startAndId[i];
+        }
+
+        int leaves = 1;
+        while (leaves < size) {
+            leaves <<= 1;
+        }
+        int[] tree = new int[leaves * 2];
+        Arrays.fill(tree, Integer.MIN_VALUE);
+        for (int i = 0; i < size; i++) {
+            // Note: scopes not closed are never returned (NOT_CLOSED is the min int).
+            tree[leaves + i] = ends[ids[i]];
+        }
+        for (int i = leaves - 1; i >= 1; i--) {
+            tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+        }
+        sortedIds = ids;
+        maxEnd = tree;
+    }
+
     public int startScope(int offset, int type) {
         scopeId++;
-        List<ScopeEntry> list = getAtOffset(offset);
-        ScopeEntry startEntry = new ScopeEntry(scopeId, type, true, offset);
-        list.add(startEntry);
-        idToStartEnd.put(scopeId, new Tuple<ScopeEntry, ScopeEntry>(startEntry, null));
+        if (scopeId >= starts.length) {
+            int newLen = starts.length * 2;
+            starts = Arrays.copyOf(starts, newLen);
+            ends = Arrays.copyOf(ends, newLen);
+            types = Arrays.copyOf(types, newLen);
+        }
+        starts[scopeId] = offset;
+        ends[scopeId] = NOT_CLOSED;
+        types[scopeId] = type;
+        sortedIds = null;
         return scopeId;
     }
 
     public void endScope(int id, int offset, int type) {
         offset--;
-        List<ScopeEntry> list = getAtOffset(offset);
-        ScopeEntry endEntry = new ScopeEntry(id, type, false, offset);
-        idToStartEnd.get(id).o2 = endEntry;
-        list.add(endEntry);
+        ends[id] = offset;
+        if (closed >= closeOrder.length) {
+            closeOrder = Arrays.copyOf(closeOrder, closeOrder.length * 2);
+        }
+        closeOrder[closed++] = id;
+        sortedIds = null;
     }
 
     public FastStringBuffer debugString(Object doc) {
         BaseParsingUtils utils = BaseParsingUtils.create(doc);
         FastStringBuffer temp = new FastStringBuffer(utils.len() + (utils.len() / 10));
 
+        // offset -> entries at that offset (in the order they were added).
+        Map<Integer, List<ScopeEntry>> opening = new HashMap<Integer, List<ScopeEntry>>();
+        Map<Integer, List<ScopeEntry>> closing = new HashMap<Integer, List<ScopeEntry>>();
+        for (int id = 1; id <= scopeId; id++) {
+            getAtOffset(opening, starts[id]).add(new ScopeEntry(id, types[id], true, starts[id]));
+        }
+        for (int i = 0; i < closed; i++) {
+            int id = closeOrder[i];
+            getAtOffset(closing, ends[id]).add(new ScopeEntry(id, types[id], false, ends[id]));
+        }
+
         int len = utils.len();
         for (int i = 0; i < len; i++) {
             char c = utils.charAt(i);
-            printEntries(temp, i, true);
+            printEntries(temp, opening.get(i));
             temp.append(c);
-            printEntries(temp, i, false);
+            printEntries(temp, closing.get(i));
         }
         return temp;
     }
 
-    private void printEntries(FastStringBuffer temp, int i, boolean opening) {
-        List<ScopeEntry> list = offsetToEntries.get(i);
+    private static List<ScopeEntry> getAtOffset(Map<Integer, List<ScopeEntry>> offsetToEntries, int offset) {
+        List<ScopeEntry> list = offsetToEntries.get(offset);
+        if (list == null) {
+            list = new ArrayList<ScopeEntry>();
+            offsetToEntries.put(offset, list);
+        }
+        return list;
+    }
+
+    private static void printEntries(FastStringBuffer temp, List<ScopeEntry> list) {
         if (list != null) {
             for (ScopeEntry e : list) {
-                if (e.open == opening) {
-                    e.toString(temp);
-                }
+                e.toString(temp);
             }
         }
     }
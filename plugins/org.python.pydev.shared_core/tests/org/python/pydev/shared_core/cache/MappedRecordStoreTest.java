@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+public class MappedRecordStoreTest extends TestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("MappedRecordStoreTest", ".store");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    public void testPutAndReopen() throws Exception {
+        MappedRecordStore store = new MappedRecordStore(file, 1);
+        assertNull(store.get("a"));
+        store.put("a", bytes("value a"));
+        store.put("b", bytes(""));
+        store.put("a", bytes("value a2"));
+        assertEquals("value a2", str(store.get("a")));
+        assertEquals("", str(store.get("b")));
+        store.close();
+
+        store = new MappedRecordStore(file, 1);
+        assertEquals(2, store.size());
+        assertEquals("value a2", str(store.get("a")));
+        assertTrue(store.contains("b"));
+        store.put("c", bytes("value c"));
+        assertEquals("value c", str(store.get("c")));
+        store.close();
+
+        // A different version discards the contents.
+        store = new MappedRecordStore(file, 2);
+        assertEquals(0, store.size());
+        store.close();
+    }
+
+    public void testClear() throws Exception {
+        MappedRecordStore store = new MappedRecordStore(file, 1);
+        store.put("a", bytes("value a"));
+        store.clear();
+        store.put("b", bytes("value b"));
+        assertNull(store.get("a"));
+        store.close();
+
+        store = new MappedRecordStore(file, 1);
+        assertNull(store.get("a"));
+        assertEquals("value b", str(store.get("b")));
+        store.close();
+    }
+
+    public void testTruncatedAndCorrupted() throws Exception {
+        MappedRecordStore store = new MappedRecordStore(file, 1);
+        store.put("a", bytes("value a"));
+        store.put("b", bytes("value b"));
+        store.close();
+        long size = file.length();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Corrupt the last byte of "b" and add a partial record at the end.
+            raf.seek(size - 1);
+            raf.write('X');
+            raf.write(new byte[] { 1, 0, 0 });
+        }
+
+        store = new MappedRecordStore(file, 1);
+        assertEquals("value a", str(store.get("a")));
+        assertNull(store.get("b"));
+        store.put("c", bytes("value c"));
+        store.close();
+
+        store = new MappedRecordStore(file, 1);
+        assertEquals("value a", str(store.get("a")));
+        assertEquals("value c", str(store.get("c")));
+        store.close();
+    }
+
+    public void testCompact() throws Exception {
+        MappedRecordStore store = new MappedRecordStore(file, 1);
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < 40; i++) {
+            data[0] = (byte) i;
+            store.put("key" + (i % 4), data);
+        }
+        store.close();
+        long size = file.length();
+
+        store = new MappedRecordStore(file, 1);
+        assertEquals(4, store.size());
+        assertTrue(file.length() < size / 5);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(36 + i, store.get("key" + i)[0]);
+        }
+        store.close();
+    }
+}
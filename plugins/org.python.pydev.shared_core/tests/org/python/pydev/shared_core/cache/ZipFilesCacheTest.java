@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.python.pydev.shared_core.cache.ZipFilesCache.ZipFileReference;
+
+import junit.framework.TestCase;
+
+public class ZipFilesCacheTest extends TestCase {
+
+    private File zip1;
+    private File zip2;
+
+    @Override
+    protected void setUp() throws Exception {
+        zip1 = File.createTempFile("ZipFilesCacheTest", ".zip");
+        zip2 = File.createTempFile("ZipFilesCacheTest", ".zip");
+        createZip(zip1, "a.py");
+        createZip(zip2, "b.py");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        zip1.delete();
+        zip2.delete();
+    }
+
+    private static void createZip(File file, String... names) throws Exception {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write("a = 10\n".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static boolean isClosed(ZipFile zipFile) {
+        try {
+            zipFile.size();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    public void testReuse() throws Exception {
+        ZipFilesCache cache = new ZipFilesCache(1, 0);
+        ZipFile zipFile;
+        try (ZipFileReference ref = cache.acquire(zip1)) {
+            zipFile = ref.getZipFile();
+            assertNotNull(zipFile.getEntry("a.py"));
+            try (ZipFileReference ref2 = cache.acquire(zip1)) {
+                assertSame(zipFile, ref2.getZipFile());
+            }
+        }
+        assertFalse(isClosed(zipFile));
+        try (ZipFileReference ref = cache.acquire(zip1)) {
+            assertSame(zipFile, ref.getZipFile());
+        }
+        assertEquals(1, cache.getOpenedCount());
+
+        cache.clear();
+        assertTrue(isClosed(zipFile));
+        assertEquals(0, cache.getOpenedCount());
+    }
+
+    public void testLeastRecentlyUsedClosed() throws Exception {
+        ZipFilesCache cache = new ZipFilesCache(1, 0);
+        ZipFileReference ref1 = cache.acquire(zip1);
+        ZipFileReference ref2 = cache.acquire(zip2);
+        ref2.close();
+        // Referenced archives are never closed.
+        ref1.close();
+        assertEquals(1, cache.getOpenedCount());
+        assertTrue(isClosed(ref2.getZipFile()));
+        assertFalse(isClosed(ref1.getZipFile()));
+
+        // Closing a reference twice does nothing.
+        ref2.close();
+        assertFalse(isClosed(ref1.getZipFile()));
+        cache.clear();
+    }
+
+    public void testReopenedOnChanges() throws Exception {
+        ZipFilesCache cache = new ZipFilesCache(2, 0);
+        ZipFileReference ref = cache.acquire(zip1);
+        ZipFile zipFile = ref.getZipFile();
+
+        createZip(zip1, "a.py", "c.py");
+        zip1.setLastModified(zip1.lastModified() + 2000);
+
+        try (ZipFileReference ref2 = cache.acquire(zip1)) {
+            assertNotSame(zipFile, ref2.getZipFile());
+            assertNotNull(ref2.getZipFile().getEntry("c.py"));
+        }
+        // Still referenced.
+        assertFalse(isClosed(zipFile));
+        ref.close();
+        assertTrue(isClosed(zipFile));
+
+        try (ZipFileReference ref3 = cache.acquire(zip1)) {
+            cache.invalidate(zip1);
+            assertFalse(isClosed(ref3.getZipFile()));
+            ref3.close();
+            assertTrue(isClosed(ref3.getZipFile()));
+        }
+        assertEquals(0, cache.getOpenedCount());
+    }
+
+    public void testIdleClosed() throws Exception {
+        ZipFilesCache cache = new ZipFilesCache(2, 50);
+        ZipFile zipFile;
+        try (ZipFileReference ref = cache.acquire(zip1)) {
+            zipFile = ref.getZipFile();
+        }
+        for (int i = 0; i < 100 && !isClosed(zipFile); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(isClosed(zipFile));
+        assertEquals(0, cache.getOpenedCount());
+    }
+}
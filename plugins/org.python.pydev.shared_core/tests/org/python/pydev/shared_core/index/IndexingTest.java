@@ -13,10 +13,12 @@ package org.python.pydev.shared_core.index;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -150,6 +152,23 @@ public class IndexingTest extends TestCase {
         assertEquals(1, found.size());
     }
 
+    public void testSearchSeesChangesWithoutCommit() throws Exception {
+        indexApi.index(new Path("a.py"), 0L, "aAaAaAaA");
+        SearchResult result = indexApi.searchExact("aaaaaaaa", IFields.GENERAL_CONTENTS, true);
+        assertEquals(1, result.getNumberOfDocumentMatches());
+
+        // The same index is kept opened: new documents must be seen in the next search.
+        indexApi.index(new Path("b.py"), 1L, "aAaAaAaA");
+        result = indexApi.searchExact("aaaaaaaa", IFields.GENERAL_CONTENTS, true);
+        assertEquals(2, result.getNumberOfDocumentMatches());
+
+        HashMap<String, Collection<String>> map = new HashMap<>();
+        map.put(IFields.MODIFIED_TIME, Arrays.asList("0"));
+        indexApi.removeDocs(map);
+        result = indexApi.searchExact("aaaaaaaa", IFields.GENERAL_CONTENTS, true);
+        assertEquals(1, result.getNumberOfDocumentMatches());
+    }
+
     public void testExactMatch() throws Exception {
         indexApi.index(new Path("a.py"), 0L, "aAaAaAaA");
         indexApi.index(new Path("b.py"), 1L, "bBbBbBb");
@@ -218,4 +237,62 @@ public class IndexingTest extends TestCase {
         result = indexApi.searchWildcard(fieldNameToValues, true, visitor, null, IFields.FILENAME);
         assertEquals(2, result.getNumberOfDocumentMatches());
     }
+
+    private List<TermOffsets> searchTermOffsets(final List<String> patterns) throws Exception {
+        final List<TermOffsets> found = new ArrayList<>();
+        IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+            @Override
+            public void visit(DocumentInfo documentInfo) {
+                try {
+                    found.add(documentInfo.getTermOffsets(IFields.GENERAL_CONTENTS, patterns));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        indexApi.searchWildcard(new HashSet<>(patterns), IFields.GENERAL_CONTENTS, true, visitor, null,
+                IFields.FILENAME);
+        return found;
+    }
+
+    public void testTermOffsets() throws Exception {
+        indexApi.storeTermOffsets(IFields.GENERAL_CONTENTS);
+        String contents = "Foo = 10\nprint(foo, foobar)\nbar = 'foo'";
+        Map<String, String> map = new HashMap<>();
+        map.put(IFields.FILENAME, "my.mod");
+        indexApi.index(map, new StringReader(contents), IFields.GENERAL_CONTENTS);
+
+        List<TermOffsets> found = searchTermOffsets(Arrays.asList("foo"));
+        assertEquals(1, found.size());
+        TermOffsets offsets = found.get(0);
+        assertEquals(3, offsets.size());
+        assertEquals(0, offsets.getStart(0));
+        assertEquals(3, offsets.getEnd(0));
+        assertEquals(contents.indexOf("foo,"), offsets.getStart(1));
+        assertEquals(contents.lastIndexOf("foo"), offsets.getStart(2));
+        assertEquals("foo", offsets.getTerm(2));
+        assertTrue(offsets.matches(contents));
+        assertFalse(offsets.matches(" " + contents));
+        assertFalse(offsets.matches(contents.substring(0, 20)));
+
+        // Sorted by the offset even when found by different patterns.
+        offsets = searchTermOffsets(Arrays.asList("*bar", "foo*")).get(0);
+        assertEquals(5, offsets.size());
+        assertEquals("foobar", offsets.getTerm(2));
+        assertEquals("bar", offsets.getTerm(3));
+        for (int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.getStart(i - 1) < offsets.getStart(i));
+        }
+    }
+
+    public void testTermOffsetsNotStored() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(IFields.FILENAME, "my.mod");
+        indexApi.index(map, new StringReader("foo = 10"), IFields.GENERAL_CONTENTS);
+
+        List<TermOffsets> found = searchTermOffsets(Arrays.asList("foo"));
+        assertEquals(1, found.size());
+        assertNull(found.get(0));
+    }
 }
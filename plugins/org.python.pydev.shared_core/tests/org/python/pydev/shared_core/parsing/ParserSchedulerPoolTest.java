@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.parsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.shared_core.editor.IBaseEditor;
+
+import junit.framework.TestCase;
+
+public class ParserSchedulerPoolTest extends TestCase {
+
+    private static final class ParserManagerStub extends BaseParserManager {
+
+        private ParserManagerStub(int millisBeforeAnalysis) {
+            this.millisBeforeAnalysis = millisBeforeAnalysis;
+        }
+
+        @Override
+        protected IParser createParser(IBaseEditor edit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class ParserStub implements IParser {
+
+        private final String name;
+        private final List<String> parseOrder;
+        private final AtomicInteger parses = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final AtomicLong lastStartNanos = new AtomicLong();
+        private volatile Object[] lastArgs;
+        private volatile long sleepMillis;
+        private volatile CountDownLatch block;
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private ParserStub(String name, List<String> parseOrder) {
+            this.name = name;
+            this.parseOrder = parseOrder;
+        }
+
+        @Override
+        public Object reparseDocument(Object... argsToReparse) {
+            lastStartNanos.set(System.nanoTime());
+            int current = running.incrementAndGet();
+            synchronized (maxRunning) {
+                maxRunning.set(Math.max(maxRunning.get(), current));
+            }
+            try {
+                synchronized (parseOrder) {
+                    parseOrder.add(name);
+                }
+                lastArgs = argsToReparse;
+                started.countDown();
+                CountDownLatch b = block;
+                if (b != null) {
+                    b.await(10, TimeUnit.SECONDS);
+                }
+                if (sleepMillis > 0) {
+                    Thread.sleep(sleepMillis);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.decrementAndGet();
+                parses.incrementAndGet();
+            }
+            return null;
+        }
+
+        @Override
+        public void setDocument(IDocument document, Object input) {
+        }
+
+        @Override
+        public void notifySaved() {
+        }
+
+        @Override
+        public void removeParseListener(IParserObserver parserObserver) {
+        }
+
+        @Override
+        public void addParseListener(IParserObserver parserObserver) {
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public void resetTimeoutPreferences(boolean useAnalysisOnlyOnDocSave) {
+        }
+
+        @Override
+        public boolean forceReparse(Object... argsToReparse) {
+            return false;
+        }
+    }
+
+    private interface ICondition {
+
+        boolean isSatisfied();
+    }
+
+    private ParserSchedulerPool pool;
+    private final List<String> parseOrder = new ArrayList<String>();
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        super.tearDown();
+    }
+
+    private static void waitFor(String msg, ICondition condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!condition.isSatisfied()) {
+            if (System.currentTimeMillis() > timeout) {
+                fail("Timed out waiting for: " + msg);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static void waitParses(final ParserStub parser, final int expected) throws InterruptedException {
+        waitFor(parser.name + " parses: " + expected, new ICondition() {
+
+            @Override
+            public boolean isSatisfied() {
+                return parser.parses.get() >= expected;
+            }
+        });
+    }
+
+    /**
+     * Keeps the only worker of the pool busy until the returned parser is unblocked.
+     */
+    private ParserStub blockWorker(ParserManagerStub manager) throws InterruptedException {
+        ParserStub blocking = new ParserStub("blocking", parseOrder);
+        blocking.block = new CountDownLatch(1);
+        new ParserScheduler(blocking, manager, pool).parseNow(true);
+        assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+        return blocking;
+    }
+
+    public void testCoalescing() throws Exception {
+        pool = new ParserSchedulerPool(1);
+        ParserManagerStub manager = new ParserManagerStub(50);
+        ParserStub parser = new ParserStub("parser", parseOrder);
+        ParserScheduler scheduler = new ParserScheduler(parser, manager, pool);
+
+        // Requests done while waiting for the elapse time result in a single parse.
+        for (int i = 0; i < 10; i++) {
+            scheduler.parseNow();
+        }
+        waitParses(parser, 1);
+        Thread.sleep(200);
+        assertEquals(1, parser.parses.get());
+
+        // Forced requests done while in the queue are also coalesced (the last arguments are used).
+        ParserStub blocking = blockWorker(manager);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(scheduler.parseNow(true, "arg" + i));
+        }
+        assertEquals(1, pool.getQueueDepth());
+        blocking.block.countDown();
+        waitParses(parser, 2);
+        Thread.sleep(200);
+        assertEquals(2, parser.parses.get());
+        assertEquals("arg4", parser.lastArgs[0]);
+        assertEquals(0, pool.getQueueDepth());
+    }
+
+    public void testPerEditorOrdering() throws Exception {
+        pool = new ParserSchedulerPool(4);
+        ParserManagerStub manager = new ParserManagerStub(5);
+        final ParserStub parser = new ParserStub("parser", parseOrder);
+        parser.sleepMillis = 10;
+        final ParserScheduler scheduler = new ParserScheduler(parser, manager, pool);
+
+        final AtomicLong lastRequestNanos = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 50; j++) {
+                        synchronized (lastRequestNanos) {
+                            lastRequestNanos.set(System.nanoTime());
+                        }
+                        scheduler.parseNow();
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // A request is never lost: there's a parse after the last one.
+        waitFor("parse after the last request", new ICondition() {
+
+            @Override
+            public boolean isSatisfied() {
+                return parser.running.get() == 0 && parser.lastStartNanos.get() > lastRequestNanos.get();
+            }
+        });
+        // The same editor is never parsed by 2 workers at the same time.
+        assertEquals(1, parser.maxRunning.get());
+        assertTrue(parser.parses.get() >= 1);
+        // Requests are coalesced.
+        assertTrue(parser.parses.get() < 150);
+    }
+
+    public void testActiveParsedFirst() throws Exception {
+        pool = new ParserSchedulerPool(1);
+        ParserManagerStub manager = new ParserManagerStub(50);
+        ParserStub blocking = blockWorker(manager);
+
+        List<ParserStub> parsers = new ArrayList<ParserStub>();
+        List<ParserScheduler> schedulers = new ArrayList<ParserScheduler>();
+        for (String name : new String[] { "b", "c", "d" }) {
+            ParserStub parser = new ParserStub(name, parseOrder);
+            ParserScheduler scheduler = new ParserScheduler(parser, manager, pool);
+            parsers.add(parser);
+            schedulers.add(scheduler);
+            scheduler.parseNow(true);
+        }
+        assertEquals(3, pool.getQueueDepth());
+        schedulers.get(2).setActive();
+        blocking.block.countDown();
+        for (ParserStub parser : parsers) {
+            waitParses(parser, 1);
+        }
+        synchronized (parseOrder) {
+            assertEquals("[blocking, d, b, c]", parseOrder.toString());
+        }
+    }
+
+    public void testShutdown() throws Exception {
+        pool = new ParserSchedulerPool(1);
+        ParserManagerStub manager = new ParserManagerStub(10);
+        ParserStub parser = new ParserStub("parser", parseOrder);
+        ParserScheduler scheduler = new ParserScheduler(parser, manager, pool);
+        scheduler.parseNow(true);
+        waitParses(parser, 1);
+
+        // The parse being done is finished, but the ones in the queue are not done.
+        ParserStub blocking = blockWorker(manager);
+        scheduler.parseNow(true);
+        assertEquals(1, pool.getQueueDepth());
+        pool.shutdown();
+        assertEquals(0, pool.getQueueDepth());
+        blocking.block.countDown();
+        waitParses(blocking, 1);
+        waitFor("pool terminated", new ICondition() {
+
+            @Override
+            public boolean isSatisfied() {
+                return pool.isTerminated();
+            }
+        });
+
+        // New requests are ignored.
+        assertTrue(scheduler.parseNow(true));
+        scheduler.parseNow();
+        scheduler.parseLater();
+        Thread.sleep(100);
+        assertEquals(1, parser.parses.get());
+    }
+}
@@ -37,6 +37,8 @@ public class ScopeSelectionAction {
 
     public static final String SELECTION_SCOPE_CACHE = "_SELECTION_SCOPE_CACHE_";
 
+    public static final String SCOPES_CACHE = "_SCOPES_CACHE_";
+
     public void perform(IDocument doc, ICoreTextSelection selection, BaseEditor editor) {
         FastStack<IRegion> cache = getCache(editor);
         Region initialRegion = new Region(selection.getOffset(), selection.getLength());
@@ -58,8 +60,39 @@ public class ScopeSelectionAction {
         cache.push(new Region(newSelection.getOffset(), newSelection.getLength()));
     }
 
-    public ICoreTextSelection getNewSelection(IDocument doc, ICoreTextSelection selection, BaseEditor editor) {
-        return this.getNewSelection(doc, selection, editor.getPairMatcher(), editor.createScopesParser());
+    public ICoreTextSelection getNewSelection(IDocument doc, ICoreTextSelection selection, final BaseEditor editor) {
+        //The scopes are kept in the editor cache while the document isn't changed (so, selecting the enclosing
+        //scope many times in a row doesn't need to parse the document again).
+        IScopesParser cachedScopesParser = new IScopesParser() {
+
+            @Override
+            public Scopes createScopes(IDocument doc) {
+                return getScopes(editor, doc);
+            }
+        };
+        return this.getNewSelection(doc, selection, editor.getPairMatcher(), cachedScopesParser);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Scopes getScopes(BaseEditor editor, IDocument doc) {
+        Map<String, Object> cache = editor.getCache();
+        String key = getCurrentSelectionCacheKey(editor);
+        if (doc == editor.getDocument()) {
+            try {
+                Tuple<String, Scopes> object = (Tuple<String, Scopes>) cache.get(SCOPES_CACHE);
+                if (object != null && key.equals(object.o1)) {
+                    return object.o2;
+                }
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+
+        Scopes scopes = editor.createScopesParser().createScopes(doc);
+        if (doc == editor.getDocument()) {
+            cache.put(SCOPES_CACHE, new Tuple<String, Scopes>(key, scopes));
+        }
+        return scopes;
     }
 
     public ICoreTextSelection getNewSelection(IDocument doc, ICoreTextSelection selection,
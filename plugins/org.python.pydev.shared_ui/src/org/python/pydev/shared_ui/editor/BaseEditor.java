@@ -279,6 +279,17 @@ public abstract class BaseEditor extends TextEditor implements IBaseEditor {
 
     }
 
+    @Override
+    public void setFocus() {
+        super.setFocus();
+        try {
+            getParserManager().notifyEditorActivated(this);
+        } catch (Throwable e) {
+            //can never fail
+            Log.log(e);
+        }
+    }
+
     @Override
     protected void createNavigationActions() {
         super.createNavigationActions();
@@ -141,6 +141,28 @@ public class StringMatcherWithIndexSemantics {
         }
     }
 
+    /**
+     * Same as find(text, start), but the match must be inside the [start, end) region (the contents outside the
+     * region are still considered to check for word boundaries).
+     */
+    public Position find(String text, int start, int end) {
+        if (text == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (start < 0) {
+            start = 0;
+        }
+        Matcher matcher = compiled.matcher(text);
+        matcher.region(start, end);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new Position(matcher.start(), matcher.end());
+    }
+
     public boolean match(String text) {
         Matcher matcher = compiled.matcher(text);
         if (!startsWithWildCard && !endsWithWildCard) {
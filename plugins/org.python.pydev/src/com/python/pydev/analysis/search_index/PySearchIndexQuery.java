@@ -6,11 +6,21 @@
  */
 package com.python.pydev.analysis.search_index;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.filebuffers.ITextFileBuffer;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -26,8 +36,12 @@ import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.docutils.PySelection;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.index.TermOffsets;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.OrderedMap;
+import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_ui.search.AbstractSearchIndexQuery;
 import org.python.pydev.shared_ui.search.SearchIndexData;
 import org.python.pydev.shared_ui.search.SearchIndexResult;
@@ -40,9 +54,15 @@ import com.python.pydev.analysis.additionalinfo.IReferenceSearches;
 
 /**
  * Searches the internal indexes from PyDev.
+ *
+ * The index provides the modules with the tokens searched and the offsets of those tokens, so, only the lines
+ * with those tokens are actually read and matched. A module is fully scanned if its offsets aren't available or
+ * if it was changed after being indexed (those modules are scanned in parallel).
  */
 public class PySearchIndexQuery extends AbstractSearchIndexQuery {
 
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
     private SearchIndexResult fResult;
 
     public PySearchIndexQuery(String text) {
@@ -81,33 +101,223 @@ public class PySearchIndexQuery extends AbstractSearchIndexQuery {
                     continue;
                 }
                 IReferenceSearches referenceSearches = info.getReferenceSearches();
+                Map<ModulesKey, TermOffsets> moduleToOffsets = new HashMap<>();
                 List<ModulesKey> search = referenceSearches.search(nature.getProject(), fieldNameToValues,
-                        new SubProgressMonitor(monitor, 1));
+                        moduleToOffsets, new SubProgressMonitor(monitor, 1));
 
-                IFile workspaceFile;
-                for (ModulesKey modulesKey : search) {
-                    File file = modulesKey.file;
-                    if (file == null || !file.exists()) {
-                        Log.logInfo(StringUtils.format("Ignoring: %s. File no longer exists.", file));
+                createMatches(nature.getProject(), search, moduleToOffsets, stringMatcher, searchResult, monitor);
+            }
+        } finally {
+            monitor.done();
+        }
+
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Creates the matches for the given modules.
+     *
+     * The modules with offsets (which weren't changed after being indexed) only have the lines with the tokens
+     * read (in the current thread) and the others are fully scanned using multiple threads (the current thread
+     * is also used).
+     */
+    private void createMatches(final IProject project, final List<ModulesKey> modulesKeys,
+            final Map<ModulesKey, TermOffsets> moduleToOffsets, final StringMatcherWithIndexSemantics stringMatcher,
+            final AbstractTextSearchResult searchResult, final IProgressMonitor monitor) {
+        final List<Tuple<ModulesKey, IFile>> toScan = new ArrayList<>();
+        for (ModulesKey modulesKey : modulesKeys) {
+            if (monitor.isCanceled()) {
+                return;
+            }
+            IFile workspaceFile = getWorkspaceFile(project, modulesKey);
+            if (workspaceFile == null) {
+                continue;
+            }
+            TermOffsets offsets = moduleToOffsets.get(modulesKey);
+            if (offsets != null && !isDirty(workspaceFile)
+                    && createMatchesAtOffsets(workspaceFile, offsets, stringMatcher, searchResult, modulesKey)) {
+                continue;
+            }
+            toScan.add(new Tuple<ModulesKey, IFile>(modulesKey, workspaceFile));
+        }
+
+        final int size = toScan.size();
+        final AtomicInteger next = new AtomicInteger();
+        Runnable runnable = new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = next.getAndIncrement(); i < size && !monitor.isCanceled(); i = next.getAndIncrement()) {
+                    Tuple<ModulesKey, IFile> moduleAndFile = toScan.get(i);
+                    try {
+                        IDocument doc = FileUtilsFileBuffer.getDocFromResource(moduleAndFile.o2);
+                        if (doc != null) {
+                            createMatches(doc, doc.get(), stringMatcher, moduleAndFile.o2, searchResult,
+                                    moduleAndFile.o1);
+                        }
+                    } catch (Exception e) {
+                        Log.log(e);
                     }
+                }
+            }
+        };
+
+        Thread[] threads = new Thread[Math.max(0, Math.min(MAX_THREADS, size) - 1)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(runnable, "PySearchIndexQuery: create matches");
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        runnable.run();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static IFile getWorkspaceFile(IProject project, ModulesKey modulesKey) {
+        File file = modulesKey.file;
+        if (file == null || !file.exists()) {
+            Log.logInfo(StringUtils.format("Ignoring: %s. File no longer exists.", file));
+        }
+
+        IFile workspaceFile = FindWorkspaceFiles.getWorkspaceFile(file, project);
+        if (workspaceFile == null) {
+            Log.logInfo(StringUtils
+                    .format("Ignoring: %s. Unable to resolve to a file in the Eclipse workspace.", file));
+        }
+        return workspaceFile;
+    }
+
+    /**
+     * @return whether the file is opened in an editor with unsaved changes (in which case the contents may be
+     * different from the indexed contents even if the tokens found are still in the same place).
+     */
+    private static boolean isDirty(IFile workspaceFile) {
+        ITextFileBuffer buffer = FileUtils.getBufferFromPath(workspaceFile.getFullPath());
+        return buffer != null && buffer.isDirty();
+    }
+
+    private boolean createMatchesAtOffsets(IFile workspaceFile, TermOffsets offsets,
+            StringMatcherWithIndexSemantics stringMatcher, AbstractTextSearchResult searchResult,
+            ModulesKey modulesKey) {
+        try (Reader reader = new BufferedReader(new InputStreamReader(workspaceFile.getContents(true),
+                workspaceFile.getCharset()))) {
+            return createMatchesAtOffsets(reader, offsets, stringMatcher, workspaceFile, searchResult, modulesKey);
+        } catch (Exception e) {
+            Log.log(e);
+            return false;
+        }
+    }
 
-                    workspaceFile = FindWorkspaceFiles.getWorkspaceFile(file, nature.getProject());
-                    if (workspaceFile == null) {
-                        Log.logInfo(StringUtils
-                                .format("Ignoring: %s. Unable to resolve to a file in the Eclipse workspace.", file));
+    /**
+     * Creates the matches only in the lines which have the tokens at the given offsets (a match can't span
+     * multiple lines, so, this gives the same results as createMatches for the contents which were indexed).
+     *
+     * The contents are only read up to the line with the last offset and only the lines with the tokens are
+     * kept.
+     *
+     * @return false if the tokens aren't found at their offsets (i.e.: the contents are not the ones which were
+     * indexed), in which case no match is added and the contents must be fully scanned.
+     */
+    public boolean createMatchesAtOffsets(Reader reader, TermOffsets offsets,
+            StringMatcherWithIndexSemantics stringMatcher, IFile workspaceFile,
+            AbstractTextSearchResult searchResult, ModulesKey modulesKey) throws IOException {
+        int size = offsets.size();
+        if (size == 0) {
+            return false;
+        }
+        List<PyModuleMatch> matches = new ArrayList<>();
+        FastStringBuffer line = new FastStringBuffer();
+        char[] chars = new char[8192];
+        int nextOffset = 0; // The index of the next offset to be checked.
+        int lineNumber = 0;
+        int lineStartOffset = 0;
+        int offset = 0;
+        boolean skipLf = false;
+        int read;
+        while (nextOffset < size && (read = reader.read(chars)) != -1) {
+            for (int i = 0; i < read && nextOffset < size; i++, offset++) {
+                char c = chars[i];
+                if (skipLf) {
+                    skipLf = false;
+                    if (c == '\n') {
+                        // \r\n: the new line starts after the \n.
+                        lineStartOffset++;
                         continue;
                     }
-
-                    IDocument doc = FileUtilsFileBuffer.getDocFromResource(workspaceFile);
-                    String text = doc.get();
-                    createMatches(doc, text, stringMatcher, workspaceFile, searchResult, modulesKey);
+                }
+                if (c == '\r' || c == '\n') {
+                    nextOffset = addMatchesInLine(line, lineNumber, lineStartOffset, offsets, nextOffset,
+                            stringMatcher, workspaceFile, modulesKey, matches);
+                    if (nextOffset < 0) {
+                        return false;
+                    }
+                    skipLf = c == '\r';
+                    lineNumber++;
+                    lineStartOffset = offset + 1;
+                    line.clear();
+                } else {
+                    line.append(c);
                 }
             }
-        } finally {
-            monitor.done();
         }
+        if (nextOffset < size) {
+            // The last line (without a delimiter).
+            nextOffset = addMatchesInLine(line, lineNumber, lineStartOffset, offsets, nextOffset, stringMatcher,
+                    workspaceFile, modulesKey, matches);
+            if (nextOffset != size) {
+                return false;
+            }
+        }
+        for (PyModuleMatch match : matches) {
+            searchResult.addMatch(match);
+        }
+        return true;
+    }
 
-        return Status.OK_STATUS;
+    /**
+     * Adds the matches in the given line if it has the token at the given offset (and checks that all the tokens
+     * in the line are at their offsets).
+     *
+     * @return the index of the first offset after the line or -1 if a token isn't at its offset.
+     */
+    private static int addMatchesInLine(FastStringBuffer line, int lineNumber, int lineStartOffset,
+            TermOffsets offsets, int nextOffset, StringMatcherWithIndexSemantics stringMatcher, IFile workspaceFile,
+            ModulesKey modulesKey, List<PyModuleMatch> matches) {
+        int lineEndOffset = lineStartOffset + line.length();
+        int size = offsets.size();
+        if (nextOffset >= size || offsets.getStart(nextOffset) > lineEndOffset) {
+            return nextOffset;
+        }
+        String lineContents = line.toString();
+        for (; nextOffset < size && offsets.getStart(nextOffset) <= lineEndOffset; nextOffset++) {
+            String term = offsets.getTerm(nextOffset);
+            int start = offsets.getStart(nextOffset) - lineStartOffset;
+            int end = offsets.getEnd(nextOffset) - lineStartOffset;
+            if (start < 0 || end > lineContents.length() || end - start != term.length()
+                    || !lineContents.regionMatches(true, start, term, 0, term.length())) {
+                return -1;
+            }
+        }
+
+        StringMatcherWithIndexSemantics.Position find = stringMatcher.find(lineContents, 0);
+        if (find != null) {
+            PyModuleLineElement element = new PyModuleLineElement(workspaceFile, lineNumber, lineStartOffset,
+                    lineContents, modulesKey);
+            while (find != null) {
+                int start = find.getStart();
+                int end = find.getEnd();
+                matches.add(new PyModuleMatch(workspaceFile, lineStartOffset + start, end - start, element,
+                        modulesKey));
+                find = stringMatcher.find(lineContents, end);
+            }
+        }
+        return nextOffset;
     }
 
     public void createMatches(IDocument doc, String text, StringMatcherWithIndexSemantics stringMatcher,
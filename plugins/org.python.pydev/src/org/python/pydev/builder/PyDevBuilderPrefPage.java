@@ -87,6 +87,8 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
                 "Disable parser notifications?", p));
         addField(new IntegerFieldEditor(PyParserManager.PYDEV_ELAPSE_BEFORE_ANALYSIS,
                 "Time to elapse before reparsing changed file (millis)", p));
+        addField(new BooleanFieldEditor(PyParserManager.USE_INCREMENTAL_PARSE,
+                "Reparse only the changed top-level statements (when possible)?", p));
 
         s = "If only open editors are analyzed, markers will only be added\n" +
                 "to the opened PyDev editors.\n";
@@ -118,6 +120,9 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
         addField(new ComboFieldEditor(PyDevBuilderPreferences.PYC_DELETE_HANDLING, "How to handle .pyc/$py.class deletion?",
                 ENTRIES_AND_VALUES, p));
 
+        addField(new IntegerFieldEditor(PyDevBuilderPreferences.FULL_BUILD_THREADS,
+                "Threads used in a full build (0 = number of processors, 1 = sequential)", p));
+
     }
 
     /* (non-Javadoc)
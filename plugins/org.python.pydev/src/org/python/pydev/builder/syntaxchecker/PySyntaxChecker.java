@@ -76,4 +76,9 @@ public class PySyntaxChecker extends PyDevBuilderVisitor {
         // Nothing needs to be done in this case
     }
 
+    @Override
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        return new PySyntaxChecker();
+    }
+
 }
@@ -65,6 +65,11 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
 
     }
 
+    @Override
+    public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+        return new PyTodoVisitor();
+    }
+
     /**
      * Computes the TODO markers available for this document.
      * Considers only TODO flags in strings and comments.
@@ -18,6 +18,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 import org.python.pydev.ast.codecompletion.PyCodeCompletionPreferences;
+import org.python.pydev.ast.codecompletion.revisited.ModulesManager;
 import org.python.pydev.plugin.PyDevUiPrefs;
 import org.python.pydev.shared_core.string.WrapAndCaseUtils;
 import org.python.pydev.shared_ui.field_editors.LabelFieldEditor;
@@ -48,6 +49,12 @@ public class PyCodeCompletionPreferencesPage extends FieldEditorPreferencePage i
         addField(new IntegerFieldEditor(PyCodeCompletionPreferences.ATTEMPTS_CODECOMPLETION,
                 "Maximum attempts to connect to shell (5 secs each):", p));
 
+        addField(new IntegerFieldEditor(PyCodeCompletionPreferences.SHELLS_IN_POOL,
+                "Shells used for background requests (i.e.: indexing):", p));
+
+        addField(new IntegerFieldEditor(PyCodeCompletionPreferences.MODULES_CACHE_SIZE,
+                "Maximum number of modules kept in memory:", p));
+
         addField(new IntegerFieldEditor(PyCodeCompletionPreferences.AUTOCOMPLETE_DELAY, "Autocompletion delay: ", p));
 
         String tooltip = WrapAndCaseUtils
@@ -138,4 +145,11 @@ public class PyCodeCompletionPreferencesPage extends FieldEditorPreferencePage i
     public void init(IWorkbench workbench) {
     }
 
+    @Override
+    public boolean performOk() {
+        boolean ret = super.performOk();
+        ModulesManager.setMaxModulesInCache(PyCodeCompletionPreferences.getModulesCacheSize());
+        return ret;
+    }
+
 }
\ No newline at end of file
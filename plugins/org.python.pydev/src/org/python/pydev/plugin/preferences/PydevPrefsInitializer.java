@@ -147,6 +147,8 @@ public class PydevPrefsInitializer extends AbstractPreferenceInitializer {
         node.putBoolean(PyDevBuilderPreferences.REMOVE_ERRORS_WHEN_EDITOR_IS_CLOSED,
                 PyDevBuilderPreferences.DEFAULT_REMOVE_ERRORS_WHEN_EDITOR_IS_CLOSED);
         node.putInt(PyDevBuilderPreferences.PYC_DELETE_HANDLING, PyDevBuilderPreferences.DEFAULT_PYC_DELETE_HANDLING);
+        node.putInt(PyDevBuilderPreferences.FULL_BUILD_THREADS, PyDevBuilderPreferences.DEFAULT_FULL_BUILD_THREADS);
+        node.putBoolean(PyParserManager.USE_INCREMENTAL_PARSE, PyDevBuilderPreferences.DEFAULT_USE_INCREMENTAL_PARSE);
 
         //code folding
         node.putBoolean(PyDevCodeFoldingPrefPage.USE_CODE_FOLDING, PyDevCodeFoldingPrefPage.DEFAULT_USE_CODE_FOLDING);
@@ -50,6 +50,8 @@ public class InterpreterGeneralPreferencesPage extends FieldEditorPreferencePage
                 p));
         addField(new BooleanFieldEditor(InterpreterGeneralPreferences.NOTIFY_NO_INTERPRETER_IP,
                 "Notify when an IronPython project has no interpreter?", p));
+        addField(new BooleanFieldEditor(InterpreterGeneralPreferences.CACHE_INTERPRETER_ASTS,
+                "Cache the parsed modules of the interpreters in the disk?", p));
 
         SelectionListener selectionListener = new SelectionListener() {
 
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectNature;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.ast.builder.PyDevBuilder;
+import org.python.pydev.ast.builder.PyDevBuilderVisitor;
+import org.python.pydev.ast.builder.PyDevParallelFullBuild;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.preferences.PydevPrefs;
+import org.python.pydev.parser.preferences.PyDevBuilderPreferences;
+import org.python.pydev.plugin.ProjectStub2;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.resource_stubs.AbstractIFileStub;
+
+import junit.framework.TestCase;
+
+public class PyDevParallelFullBuildTest extends TestCase {
+
+    private static final int N_RESOURCES = 60;
+
+    private static final String PARALLEL_VISITED = "PARALLEL_VISITED";
+
+    private static class FileStub extends AbstractIFileStub implements IFile {
+
+        private final String name;
+        private final IProject project;
+        private final long modificationStamp;
+
+        public FileStub(String name, IProject project, long modificationStamp) {
+            this.name = name;
+            this.project = project;
+            this.modificationStamp = modificationStamp;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public IProject getProject() {
+            return project;
+        }
+
+        @Override
+        public long getModificationStamp() {
+            return modificationStamp;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Records what was visited (shared by the visitor and the visitors it creates for the workers).
+     */
+    private static class VisitsRecord {
+
+        private final List<String> visited = new ArrayList<String>();
+        private final Map<String, String> results = new HashMap<String, String>();
+
+        private synchronized void add(String resourceName, String result) {
+            visited.add(resourceName);
+            results.put(resourceName, result);
+        }
+    }
+
+    private static class RecordingVisitor extends PyDevBuilderVisitor {
+
+        private final VisitsRecord record;
+        private final IPythonNature nature;
+        private final boolean parallel;
+
+        public RecordingVisitor(VisitsRecord record, IPythonNature nature, boolean parallel) {
+            this.record = record;
+            this.nature = nature;
+            this.parallel = parallel;
+        }
+
+        @Override
+        public void visitChangedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+            try {
+                String result = getModuleName(resource, nature) + (isFullBuild() ? " (full build)" : "");
+                if (parallel) {
+                    memo.put(PARALLEL_VISITED, resource.getName());
+                    if (resource.getModificationStamp() % 3 == 0) {
+                        Thread.sleep(2); // give the other workers a chance to get ahead
+                    }
+                } else {
+                    // the sequential visitors must reuse the memo of the resource created in the worker
+                    result += " memo: " + memo.get(PARALLEL_VISITED);
+                }
+                record.add(resource.getName(), result);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void visitRemovedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+            throw new RuntimeException("Not expected in a full build.");
+        }
+
+        @Override
+        public PyDevBuilderVisitor createParallelFullBuildVisitor() {
+            if (!parallel) {
+                return null;
+            }
+            return new RecordingVisitor(record, nature, true);
+        }
+    }
+
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private List<IFile> resources;
+    private PythonNature nature;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        nature = new PythonNature() {
+            @Override
+            public boolean startRequests() {
+                pendingRequests.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void endRequests() {
+                pendingRequests.decrementAndGet();
+            }
+
+            @Override
+            public String resolveModuleOnlyInProjectSources(IResource file, boolean addExternal) {
+                String name = file.getName();
+                if (name.startsWith("not_in_pythonpath")) {
+                    return null;
+                }
+                return "pack." + name.substring(0, name.length() - ".py".length());
+            }
+        };
+        IProject project = new ProjectStub2("parallel_build") {
+            @Override
+            public IProjectNature getNature(String natureId) throws CoreException {
+                return nature;
+            }
+        };
+        resources = new ArrayList<IFile>();
+        for (int i = 0; i < N_RESOURCES; i++) {
+            String name = i % 10 == 9 ? "not_in_pythonpath" + i + ".py" : "mod" + i + ".py";
+            resources.add(new FileStub(name, project, i));
+        }
+    }
+
+    public void testParallelFullBuild() throws Exception {
+        VisitsRecord serialParallelCapable = new VisitsRecord();
+        VisitsRecord serialSequential = new VisitsRecord();
+        buildSerially(createVisitors(serialParallelCapable, serialSequential));
+
+        List<String> expectedOrder = new ArrayList<String>();
+        for (IFile r : resources) {
+            if (!r.getName().startsWith("not_in_pythonpath")) {
+                expectedOrder.add(r.getName());
+            }
+        }
+        assertEquals(expectedOrder, serialSequential.visited);
+        assertEquals("pack.mod0 (full build) memo: mod0.py", serialSequential.results.get("mod0.py"));
+
+        for (int nThreads : new int[] { 2, 4, 8 }) {
+            VisitsRecord parallelCapable = new VisitsRecord();
+            VisitsRecord sequential = new VisitsRecord();
+            new PyDevParallelFullBuild(resources, new NullProgressMonitor(),
+                    createVisitors(parallelCapable, sequential), nThreads).build();
+
+            // each resource is visited only once by the visitors which may be used concurrently (in any order)
+            List<String> visited = new ArrayList<String>(parallelCapable.visited);
+            Collections.sort(visited);
+            List<String> expectedVisited = new ArrayList<String>(expectedOrder);
+            Collections.sort(expectedVisited);
+            assertEquals(expectedVisited, visited);
+
+            // the visitors which can't be used concurrently see the resources in order
+            assertEquals(expectedOrder, sequential.visited);
+
+            // and the results are the same ones of a serial build
+            assertEquals(serialParallelCapable.results, parallelCapable.results);
+            assertEquals(serialSequential.results, sequential.results);
+
+            assertEquals(0, pendingRequests.get());
+        }
+    }
+
+    private List<PyDevBuilderVisitor> createVisitors(VisitsRecord parallelCapable, VisitsRecord sequential) {
+        List<PyDevBuilderVisitor> visitors = new ArrayList<PyDevBuilderVisitor>();
+        visitors.add(new RecordingVisitor(parallelCapable, nature, true));
+        visitors.add(new RecordingVisitor(sequential, nature, false));
+        return visitors;
+    }
+
+    private void buildSerially(List<PyDevBuilderVisitor> visitors) {
+        int fullBuildThreads = PydevPrefs.getEclipsePreferences().getInt(PyDevBuilderPreferences.FULL_BUILD_THREADS,
+                PyDevBuilderPreferences.DEFAULT_FULL_BUILD_THREADS);
+        PydevPrefs.getEclipsePreferences().putInt(PyDevBuilderPreferences.FULL_BUILD_THREADS, 1);
+        try {
+            new PyDevBuilder().buildResources(resources, new NullProgressMonitor(), visitors);
+        } finally {
+            PydevPrefs.getEclipsePreferences().putInt(PyDevBuilderPreferences.FULL_BUILD_THREADS, fullBuildThreads);
+        }
+        assertEquals(0, pendingRequests.get());
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.jythontests;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.python.pydev.jython.InterpretersPool;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.jython.IPythonInterpreter;
+
+import junit.framework.TestCase;
+
+public class InterpretersPoolTest extends TestCase {
+
+    private static final class InterpreterStub implements IPythonInterpreter {
+
+        private volatile boolean cleaned;
+
+        @Override
+        public void set(String key, Object value) {
+        }
+
+        @Override
+        public void exec(String exec) {
+        }
+
+        @Override
+        public Object get(String varName) {
+            return null;
+        }
+
+        @Override
+        public void cleanup() {
+            cleaned = true;
+        }
+
+        @Override
+        public void setOut(OutputStream output) {
+        }
+
+        @Override
+        public void setOut(Writer output) {
+        }
+
+        @Override
+        public void setErr(OutputStream output) {
+        }
+    }
+
+    private static final class FactoryStub implements ICallback0<IPythonInterpreter> {
+
+        private final List<InterpreterStub> created = new ArrayList<>();
+        private volatile boolean fail;
+
+        @Override
+        public synchronized IPythonInterpreter call() {
+            if (fail) {
+                return null;
+            }
+            InterpreterStub interpreter = new InterpreterStub();
+            created.add(interpreter);
+            return interpreter;
+        }
+
+        private synchronized int getCreated() {
+            return created.size();
+        }
+    }
+
+    public void testReuse() throws Exception {
+        FactoryStub factory = new FactoryStub();
+        InterpretersPool pool = new InterpretersPool(2, factory);
+        IPythonInterpreter interpreter = pool.acquire();
+        assertNotNull(interpreter);
+        pool.release(interpreter);
+        for (int i = 0; i < 5; i++) {
+            IPythonInterpreter acquired = pool.acquire();
+            assertSame(interpreter, acquired);
+            pool.release(acquired);
+        }
+        assertEquals(1, factory.getCreated());
+        assertEquals(1, pool.getCreated());
+    }
+
+    public void testDiscardOnFailure() throws Exception {
+        FactoryStub factory = new FactoryStub();
+        InterpretersPool pool = new InterpretersPool(1, factory);
+        InterpreterStub interpreter = (InterpreterStub) pool.acquire();
+        // A failed check discards the interpreter (and a new one is created afterwards).
+        pool.discard(interpreter);
+        assertTrue(interpreter.cleaned);
+        assertEquals(0, pool.getCreated());
+
+        IPythonInterpreter other = pool.acquire();
+        assertNotSame(interpreter, other);
+        pool.release(other);
+        assertEquals(2, factory.getCreated());
+
+        // If it's not possible to create one, null is returned (and it doesn't count as created).
+        pool.discard(pool.acquire());
+        factory.fail = true;
+        assertNull(pool.acquire());
+        assertNull(pool.acquire());
+        assertEquals(0, pool.getCreated());
+        factory.fail = false;
+        assertNotNull(pool.acquire());
+    }
+
+    public void testBoundedConcurrency() throws Exception {
+        final FactoryStub factory = new FactoryStub();
+        final InterpretersPool pool = new InterpretersPool(3, factory);
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 50; j++) {
+                        IPythonInterpreter interpreter = pool.acquire();
+                        if (interpreter == null) {
+                            errors.incrementAndGet();
+                            return;
+                        }
+                        int current = inUse.incrementAndGet();
+                        synchronized (maxInUse) {
+                            maxInUse.set(Math.max(maxInUse.get(), current));
+                        }
+                        Thread.yield();
+                        inUse.decrementAndGet();
+                        if (j % 10 == 0) {
+                            pool.discard(interpreter);
+                        } else {
+                            pool.release(interpreter);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue(maxInUse.get() <= 3);
+        assertTrue(pool.getCreated() <= 3);
+    }
+
+    public void testInterruptedWhileWaiting() throws Exception {
+        InterpretersPool pool = new InterpretersPool(1, new FactoryStub());
+        IPythonInterpreter interpreter = pool.acquire();
+        Thread.currentThread().interrupt();
+        try {
+            assertNull(pool.acquire());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        pool.release(interpreter);
+    }
+
+    public void testDispose() throws Exception {
+        InterpretersPool pool = new InterpretersPool(2, new FactoryStub());
+        InterpreterStub available = (InterpreterStub) pool.acquire();
+        InterpreterStub inUse = (InterpreterStub) pool.acquire();
+        pool.release(available);
+
+        pool.dispose();
+        assertTrue(available.cleaned);
+        assertFalse(inUse.cleaned);
+        assertNull(pool.acquire());
+
+        // Cleaned up when released after the dispose.
+        pool.release(inUse);
+        assertTrue(inUse.cleaned);
+        assertEquals(0, pool.getCreated());
+    }
+}
@@ -14,8 +14,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.text.Document;
@@ -145,6 +148,68 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
         assertEquals(1, tokensStartingWith.size());
     }
 
+    public void testCamelCase() {
+        for (String name : new String[] { "NullPointerException", "NameError", "get_the_bar", "getTheBar", "get" }) {
+            info.add(new FuncInfo(name, "mod1", null, null, null, 0, 0), AbstractAdditionalTokensInfo.TOP_LEVEL);
+        }
+        assertEquals(set("NullPointerException"),
+                names(info.getTokensMatchingCamelCase("NPE", AbstractAdditionalTokensInfo.TOP_LEVEL, null)));
+        assertEquals(set("get_the_bar", "getTheBar"),
+                names(info.getTokensMatchingCamelCase("gTB", AbstractAdditionalTokensInfo.TOP_LEVEL, null)));
+        assertEquals(set(), names(info.getTokensMatchingCamelCase("gTB", AbstractAdditionalTokensInfo.INNER, null)));
+    }
+
+    public void testQueriesWhileChanging() {
+        // The index keeps the changes apart from the main trie (and recreates it after many changes), so, check
+        // that the results are always the same as going through the current tokens.
+        Random random = new Random(0);
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            int op = random.nextInt(10);
+            String moduleName = "mod" + random.nextInt(40);
+            if (op < 6) {
+                String name = "tok" + random.nextInt(300);
+                info.add(new FuncInfo(name, moduleName, null, null, null, 0, 0),
+                        AbstractAdditionalTokensInfo.TOP_LEVEL);
+                expected.add(name + " - " + moduleName);
+
+            } else if (op < 7) {
+                info.removeInfoFromModule(moduleName, false);
+                for (Iterator<String> it = expected.iterator(); it.hasNext();) {
+                    if (it.next().endsWith(" - " + moduleName)) {
+                        it.remove();
+                    }
+                }
+
+            } else {
+                String qualifier = "tok" + (random.nextBoolean() ? "" : String.valueOf(random.nextInt(30)));
+                Set<String> found = new HashSet<>();
+                for (IInfo i2 : info.getTokensStartingWith(qualifier, AbstractAdditionalTokensInfo.TOP_LEVEL)) {
+                    assertTrue(found.add(i2.getName() + " - " + i2.getDeclaringModuleName()));
+                }
+                Set<String> expectedForQualifier = new HashSet<>();
+                for (String s : expected) {
+                    if (s.startsWith(qualifier)) {
+                        expectedForQualifier.add(s);
+                    }
+                }
+                assertEquals(expectedForQualifier, found);
+            }
+        }
+    }
+
+    private static Set<String> names(Collection<IInfo> infos) {
+        Set<String> ret = new TreeSet<>();
+        for (IInfo i : infos) {
+            ret.add(i.getName());
+        }
+        return ret;
+    }
+
+    private static Set<String> set(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
     public void testAddFunc() {
         FuncInfo info2 = new FuncInfo(((NameTok) createFuncDef("met1").name).id, "mod1", null, null, null, 0, 0);
         info.add(info2, AbstractAdditionalTokensInfo.TOP_LEVEL);
@@ -286,6 +351,30 @@ public class AdditionalInterpreterInfoTest extends AdditionalInfoTestsBase {
 
     }
 
+    public void testParallelIndexing() throws Exception {
+        List<ModulesKey> keys = new ArrayList<ModulesKey>();
+        for (int i = 0; i < 200; i++) {
+            File f = new File(baseDir, "mod" + i + ".py");
+            FileUtils.writeStrToFile("class Class" + i + ":\n    def method" + i + "(self):\n        pass\n"
+                    + "def func" + i + "():\n    pass\n", f);
+            keys.add(new ModulesKey("mod" + i, f));
+        }
+        ParallelAstInfoIndexer indexer = new ParallelAstInfoIndexer(info, keys, new NullProgressMonitor(), 4);
+        assertEquals(4, indexer.getNumberOfThreads());
+        assertTrue(indexer.index());
+
+        assertEquals(200, info.completeIndex.keys().size());
+        Collection<IInfo> tokens = info.getTokensStartingWith("Class", AbstractAdditionalTokensInfo.TOP_LEVEL);
+        assertEquals(200, tokens.size());
+        tokens = info.getTokensStartingWith("func", AbstractAdditionalTokensInfo.TOP_LEVEL);
+        assertEquals(200, tokens.size());
+        tokens = info.getTokensEqualTo("method10", AbstractAdditionalTokensInfo.INNER);
+        assertEquals(1, tokens.size());
+        IInfo i = tokens.iterator().next();
+        assertEquals("Class10", i.getPath());
+        assertEquals("mod10", i.getDeclaringModuleName());
+    }
+
     // Not working with lucene searches (test must be fixed).
     //
     //    public void testCompleteIndex() throws Exception {
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.python.pydev.core.IInfo;
+
+import junit.framework.TestCase;
+
+public class TokensTrieTest extends TestCase {
+
+    private List<IInfo> infos;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        infos = new ArrayList<IInfo>();
+        for (String name : new String[] { "NullPointerException", "NullPaPointer", "Number", "number", "num",
+                "get_the_bar", "getTheBar", "get", "getattr", "GetAll", "m", "mm", "mmm" }) {
+            infos.add(new FuncInfo(name, "mod1", null, null, null, 0, 0));
+        }
+        infos.add(new FuncInfo("get", "mod2", null, null, null, 0, 0));
+    }
+
+    private Set<String> get(TokensTrie trie, int mode, String qualifier) {
+        List<IInfo> result = new ArrayList<IInfo>();
+        trie.get(mode, qualifier, result);
+        Set<String> names = new TreeSet<String>();
+        for (IInfo info : result) {
+            names.add(info.getName() + "/" + info.getDeclaringModuleName());
+        }
+        return names;
+    }
+
+    private Set<String> set(String... names) {
+        return new TreeSet<String>(Arrays.asList(names));
+    }
+
+    public void testEqualTo() throws Exception {
+        TokensTrie trie = TokensTrie.create(Collections.singletonList(infos));
+        assertEquals(set("get/mod1", "get/mod2"), get(trie, TokensTrie.EQUAL_TO, "get"));
+        assertEquals(set("Number/mod1"), get(trie, TokensTrie.EQUAL_TO, "Number"));
+        assertEquals(set(), get(trie, TokensTrie.EQUAL_TO, "ge"));
+        assertEquals(set(), get(trie, TokensTrie.EQUAL_TO, "NUM"));
+    }
+
+    public void testStartingWith() throws Exception {
+        TokensTrie trie = TokensTrie.create(Collections.singletonList(infos));
+        assertEquals(set("Number/mod1", "number/mod1", "num/mod1", "NullPointerException/mod1",
+                "NullPaPointer/mod1"), get(trie, TokensTrie.STARTING_WITH, "n"));
+        assertEquals(set("Number/mod1", "number/mod1", "num/mod1"), get(trie, TokensTrie.STARTING_WITH, "NUM"));
+        assertEquals(set("mm/mod1", "mmm/mod1"), get(trie, TokensTrie.STARTING_WITH, "mm"));
+        assertEquals(infos.size(), get(trie, TokensTrie.STARTING_WITH, "").size());
+    }
+
+    public void testCamelCase() throws Exception {
+        TokensTrie trie = TokensTrie.create(Collections.singletonList(infos));
+        assertEquals(set("NullPointerException/mod1"), get(trie, TokensTrie.CAMEL_CASE, "NPE"));
+        assertEquals(set("NullPointerException/mod1", "NullPaPointer/mod1"),
+                get(trie, TokensTrie.CAMEL_CASE, "NPo"));
+        assertEquals(set("get_the_bar/mod1", "getTheBar/mod1"), get(trie, TokensTrie.CAMEL_CASE, "gTB"));
+        assertEquals(set("GetAll/mod1"), get(trie, TokensTrie.CAMEL_CASE, "gA"));
+    }
+
+    public void testSubsequence() throws Exception {
+        TokensTrie trie = TokensTrie.create(Collections.singletonList(infos));
+        assertEquals(set("get_the_bar/mod1", "getTheBar/mod1"), get(trie, TokensTrie.SUBSEQUENCE, "gtbar"));
+        assertEquals(set("getattr/mod1"), get(trie, TokensTrie.SUBSEQUENCE, "gattr"));
+        assertEquals(set(), get(trie, TokensTrie.SUBSEQUENCE, "ttr"));
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.python.pydev.ast.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.core.IInfo;
+import org.python.pydev.core.ObjectsInternPool;
+
+import junit.framework.TestCase;
+
+public class TreeBinaryIOTest extends TestCase {
+
+    public void testWriteAndRead() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> tree1 = new PyPublicTreeMap<String, Set<IInfo>>();
+        Set<IInfo> set = new HashSet<IInfo>();
+        set.add(new ClassInfo("Bar", "mod1", null, null, "c:\\temp\\a.py", 1, 2));
+        set.add(new FuncInfo("bar", "mod1", "Bar", null, "c:\\temp\\a.py", 300, 4));
+        tree1.put("bar", set);
+        set = new HashSet<IInfo>();
+        set.add(new ModInfo("foo", null, null, 0, 0));
+        set.add(new AttrInfo("Foo\u00e7", "mod2", "Foo.x", null, null, 100000, 70));
+        tree1.put("foo", set);
+
+        PyPublicTreeMap<String, Set<IInfo>> tree2 = new PyPublicTreeMap<String, Set<IInfo>>();
+
+        TreeBinaryIO.Writer writer = new TreeBinaryIO.Writer();
+        writer.writeText(TreeBinaryIO.SECTION_DISKCACHE, "some text\u00e7\n");
+        writer.writeTree(TreeBinaryIO.SECTION_TREE_1, tree1);
+        writer.writeTree(TreeBinaryIO.SECTION_TREE_2, tree2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+
+        TreeBinaryIO.Reader reader = new TreeBinaryIO.Reader(ByteBuffer.wrap(out.toByteArray()),
+                new ObjectsInternPool.ObjectsPoolMap());
+        assertEquals(TreeBinaryIO.SECTION_DISKCACHE, reader.nextSection());
+        assertEquals("some text\u00e7\n", reader.readText());
+        assertEquals(TreeBinaryIO.SECTION_TREE_1, reader.nextSection());
+        PyPublicTreeMap<String, Set<IInfo>> loaded1 = reader.readTree(null);
+        assertEquals(TreeBinaryIO.SECTION_TREE_2, reader.nextSection());
+        PyPublicTreeMap<String, Set<IInfo>> loaded2 = reader.readTree(null);
+        assertEquals(TreeBinaryIO.SECTION_END, reader.nextSection());
+
+        assertEquals(tree1, loaded1);
+        assertEquals(0, loaded2.size());
+        for (IInfo info : loaded1.get("foo")) {
+            if (info instanceof AttrInfo) {
+                assertEquals(100000, info.getLine());
+                assertEquals(70, info.getCol());
+                assertEquals("Foo.x", info.getPath());
+                assertNull(info.getFile());
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.external;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.core.TestDependent;
+
+import junit.framework.TestCase;
+
+public class ExternalAnalyzerDaemonTest extends TestCase {
+
+    private ExternalAnalyzerDaemon daemon;
+    private File workingDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        workingDir = new File(TestDependent.PYSRC_LOC);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (daemon != null) {
+            daemon.dispose();
+        }
+        super.tearDown();
+    }
+
+    private ExternalAnalyzerDaemon createDaemon(String... pythonArgs) throws Exception {
+        String[] cmdarray = new String[pythonArgs.length + 1];
+        cmdarray[0] = TestDependent.PYTHON_EXE;
+        System.arraycopy(pythonArgs, 0, cmdarray, 1, pythonArgs.length);
+        daemon = new ExternalAnalyzerDaemon("key", cmdarray, null, workingDir);
+        return daemon;
+    }
+
+    public void testRequestsAnswered() throws Exception {
+        createDaemon("-u", new File(workingDir, "pydev_analysis_daemon.py").getAbsolutePath());
+        for (int i = 0; i < 3; i++) {
+            // The tool isn't available (but the process keeps on answering the requests).
+            ExternalAnalyzerDaemon.Result result = daemon.run("unknown_tool" + i, workingDir,
+                    new String[] { "a.py", "--arg\nwith new line" }, new NullProgressMonitor());
+            assertNotNull(result);
+            assertEquals(ExternalAnalyzerDaemon.STATUS_ERROR, result.status);
+            assertEquals("", result.output);
+            assertTrue(result.errors, result.errors.contains("unknown_tool" + i));
+            assertTrue(daemon.isAlive());
+        }
+    }
+
+    public void testCancelKillsProcess() throws Exception {
+        // A process which never answers.
+        createDaemon("-c", "import time;time.sleep(60)");
+        final NullProgressMonitor monitor = new NullProgressMonitor();
+        Thread cancel = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                }
+                monitor.setCanceled(true);
+            }
+        };
+        cancel.start();
+        long initial = System.currentTimeMillis();
+        assertNull(daemon.run("pylint", workingDir, new String[0], monitor));
+        assertTrue(System.currentTimeMillis() - initial < 10000);
+        assertFalse(daemon.isAlive());
+    }
+
+    public void testProcessFinished() throws Exception {
+        // A process which exits without answering.
+        createDaemon("-c", "import sys;sys.stdin.readline()");
+        assertNull(daemon.run("pylint", workingDir, new String[0], new NullProgressMonitor()));
+    }
+}
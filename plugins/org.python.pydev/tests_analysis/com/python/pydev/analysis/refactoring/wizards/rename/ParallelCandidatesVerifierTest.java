@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.refactoring.wizards.rename;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import junit.framework.TestCase;
+
+public class ParallelCandidatesVerifierTest extends TestCase {
+
+    private static List<Integer> createCandidates(int size) {
+        List<Integer> candidates = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            candidates.add(i);
+        }
+        return candidates;
+    }
+
+    /**
+     * Gets the "occurrences" of a candidate (taking longer for some of them so that the workers finish out of order).
+     */
+    private static String getOccurrences(int candidate) throws InterruptedException {
+        if (candidate % 7 == 0) {
+            Thread.sleep(candidate % 3);
+        }
+        return "occurrences of " + candidate;
+    }
+
+    public void testSameResultsAsSerial() throws Exception {
+        List<Integer> candidates = createCandidates(300);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ParallelCandidatesVerifier.IVerifier<Integer, String> verifier = new ParallelCandidatesVerifier.IVerifier<Integer, String>() {
+
+            @Override
+            public String verify(Integer candidate, IProgressMonitor monitor) throws Exception {
+                int current = running.incrementAndGet();
+                try {
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), current));
+                    }
+                    return getOccurrences(candidate);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+
+        List<String> expected = new ParallelCandidatesVerifier(1).verify(candidates, new NullProgressMonitor(),
+                verifier);
+        assertEquals(1, maxRunning.get());
+        assertEquals(300, expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("occurrences of " + i, expected.get(i));
+        }
+
+        for (int nThreads : new int[] { 2, 4, 16 }) {
+            maxRunning.set(0);
+            List<String> found = new ParallelCandidatesVerifier(nThreads).verify(candidates,
+                    new NullProgressMonitor(), verifier);
+            assertEquals(expected, found);
+            assertTrue(maxRunning.get() <= nThreads);
+        }
+
+        // No candidates.
+        assertEquals(0, new ParallelCandidatesVerifier(4).verify(new ArrayList<Integer>(), new NullProgressMonitor(),
+                verifier).size());
+    }
+
+    public void testWorkersOnlyForwardCancellation() throws Exception {
+        final NullProgressMonitor monitor = new NullProgressMonitor();
+        final List<IProgressMonitor> workerMonitors = new ArrayList<IProgressMonitor>();
+        new ParallelCandidatesVerifier(4).verify(createCandidates(20), monitor,
+                new ParallelCandidatesVerifier.IVerifier<Integer, Integer>() {
+
+                    @Override
+                    public Integer verify(Integer candidate, IProgressMonitor workerMonitor) throws Exception {
+                        assertNotSame(monitor, workerMonitor);
+                        assertFalse(workerMonitor.isCanceled());
+                        synchronized (workerMonitors) {
+                            workerMonitors.add(workerMonitor);
+                        }
+                        return candidate;
+                    }
+                });
+        assertEquals(20, workerMonitors.size());
+        monitor.setCanceled(true);
+        for (IProgressMonitor workerMonitor : workerMonitors) {
+            assertTrue(workerMonitor.isCanceled());
+        }
+    }
+
+    public void testCancel() throws Exception {
+        for (int nThreads : new int[] { 1, 4 }) {
+            final NullProgressMonitor monitor = new NullProgressMonitor();
+            final AtomicInteger verified = new AtomicInteger();
+            try {
+                new ParallelCandidatesVerifier(nThreads).verify(createCandidates(1000), monitor,
+                        new ParallelCandidatesVerifier.IVerifier<Integer, Integer>() {
+
+                            @Override
+                            public Integer verify(Integer candidate, IProgressMonitor workerMonitor)
+                                    throws Exception {
+                                if (verified.incrementAndGet() == 10) {
+                                    monitor.setCanceled(true);
+                                }
+                                if (workerMonitor.isCanceled()) {
+                                    throw new OperationCanceledException();
+                                }
+                                return candidate;
+                            }
+                        });
+                fail("Expected the verification to be cancelled.");
+            } catch (OperationCanceledException e) {
+                // expected
+            }
+            // Each worker stops at its next candidate.
+            assertTrue(verified.get() <= 10 + nThreads);
+        }
+    }
+
+    public void testFirstErrorInOrder() throws Exception {
+        final RuntimeException error3 = new RuntimeException("3");
+        try {
+            new ParallelCandidatesVerifier(4).verify(createCandidates(100), new NullProgressMonitor(),
+                    new ParallelCandidatesVerifier.IVerifier<Integer, Integer>() {
+
+                        @Override
+                        public Integer verify(Integer candidate, IProgressMonitor workerMonitor) throws Exception {
+                            if (candidate == 50) {
+                                throw new RuntimeException("50");
+                            }
+                            if (candidate == 3) {
+                                Thread.sleep(50);
+                                throw error3;
+                            }
+                            return candidate;
+                        }
+                    });
+            fail("Expected error.");
+        } catch (RuntimeException e) {
+            assertSame(error3, e.getCause());
+        }
+    }
+}
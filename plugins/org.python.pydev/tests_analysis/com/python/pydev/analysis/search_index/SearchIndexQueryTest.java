@@ -1,12 +1,29 @@
 package com.python.pydev.analysis.search_index;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.search.ui.text.AbstractTextSearchResult;
+import org.eclipse.search.ui.text.Match;
 import org.python.pydev.core.ModulesKey;
+import org.python.pydev.shared_core.index.IndexApi;
+import org.python.pydev.shared_core.index.IndexApi.DocumentInfo;
+import org.python.pydev.shared_core.index.IndexApi.IDocumentsVisitor;
+import org.python.pydev.shared_core.index.TermOffsets;
+import org.python.pydev.shared_core.io.FileUtils;
 
 import com.python.pydev.analysis.additionalinfo.AdditionalInfoFileStub;
+import com.python.pydev.analysis.additionalinfo.IReferenceSearches;
 
 import junit.framework.TestCase;
 
@@ -56,4 +73,101 @@ public class SearchIndexQueryTest extends TestCase {
         query.createMatches(doc, text, query.createStringMatcher(), f, searchResult, new ModulesKey("my", null));
         assertEquals(3, searchResult.getMatchCount());
     }
+
+    /**
+     * Indexes the given contents and gets the offsets of the tokens with the given patterns.
+     */
+    private static TermOffsets getTermOffsets(String contents, final List<String> patterns) throws IOException {
+        File indexDir = FileUtils.getTempFileAt(new File(System.getProperty("java.io.tmpdir")), "search_index");
+        IndexApi indexApi = new IndexApi(indexDir, true);
+        try {
+            indexApi.storeTermOffsets(IReferenceSearches.FIELD_CONTENTS);
+            Map<String, String> fields = new HashMap<>();
+            fields.put(IReferenceSearches.FIELD_MODULE_NAME, "my");
+            indexApi.index(fields, new StringReader(contents), IReferenceSearches.FIELD_CONTENTS);
+            indexApi.commit();
+
+            final List<TermOffsets> found = new ArrayList<>();
+            IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+                @Override
+                public void visit(DocumentInfo documentInfo) {
+                    try {
+                        found.add(documentInfo.getTermOffsets(IReferenceSearches.FIELD_CONTENTS, patterns));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            indexApi.searchWildcard(new HashSet<>(patterns), IReferenceSearches.FIELD_CONTENTS, true, visitor,
+                    null, IReferenceSearches.FIELD_MODULE_NAME);
+            assertEquals(1, found.size());
+            return found.get(0);
+        } finally {
+            indexApi.dispose();
+            IndexApi.deleteIndex(indexDir);
+        }
+    }
+
+    private static String matchesToString(AbstractTextSearchResult searchResult, IFile f) {
+        StringBuilder buf = new StringBuilder();
+        for (Match match : searchResult.getMatches(f)) {
+            PyModuleLineElement line = ((PyModuleMatch) match).getLineElement();
+            buf.append(match.getOffset()).append(':').append(match.getLength()).append(" line ")
+                    .append(line.getLine()).append(" at ").append(line.getOffset()).append(": ")
+                    .append(line.getContents()).append('\n');
+        }
+        return buf.toString();
+    }
+
+    public void testSearchQueryAtOffsets() throws Exception {
+        StringBuilder tail = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            tail.append("\nother = 10");
+        }
+        String text = "rara\r\nmy = 10\rnomyno\n\nprint(my.foo, my)\r\n\r\nmy_mod = 'my'" + tail;
+        IFile f = new AdditionalInfoFileStub("stub") {
+            @Override
+            public long getModificationStamp() {
+                return 0;
+            }
+        };
+        ModulesKey modulesKey = new ModulesKey("my", null);
+
+        for (String search : new String[] { "my", "*my*", "my*", "m?" }) {
+            PySearchIndexQuery query = new PySearchIndexQuery(search);
+            TermOffsets offsets = getTermOffsets(text, Arrays.asList("*my*", "*m*"));
+            assertTrue(offsets.size() > 0);
+
+            AbstractTextSearchResult expected = new PySearchResult(null);
+            query.createMatches(new Document(text), text, query.createStringMatcher(), f, expected, modulesKey);
+            assertTrue(expected.getMatchCount() > 0);
+
+            // Only the contents up to the line with the last token are read.
+            final int[] read = new int[1];
+            StringReader reader = new StringReader(text) {
+                @Override
+                public int read(char[] cbuf, int off, int len) throws IOException {
+                    int ret = super.read(cbuf, off, len);
+                    if (ret > 0) {
+                        read[0] += ret;
+                    }
+                    return ret;
+                }
+            };
+            AbstractTextSearchResult found = new PySearchResult(null);
+            assertTrue(query.createMatchesAtOffsets(reader, offsets, query.createStringMatcher(), f, found,
+                    modulesKey));
+            assertEquals(matchesToString(expected, f), matchesToString(found, f));
+            assertTrue(read[0] < text.length());
+
+            // Contents changed after being indexed: nothing is added (the contents must be fully scanned).
+            found = new PySearchResult(null);
+            assertFalse(query.createMatchesAtOffsets(new StringReader("\n" + text), offsets,
+                    query.createStringMatcher(), f, found, modulesKey));
+            assertFalse(query.createMatchesAtOffsets(new StringReader(text.substring(0, 20)), offsets,
+                    query.createStringMatcher(), f, found, modulesKey));
+            assertEquals(0, found.getMatchCount());
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.ast.codecompletion.revisited.CompletionState;
+import org.python.pydev.ast.codecompletion.revisited.modules.CompiledToken;
+import org.python.pydev.core.IToken;
+import org.python.pydev.core.IterTokenEntry;
+import org.python.pydev.core.TokensList;
+import org.python.pydev.core.TokensListMixedLookingFor;
+
+import junit.framework.TestCase;
+
+public class CompletionSessionTest extends TestCase {
+
+    private static final TokensList TOKENS = new TokensList(new IToken[] {
+            new CompiledToken("append", "", "", "", IToken.TYPE_FUNCTION, null),
+            new CompiledToken("apply", "", "", "", IToken.TYPE_FUNCTION, null),
+            new CompiledToken("Apple", "", "", "", IToken.TYPE_CLASS, null),
+            new CompiledToken("banana", "", "", "", IToken.TYPE_ATTR, null),
+    });
+
+    @Override
+    protected void tearDown() throws Exception {
+        CompletionSession.clear();
+        super.tearDown();
+    }
+
+    private CompletionRequest createRequest(Document doc, int offset) {
+        return new CompletionRequest(null, null, doc, offset, null, false);
+    }
+
+    private CompletionSession start(Document doc, int offset) {
+        CompletionRequest request = createRequest(doc, offset);
+        CompletionSession.start(request.activationToken, request,
+                new CompletionState(0, 0, request.activationToken, null, request.qualifier), TOKENS);
+        return CompletionSession.get(createRequest(doc, offset));
+    }
+
+    private List<String> names(TokensListMixedLookingFor tokens) {
+        List<String> ret = new ArrayList<String>();
+        for (Iterator<IterTokenEntry> it = tokens.buildIterator(); it.hasNext();) {
+            ret.add(it.next().getToken().getRepresentation());
+        }
+        return ret;
+    }
+
+    public void testNarrowWhileTyping() throws Exception {
+        Document doc = new Document("a = []\na.\nprint(a)");
+        int offset = "a = []\na.".length();
+        assertNotNull(start(doc, offset));
+
+        doc.replace(offset, 0, "ap");
+        CompletionSession session = CompletionSession.get(createRequest(doc, offset + 2));
+        assertNotNull(session);
+        assertEquals("[append, apply, Apple]", names(session.getTokens("ap")).toString());
+
+        doc.replace(offset + 2, 0, "pl");
+        session = CompletionSession.get(createRequest(doc, offset + 4));
+        assertNotNull(session);
+        assertEquals("[apply, Apple]", names(session.getTokens("appl")).toString());
+
+        // Erasing the qualifier gets from all the tokens again.
+        doc.replace(offset, 4, "");
+        session = CompletionSession.get(createRequest(doc, offset));
+        assertNotNull(session);
+        assertEquals(4, session.getTokens("").size());
+    }
+
+    public void testInvalidatedByOtherChanges() throws Exception {
+        Document doc = new Document("a = []\na.\nprint(a)");
+        int offset = "a = []\na.".length();
+        assertNotNull(start(doc, offset));
+
+        // Change before the qualifier.
+        doc.replace(0, 0, "b = 10\n");
+        assertNull(CompletionSession.get(createRequest(doc, offset + 7)));
+        assertNull(CompletionSession.get(createRequest(doc, offset)));
+
+        assertNotNull(start(doc, offset + 7));
+        // Change after the qualifier.
+        doc.replace(doc.getLength(), 0, "\n");
+        assertNull(CompletionSession.get(createRequest(doc, offset + 7)));
+
+        // Different document.
+        assertNotNull(start(doc, offset + 7));
+        assertNull(CompletionSession.get(createRequest(new Document(doc.get()), offset + 7)));
+    }
+}
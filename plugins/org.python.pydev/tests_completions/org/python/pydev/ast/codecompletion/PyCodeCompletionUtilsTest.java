@@ -7,6 +7,7 @@
 package org.python.pydev.ast.codecompletion;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.python.pydev.core.TokensOrProposalsList;
@@ -80,6 +81,42 @@ public class PyCodeCompletionUtilsTest extends TestCase {
         compare(new String[] { "system", "SystemError", }, proposals);
     }
 
+    public void testCamelCaseMatches() throws Exception {
+        TokensOrProposalsList props = new TokensOrProposalsList(
+                new ICompletionProposalHandle[] {
+                        CompletionProposalFactory.get().createPyCompletionProposal("NullPointerException", 0, 0, 0, 0),
+                        CompletionProposalFactory.get().createPyCompletionProposal("NameError", 0, 0, 0, 0),
+                        CompletionProposalFactory.get().createPyCompletionProposal("NPEHandler", 0, 0, 0, 0),
+                        CompletionProposalFactory.get().createPyCompletionProposal("nope", 0, 0, 0, 0)
+                });
+
+        ICompletionProposalHandle[] proposals = PyCodeCompletionUtils.onlyValid(props, "NPE", false, false, null);
+        List<String> lst = new ArrayList<>();
+        for (ICompletionProposalHandle proposal : proposals) {
+            lst.add(proposal.getDisplayString());
+        }
+        Collections.sort(lst);
+        assertEquals("NPEHandler\nNullPointerException", StringUtils.join("\n", lst));
+
+        proposals = PyCodeCompletionUtils.onlyValid(props, "NPE", false, true, null);
+        lst.clear();
+        for (ICompletionProposalHandle proposal : proposals) {
+            lst.add(proposal.getDisplayString());
+        }
+        Collections.sort(lst);
+        assertEquals("NPEHandler\nNullPointerException", StringUtils.join("\n", lst));
+
+        // Only qualifiers with upper case chars after the first one are matched with camel-case.
+        proposals = PyCodeCompletionUtils.onlyValid(props, "npe", false, false, null);
+        compare(new String[] { "NPEHandler" }, proposals);
+
+        assertTrue(PyCodeCompletionUtils.matchesCamelCase("gTB", "get_the_bar"));
+        assertTrue(PyCodeCompletionUtils.matchesCamelCase("getTB", "getTheBar"));
+        assertTrue(PyCodeCompletionUtils.matchesCamelCase("NuPE", "NullPointerException"));
+        assertFalse(PyCodeCompletionUtils.matchesCamelCase("NuPE", "NPE"));
+        assertFalse(PyCodeCompletionUtils.matchesCamelCase("gTB", "gtb"));
+    }
+
     private void compare(String[] strings, ICompletionProposalHandle[] proposals) {
         //        for (int i = 0; i < proposals.length; i++) {
         //            System.out.println(proposals[i].getDisplayString());
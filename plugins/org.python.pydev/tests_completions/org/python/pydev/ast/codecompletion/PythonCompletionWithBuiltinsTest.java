@@ -22,6 +22,7 @@ import org.python.pydev.ast.codecompletion.revisited.CompletionCache;
 import org.python.pydev.ast.codecompletion.revisited.CompletionStateFactory;
 import org.python.pydev.ast.codecompletion.revisited.modules.AbstractModule;
 import org.python.pydev.ast.codecompletion.revisited.modules.CompiledModule;
+import org.python.pydev.ast.codecompletion.revisited.modules.CompiledToken;
 import org.python.pydev.ast.codecompletion.revisited.visitors.Definition;
 import org.python.pydev.ast.codecompletion.shell.AbstractShell;
 import org.python.pydev.ast.codecompletion.shell.PythonShell;
@@ -30,17 +31,19 @@ import org.python.pydev.core.ICodeCompletionASTManager;
 import org.python.pydev.core.ICompletionState;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.IModule;
+import org.python.pydev.core.IModulesManager;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.ISystemModulesManager;
+import org.python.pydev.core.IToken;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.TestDependent;
-import org.python.pydev.core.concurrency.RunnableAsJobsPoolThread;
 import org.python.pydev.core.structure.CompletionRecursionException;
 import org.python.pydev.editor.codecompletion.proposals.OverrideMethodCompletionProposal;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.code_completion.ICompletionProposalHandle;
 import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.structure.Tuple;
 
 public class PythonCompletionWithBuiltinsTest extends CodeCompletionTestsBase {
 
@@ -603,9 +606,29 @@ public class PythonCompletionWithBuiltinsTest extends CodeCompletionTestsBase {
         assertTrue(module instanceof CompiledModule);
         ISystemModulesManager systemModulesManager = nature.getAstManager().getModulesManager()
                 .getSystemModulesManager();
-        RunnableAsJobsPoolThread.getSingleton().waitToFinishCurrent();
-        File file = systemModulesManager.getCompiledModuleCacheFile(module.getName());
-        assertTrue(file.exists());
+        assertTrue(systemModulesManager.getCompiledModulesStore().contains(module.getName()));
+    }
+
+    public void testInvalidInfoNotCached() throws Exception {
+        IModulesManager modulesManager = nature.getAstManager().getModulesManager();
+        ISystemModulesManager systemModulesManager = modulesManager.getSystemModulesManager();
+
+        // The shell fails to get the info (so, it must be requested again the next time).
+        String name = "os.pydev_not_existing_module";
+        CompiledModule module = new CompiledModule(name, modulesManager, nature);
+        assertEquals(0, module.getGlobalTokens().size());
+        assertFalse(systemModulesManager.getCompiledModulesStore().contains(name));
+
+        IToken[] empty = new IToken[0];
+        IToken error = new CompiledToken("ERROR:", "error", "", "os", IToken.TYPE_BUILTIN, nature);
+        IToken token = new CompiledToken("walk", "", "", "os", IToken.TYPE_FUNCTION, nature);
+        assertFalse(CompiledModule.isValidInfo(null));
+        assertFalse(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(null, null)));
+        assertFalse(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(null, empty)));
+        assertFalse(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(null, new IToken[] { error })));
+        assertTrue(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(new File("os.py"), empty)));
+        assertTrue(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(null, new IToken[] { token })));
+        assertTrue(CompiledModule.isValidInfo(new Tuple<File, IToken[]>(null, new IToken[] { error, token })));
     }
 
     public void testAssignToFuncCompletion() throws Exception {
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion.revisited;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Pass;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import junit.framework.TestCase;
+
+public class AstDiskCacheTest extends TestCase {
+
+    private static final int GRAMMAR_VERSION = 1;
+
+    private File baseDir;
+    private File cacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_ast_disk_cache_test");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+        cacheDir = new File(baseDir, "cache");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        super.tearDown();
+    }
+
+    private File createModule(String name) throws Exception {
+        File f = new File(baseDir, name + ".py");
+        StringBuilder buf = new StringBuilder();
+        while (buf.length() < 10 * 1024) {
+            buf.append("a = 10\n");
+        }
+        FileUtils.writeStrToFile(buf.toString(), f);
+        return f;
+    }
+
+    private static SimpleNode createAst() {
+        return new Module(new stmtType[] { new Pass() });
+    }
+
+    private void put(AstDiskCache cache, File f) {
+        cache.put(f, FileUtils.lastModified(f), f.length(), GRAMMAR_VERSION, createAst());
+    }
+
+    private File[] getCacheFiles() {
+        return cacheDir.listFiles((dir, name) -> name.endsWith(".ast"));
+    }
+
+    public void testGetAndPut() throws Exception {
+        AstDiskCache cache = new AstDiskCache(cacheDir);
+        File f = createModule("mod1");
+        assertNull(cache.get(f, GRAMMAR_VERSION));
+        assertEquals(1, cache.getMisses());
+
+        put(cache, f);
+        SimpleNode ast = cache.get(f, GRAMMAR_VERSION);
+        assertTrue(ast instanceof Module);
+        assertEquals(1, ((Module) ast).body.length);
+        assertEquals(1, cache.getHits());
+
+        // Other grammar or changed file.
+        assertNull(cache.get(f, GRAMMAR_VERSION + 1));
+        FileUtils.writeStrToFile(FileUtils.getFileContents(f) + "b = 20\n", f);
+        assertNull(cache.get(f, GRAMMAR_VERSION));
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        cache.clear();
+        assertEquals(0, getCacheFiles().length);
+    }
+
+    public void testCorrupted() throws Exception {
+        AstDiskCache cache = new AstDiskCache(cacheDir);
+        File f = createModule("mod1");
+        put(cache, f);
+        File cacheFile = getCacheFiles()[0];
+
+        // Offset of the length of the ast bytes: version, path, grammar version, modified time and size.
+        int lenOffset = 4 + 2 + FileUtils.getFileAbsolutePath(f).getBytes(StandardCharsets.UTF_8).length + 4 + 8 + 8;
+        int len;
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.seek(lenOffset);
+            len = file.readInt();
+        }
+        for (int invalidLen : new int[] { -1, Integer.MAX_VALUE, len + 1 }) {
+            try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+                file.seek(lenOffset);
+                file.writeInt(invalidLen);
+            }
+            assertNull(cache.get(f, GRAMMAR_VERSION));
+        }
+
+        // Truncated.
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.seek(lenOffset);
+            file.writeInt(len);
+            file.setLength(lenOffset + 4 + len / 2);
+        }
+        assertNull(cache.get(f, GRAMMAR_VERSION));
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        // Overwritten when added again.
+        put(cache, f);
+        assertNotNull(cache.get(f, GRAMMAR_VERSION));
+    }
+
+    public void testPrune() throws Exception {
+        AstDiskCache cache = new AstDiskCache(cacheDir, 4);
+        File[] modules = new File[10];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = createModule("mod" + i);
+            put(cache, modules[i]);
+        }
+        // The oldest entries are removed.
+        long time = System.currentTimeMillis() - 10000;
+        for (File cacheFile : getCacheFiles()) {
+            cacheFile.setLastModified(time);
+        }
+        put(cache, modules[9]);
+        assertEquals(10, getCacheFiles().length);
+
+        cache.prune();
+        // Removes more than needed so that it's not done on each check.
+        assertEquals(3, getCacheFiles().length);
+        assertNotNull(cache.get(modules[9], GRAMMAR_VERSION));
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.ast.codecompletion.revisited;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.python.pydev.ast.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.ast.codecompletion.revisited.modules.EmptyModule;
+import org.python.pydev.core.ModulesKey;
+
+import junit.framework.TestCase;
+
+public class ModulesManagerCacheTest extends TestCase {
+
+    private ProjectModulesManager manager;
+    private List<ModulesKey> addedKeys;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        manager = new ProjectModulesManager();
+        addedKeys = new ArrayList<ModulesKey>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Also removes them from the cache shared by the managers.
+        manager.removeModules(addedKeys);
+        super.tearDown();
+    }
+
+    /**
+     * Adds the key to the manager (the module is also put in the cache shared by the managers, which isn't
+     * the one tested).
+     */
+    private ModulesKey addKey(String name) {
+        ModulesKey key = new ModulesKey(name, null);
+        manager.addModule(key);
+        addedKeys.add(key);
+        return key;
+    }
+
+    public void testEvictionOrder() throws Exception {
+        ModulesManagerCache cache = new ModulesManagerCache(3, 1);
+        ModulesKey a = addKey("a");
+        ModulesKey b = addKey("b");
+        ModulesKey c = addKey("c");
+        ModulesKey d = addKey("d");
+
+        AbstractModule modA = cache.getObj(a, manager);
+        AbstractModule modB = cache.getObj(b, manager);
+        AbstractModule modC = cache.getObj(c, manager);
+        assertEquals(3, cache.getMisses());
+
+        // 'a' is now the most recently used, so, 'b' is evicted when 'd' is added.
+        assertSame(modA, cache.getObj(a, manager));
+        AbstractModule modD = cache.getObj(d, manager);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.size());
+
+        assertSame(modA, cache.getObj(a, manager));
+        assertSame(modC, cache.getObj(c, manager));
+        assertSame(modD, cache.getObj(d, manager));
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.getHits());
+
+        // 'b' is created again (and 'a', the least recently used now, is evicted).
+        AbstractModule newB = cache.getObj(b, manager);
+        assertNotSame(modB, newB);
+        assertEquals("b", newB.getName());
+        assertEquals(5, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertNotSame(modA, cache.getObj(a, manager));
+    }
+
+    public void testCapacity() throws Exception {
+        ModulesManagerCache cache = new ModulesManagerCache(64, 16);
+        assertEquals(64, cache.getMaxSize());
+        for (int i = 0; i < 1000; i++) {
+            assertNotNull(cache.getObj(addKey("mod" + i), manager));
+            assertTrue(cache.size() <= 64);
+        }
+        assertEquals(1000, cache.getMisses());
+        assertEquals(1000 - cache.size(), cache.getEvictions());
+
+        cache.setMaxSize(32);
+        assertEquals(32, cache.getMaxSize());
+        assertTrue(cache.size() <= 32);
+        assertEquals(1000 - cache.size(), cache.getEvictions());
+
+        // At least one module for each segment.
+        cache.setMaxSize(1);
+        assertEquals(16, cache.getMaxSize());
+        assertTrue(cache.size() <= 16);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        try {
+            new ModulesManagerCache(64, 3);
+            fail("Expected the number of segments to be validated.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testAddRemove() throws Exception {
+        ModulesManagerCache cache = new ModulesManagerCache(10, 1);
+        ModulesKey key = addKey("mod1");
+        EmptyModule module = new EmptyModule("mod1", null);
+        cache.add(key, module, manager);
+        assertSame(module, cache.getObj(key, manager));
+        // An equal key (the one passed may be reused by the caller).
+        assertSame(module, cache.getObj(new ModulesKey("mod1", null), manager));
+        assertEquals(2, cache.getHits());
+
+        cache.remove(key, manager);
+        AbstractModule created = cache.getObj(key, manager);
+        assertNotSame(module, created);
+        assertEquals(1, cache.getMisses());
+
+        // Not in the manager: not created.
+        assertNull(cache.getObj(new ModulesKey("mod2", null), manager));
+        assertEquals(1, cache.size());
+
+        // Different managers don't share the modules.
+        ProjectModulesManager otherManager = new ProjectModulesManager();
+        otherManager.addModule(key);
+        try {
+            assertNotSame(created, cache.getObj(key, otherManager));
+            assertEquals(2, cache.size());
+        } finally {
+            otherManager.removeModules(Arrays.asList(key));
+        }
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final ModulesManagerCache cache = new ModulesManagerCache(64, 4);
+        final List<ModulesKey> keys = new ArrayList<ModulesKey>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(addKey("mod" + i));
+        }
+        final int nThreads = 8;
+        final int callsPerThread = 5000;
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < nThreads; i++) {
+            final Random random = new Random(i);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < callsPerThread; j++) {
+                            // Some keys are much more used than the others.
+                            int index = random.nextInt(4) == 0 ? random.nextInt(keys.size()) : random.nextInt(20);
+                            ModulesKey key = keys.get(index);
+                            if (random.nextInt(50) == 0) {
+                                cache.remove(key, manager);
+                                continue;
+                            }
+                            AbstractModule module = cache.getObj(new ModulesKey(key.name, null), manager);
+                            assertNotNull(module);
+                            assertEquals(key.name, module.getName());
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertTrue(cache.size() <= 64);
+        long calls = cache.getHits() + cache.getMisses();
+        assertTrue(calls <= nThreads * callsPerThread);
+        assertTrue(calls > nThreads * callsPerThread * 9 / 10);
+        assertTrue(cache.getHits() > 0);
+    }
+}
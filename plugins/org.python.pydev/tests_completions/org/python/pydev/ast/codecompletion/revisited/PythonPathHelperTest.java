@@ -128,6 +128,85 @@ public class PythonPathHelperTest extends CodeCompletionTestsBase {
         assertTrue(moduleNames.contains("testlib.unittest.relative.testrelative"));
     }
 
+    public void testGetModulesFoundStructureWithScanJournal() throws Exception {
+        String path = TestDependent.GetCompletePythonLib(true) + "|" + TestDependent.TEST_PYSRC_TESTING_LOC;
+        PythonPathHelper helper = new PythonPathHelper();
+        helper.setPythonPath(path);
+        Map<File, String> expected = helper.getModulesFoundStructure(null, null).regularModules;
+
+        File journalFile = File.createTempFile("pythonpath_scan", ".journal");
+        journalFile.delete();
+        try {
+            PythonpathScanJournal journal = new PythonpathScanJournal(journalFile);
+            helper.setScanJournal(journal);
+            assertEquals(expected, helper.getModulesFoundStructure(null, null).regularModules);
+            assertTrue(journal.getListedDirs() > 0);
+            assertTrue(journalFile.exists());
+
+            // Nothing changed: nothing is listed again.
+            assertEquals(expected, helper.getModulesFoundStructure(null, null).regularModules);
+            assertEquals(0, journal.getListedDirs());
+            assertTrue(journal.getUnchangedDirs() > 0);
+
+            // Loaded from the disk.
+            journal = new PythonpathScanJournal(journalFile);
+            helper.setScanJournal(journal);
+            assertEquals(expected, helper.getModulesFoundStructure(null, null).regularModules);
+            assertEquals(0, journal.getListedDirs());
+
+            // The roots are scanned in parallel or serially with the same results.
+            for (int maxThreads : new int[] { 1, 4 }) {
+                journal = new PythonpathScanJournal(null, maxThreads);
+                helper.setScanJournal(journal);
+                assertEquals(expected, helper.getModulesFoundStructure(null, null).regularModules);
+                assertTrue(journal.getListedDirs() > 0);
+            }
+        } finally {
+            journalFile.delete();
+        }
+    }
+
+    public void testScanJournalFindsChanges() throws Exception {
+        File baseDir = File.createTempFile("pythonpath_scan", "");
+        baseDir.delete();
+        File pack = new File(baseDir, "pack");
+        pack.mkdirs();
+        try {
+            FileUtils.writeStrToFile("", new File(pack, "__init__.py"));
+            FileUtils.writeStrToFile("", new File(pack, "mod1.py"));
+
+            PythonPathHelper helper = new PythonPathHelper();
+            helper.setPythonPath(FileUtils.getFileAbsolutePath(baseDir));
+            PythonpathScanJournal journal = new PythonpathScanJournal(null);
+            helper.setScanJournal(journal);
+
+            Collection<String> moduleNames = helper.getModulesFoundStructure(null, null).regularModules.values();
+            assertTrue(moduleNames.contains("pack.mod1"));
+            assertFalse(moduleNames.contains("pack.sub.mod2"));
+
+            File sub = new File(pack, "sub");
+            sub.mkdirs();
+            FileUtils.writeStrToFile("", new File(sub, "mod2.py"));
+            // As reported by the PathWatch (the modified time may not change within the same second in
+            // some filesystems).
+            journal.invalidate(sub);
+
+            moduleNames = helper.getModulesFoundStructure(null, null).regularModules.values();
+            assertTrue(moduleNames.contains("pack.mod1"));
+            assertTrue(moduleNames.contains("pack.sub.mod2"));
+            assertEquals(2, journal.getListedDirs()); // pack and pack.sub
+            assertEquals(1, journal.getUnchangedDirs()); // baseDir
+
+            new File(pack, "mod1.py").delete();
+            journal.invalidate(new File(pack, "mod1.py"));
+            moduleNames = helper.getModulesFoundStructure(null, null).regularModules.values();
+            assertFalse(moduleNames.contains("pack.mod1"));
+            assertTrue(moduleNames.contains("pack.sub.mod2"));
+        } finally {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+    }
+
     public void testModuleCompletion() {
         token = "unittest";
         line = 3;